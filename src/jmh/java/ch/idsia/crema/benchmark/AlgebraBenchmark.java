@@ -0,0 +1,108 @@
+package ch.idsia.crema.benchmark;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.algebra.BayesianAlgebra;
+import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.bayesian.BayesianNoisyOrFactor;
+import ch.idsia.crema.utility.IndexIterator;
+import ch.idsia.crema.utility.SplitRandom;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Single factor operations of the {@link BayesianAlgebra} and of the {@link Strides}. The two factors have the given
+ * number of variables each and share half of them; the noisy-OR factors use binary variables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlgebraBenchmark {
+
+	@Param({"6", "10"})
+	public int variables;
+
+	@Param({"2", "4"})
+	public int cardinality;
+
+	private final BayesianAlgebra algebra = new BayesianAlgebra();
+
+	private BayesianFactor one;
+	private BayesianFactor two;
+	private BayesianFactor noisyOr;
+	private BayesianFactor binary;
+	private int shared;
+
+	@Setup
+	public void setup() {
+		final SplitRandom random = new SplitRandom(42);
+
+		final int[] vars1 = IntStream.range(0, variables).toArray();
+		final int[] vars2 = IntStream.range(variables / 2, variables / 2 + variables).toArray();
+
+		one = factor(vars1, random);
+		two = factor(vars2, random);
+		shared = variables / 2 + variables / 4;
+
+		final int[] parents = IntStream.range(0, variables - 1).toArray();
+		final double[] strengths = random.doubles(parents.length).toArray();
+		noisyOr = new BayesianNoisyOrFactor(binary(vars1), parents, strengths);
+		binary = new BayesianDefaultFactor(binary(vars2), random.doubles(1 << vars2.length).toArray());
+	}
+
+	private BayesianFactor factor(int[] vars, SplitRandom random) {
+		final int[] sizes = new int[vars.length];
+		Arrays.fill(sizes, cardinality);
+		final Strides domain = new Strides(vars, sizes);
+		return new BayesianDefaultFactor(domain, random.doubles(domain.getCombinations()).toArray());
+	}
+
+	private static Strides binary(int[] vars) {
+		final int[] sizes = new int[vars.length];
+		Arrays.fill(sizes, 2);
+		return new Strides(vars, sizes);
+	}
+
+	@Benchmark
+	public BayesianFactor combine() {
+		return algebra.combine(one, two);
+	}
+
+	@Benchmark
+	public BayesianFactor marginalize() {
+		return algebra.marginalize(one, shared);
+	}
+
+	@Benchmark
+	public BayesianFactor filter() {
+		return algebra.filter(one, shared, cardinality - 1);
+	}
+
+	@Benchmark
+	public BayesianFactor combineNoisyOr() {
+		return algebra.combine(noisyOr, binary);
+	}
+
+	@Benchmark
+	public BayesianFactor marginalizeNoisyOr() {
+		return algebra.marginalize(noisyOr, 0);
+	}
+
+	@Benchmark
+	public Strides stridesUnion() {
+		return one.getDomain().union(two.getDomain());
+	}
+
+	@Benchmark
+	public void stridesIteration(Blackhole blackhole) {
+		final Strides union = one.getDomain().union(two.getDomain());
+		final IndexIterator it = one.getDomain().getIterator(union);
+		while (it.hasNext())
+			blackhole.consume(it.next());
+	}
+
+}
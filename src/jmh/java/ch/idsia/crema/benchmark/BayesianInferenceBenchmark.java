@@ -0,0 +1,77 @@
+package ch.idsia.crema.benchmark;
+
+import ch.idsia.crema.factor.algebra.BayesianAlgebra;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.inference.bp.BeliefPropagation;
+import ch.idsia.crema.inference.sampling.LikelihoodWeightingSampling;
+import ch.idsia.crema.inference.sampling.LogicSampling;
+import ch.idsia.crema.inference.ve.VariableElimination;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inference on synthetic Bayesian networks: a query on the last variable given an observation of the first one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BayesianInferenceBenchmark {
+
+	@Param({"TREE", "POLYTREE", "GRID", "RANDOM"})
+	public SyntheticNetworks.Shape shape;
+
+	@Param({"20", "60"})
+	public int size;
+
+	@Param({"2", "3"})
+	public int cardinality;
+
+	@Param({"3"})
+	public int width;
+
+	@Param({"10000"})
+	public long samples;
+
+	private BayesianNetwork model;
+	private TIntIntMap evidence;
+	private int query;
+	private int[] order;
+
+	@Setup
+	public void setup() {
+		model = SyntheticNetworks.bayesian(shape, size, cardinality, width, 42);
+		evidence = new TIntIntHashMap(new int[]{0}, new int[]{0});
+		query = size - 1;
+		order = new MinFillOrdering().apply(model);
+	}
+
+	@Benchmark
+	public BayesianFactor variableElimination() {
+		return new VariableElimination<>(new BayesianAlgebra(), order).query(model, evidence, query);
+	}
+
+	@Benchmark
+	public BayesianFactor beliefPropagation() {
+		return new BeliefPropagation<BayesianFactor>().query(model, evidence, query);
+	}
+
+	@Benchmark
+	public BayesianFactor logicSampling() {
+		final LogicSampling inf = new LogicSampling(samples);
+		inf.setSeed(42);
+		return inf.query(model, evidence, query);
+	}
+
+	@Benchmark
+	public BayesianFactor likelihoodWeighting() {
+		final LikelihoodWeightingSampling inf = new LikelihoodWeightingSampling(samples);
+		inf.setSeed(42);
+		return inf.query(model, evidence, query);
+	}
+
+}
@@ -0,0 +1,51 @@
+package ch.idsia.crema.benchmark;
+
+import ch.idsia.crema.utility.SplitRandom;
+import ch.idsia.crema.utility.hull.IncrementalConvexHull;
+import ch.idsia.crema.utility.hull.LPConvexHull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Convex hull of random points of the probability simplex, as the ones produced by the credal algorithms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConvexHullBenchmark {
+
+	@Param({"3", "5"})
+	public int dimension;
+
+	@Param({"50", "200"})
+	public int points;
+
+	private double[][] data;
+
+	@Setup
+	public void setup() {
+		final SplitRandom random = new SplitRandom(42);
+		data = new double[points][dimension];
+		for (double[] p : data) {
+			double sum = 0;
+			for (int j = 0; j < dimension; j++) {
+				p[j] = -Math.log(1 - random.nextDouble());
+				sum += p[j];
+			}
+			for (int j = 0; j < dimension; j++)
+				p[j] /= sum;
+		}
+	}
+
+	@Benchmark
+	public double[][] lpConvexHull() {
+		return LPConvexHull.compute(data);
+	}
+
+	@Benchmark
+	public double[][] incrementalConvexHull() {
+		return IncrementalConvexHull.compute(data);
+	}
+
+}
@@ -0,0 +1,61 @@
+package ch.idsia.crema.benchmark;
+
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.credal.linear.interval.IntervalFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import ch.idsia.crema.inference.approxlp1.ApproxLP1;
+import ch.idsia.crema.inference.sepolyve.SePolyVE;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.DAGModel;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inference on synthetic credal networks, obtained by contamination of the synthetic Bayesian networks: the marginal
+ * of the last variable without evidence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CredalInferenceBenchmark {
+
+	@Param({"TREE", "POLYTREE", "GRID", "RANDOM"})
+	public SyntheticNetworks.Shape shape;
+
+	@Param({"8", "16"})
+	public int size;
+
+	@Param({"2", "3"})
+	public int cardinality;
+
+	@Param({"2"})
+	public int width;
+
+	@Param({"0.05"})
+	public double epsilon;
+
+	private DAGModel<VertexFactor> vertex;
+	private DAGModel<GenericFactor> interval;
+	private int query;
+
+	@Setup
+	public void setup() {
+		final BayesianNetwork bn = SyntheticNetworks.bayesian(shape, size, cardinality, width, 42);
+		vertex = SyntheticNetworks.vertex(bn, epsilon);
+		interval = SyntheticNetworks.interval(bn, epsilon);
+		query = size - 1;
+	}
+
+	@Benchmark
+	public VertexFactor sePolyVE() {
+		return new SePolyVE(0.0001).query(vertex, new TIntIntHashMap(), query);
+	}
+
+	@Benchmark
+	public IntervalFactor approxLP1() {
+		return new ApproxLP1<GenericFactor>().query(interval, new TIntIntHashMap(), query);
+	}
+
+}
@@ -0,0 +1,86 @@
+package ch.idsia.crema.benchmark;
+
+import ch.idsia.crema.factor.algebra.BayesianAlgebra;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import ch.idsia.crema.inference.bp.BeliefPropagation;
+import ch.idsia.crema.inference.sampling.LikelihoodWeightingSampling;
+import ch.idsia.crema.inference.sepolyve.SePolyVE;
+import ch.idsia.crema.inference.ve.CredalVariableElimination;
+import ch.idsia.crema.inference.ve.VariableElimination;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import ch.idsia.crema.model.io.uai.UAIParser;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inference on the networks in the <code>models</code> folder, the benchmarks must be run from the project folder.
+ * Each Bayesian network is queried on its last variable given an observation of the first one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModelsBenchmark {
+
+	@Param({"asia", "cancer", "earthquake", "sachs", "alloy"})
+	public String network;
+
+	private BayesianNetwork bn;
+	private TIntIntMap evidence;
+	private int query;
+	private int[] order;
+
+	private DAGModel<VertexFactor> credal;
+
+	@Setup
+	public void setup() throws IOException {
+		bn = BIFParser.read("models/bif/" + network + ".bif").network;
+		final int[] variables = bn.getVariables();
+		evidence = new TIntIntHashMap(new int[]{variables[0]}, new int[]{0});
+		query = variables[variables.length - 1];
+		order = new MinFillOrdering().apply(bn);
+
+		credal = UAIParser.read("models/pgm-vcredal.uai");
+	}
+
+	@Benchmark
+	public BayesianFactor variableElimination() {
+		return new VariableElimination<>(new BayesianAlgebra(), order).query(bn, evidence, query);
+	}
+
+	@Benchmark
+	public BayesianFactor beliefPropagation() {
+		return new BeliefPropagation<BayesianFactor>().query(bn, evidence, query);
+	}
+
+	@Benchmark
+	public BayesianFactor likelihoodWeighting() {
+		final LikelihoodWeightingSampling inf = new LikelihoodWeightingSampling(10000);
+		inf.setSeed(42);
+		return inf.query(bn, evidence, query);
+	}
+
+	/**
+	 * The credal network does not depend on the parameter, the score is the same for all of them.
+	 */
+	@Benchmark
+	public VertexFactor credalVariableElimination() {
+		return new CredalVariableElimination().query(credal, new TIntIntHashMap(), 0);
+	}
+
+	/**
+	 * The credal network does not depend on the parameter, the score is the same for all of them.
+	 */
+	@Benchmark
+	public VertexFactor sePolyVE() {
+		return new SePolyVE(0.0001).query(credal, new TIntIntHashMap(), 0);
+	}
+
+}
@@ -0,0 +1,246 @@
+package ch.idsia.crema.benchmark;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.credal.linear.interval.IntervalFactorFactory;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactorFactory;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.utility.SplitRandom;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generators of synthetic networks with a controllable size, cardinality and width. The structure and the parameters
+ * depend only on the seed, so that the same workload can be repeated across runs and versions.
+ * <p>
+ * The width controls the treewidth of the generated structure:
+ * <ul>
+ *     <li>{@link Shape#TREE}: each node has one parent, the width is ignored;</li>
+ *     <li>{@link Shape#POLYTREE}: each node has up to width parents, taken from different connected components;</li>
+ *     <li>{@link Shape#GRID}: a grid with width columns, each node has the nodes above and on the left as parents;</li>
+ *     <li>{@link Shape#RANDOM}: each node has up to width parents among the previous 2 * width nodes.</li>
+ * </ul>
+ */
+public final class SyntheticNetworks {
+
+	public enum Shape {
+		TREE, POLYTREE, GRID, RANDOM
+	}
+
+	private SyntheticNetworks() {
+	}
+
+	/**
+	 * @return for each node, its sorted parents; parents always have a lower index than their children
+	 */
+	static int[][] structure(Shape shape, int size, int width, Random random) {
+		final int[][] parents = new int[size][];
+
+		switch (shape) {
+			case TREE:
+				parents[0] = new int[0];
+				for (int i = 1; i < size; i++)
+					parents[i] = new int[]{random.nextInt(i)};
+				break;
+
+			case POLYTREE:
+				// union-find over the nodes: a node can join different components without creating a loop
+				final int[] component = new int[size];
+				for (int i = 0; i < size; i++) {
+					component[i] = i;
+
+					final int[] candidates = random.ints(0, Math.max(i, 1)).limit(width).distinct().toArray();
+					int[] ps = new int[0];
+					for (int c : candidates) {
+						if (c >= i)
+							continue;
+						final int root = find(component, c);
+						if (root == i)
+							continue;
+						component[root] = i;
+						ps = Arrays.copyOf(ps, ps.length + 1);
+						ps[ps.length - 1] = c;
+					}
+					Arrays.sort(ps);
+					parents[i] = ps;
+				}
+				break;
+
+			case GRID:
+				for (int i = 0; i < size; i++) {
+					final int row = i / width, col = i % width;
+					if (row > 0 && col > 0)
+						parents[i] = new int[]{i - width, i - 1};
+					else if (row > 0)
+						parents[i] = new int[]{i - width};
+					else if (col > 0)
+						parents[i] = new int[]{i - 1};
+					else
+						parents[i] = new int[0];
+				}
+				break;
+
+			case RANDOM:
+				for (int i = 0; i < size; i++) {
+					final int from = Math.max(0, i - 2 * width);
+					parents[i] = i == 0 ? new int[0] : random.ints(from, i).limit(1 + random.nextInt(width)).distinct().sorted().toArray();
+				}
+				break;
+		}
+
+		return parents;
+	}
+
+	private static int find(int[] component, int i) {
+		while (component[i] != i) {
+			component[i] = component[component[i]];
+			i = component[i];
+		}
+		return i;
+	}
+
+	/**
+	 * @return a random distribution over the given number of states
+	 */
+	private static double[] distribution(int states, Random random) {
+		final double[] p = new double[states];
+		double sum = 0;
+		for (int i = 0; i < states; i++) {
+			p[i] = 0.05 + random.nextDouble();
+			sum += p[i];
+		}
+		for (int i = 0; i < states; i++)
+			p[i] /= sum;
+		return p;
+	}
+
+	/**
+	 * @param shape       structure of the network
+	 * @param size        number of variables
+	 * @param cardinality number of states of each variable
+	 * @param width       controls the treewidth, see {@link SyntheticNetworks}
+	 * @param seed        seed of the structure and of the parameters
+	 * @return a Bayesian network with random conditional distributions
+	 */
+	public static BayesianNetwork bayesian(Shape shape, int size, int cardinality, int width, long seed) {
+		final Random random = new SplitRandom(seed);
+		final int[][] parents = structure(shape, size, width, random);
+
+		final BayesianNetwork model = new BayesianNetwork();
+		for (int i = 0; i < size; i++)
+			model.addVariable(cardinality);
+
+		for (int i = 0; i < size; i++) {
+			model.addParents(i, parents[i]);
+
+			final Strides left = model.getDomain(i);
+			final Strides right = model.getDomain(parents[i]);
+
+			final double[] data = new double[left.getCombinations() * right.getCombinations()];
+			for (int j = 0; j < right.getCombinations(); j++)
+				System.arraycopy(distribution(cardinality, random), 0, data, j * cardinality, cardinality);
+
+			// data is ordered with the variable first, then the parents
+			final int[] order = new int[right.getSize() + 1];
+			order[0] = i;
+			System.arraycopy(right.getVariables(), 0, order, 1, right.getSize());
+			final BayesianFactor f = new BayesianDefaultFactor(left.union(right), order, data);
+			model.setFactor(i, f);
+		}
+
+		return model;
+	}
+
+	/**
+	 * A credal network with the structure of the given Bayesian network, where each conditional distribution p is
+	 * replaced by its epsilon-contamination, the credal set with vertices (1 - epsilon) p + epsilon e_i.
+	 *
+	 * @param bn      the Bayesian network to start from
+	 * @param epsilon the contamination
+	 * @return a credal network with vertex factors
+	 */
+	public static DAGModel<VertexFactor> vertex(BayesianNetwork bn, double epsilon) {
+		final DAGModel<VertexFactor> model = new DAGModel<>();
+		for (int v : bn.getVariables())
+			model.addVariable(bn.getSize(v));
+
+		for (int v : bn.getVariables()) {
+			model.addParents(v, bn.getParents(v));
+
+			final Strides left = model.getDomain(v);
+			final Strides right = model.getDomain(bn.getParents(v));
+			final VertexFactorFactory factory = VertexFactorFactory.factory().domain(left, right);
+
+			for (int j = 0; j < right.getCombinations(); j++) {
+				final double[] p = conditional(bn.getFactor(v), v, right, j);
+				for (int i = 0; i < p.length; i++) {
+					final double[] vertex = new double[p.length];
+					for (int k = 0; k < p.length; k++)
+						vertex[k] = (1 - epsilon) * p[k] + (i == k ? epsilon : 0);
+					factory.addVertex(vertex, right.getStatesFor(j));
+				}
+			}
+
+			model.setFactor(v, factory.get());
+		}
+
+		return model;
+	}
+
+	/**
+	 * A credal network with the structure of the given Bayesian network, where each conditional distribution p is
+	 * replaced by the intervals [(1 - epsilon) p, (1 - epsilon) p + epsilon].
+	 *
+	 * @param bn      the Bayesian network to start from
+	 * @param epsilon the contamination
+	 * @return a credal network with interval factors
+	 */
+	public static DAGModel<GenericFactor> interval(BayesianNetwork bn, double epsilon) {
+		final DAGModel<GenericFactor> model = new DAGModel<>();
+		for (int v : bn.getVariables())
+			model.addVariable(bn.getSize(v));
+
+		for (int v : bn.getVariables()) {
+			model.addParents(v, bn.getParents(v));
+
+			final Strides left = model.getDomain(v);
+			final Strides right = model.getDomain(bn.getParents(v));
+			final IntervalFactorFactory factory = IntervalFactorFactory.factory().domain(left, right);
+
+			for (int j = 0; j < right.getCombinations(); j++) {
+				final double[] p = conditional(bn.getFactor(v), v, right, j);
+				final double[] lower = new double[p.length];
+				final double[] upper = new double[p.length];
+				for (int k = 0; k < p.length; k++) {
+					lower[k] = (1 - epsilon) * p[k];
+					upper[k] = lower[k] + epsilon;
+				}
+				factory.set(lower, upper, right.getStatesFor(j));
+			}
+
+			model.setFactor(v, factory.get());
+		}
+
+		return model;
+	}
+
+	/**
+	 * @return the distribution of the variable given the j-th combination of the states of the parents
+	 */
+	private static double[] conditional(BayesianFactor factor, int variable, Strides parents, int j) {
+		final int[] vars = parents.getVariables();
+		final int[] states = parents.getStatesFor(j);
+
+		BayesianFactor f = factor;
+		for (int i = 0; i < vars.length; i++)
+			f = f.filter(vars[i], states[i]);
+
+		return f.getData().clone();
+	}
+
+}
@@ -0,0 +1,458 @@
+package ch.idsia.crema.data;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A table of discrete observations stored by columns. Each column keeps the states of one variable in an array of
+ * bytes, shorts or ints, depending on the largest state found, and a bitmap of the missing values.
+ * <p>
+ * A dataset is immutable once built. The rows can be visited with {@link #iterator()}, that reuses the same
+ * {@link Observation} view for all the rows, or grouped with {@link #patterns()}, that allocates a map only for each
+ * distinct observation.
+ */
+public class Dataset implements Iterable<Dataset.Observation> {
+
+	private final String[] names;
+	private final int[] variables;
+	private final Column[] columns;
+	private final int rows;
+
+	/**
+	 * Position of each variable in the columns.
+	 */
+	private final TIntIntMap index = new TIntIntHashMap();
+
+	private Dataset(String[] names, int[] variables, Column[] columns, int rows) {
+		this.names = names;
+		this.variables = variables;
+		this.columns = columns;
+		this.rows = rows;
+
+		for (int c = 0; c < variables.length; c++)
+			index.put(variables[c], c);
+	}
+
+	/**
+	 * @param names     the names of the columns
+	 * @param variables the variable of each column
+	 * @return a builder for a dataset with the given columns
+	 */
+	public static Builder builder(String[] names, int[] variables) {
+		return new Builder(names, variables);
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * @return the names of the columns
+	 */
+	public String[] getNames() {
+		return names.clone();
+	}
+
+	/**
+	 * @return the variable of each column
+	 */
+	public int[] getVariables() {
+		return variables.clone();
+	}
+
+	/**
+	 * @param variable a variable of the dataset
+	 * @return the largest state of the variable plus one, 0 if the variable is always missing
+	 */
+	public int getCardinality(int variable) {
+		return columns[column(variable)].max + 1;
+	}
+
+	/**
+	 * @param variable a variable of the dataset
+	 * @return the number of bytes used to store a state of the variable
+	 */
+	public int getBytesPerValue(int variable) {
+		return columns[column(variable)].width;
+	}
+
+	/**
+	 * @param row      a row of the dataset
+	 * @param variable a variable of the dataset
+	 * @return the state of the variable in the given row, or -1 if it is missing
+	 */
+	public int get(int row, int variable) {
+		return columns[column(variable)].get(row);
+	}
+
+	/**
+	 * @param row      a row of the dataset
+	 * @param variable a variable of the dataset
+	 * @return true if the state of the variable is missing in the given row
+	 */
+	public boolean isMissing(int row, int variable) {
+		return columns[column(variable)].isMissing(row);
+	}
+
+	private int column(int variable) {
+		if (!index.containsKey(variable))
+			throw new IllegalArgumentException("Variable " + variable + " not in the dataset");
+		return index.get(variable);
+	}
+
+	/**
+	 * @param row a row of the dataset
+	 * @return a new view on the given row
+	 */
+	public Observation observation(int row) {
+		final Observation observation = new Observation();
+		observation.row = row;
+		return observation;
+	}
+
+	/**
+	 * Iterates over the rows. The iterator returns always the same {@link Observation}, moved to the next row at each
+	 * call of {@link Iterator#next()}: use {@link Observation#toMap()} to keep a row.
+	 */
+	@Override
+	public Iterator<Observation> iterator() {
+		final Observation observation = new Observation();
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return observation.row + 1 < rows;
+			}
+
+			@Override
+			public Observation next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				observation.row++;
+				return observation;
+			}
+		};
+	}
+
+	/**
+	 * @return all the rows as maps from the observed variables to their states
+	 */
+	public List<TIntIntMap> toObservations() {
+		final List<TIntIntMap> observations = new ArrayList<>(rows);
+		for (Observation observation : this)
+			observations.add(observation.toMap());
+		return observations;
+	}
+
+	/**
+	 * Groups identical rows. A map is built only for the first occurrence of each distinct row.
+	 * <p>
+	 * The groups are returned as a list and not as a map because {@link TIntIntHashMap} does not distinguish a missing
+	 * variable from a variable in state 0 when comparing maps: two distinct rows may have equal maps.
+	 *
+	 * @return the distinct observations, in order of first appearance, with their number of occurrences
+	 */
+	public List<Map.Entry<TIntIntMap, Integer>> patterns() {
+		final Map<RowKey, int[]> counts = new HashMap<>();
+		final List<RowKey> order = new ArrayList<>();
+
+		RowKey probe = null;
+		for (int r = 0; r < rows; r++) {
+			if (probe == null)
+				probe = new RowKey(r);
+			else
+				probe.set(r);
+
+			final int[] count = counts.get(probe);
+			if (count != null) {
+				count[0]++;
+			} else {
+				counts.put(probe, new int[]{1});
+				order.add(probe);
+				probe = null;
+			}
+		}
+
+		final List<Map.Entry<TIntIntMap, Integer>> patterns = new ArrayList<>(order.size());
+		for (RowKey key : order)
+			patterns.add(new AbstractMap.SimpleImmutableEntry<>(observation(key.row).toMap(), counts.get(key)[0]));
+		return patterns;
+	}
+
+	@Override
+	public String toString() {
+		return "Dataset{variables=" + Arrays.toString(variables) + ", rows=" + rows + "}";
+	}
+
+	/**
+	 * A view on a row of the dataset.
+	 */
+	public final class Observation {
+		private int row = -1;
+
+		private Observation() {
+		}
+
+		/**
+		 * @return the row of this view
+		 */
+		public int getRow() {
+			return row;
+		}
+
+		/**
+		 * @param variable a variable
+		 * @return the state of the variable, or -1 if it is missing or not in the dataset
+		 */
+		public int get(int variable) {
+			return index.containsKey(variable) ? columns[index.get(variable)].get(row) : -1;
+		}
+
+		/**
+		 * @param variable a variable
+		 * @return true if the variable has a state in this row
+		 */
+		public boolean isObserved(int variable) {
+			return index.containsKey(variable) && !columns[index.get(variable)].isMissing(row);
+		}
+
+		/**
+		 * @return the number of observed variables
+		 */
+		public int size() {
+			int n = 0;
+			for (Column column : columns)
+				if (!column.isMissing(row))
+					n++;
+			return n;
+		}
+
+		/**
+		 * @return a new map with the states of the observed variables of this row
+		 */
+		public TIntIntMap toMap() {
+			final TIntIntMap map = new TIntIntHashMap();
+			for (int c = 0; c < columns.length; c++)
+				if (!columns[c].isMissing(row))
+					map.put(variables[c], columns[c].get(row));
+			return map;
+		}
+
+		@Override
+		public String toString() {
+			return "Observation{row=" + row + ", " + toMap() + "}";
+		}
+	}
+
+	/**
+	 * A row compared by content.
+	 */
+	private final class RowKey {
+		private int row;
+		private int hash;
+
+		RowKey(int row) {
+			set(row);
+		}
+
+		void set(int row) {
+			this.row = row;
+			int h = 1;
+			for (Column column : columns)
+				h = 31 * h + column.get(row);
+			this.hash = h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof RowKey)) return false;
+			final RowKey key = (RowKey) o;
+			if (hash != key.hash) return false;
+			for (Column column : columns)
+				if (column.get(row) != column.get(key.row))
+					return false;
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The states of a variable. Values are stored unsigned in the narrowest type that holds the largest state; the
+	 * array is widened when a larger state is added.
+	 */
+	private static final class Column {
+		private byte[] bytes = new byte[16];
+		private short[] shorts;
+		private int[] ints;
+		private long[] missing = new long[1];
+
+		private int width = Byte.BYTES;
+		private int max = -1;
+
+		int get(int row) {
+			if (isMissing(row))
+				return -1;
+			switch (width) {
+				case Byte.BYTES:
+					return bytes[row] & 0xFF;
+				case Short.BYTES:
+					return shorts[row] & 0xFFFF;
+				default:
+					return ints[row];
+			}
+		}
+
+		boolean isMissing(int row) {
+			return (missing[row >>> 6] & (1L << row)) != 0;
+		}
+
+		void set(int row, int state) {
+			if (state < 0) {
+				missing[row >>> 6] |= 1L << row;
+				return;
+			}
+
+			if (state > max) {
+				max = state;
+				if (width == Byte.BYTES && state > 0xFF)
+					widen(state > 0xFFFF ? Integer.BYTES : Short.BYTES, row);
+				else if (width == Short.BYTES && state > 0xFFFF)
+					widen(Integer.BYTES, row);
+			}
+
+			switch (width) {
+				case Byte.BYTES:
+					bytes[row] = (byte) state;
+					break;
+				case Short.BYTES:
+					shorts[row] = (short) state;
+					break;
+				default:
+					ints[row] = state;
+			}
+		}
+
+		private void widen(int to, int rows) {
+			final int capacity = capacity();
+			if (to == Short.BYTES) {
+				shorts = new short[capacity];
+				for (int r = 0; r < rows; r++)
+					shorts[r] = (short) (bytes[r] & 0xFF);
+			} else {
+				ints = new int[capacity];
+				for (int r = 0; r < rows; r++)
+					ints[r] = width == Byte.BYTES ? bytes[r] & 0xFF : shorts[r] & 0xFFFF;
+				shorts = null;
+			}
+			bytes = null;
+			width = to;
+		}
+
+		private int capacity() {
+			switch (width) {
+				case Byte.BYTES:
+					return bytes.length;
+				case Short.BYTES:
+					return shorts.length;
+				default:
+					return ints.length;
+			}
+		}
+
+		void ensureCapacity(int rows) {
+			final int capacity = capacity();
+			if (rows > capacity)
+				resize(Math.max(rows, capacity + (capacity >> 1)));
+		}
+
+		void resize(int capacity) {
+			switch (width) {
+				case Byte.BYTES:
+					bytes = Arrays.copyOf(bytes, capacity);
+					break;
+				case Short.BYTES:
+					shorts = Arrays.copyOf(shorts, capacity);
+					break;
+				default:
+					ints = Arrays.copyOf(ints, capacity);
+			}
+			missing = Arrays.copyOf(missing, (capacity + 63) >>> 6);
+		}
+	}
+
+	/**
+	 * Builds a {@link Dataset} one row at a time.
+	 */
+	public static class Builder {
+		private final String[] names;
+		private final int[] variables;
+		private Column[] columns;
+		private int rows = 0;
+
+		private Builder(String[] names, int[] variables) {
+			if (names.length != variables.length)
+				throw new IllegalArgumentException("Found " + names.length + " names for " + variables.length + " variables");
+
+			this.names = names.clone();
+			this.variables = variables.clone();
+			this.columns = new Column[variables.length];
+			for (int c = 0; c < columns.length; c++)
+				columns[c] = new Column();
+		}
+
+		/**
+		 * Adds a complete row.
+		 *
+		 * @param states the state of each column, negative values are missing
+		 * @return this builder
+		 */
+		public Builder add(int... states) {
+			if (states.length != columns.length)
+				throw new IllegalArgumentException("Found " + states.length + " states for " + columns.length + " columns");
+
+			for (int c = 0; c < columns.length; c++) {
+				columns[c].ensureCapacity(rows + 1);
+				columns[c].set(rows, states[c]);
+			}
+			rows++;
+			return this;
+		}
+
+		/**
+		 * @return the number of completed rows
+		 */
+		public int size() {
+			return rows;
+		}
+
+		/**
+		 * Builds the dataset with the completed rows. The builder cannot be used after this call.
+		 *
+		 * @return the dataset
+		 */
+		public Dataset build() {
+			for (Column column : columns)
+				column.resize(rows);
+			final Dataset dataset = new Dataset(names, variables, columns, rows);
+			columns = null;
+			return dataset;
+		}
+	}
+
+}
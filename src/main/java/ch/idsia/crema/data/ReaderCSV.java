@@ -44,6 +44,85 @@ public class ReaderCSV {
 
 	}
 
+	/**
+	 * Reads the file row by row directly into a {@link Dataset}: rows are neither kept as strings nor converted to
+	 * doubles. The values must be non-negative integer states, empty cells and <code>NaN</code> are missing values.
+	 * <p>
+	 * The columns are the variables with their name as index if all the names are integers, otherwise the variables
+	 * are the positions of the columns. Unnamed columns are skipped if {@link #dropUnnamed(boolean)} is set.
+	 *
+	 * @return the dataset
+	 * @throws IOException  if the file cannot be read
+	 * @throws CsvException if the file is malformed or contains a value that is not a state
+	 */
+	public Dataset readDataset() throws IOException, CsvException {
+		initReader();
+
+		try (CSVReader reader = csvReader) {
+			// without a header the first line is already data: the file is not opened again
+			final String[] first = reader.readNext();
+			varnames = withHeader
+					? first
+					: IntStream.range(0, first.length).mapToObj(String::valueOf).toArray(String[]::new);
+
+			final int[] columns = IntStream.range(0, varnames.length)
+					.filter(i -> !dropUnnamed || !varnames[i].isEmpty())
+					.toArray();
+			varnames = IntStream.of(columns).mapToObj(i -> varnames[i]).toArray(String[]::new);
+
+			final boolean numeric = Stream.of(varnames).allMatch(n -> n.matches("\\d+"));
+			final int[] variables = numeric
+					? Stream.of(varnames).mapToInt(Integer::parseInt).toArray()
+					: IntStream.range(0, varnames.length).toArray();
+
+			final Dataset.Builder builder = Dataset.builder(varnames, variables);
+			final int[] states = new int[columns.length];
+
+			for (String[] line = withHeader ? reader.readNext() : first; line != null; line = reader.readNext()) {
+				for (int c = 0; c < columns.length; c++) {
+					final int i = columns[c];
+					states[c] = i < line.length ? parseState(line[i], i) : -1;
+				}
+				builder.add(states);
+			}
+
+			return builder.build();
+		}
+	}
+
+	/**
+	 * @return the state in the given cell, -1 if missing
+	 */
+	private int parseState(String value, int column) throws CsvException {
+		if (value.isEmpty())
+			return -1;
+
+		// most values are small integers: avoid going through a double
+		int state = 0;
+		boolean digits = value.length() < 10;
+		for (int k = 0; k < value.length() && digits; k++) {
+			final char ch = value.charAt(k);
+			digits = ch >= '0' && ch <= '9';
+			state = state * 10 + (ch - '0');
+		}
+		if (digits)
+			return state;
+
+		try {
+			final double d = Double.parseDouble(value);
+			if (Double.isNaN(d))
+				return -1;
+			if (d >= 0 && d == (int) d)
+				return (int) d;
+		} catch (NumberFormatException ignored) {
+			// reported below
+		}
+
+		final CsvException e = new CsvException("Line " + csvReader.getLinesRead() + ", column " + (column + 1) + ": invalid state '" + value + "'");
+		e.setLineNumber(csvReader.getLinesRead());
+		throw e;
+	}
+
 	private void initReader() throws FileNotFoundException {
 		csvReader = new CSVReaderBuilder(new FileReader(fileName))
 				.withCSVParser(new CSVParserBuilder().withSeparator(separator).build())
@@ -10,6 +10,7 @@ import ch.idsia.crema.factor.algebra.collectors.LogMarginal;
 import ch.idsia.crema.factor.algebra.collectors.Marginal;
 import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFunctionFactor;
 import ch.idsia.crema.factor.bayesian.BayesianLogFactor;
 import ch.idsia.crema.utility.ArraysUtil;
 
@@ -44,6 +45,7 @@ public class BayesianAlgebra implements Operation<BayesianFactor> {
 
 		Strides target_domain = new Strides(new_variables, new_sizes);
 		final double[] new_data = new double[target_domain.getCombinations()];
+		final double[] data = factor.getData();
 
 		for (int target = 0; target < target_domain.getCombinations(); ++target, ++source) {
 			if (source == next) {
@@ -51,7 +53,7 @@ public class BayesianAlgebra implements Operation<BayesianFactor> {
 				next += reset;
 			}
 
-			new_data[target] = collector.collect(factor.getData(), source);
+			new_data[target] = collector.collect(data, source);
 		}
 
 		if (factor.isLog())
@@ -88,9 +90,10 @@ public class BayesianAlgebra implements Operation<BayesianFactor> {
 		} else {
 			ops = new LogBayesianOperation<>();
 
-			if (!oneIsLog)
+			// function factors are evaluated lazily in log-space
+			if (!oneIsLog && one instanceof BayesianDefaultFactor)
 				one = new BayesianLogFactor((BayesianDefaultFactor) one);
-			if (!twoIsLog)
+			if (!twoIsLog && two instanceof BayesianDefaultFactor)
 				two = new BayesianLogFactor((BayesianDefaultFactor) two);
 		}
 
@@ -154,6 +157,10 @@ public class BayesianAlgebra implements Operation<BayesianFactor> {
 	 */
 	@Override
 	public BayesianFactor filter(BayesianFactor factor, int variable, int state) {
+		if (factor instanceof BayesianFunctionFactor)
+			// logic factors have their own shortcuts, the others are evaluated only on the selected entries
+			return factor.filter(variable, state);
+
 		final Strides domain = factor.getDomain();
 		final int offset = domain.indexOf(variable);
 		return collect(factor, offset, new Filter(domain.getStrideAt(offset), state));
@@ -176,6 +183,10 @@ public class BayesianAlgebra implements Operation<BayesianFactor> {
 	 */
 	@Override
 	public BayesianFactor marginalize(BayesianFactor factor, int variable) {
+		if (factor instanceof BayesianFunctionFactor)
+			// evaluated entry by entry, without building the full table
+			return factor.marginalize(variable);
+
 		final Strides domain = factor.getDomain();
 		final int offset = domain.indexOf(variable);
 
@@ -204,9 +215,9 @@ public class BayesianAlgebra implements Operation<BayesianFactor> {
 		} else {
 			ops = new LogBayesianOperation<>();
 
-			if (!oneIsLog)
+			if (!oneIsLog && one instanceof BayesianDefaultFactor)
 				one = new BayesianLogFactor((BayesianDefaultFactor) one);
-			if (!two.isLog())
+			if (!twoIsLog && two instanceof BayesianDefaultFactor)
 				two = new BayesianLogFactor((BayesianDefaultFactor) two);
 		}
 
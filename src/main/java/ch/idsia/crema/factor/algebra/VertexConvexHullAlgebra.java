@@ -0,0 +1,31 @@
+package ch.idsia.crema.factor.algebra;
+
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import ch.idsia.crema.utility.hull.ConvexHull;
+
+/**
+ * A {@link FactorAlgebra} for {@link VertexFactor}s that applies a {@link ConvexHull} method to the result of each
+ * marginalization. The method is part of the algebra, hence each inference can use its own method without any shared
+ * state: the deprecated global method of the factors is ignored.
+ */
+public class VertexConvexHullAlgebra extends FactorAlgebra<VertexFactor> {
+
+	private final ConvexHull convexHull;
+
+	/**
+	 * @param convexHull the method to apply after marginalization, if null no convex hull is applied
+	 */
+	public VertexConvexHullAlgebra(ConvexHull convexHull) {
+		this.convexHull = convexHull;
+	}
+
+	public ConvexHull getConvexHull() {
+		return convexHull;
+	}
+
+	@Override
+	public VertexFactor marginalize(VertexFactor one, int variable) {
+		return one.marginalize(convexHull, variable);
+	}
+
+}
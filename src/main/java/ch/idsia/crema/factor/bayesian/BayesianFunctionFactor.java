@@ -1,13 +1,12 @@
 package ch.idsia.crema.factor.bayesian;
 
 import ch.idsia.crema.core.Strides;
-import ch.idsia.crema.utility.IndexIterator;
 import gnu.trove.map.TIntIntMap;
 import org.apache.commons.lang3.NotImplementedException;
 import org.apache.commons.math3.util.FastMath;
 
 import java.util.Arrays;
-import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -17,9 +16,13 @@ import java.util.function.Function;
 // TODO: this class can be moved between AbstractBayesianFactor and BayesianDefaultFactor (f is an accessor to data)
 public abstract class BayesianFunctionFactor extends BayesianAbstractFactor {
 
-	protected Function<Integer, Double> f;
+	/**
+	 * Value of the factor for each offset of its domain. The function works on primitive values and is evaluated
+	 * lazily by the algebra, without building the full table.
+	 */
+	protected IntToDoubleFunction f;
 
-	public BayesianFunctionFactor(Strides domain, Function<Integer, Double> f) {
+	public BayesianFunctionFactor(Strides domain, IntToDoubleFunction f) {
 		super(domain);
 		this.f = f;
 	}
@@ -28,7 +31,7 @@ public abstract class BayesianFunctionFactor extends BayesianAbstractFactor {
 		super(domain);
 	}
 
-	protected void setF(Function<Integer, Double> f) {
+	protected void setF(IntToDoubleFunction f) {
 		this.f = f;
 	}
 
@@ -44,23 +47,22 @@ public abstract class BayesianFunctionFactor extends BayesianAbstractFactor {
 
 	@Override
 	public double getValueAt(int index) {
-		return f.apply(index);
+		return f.applyAsDouble(index);
 	}
 
 	@Override
 	public double getLogValueAt(int index) {
-		return FastMath.log(f.apply(index));
+		return FastMath.log(f.applyAsDouble(index));
 	}
 
 	@Override
 	public double[] getData() {
 		// TODO: do we really want to allow the generation of the FULL table of all possible values?
-		final IndexIterator it = getDomain().getIterator();
 		final int size = getDomain().getCombinations();
 
 		final double[] v = new double[size];
 		for (int i = 0; i < size; i++) {
-			v[i] = getValueAt(it.next());
+			v[i] = getValueAt(i);
 		}
 
 		return v;
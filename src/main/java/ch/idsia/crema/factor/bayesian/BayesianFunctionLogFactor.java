@@ -4,7 +4,7 @@ import ch.idsia.crema.core.Strides;
 import ch.idsia.crema.factor.LogSpace;
 import org.apache.commons.math3.util.FastMath;
 
-import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -14,18 +14,18 @@ import java.util.function.Function;
 @LogSpace
 public abstract class BayesianFunctionLogFactor extends BayesianFunctionFactor {
 
-	public BayesianFunctionLogFactor(Strides domain, Function<Integer, Double> f) {
+	public BayesianFunctionLogFactor(Strides domain, IntToDoubleFunction f) {
 		super(domain, f);
 	}
 
 	@Override
 	public double getValueAt(int index) {
-		return FastMath.exp(f.apply(index));
+		return FastMath.exp(f.applyAsDouble(index));
 	}
 
 	@Override
 	public double getLogValueAt(int index) {
-		return f.apply(index);
+		return f.applyAsDouble(index);
 	}
 
 }
@@ -2,8 +2,11 @@ package ch.idsia.crema.factor.bayesian;
 
 import ch.idsia.crema.core.Strides;
 import ch.idsia.crema.utility.ArraysUtil;
+import gnu.trove.list.array.TIntArrayList;
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.util.Arrays;
+
 import java.util.stream.IntStream;
 
 /**
@@ -43,6 +46,30 @@ public abstract class BayesianLogicFactor extends BayesianFunctionFactor {
 	 */
 	protected int[] observedStates;
 
+	/**
+	 * Stride of {@link #variable} in the domain, or 0 if the variable is observed.
+	 */
+	protected int variableStride;
+	/**
+	 * Number of states of {@link #variable}.
+	 */
+	protected int variableSize;
+	/**
+	 * Index in {@link #parents} of each parent that is still in the domain, in the order of the domain.
+	 */
+	protected int[] domainParents;
+	/**
+	 * Stride in the domain of each parent in {@link #domainParents}.
+	 */
+	protected int[] domainParentStrides;
+	/**
+	 * Number of states of each parent in {@link #domainParents}.
+	 */
+	protected int[] domainParentSizes;
+	/**
+	 * Index in {@link #parents} of each variable in {@link #observedVariables}, -1 if it is not a parent.
+	 */
+	protected int[] observedParents;
 
 	/**
 	 * A logic factor where the true states for each parent are defined externally.
@@ -61,6 +88,8 @@ public abstract class BayesianLogicFactor extends BayesianFunctionFactor {
 		this.isObserved = false;
 		this.observedVariables = new int[0];
 		this.observedStates = new int[0];
+
+		index();
 	}
 
 	/**
@@ -88,9 +117,10 @@ public abstract class BayesianLogicFactor extends BayesianFunctionFactor {
 		this.trueStates = ArrayUtils.clone(factor.trueStates);
 
 		// update internal observed variables state
-		this.isObserved = variable == this.variable;
+		this.isObserved = factor.isObserved || variable == this.variable;
+		this.observedState = factor.observedState;
 
-		if (this.isObserved) {
+		if (variable == this.variable) {
 			// variable is the node itself
 			this.observedState = state;
 
@@ -107,6 +137,8 @@ public abstract class BayesianLogicFactor extends BayesianFunctionFactor {
 			this.observedVariables[this.observedVariables.length - 1] = variable;
 			this.observedStates[this.observedStates.length - 1] = state;
 		}
+
+		index();
 	}
 
 	/**
@@ -125,6 +157,76 @@ public abstract class BayesianLogicFactor extends BayesianFunctionFactor {
 		this.observedState = factor.observedState;
 		this.observedVariables = ArrayUtils.clone(factor.observedVariables);
 		this.observedStates = ArrayUtils.clone(factor.observedStates);
+
+		index();
+	}
+
+	/**
+	 * Precomputes the position of the variable and of the parents in the domain, so that {@link #f(int)} can find
+	 * their states from the offset without allocations or searches.
+	 */
+	private void index() {
+		final int[] vars = domain.getVariables();
+
+		final int v = domain.indexOf(variable);
+		variableStride = v < 0 ? 0 : domain.getStrideAt(v);
+		variableSize = v < 0 ? 2 : domain.getSizeAt(v);
+
+		final TIntArrayList indices = new TIntArrayList();
+		final TIntArrayList strides = new TIntArrayList();
+		final TIntArrayList sizes = new TIntArrayList();
+		for (int i = 0; i < vars.length; i++) {
+			final int p = ArraysUtil.indexOf(vars[i], parents);
+			if (p > -1) {
+				indices.add(p);
+				strides.add(domain.getStrideAt(i));
+				sizes.add(domain.getSizeAt(i));
+			}
+		}
+		domainParents = indices.toArray();
+		domainParentStrides = strides.toArray();
+		domainParentSizes = sizes.toArray();
+
+		observedParents = new int[observedVariables.length];
+		for (int i = 0; i < observedVariables.length; i++)
+			observedParents[i] = ArraysUtil.indexOf(observedVariables[i], parents);
+	}
+
+	/**
+	 * @param offset offset in the domain
+	 * @return the state of {@link #variable} at the given offset, or the observed state if it has been filtered out
+	 */
+	protected int variableState(int offset) {
+		if (isObserved)
+			return observedState;
+		return (offset / variableStride) % variableSize;
+	}
+
+	/**
+	 * @param offset offset in the domain
+	 * @param i      position in {@link #domainParents}
+	 * @return the state of the i-th parent of the domain at the given offset
+	 */
+	protected int parentState(int offset, int i) {
+		return (offset / domainParentStrides[i]) % domainParentSizes[i];
+	}
+
+	/**
+	 * When the variable of the factor is binary and not observed, the factor is a conditional distribution of it and
+	 * summing it out gives a factor of ones over the remaining variables: this is done without evaluating the logic.
+	 *
+	 * @param variable the variable to be summed out
+	 * @return the factor with the variable marginalized out
+	 */
+	@Override
+	public BayesianAbstractFactor marginalize(int variable) {
+		if (variable == this.variable && !isObserved && variableSize == 2) {
+			final Strides target = domain.remove(variable);
+			final double[] data = new double[target.getCombinations()];
+			Arrays.fill(data, 1.0);
+			return new BayesianDefaultFactor(target, data);
+		}
+		return super.marginalize(variable);
 	}
 
 	public int getVariable() {
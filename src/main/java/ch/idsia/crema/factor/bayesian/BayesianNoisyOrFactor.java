@@ -29,7 +29,6 @@ public class BayesianNoisyOrFactor extends BayesianLogicFactor {
 	 */
 	public BayesianNoisyOrFactor(Strides domain, int[] parents, int[] trueStates, double[] strengths) {
 		super(domain, parents, trueStates);
-		setF(this::f);
 		this.strengths = strengths;
 	}
 
@@ -77,40 +76,24 @@ public class BayesianNoisyOrFactor extends BayesianLogicFactor {
 	 */
 	@Override
 	protected double f(int offset) {
-		final int[] states = domain.getStatesFor(offset);
-		final int[] vars = domain.getVariables();
-
 		// Q = q1 * q2 * ... * qn where qi = inhibitor value if Pi = true
 		double Q = 1.0;
-		for (int i = 0; i < vars.length; i++) {
-			final int v = vars[i];
-			final int p = ArraysUtil.indexOf(v, parents);
-			if (p > -1) {
-				if (trueStates[p] == states[i]) {
-					Q *= 1 - strengths[p];
-				}
+		for (int i = 0; i < domainParents.length; i++) {
+			final int p = domainParents[i];
+			if (trueStates[p] == parentState(offset, i)) {
+				Q *= 1 - strengths[p];
 			}
 		}
 
 		// inhibitor value of observed parents
-		for (int v : observedVariables) {
-			final int x = ArraysUtil.indexOf(v, observedVariables);
-			final int p = ArraysUtil.indexOf(v, parents);
-			if (x > -1 && p > -1 && observedStates[x] == trueStates[p]) {
+		for (int x = 0; x < observedParents.length; x++) {
+			final int p = observedParents[x];
+			if (p > -1 && observedStates[x] == trueStates[p]) {
 				Q *= 1 - strengths[p];
 			}
 		}
 
-		// output if the node has evidence
-		if (isObserved && observedState == 1)
-			// P(or = y | ...)
-			return 1 - Q;
-		if (isObserved)
-			// P(or = n | ...)
-			return Q;
-
-		// output if the node has no evidence
-		if (states[ArraysUtil.indexOf(variable, vars)] == 1)
+		if (variableState(offset) == 1)
 			// P(or = y | ...)
 			return 1 - Q;
 
@@ -127,7 +110,7 @@ public class BayesianNoisyOrFactor extends BayesianLogicFactor {
 	public BayesianAbstractFactor filter(int variable, int state) {
 		final int p = ArraysUtil.indexOf(variable, parents);
 
-		if (p > -1 && trueStates[p] != state && parents.length - observedVariables.length == 1)
+		if (!isObserved && p > -1 && trueStates[p] != state && parents.length - observedVariables.length == 1)
 			// last parents' state is off
 			return BayesianFactorFactory.zero(this.variable);
 
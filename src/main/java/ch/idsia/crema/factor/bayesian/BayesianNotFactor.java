@@ -25,6 +25,11 @@ public class BayesianNotFactor extends BayesianFunctionFactor {
 	 */
 	protected int trueState;
 
+	/**
+	 * Strides and sizes of the parent and of the variable in the domain.
+	 */
+	private final int parentStride, parentSize, variableStride, variableSize;
+
 
 	protected BayesianNotFactor(Strides domain, int parent, int trueState) {
 		super(domain);
@@ -34,6 +39,13 @@ public class BayesianNotFactor extends BayesianFunctionFactor {
 		this.variable = ArraysUtil.difference(domain.getVariables(), new int[]{parent})[0];
 		this.parent = parent;
 		this.trueState = trueState;
+
+		final int p = domain.indexOf(parent);
+		final int v = domain.indexOf(variable);
+		this.parentStride = domain.getStrideAt(p);
+		this.parentSize = domain.getSizeAt(p);
+		this.variableStride = domain.getStrideAt(v);
+		this.variableSize = domain.getSizeAt(v);
 	}
 
 	public BayesianNotFactor(Strides domain, int parent) {
@@ -54,11 +66,8 @@ public class BayesianNotFactor extends BayesianFunctionFactor {
 	}
 
 	protected double f(int offset) {
-		final int[] states = domain.getStatesFor(offset);
-		final int[] vars = domain.getVariables();
-
-		final int parentState = states[ArraysUtil.indexOf(parent, vars)];
-		final int thisState = states[ArraysUtil.indexOf(variable, vars)];
+		final int parentState = (offset / parentStride) % parentSize;
+		final int thisState = (offset / variableStride) % variableSize;
 
 		if (parentState == trueState)
 			return thisState == 0 ? 1.0 : 0.0;
@@ -66,6 +75,23 @@ public class BayesianNotFactor extends BayesianFunctionFactor {
 		return thisState == 0 ? 0.0 : 1.0;
 	}
 
+	/**
+	 * Summing out the binary variable of the factor gives a factor of ones over the parent.
+	 *
+	 * @param variable the variable to be summed out
+	 * @return the factor with the variable marginalized out
+	 */
+	@Override
+	public BayesianAbstractFactor marginalize(int variable) {
+		if (variable == this.variable && variableSize == 2) {
+			final Strides target = domain.remove(variable);
+			final double[] data = new double[target.getCombinations()];
+			Arrays.fill(data, 1.0);
+			return new BayesianDefaultFactor(target, data);
+		}
+		return super.marginalize(variable);
+	}
+
 	@Override
 	public BayesianFactor copy() {
 		return new BayesianNotFactor(this);
@@ -73,7 +99,10 @@ public class BayesianNotFactor extends BayesianFunctionFactor {
 
 	@Override
 	public BayesianAbstractFactor filter(int variable, int state) {
-		if (variable == parent && state == trueState)
+		if (variable != parent)
+			return super.filter(variable, state);
+
+		if (state == trueState)
 			return BayesianFactorFactory.zero(this.variable);
 
 		return BayesianFactorFactory.one(this.variable);
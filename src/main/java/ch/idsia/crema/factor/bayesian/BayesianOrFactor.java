@@ -2,7 +2,6 @@ package ch.idsia.crema.factor.bayesian;
 
 import ch.idsia.crema.core.Strides;
 import ch.idsia.crema.utility.ArraysUtil;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.Arrays;
 
@@ -53,33 +52,21 @@ public class BayesianOrFactor extends BayesianLogicFactor {
 	 */
 	@Override
 	protected double f(int offset) {
-		final int[] states = domain.getStatesFor(offset);
-		final int[] vars = domain.getVariables();
-
-		final boolean invert;
-		if (isObserved) {
-			invert = observedState == 1;
-		} else {
-			invert = states[ArraysUtil.indexOf(variable, vars)] == 1;
-		}
+		final boolean invert = variableState(offset) == 1;
 
 		final double r_true = invert ? 1.0 : 0.0;
 		final double r_false = invert ? 0.0 : 1.0;
 
 		// if one of the observed variables is a parent and its state is true, return true
-		for (int v : observedVariables) {
-			final int x = ArraysUtil.indexOf(v, observedVariables);
-			final int p = ArraysUtil.indexOf(v, parents);
-			if (x > -1 && p > -1 && observedStates[x] != trueStates[p])
+		for (int x = 0; x < observedParents.length; x++) {
+			final int p = observedParents[x];
+			if (p > -1 && observedStates[x] == trueStates[p])
 				return r_true;
 		}
 
-		for (int i = 0; i < vars.length; i++) {
-			final int v = vars[i];
-			if (ArrayUtils.contains(parents, v)) {
-				if (trueStates[ArraysUtil.indexOf(v, parents)] == states[i]) {
-					return r_true;
-				}
+		for (int i = 0; i < domainParents.length; i++) {
+			if (trueStates[domainParents[i]] == parentState(offset, i)) {
+				return r_true;
 			}
 		}
 
@@ -95,11 +82,11 @@ public class BayesianOrFactor extends BayesianLogicFactor {
 	public BayesianAbstractFactor filter(int variable, int state) {
 		final int p = ArraysUtil.indexOf(variable, parents);
 
-		if (p > -1 && trueStates[p] == state)
+		if (!isObserved && p > -1 && trueStates[p] == state)
 			return BayesianFactorFactory.one(this.variable);
 
 		// check for last parent
-		if (p > -1 && trueStates[p] != state && parents.length - observedVariables.length == 1)
+		if (!isObserved && p > -1 && trueStates[p] != state && parents.length - observedVariables.length == 1)
 			return BayesianFactorFactory.zero(this.variable);
 
 		return new BayesianOrFactor(this, variable, state);
@@ -15,7 +15,21 @@ import java.util.Random;
 @SuppressWarnings("rawtypes")
 public class ExtensiveLinearToRandomBayesian implements Converter<ExtensiveLinearFactor, BayesianFactor> {
 
-	private final Random random = RandomUtil.getRandom();
+	private final Random random;
+
+	/**
+	 * The random directions are drawn with the generator given by {@link RandomUtil} to the running thread.
+	 */
+	public ExtensiveLinearToRandomBayesian() {
+		random = null;
+	}
+
+	/**
+	 * @param random the generator used to draw the random directions
+	 */
+	public ExtensiveLinearToRandomBayesian(Random random) {
+		this.random = random;
+	}
 
 	public BayesianFactor apply(ExtensiveLinearFactor s) {
 		return apply(s, -1);
@@ -24,12 +38,14 @@ public class ExtensiveLinearToRandomBayesian implements Converter<ExtensiveLinea
 	@Override
 	public BayesianFactor apply(ExtensiveLinearFactor s, Integer var) {
 
+		final Random generator = getRandom();
+
 		LinearSolver solver = new Simplex();
-		solver.loadProblem(s, random.nextBoolean() ? GoalType.MINIMIZE : GoalType.MAXIMIZE);
+		solver.loadProblem(s, generator.nextBoolean() ? GoalType.MINIMIZE : GoalType.MAXIMIZE);
 
 		double[] rand = new double[s.getDomain().getCombinations()];
 		for (int i = 0; i < rand.length; ++i)
-			rand[i] = random.nextDouble();
+			rand[i] = generator.nextDouble();
 
 		solver.solve(rand, 1.0);
 		double[] vertex = solver.getVertex();
@@ -37,6 +53,10 @@ public class ExtensiveLinearToRandomBayesian implements Converter<ExtensiveLinea
 		return new BayesianLogFactor(s.getDomain(), vertex);
 	}
 
+	private Random getRandom() {
+		return random == null ? RandomUtil.getRandom() : random;
+	}
+
 	@Override
 	public Class<ExtensiveLinearFactor> getSourceClass() {
 		return ExtensiveLinearFactor.class;
@@ -4,11 +4,30 @@ import ch.idsia.crema.factor.Converter;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceFactor;
 import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import ch.idsia.crema.utility.RandomUtil;
+
+import java.util.Random;
 
 public class HalfspaceToRandomBayesianFactor implements Converter<SeparateHalfspaceFactor, BayesianFactor> {
 
+	private final Random random;
+
 	private boolean log = false;
 
+	/**
+	 * The vertices are drawn with the generator given by {@link RandomUtil} to the running thread.
+	 */
+	public HalfspaceToRandomBayesianFactor() {
+		random = null;
+	}
+
+	/**
+	 * @param random the generator used to draw the vertices
+	 */
+	public HalfspaceToRandomBayesianFactor(Random random) {
+		this.random = random;
+	}
+
 	public boolean isLog() {
 		return log;
 	}
@@ -20,7 +39,7 @@ public class HalfspaceToRandomBayesianFactor implements Converter<SeparateHalfsp
 	@Override
 	public BayesianFactor apply(SeparateHalfspaceFactor s, Integer var) {
 		final VertexFactor v = new HalfspaceToVertex().apply(s, var);
-		final VertexToRandomBayesian vtrb = new VertexToRandomBayesian();
+		final VertexToRandomBayesian vtrb = new VertexToRandomBayesian(random);
 		vtrb.setLog(log);
 		return vtrb.apply(v, var);
 	}
@@ -14,12 +14,22 @@ import org.apache.commons.math3.optim.linear.LinearConstraint;
 import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
 import org.apache.commons.math3.optim.linear.Relationship;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
-
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Converts a {@link SeparateHalfspaceFactor} to a {@link VertexFactor} enumerating with polco the vertices of the
+ * credal set of each combination of the separating domain.
+ * <p>
+ * The vertices are memoized in a {@link HalfspaceVertexCache}: combinations and factors with the same system of
+ * inequalities are enumerated only once. By default the converters share {@link HalfspaceVertexCache#shared()}. When a
+ * pool is set with {@link #setPool(ForkJoinPool)}, the combinations are converted in parallel.
+ */
 public class HalfspaceToVertex implements Converter<SeparateHalfspaceFactor, VertexFactor> {
 
 //	/**
@@ -27,23 +37,64 @@ public class HalfspaceToVertex implements Converter<SeparateHalfspaceFactor, Ver
 //	 */
 //	private static final double EPS = 0.0000000000000002;
 
-	private PolcoAdapter polco;
+	/**
+	 * One adapter for each thread, built without log file.
+	 */
+	private static final ThreadLocal<PolcoAdapter> POLCO = ThreadLocal.withInitial(() -> {
+		try {
+			Options opt = new Options();
+			opt.setLoglevel(Level.OFF);
+			return new PolcoAdapter(opt);
+		} catch (XmlConfigException e) {
+			throw new IllegalStateException("Cannot configure polco", e);
+		}
+	});
+
+	private final HalfspaceVertexCache cache;
+
+	private ForkJoinPool pool = null;
+
+	public HalfspaceToVertex() {
+		this(HalfspaceVertexCache.shared());
+	}
+
+	/**
+	 * @param cache the cache of the enumerated vertices, null to enumerate every combination
+	 */
+	public HalfspaceToVertex(HalfspaceVertexCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @param pool the pool used to convert the combinations in parallel, null to convert them in sequence
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
 
 	@Override
 	public VertexFactor apply(SeparateHalfspaceFactor s, Integer var) {
 		// polco will convert to VCredalSet
+		final int states = s.getDataDomain().getCombinations();
+		final int n = s.getSeparatingDomain().getCombinations();
+
+		final List<double[][]> results;
+		if (pool == null) {
+			results = new ArrayList<>(n);
+			for (int comb = 0; comb < n; ++comb)
+				results.add(vertices(s, comb, states));
+		} else {
+			results = pool.submit(() -> IntStream.range(0, n).parallel()
+					.mapToObj(comb -> vertices(s, comb, states))
+					.collect(Collectors.toList())
+			).join();
+		}
+
 		final List<double[]> vertList = new ArrayList<>();
 		final TIntList combinations = new TIntArrayList();
 
-		for (int comb = 0; comb < s.getSeparatingDomain().getCombinations(); ++comb) {
-			Collection<LinearConstraint> set = s.getLinearProblemAt(comb).getConstraints();
-			double[][] inequalities = toDoubleArrays(set, s.getDataDomain().getCombinations());
-			double[][] vertices = polcoToVertices(inequalities);
-
-			if(vertices.length==0)
-				throw new NoFeasibleSolutionException();
-
-			for (double[] v : vertices) {
+		for (int comb = 0; comb < n; ++comb) {
+			for (double[] v : results.get(comb)) {
 				vertList.add(v);
 				combinations.add(comb);
 			}
@@ -52,6 +103,19 @@ public class HalfspaceToVertex implements Converter<SeparateHalfspaceFactor, Ver
 		return new VertexDefaultFactor(s.getDataDomain(), s.getSeparatingDomain(), vertList, combinations);
 	}
 
+	private double[][] vertices(SeparateHalfspaceFactor s, int comb, int states) {
+		Collection<LinearConstraint> set = s.getLinearProblemAt(comb).getConstraints();
+		double[][] inequalities = toDoubleArrays(set, states);
+		double[][] vertices = cache == null
+				? enumerate(HalfspaceVertexCache.normalize(inequalities))
+				: cache.get(inequalities, this::enumerate);
+
+		if (vertices.length == 0)
+			throw new NoFeasibleSolutionException();
+
+		return vertices;
+	}
+
 	@Override
 	public Class<VertexFactor> getTargetClass() {
 		return VertexFactor.class;
@@ -62,19 +126,14 @@ public class HalfspaceToVertex implements Converter<SeparateHalfspaceFactor, Ver
 		return SeparateHalfspaceFactor.class;
 	}
 
-	public HalfspaceToVertex() {
-		try {
-			Options opt = new Options();
-			opt.setLoglevel(Level.OFF);
-			opt.setLogFile(new File("polco.log"));
-			this.polco = new PolcoAdapter(opt);
-		} catch (XmlConfigException ignored) {
-			// TODO: ignore?
-		}
-	}
-
-	private double[][] polcoToVertices(double[][] inequalities) {
-		double[][] correctedVertices = polco.getDoubleRays(null, inequalities);
+	/**
+	 * Enumerates the vertices of a system of inequalities in the form <code>b + a x &ge; 0</code>.
+	 *
+	 * @param inequalities the normalized constraint matrix, with b in the first column
+	 * @return the vertices, without the origin
+	 */
+	protected double[][] enumerate(double[][] inequalities) {
+		double[][] correctedVertices = POLCO.get().getDoubleRays(null, inequalities);
 
 		if (correctedVertices.length == 0)
 			return correctedVertices;
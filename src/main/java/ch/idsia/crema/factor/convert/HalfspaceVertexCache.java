@@ -0,0 +1,209 @@
+package ch.idsia.crema.factor.convert;
+
+import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the vertices enumerated from a system of inequalities, used by {@link HalfspaceToVertex}.
+ * <p>
+ * The entries are addressed by the content of the constraint matrix after normalization: each row is divided by the
+ * largest absolute value among its coefficients and its constant term, rows without coefficients that hold for every
+ * point are dropped and the remaining rows are sorted and deduplicated. Two systems that differ only in the order, in
+ * the positive scale or in the repetition of their inequalities share the same entry.
+ * <p>
+ * The cache can be used by many threads. When it is full, the least recently used entry is removed.
+ */
+public class HalfspaceVertexCache {
+
+	/**
+	 * Cache shared by all the converters that do not specify one.
+	 */
+	private static final HalfspaceVertexCache SHARED = new HalfspaceVertexCache(1024);
+
+	private final Map<Key, double[][]> entries = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, double[][]> eldest) {
+			return size() > limit;
+		}
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private volatile int limit;
+
+	/**
+	 * @param limit the maximum number of constraint systems kept in cache
+	 */
+	public HalfspaceVertexCache(int limit) {
+		setLimit(limit);
+	}
+
+	/**
+	 * @return the cache shared by the {@link HalfspaceToVertex} converters built without an explicit cache
+	 */
+	public static HalfspaceVertexCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Normalizes the given inequalities in the form <code>b + a x &ge; 0</code>, with b in the first column.
+	 *
+	 * @param inequalities the rows of the constraint matrix, they are not modified
+	 * @return a new matrix with the normalized, sorted and distinct rows
+	 * @throws NoFeasibleSolutionException if a row without coefficients has a negative constant term
+	 */
+	public static double[][] normalize(double[][] inequalities) {
+		final List<double[]> rows = new ArrayList<>(inequalities.length);
+
+		for (double[] inequality : inequalities) {
+			double max = 0;
+			for (int j = 1; j < inequality.length; j++)
+				max = Math.max(max, Math.abs(inequality[j]));
+
+			// no coefficients: the inequality holds for all the points or for none
+			if (max == 0) {
+				if (inequality[0] < 0)
+					throw new NoFeasibleSolutionException();
+				continue;
+			}
+
+			final double scale = Math.max(max, Math.abs(inequality[0]));
+			final double[] row = new double[inequality.length];
+			for (int j = 0; j < row.length; j++)
+				// adding 0.0 turns -0.0 into 0.0
+				row[j] = inequality[j] / scale + 0.0;
+			rows.add(row);
+		}
+
+		rows.sort(Arrays::compare);
+
+		final List<double[]> distinct = new ArrayList<>(rows.size());
+		for (double[] row : rows)
+			if (distinct.isEmpty() || !Arrays.equals(distinct.get(distinct.size() - 1), row))
+				distinct.add(row);
+
+		return distinct.toArray(new double[0][]);
+	}
+
+	/**
+	 * Returns the vertices of the given system of inequalities, enumerating them only if the system is not in cache.
+	 * The enumeration is done outside any lock: two threads that miss the same system at the same time may both
+	 * enumerate it.
+	 *
+	 * @param inequalities the rows of the constraint matrix, with the constant term in the first column
+	 * @param enumerator   the function that computes the vertices of a normalized constraint matrix
+	 * @return a copy of the vertices
+	 */
+	public double[][] get(double[][] inequalities, Function<double[][], double[][]> enumerator) {
+		final Key key = new Key(normalize(inequalities));
+
+		double[][] vertices;
+		synchronized (entries) {
+			vertices = entries.get(key);
+		}
+
+		if (vertices == null) {
+			misses.incrementAndGet();
+			vertices = enumerator.apply(key.matrix);
+
+			if (limit > 0) {
+				synchronized (entries) {
+					entries.put(key, vertices);
+				}
+			}
+		} else {
+			hits.incrementAndGet();
+		}
+
+		final double[][] copy = new double[vertices.length][];
+		for (int i = 0; i < vertices.length; i++)
+			copy[i] = vertices[i].clone();
+		return copy;
+	}
+
+	/**
+	 * @param limit the maximum number of constraint systems kept in cache, 0 to disable the cache
+	 */
+	public void setLimit(int limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException("Invalid cache limit: " + limit);
+		this.limit = limit;
+		clear();
+	}
+
+	/**
+	 * @return the maximum number of constraint systems kept in cache
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return the number of constraint systems currently in cache
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the number of requests answered by the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of requests that required an enumeration of the vertices
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Removes all the entries and resets the statistics.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * A normalized constraint matrix.
+	 */
+	private static final class Key {
+		private final double[][] matrix;
+		private final int hash;
+
+		Key(double[][] matrix) {
+			this.matrix = matrix;
+			this.hash = Arrays.deepHashCode(matrix);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			final Key key = (Key) o;
+			return hash == key.hash && Arrays.deepEquals(matrix, key.matrix);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
@@ -32,8 +32,18 @@ public class SeparateLinearToRandomBayesian implements Converter<SeparateLinearF
 
 	private boolean log = false;
 
+	/**
+	 * The random directions are drawn with the generator given by {@link RandomUtil} to the running thread.
+	 */
 	public SeparateLinearToRandomBayesian() {
-		random = RandomUtil.getRandom();
+		random = null;
+	}
+
+	/**
+	 * @param random the generator used to draw the random directions
+	 */
+	public SeparateLinearToRandomBayesian(Random random) {
+		this.random = random;
 	}
 
 	public boolean isLog() {
@@ -57,12 +67,14 @@ public class SeparateLinearToRandomBayesian implements Converter<SeparateLinearF
 
 		double[] result = new double[target.getCombinations()];
 
+		final Random generator = getRandom();
+
 		for (int offset = 0; offset < s.getSeparatingDomain().getCombinations(); ++offset) {
-			solver.loadProblem(s.getLinearProblemAt(offset), random.nextBoolean() ? GoalType.MINIMIZE : GoalType.MAXIMIZE);
+			solver.loadProblem(s.getLinearProblemAt(offset), generator.nextBoolean() ? GoalType.MINIMIZE : GoalType.MAXIMIZE);
 
 			double[] rand = new double[s.getDataDomain().getCombinations()];
 			for (int i = 0; i < rand.length; ++i)
-				rand[i] = random.nextDouble();
+				rand[i] = generator.nextDouble();
 
 			solver.solve(rand, 0.0);
 			double[] vertex = solver.getVertex();
@@ -78,6 +90,10 @@ public class SeparateLinearToRandomBayesian implements Converter<SeparateLinearF
 		}
 	}
 
+	private Random getRandom() {
+		return random == null ? RandomUtil.getRandom() : random;
+	}
+
 	@Override
 	public Class<BayesianFactor> getTargetClass() {
 		return BayesianFactor.class;
@@ -17,10 +17,25 @@ import java.util.Random;
  */
 public class VertexToRandomBayesian implements Converter<VertexFactor, BayesianFactor> {
 
-	private final Random random = RandomUtil.getRandom();
+	private final Random random;
 
 	private boolean log = false;
 
+	/**
+	 * The vertices are drawn with the generator given by {@link RandomUtil} to the running thread.
+	 */
+	public VertexToRandomBayesian() {
+		random = null;
+	}
+
+	/**
+	 * @param random the generator used to draw the vertices, if null the one given by {@link RandomUtil} to the running
+	 *               thread
+	 */
+	public VertexToRandomBayesian(Random random) {
+		this.random = random;
+	}
+
 	public boolean isLog() {
 		return log;
 	}
@@ -44,6 +59,7 @@ public class VertexToRandomBayesian implements Converter<VertexFactor, BayesianF
 
 		// visiting BayesianFactor domain in a modified order
 		final IndexIterator targetIterator = v.getDomain().getReorderedIterator(vars);
+		final Random random = getRandom();
 
 		for (int i = 0; i < v.getSeparatingDomain().getCombinations(); i++) {
 			final double[][] vertices = v.getVerticesAt(i);
@@ -63,6 +79,10 @@ public class VertexToRandomBayesian implements Converter<VertexFactor, BayesianF
 		}
 	}
 
+	private Random getRandom() {
+		return random == null ? RandomUtil.getRandom() : random;
+	}
+
 	@Override
 	public Class<BayesianFactor> getTargetClass() {
 		return BayesianFactor.class;
@@ -12,9 +12,37 @@ import java.util.logging.Level;
 
 // TODO: this class should NOT be in a factor package
 public class CNGenerator {
-	static Random random = RandomUtil.getRandom();
+
+	private final Random random;
+
+	/**
+	 * The random numbers are drawn with the generator given by {@link RandomUtil} to the running thread.
+	 */
+	public CNGenerator() {
+		random = null;
+	}
+
+	/**
+	 * @param random the generator used to draw the random numbers
+	 */
+	public CNGenerator(Random random) {
+		this.random = random;
+	}
+
+	private Random getRandom() {
+		return random == null ? RandomUtil.getRandom() : random;
+	}
 
 	public static double[] randomMassFunction(int dimension) {
+		return randomMassFunction(dimension, RandomUtil.getRandom());
+	}
+
+	/**
+	 * @param dimension number of states
+	 * @param random    the generator used to draw the masses
+	 * @return a random probability mass function
+	 */
+	public static double[] randomMassFunction(int dimension, Random random) {
 		double[] p = new double[dimension];
 		double sum = 0.0;
 		for (int j = 0; j < dimension; j++) {
@@ -30,7 +58,7 @@ public class CNGenerator {
 	public double[][] linvac(int dimension, double epsilon) {
 		double sum;
 		double[][] v2 = new double[dimension][dimension]; // first d is # vertices
-		double[] p = randomMassFunction(dimension);
+		double[] p = randomMassFunction(dimension, getRandom());
 		for (int i = 0; i < dimension; i++) {
 			sum = 0.0;
 			for (int j = 0; j < (dimension - 1); j++) {
@@ -182,9 +210,10 @@ public class CNGenerator {
 		double[] c2 = new double[dimension];
 		double alpha = 0;
 		double sum = 0.0;
+		final Random generator = getRandom();
 		for (int j = 0; j < dimension; j++) {
-			p[j] = Math.random();
-			c[j] = Math.random();
+			p[j] = generator.nextDouble();
+			c[j] = generator.nextDouble();
 			sum += p[j];
 		}
 
@@ -277,8 +306,9 @@ public class CNGenerator {
 		double sumValues = 0.0; // sum of random numbers
 
 		// Generating d random numbers (double)
+		final Random generator = getRandom();
 		for (int k = 0; k < dimensions; k++) {
-			values[k] = Math.random();
+			values[k] = generator.nextDouble();
 			sumValues += values[k];
 		}
 
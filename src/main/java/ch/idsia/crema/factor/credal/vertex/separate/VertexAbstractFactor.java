@@ -25,17 +25,26 @@ public abstract class VertexAbstractFactor implements VertexFactor {
 	protected final Strides separatedDomain;
 	protected final Strides vertexDomain;
 
+	/**
+	 * @deprecated global state shared by all the threads, use a
+	 * {@link ch.idsia.crema.factor.algebra.VertexConvexHullAlgebra}
+	 */
+	@Deprecated
 	public static ConvexHull CONVEX_HULL_MARG = null;
 
 	/**
 	 * Set the convexhull method applied after marginalization. None by default.
 	 *
 	 * @param convexHullMarg
+	 * @deprecated global state shared by all the threads, use a
+	 * {@link ch.idsia.crema.factor.algebra.VertexConvexHullAlgebra}
 	 */
+	@Deprecated
 	public static void setConvexHullMarg(ConvexHull convexHullMarg) {
 		CONVEX_HULL_MARG = convexHullMarg;
 	}
 
+	@Deprecated
 	public static ConvexHull getConvexHullMarg() {
 		return CONVEX_HULL_MARG;
 	}
@@ -137,6 +146,20 @@ public abstract class VertexAbstractFactor implements VertexFactor {
 	 * @return
 	 */
 	protected <F extends VertexAbstractFactor> F marginalize(VertexFactorBuilder<F> builder, int... vars) {
+		return marginalize(builder, CONVEX_HULL_MARG, vars);
+	}
+
+	/**
+	 * Sums some variables out of the credal set and applies the given convex hull method to the result. The static
+	 * {@link #CONVEX_HULL_MARG} is not used.
+	 *
+	 * @param builder    the constructor of the result
+	 * @param convexHull the method applied to the result, if null no convex hull is applied
+	 * @param vars       the variables to sum out
+	 * @return the marginalized factor
+	 */
+	protected <F extends VertexAbstractFactor> F marginalize(VertexFactorBuilder<F> builder, ConvexHull convexHull,
+			int... vars) {
 		// only vars of the domain
 		Strides sum_strides = getDataDomain().intersection(vars);
 		Strides left = getDataDomain().remove(vars);
@@ -163,8 +186,8 @@ public abstract class VertexAbstractFactor implements VertexFactor {
 
 		F f = builder.get(left, getSeparatingDomain(), target_data);
 
-		if (CONVEX_HULL_MARG != null)
-			f.applyConvexHull(CONVEX_HULL_MARG);
+		if (convexHull != null)
+			f.applyConvexHull(convexHull);
 
 		return f;
 	}
@@ -314,6 +337,11 @@ public abstract class VertexAbstractFactor implements VertexFactor {
 		return (VertexAbstractFactor) marginalize(new int[]{variable});
 	}
 
+	@Override
+	public VertexFactor marginalize(ConvexHull convexHull, int variable) {
+		return marginalize(VertexDefaultFactor::new, convexHull, variable);
+	}
+
 	protected <F extends VertexAbstractFactor> F normalize(VertexFactorBuilder<F> builder, int... given) {
 		double[][][] newdata = new double[size()][][];
 		for (int i = 0; i < size(); ++i) {
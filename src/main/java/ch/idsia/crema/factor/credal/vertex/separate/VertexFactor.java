@@ -25,6 +25,16 @@ public interface VertexFactor extends OperableFactor<VertexFactor>, SeparatelySp
 	@Override
 	VertexFactor marginalize(int variable);
 
+	/**
+	 * Sums the given variable out of the credal set and applies the given convex hull method to the result. Unlike
+	 * {@link #marginalize(int)}, the deprecated global method of {@link VertexAbstractFactor} is never applied.
+	 *
+	 * @param convexHull the method applied to the result, if null no convex hull is applied
+	 * @param variable   the variable to sum out
+	 * @return the marginalized factor
+	 */
+	VertexFactor marginalize(ConvexHull convexHull, int variable);
+
 	@Override
 	VertexFactor divide(VertexFactor factor);
 
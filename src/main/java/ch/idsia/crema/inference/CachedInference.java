@@ -0,0 +1,278 @@
+package ch.idsia.crema.inference;
+
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.model.graphical.GraphicalModel;
+import gnu.trove.map.TIntIntMap;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * An {@link Inference} that keeps the results of another inference engine. A result is reused when the same query,
+ * with the same evidence, is asked again on the same model and the model has not changed since, according to
+ * {@link GraphicalModel#getVersion()}. The order of the query variables and of the evidence does not matter. The
+ * results of models without a version are never kept.
+ * <p>
+ * The cache is bounded both in number of results and in total weight, by default the number of states of the
+ * results: when one of the limits is exceeded, the least recently used results are removed. The models are referred
+ * weakly and are not kept alive by the cache.
+ * <p>
+ * The cache can be used by many threads, if the wrapped inference engine can be used by many threads too. Results
+ * are computed outside any lock: two threads asking the same missing query at the same time may both compute it.
+ * Unless disabled with {@link #setCopy(boolean)}, the factors stored and returned are copies, so that the cached
+ * results cannot be modified by the callers.
+ *
+ * @param <M> the model
+ * @param <F> the factors returned by the inference
+ */
+public class CachedInference<M extends GraphicalModel<?>, F extends GenericFactor> implements InferenceJoined<M, F> {
+
+	private final Inference<M, F> inference;
+
+	private final Map<Key, Entry<F>> results = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private int maxSize;
+	private long maxWeight = Long.MAX_VALUE;
+	private long weight = 0;
+
+	private ToLongFunction<? super F> weigher = f -> f.getDomain().getCombinations();
+
+	private boolean copy = true;
+
+	/**
+	 * @param inference the inference engine used for the queries not in cache
+	 * @param maxSize   the maximum number of results kept in cache
+	 */
+	public CachedInference(Inference<M, F> inference, int maxSize) {
+		this.inference = inference;
+		setMaxSize(maxSize);
+	}
+
+	/**
+	 * @param maxSize the maximum number of results kept in cache, 0 to disable the cache
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+		synchronized (results) {
+			this.maxSize = maxSize;
+			evict();
+		}
+	}
+
+	/**
+	 * @param maxWeight the maximum total weight of the results kept in cache
+	 */
+	public void setMaxWeight(long maxWeight) {
+		if (maxWeight < 0)
+			throw new IllegalArgumentException("Invalid cache weight: " + maxWeight);
+		synchronized (results) {
+			this.maxWeight = maxWeight;
+			evict();
+		}
+	}
+
+	/**
+	 * Sets the function that gives the weight of a result. Results already in cache keep their weight.
+	 *
+	 * @param weigher the weight of each result, by default the number of states of its domain
+	 */
+	public void setWeigher(ToLongFunction<? super F> weigher) {
+		this.weigher = weigher;
+	}
+
+	/**
+	 * @param copy false to store and return the factors computed by the inference engine without copying them, only if
+	 *             the factors cannot be modified
+	 */
+	public void setCopy(boolean copy) {
+		this.copy = copy;
+	}
+
+	/**
+	 * @return the inference engine used for the queries not in cache
+	 */
+	public Inference<M, F> getInference() {
+		return inference;
+	}
+
+	@Override
+	public F query(M model, TIntIntMap evidence, int query) {
+		return query(model, evidence, new int[]{query});
+	}
+
+	/**
+	 * Perform an inference. Queries with more than one variable require an {@link InferenceJoined} engine.
+	 */
+	@Override
+	public F query(M model, TIntIntMap evidence, int... queries) {
+		final Key key = new Key(model, evidence, queries);
+
+		Entry<F> entry;
+		synchronized (results) {
+			entry = results.get(key);
+		}
+
+		if (entry != null) {
+			hits.incrementAndGet();
+			return copy(entry.factor);
+		}
+
+		misses.incrementAndGet();
+
+		final F result;
+		if (queries.length == 1) {
+			result = inference.query(model, evidence, queries[0]);
+		} else if (inference instanceof InferenceJoined) {
+			result = ((InferenceJoined<M, F>) inference).query(model, evidence, queries);
+		} else {
+			throw new UnsupportedOperationException("Inference " + inference.getClass().getSimpleName() + " does not support joined queries");
+		}
+
+		if (maxSize > 0 && result != null && key.version != 0) {
+			final F stored = copy(result);
+			final long w = weigher.applyAsLong(stored);
+
+			synchronized (results) {
+				final Entry<F> previous = results.put(key, new Entry<>(stored, w));
+				if (previous != null)
+					weight -= previous.weight;
+				weight += w;
+				evict();
+			}
+		}
+
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private F copy(F factor) {
+		return copy ? (F) factor.copy() : factor;
+	}
+
+	/**
+	 * Removes the least recently used results until the limits are respected. Must be called holding the lock on the
+	 * results.
+	 */
+	private void evict() {
+		final Iterator<Map.Entry<Key, Entry<F>>> it = results.entrySet().iterator();
+		while (it.hasNext() && (results.size() > maxSize || weight > maxWeight)) {
+			weight -= it.next().getValue().weight;
+			it.remove();
+		}
+	}
+
+	/**
+	 * @return the number of results in cache
+	 */
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	/**
+	 * @return the total weight of the results in cache
+	 */
+	public long getWeight() {
+		synchronized (results) {
+			return weight;
+		}
+	}
+
+	/**
+	 * @return the number of queries answered by the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of queries answered by the inference engine
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Removes all the results and resets the statistics.
+	 */
+	public void clear() {
+		synchronized (results) {
+			results.clear();
+			weight = 0;
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	private static final class Entry<F> {
+		private final F factor;
+		private final long weight;
+
+		Entry(F factor, long weight) {
+			this.factor = factor;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A model, with its version, and the sorted evidence and query variables.
+	 */
+	private static final class Key {
+		private final WeakReference<GraphicalModel<?>> model;
+		private final long version;
+		private final int[] evidence;
+		private final int[] queries;
+		private final int hash;
+
+		Key(GraphicalModel<?> model, TIntIntMap evidence, int[] queries) {
+			this.model = new WeakReference<>(model);
+			this.version = model.getVersion();
+
+			final int[] keys = evidence.keys();
+			Arrays.sort(keys);
+			this.evidence = new int[keys.length * 2];
+			for (int i = 0; i < keys.length; i++) {
+				this.evidence[2 * i] = keys[i];
+				this.evidence[2 * i + 1] = evidence.get(keys[i]);
+			}
+
+			this.queries = queries.clone();
+			Arrays.sort(this.queries);
+
+			int h = System.identityHashCode(model);
+			h = 31 * h + Long.hashCode(version);
+			h = 31 * h + Arrays.hashCode(this.evidence);
+			h = 31 * h + Arrays.hashCode(this.queries);
+			this.hash = h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			final Key key = (Key) o;
+			final GraphicalModel<?> m = model.get();
+			return hash == key.hash
+					&& m != null && m == key.model.get()
+					&& version == key.version
+					&& Arrays.equals(evidence, key.evidence)
+					&& Arrays.equals(queries, key.queries);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
@@ -14,14 +14,18 @@ import ch.idsia.crema.factor.credal.linear.separate.SeparateLinearFactor;
 import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
 import ch.idsia.crema.inference.Inference;
 import ch.idsia.crema.inference.sampling.LikelihoodWeightingSampling;
+import ch.idsia.crema.inference.sampling.StochasticSampling;
 import ch.idsia.crema.model.graphical.DAGModel;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.preprocess.RemoveBarren;
+import ch.idsia.crema.utility.RandomUtil;
+import ch.idsia.crema.utility.SplitRandom;
 import gnu.trove.map.TIntIntMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -49,6 +53,10 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 	 * Bayesian inference engine to use.
 	 */
 	private Inference<GraphicalModel<BayesianFactor>, BayesianFactor> inference = new LikelihoodWeightingSampling();
+	/**
+	 * Seed of the random streams used to generate the networks, if null a new one is taken for each query.
+	 */
+	private Long seed = null;
 
 	/**
 	 * Generated networks of the last inference done.
@@ -135,6 +143,18 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 		return this;
 	}
 
+	/**
+	 * @param seed seed of the random streams used to generate the networks: the network {@code i} is generated with
+	 *             {@link SplitRandom#stream(long, long)} of the seed and {@code i}, so that the results do not depend
+	 *             on the thread running the query. If not set, a new seed is taken from {@link RandomUtil} for each
+	 *             query.
+	 * @return the same object
+	 */
+	public ApproxLP0<F> setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
 	/**
 	 * @return a list of all the generated Bayesian networks for the last query done.
 	 */
@@ -151,7 +171,8 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 
 	/**
 	 * This method generates a certain amount of networks, specified by the {@code n} parameter, from the given
-	 * {@code model} and then use the chosen {@code inference} engine.
+	 * {@code model} and then use the chosen {@code inference} engine. If the engine is a {@link StochasticSampling},
+	 * its seed is also taken from the stream of each network.
 	 *
 	 * @param originalModel the model to use for inference
 	 * @param evidence      the observed variable as a map of variable-states
@@ -163,17 +184,26 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 		final GraphicalModel<F> model;
 		if (preprocess) {
 			RemoveBarren<F> remove = new RemoveBarren<>();
-			model = remove.execute(originalModel, evidence, query);
+			model = remove.executeOverlay(originalModel, evidence, query);
 		} else {
 			model = originalModel;
 		}
 
+		final long master = seed != null ? seed : RandomUtil.getRandom().nextLong();
+		final SplitRandom[] randoms = IntStream.range(0, n)
+				.mapToObj(i -> SplitRandom.stream(master, i))
+				.toArray(SplitRandom[]::new);
+
 		networks = IntStream.range(0, n)
-				.mapToObj(i -> randomBayesianNetwork(model))
+				.mapToObj(i -> randomBayesianNetwork(model, randoms[i]))
 				.collect(Collectors.toList());
 
-		outputs = networks.stream()
-				.map(net -> inference.query(net, evidence, query))
+		outputs = IntStream.range(0, n)
+				.mapToObj(i -> {
+					if (inference instanceof StochasticSampling)
+						((StochasticSampling) inference).setSeed(randoms[i].nextLong());
+					return inference.query(networks.get(i), evidence, query);
+				})
 				.collect(Collectors.toList());
 
 		int states = model.getSize(query);
@@ -202,10 +232,11 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 	}
 
 	/**
-	 * @param model the model to use for inference
+	 * @param model  the model to use for inference
+	 * @param random the generator used to sample the factors
 	 * @return a {@link DAGModel<BayesianFactor>} object with the same network of the input model but {@link BayesianFactor}s
 	 */
-	private GraphicalModel<BayesianFactor> randomBayesianNetwork(GraphicalModel<F> model) {
+	private GraphicalModel<BayesianFactor> randomBayesianNetwork(GraphicalModel<F> model, Random random) {
 		final GraphicalModel<BayesianFactor> network = new DAGModel<>();
 
 		// add nodes
@@ -221,7 +252,7 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 		// add factors
 		for (int var : model.getVariables()) {
 			if (model.getFactorsMap().containsKey(var)) {
-				BayesianFactor r = randomBayesianFactor(model.getFactor(var), var);
+				BayesianFactor r = randomBayesianFactor(model.getFactor(var), var, random);
 				network.setFactor(var, r);
 			}
 		}
@@ -231,18 +262,19 @@ public class ApproxLP0<F extends GenericFactor> implements Inference<GraphicalMo
 
 	/**
 	 * @param factor input credal factor
+	 * @param random the generator used to sample the factor
 	 * @return a {@link BayesianFactor}, randomly sampled from the given credal factor, or {@code null} if another not
 	 * supported {@link GenericFactor}
 	 */
-	private BayesianFactor randomBayesianFactor(GenericFactor factor, int var) {
+	private BayesianFactor randomBayesianFactor(GenericFactor factor, int var, Random random) {
 		if (factor instanceof ExtensiveLinearFactor) {
-			return new ExtensiveLinearToRandomBayesian().apply((ExtensiveLinearFactor<?>) factor);
+			return new ExtensiveLinearToRandomBayesian(random).apply((ExtensiveLinearFactor<?>) factor);
 		} else if (factor instanceof SeparateHalfspaceFactor) {
-			return new HalfspaceToRandomBayesianFactor().apply((SeparateHalfspaceFactor) factor, var);
+			return new HalfspaceToRandomBayesianFactor(random).apply((SeparateHalfspaceFactor) factor, var);
 		} else if (factor instanceof SeparateLinearFactor) {
-			return new SeparateLinearToRandomBayesian().apply((SeparateLinearFactor<?>) factor, var);
+			return new SeparateLinearToRandomBayesian(random).apply((SeparateLinearFactor<?>) factor, var);
 		} else if (factor instanceof VertexFactor) {
-			return new VertexToRandomBayesian().apply((VertexFactor) factor, var);
+			return new VertexToRandomBayesian(random).apply((VertexFactor) factor, var);
 		} else if (factor instanceof BayesianFactor) {
 			return (BayesianFactor) factor;
 		}
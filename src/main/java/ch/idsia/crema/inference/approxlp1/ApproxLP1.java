@@ -7,11 +7,19 @@ import ch.idsia.crema.inference.Inference;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.preprocess.RemoveBarren;
 import ch.idsia.crema.search.impl.GreedyWithRandomRestart;
+import ch.idsia.crema.search.impl.Utils;
+import ch.idsia.crema.utility.RandomUtil;
+import ch.idsia.crema.utility.SplitRandom;
 import gnu.trove.map.TIntIntMap;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 
 /**
@@ -27,6 +35,8 @@ public class ApproxLP1<F extends GenericFactor> implements Inference<GraphicalMo
 
 	protected int evidenceNode = -1;
 
+	private ForkJoinPool pool = null;
+
 	public ApproxLP1() {
 	}
 
@@ -72,6 +82,14 @@ public class ApproxLP1<F extends GenericFactor> implements Inference<GraphicalMo
 		this.preprocess = preprocess;
 	}
 
+	/**
+	 * @param pool if not null, the searches for the lower and upper bounds of each state and their restarts are run in
+	 *             parallel using this pool, with the same result as without a pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	/**
 	 * @param evidenceNode the node found with a {@link ch.idsia.crema.preprocess.BinarizeEvidence} pre-processing
 	 */
@@ -93,7 +111,7 @@ public class ApproxLP1<F extends GenericFactor> implements Inference<GraphicalMo
 		GraphicalModel<F> model = originalModel;
 		if (preprocess) {
 			final RemoveBarren<F> remove = new RemoveBarren<>();
-			model = remove.execute(originalModel, evidence, query);
+			model = remove.executeOverlay(originalModel, evidence, query);
 		}
 		return query(model, query);
 	}
@@ -122,28 +140,33 @@ public class ApproxLP1<F extends GenericFactor> implements Inference<GraphicalMo
 	// TODO: should we binarize the evidence?
 	@Override
 	public IntervalFactor query(GraphicalModel<F> model, int query) {
-		int states = model.getSize(query);
-
-		double[] lowers = new double[states];
-		double[] uppers = new double[states];
-
+		final int states = model.getSize(query);
+		final Map<String, Object> options = options();
+		final int restarts = Math.max(1, Utils.tryParse(options.get(GreedyWithRandomRestart.MAX_RESTARTS),
+				GreedyWithRandomRestart.MAX_RESTARTS_DEFAULT));
+		options.put(GreedyWithRandomRestart.MAX_RESTARTS, 1);
+
+		final SplitRandom master = new SplitRandom(RandomUtil.getRandom().nextLong());
+		final SplitRandom[][] randoms = new SplitRandom[states * 2][restarts];
+		for (SplitRandom[] random : randoms)
+			for (int r = 0; r < restarts; r++)
+				random[r] = master.split();
+
+		EPS = 1e-9;
+
+		final IntStream searches = IntStream.range(0, states * 2);
+		final double[] results = pool == null
+				? searches.mapToDouble(i -> search(model, query, i, randoms[i], options)).toArray()
+				: pool.submit(() -> searches.parallel()
+						.mapToDouble(i -> search(model, query, i, randoms[i], options))
+						.toArray()
+				).join();
+
+		final double[] lowers = new double[states];
+		final double[] uppers = new double[states];
 		for (int state = 0; state < states; ++state) {
-			Manager lower;
-			Manager upper;
-
-			if (evidenceNode == -1) {
-				// without evidence we are looking for a marginal
-				EPS = 1e-9;
-				lower = new Marginal(model, GoalType.MINIMIZE, query, state);
-				upper = new Marginal(model, GoalType.MAXIMIZE, query, state);
-			} else {
-				EPS = 1e-9;
-				lower = new Posterior(model, GoalType.MINIMIZE, query, state, evidenceNode);
-				upper = new Posterior(model, GoalType.MAXIMIZE, query, state, evidenceNode);
-			}
-
-			lowers[state] = runSearcher(model, lower);
-			uppers[state] = runSearcher(model, upper);
+			lowers[state] = results[2 * state];
+			uppers[state] = results[2 * state + 1];
 		}
 
 		return new IntervalDefaultFactor(
@@ -152,20 +175,62 @@ public class ApproxLP1<F extends GenericFactor> implements Inference<GraphicalMo
 				.updateReachability();
 	}
 
-	private double runSearcher(GraphicalModel<F> model, Manager objective) {
+	/**
+	 * Runs the restarts of the lower (even index) or upper (odd index) search of a state and returns the best score.
+	 * Each restart is an independent greedy search with its own random generator and its own {@link Manager}, with
+	 * solvers and bucket tree used only by the thread running it. The generators are split in a fixed order from a
+	 * master generator seeded by {@link RandomUtil}: the result depends only on that seed, with or without a pool.
+	 */
+	private double search(GraphicalModel<F> model, int query, int index, SplitRandom[] randoms,
+			Map<String, Object> options) {
+		final int state = index / 2;
+		final GoalType goal = index % 2 == 0 ? GoalType.MINIMIZE : GoalType.MAXIMIZE;
+
+		DoubleStream restarts = Arrays.stream(randoms)
+				.mapToDouble(random -> runSearcher(model, createManager(model, goal, query, state), random, options));
+		if (pool != null)
+			restarts = restarts.parallel();
+		final double[] scores = restarts.toArray();
+
+		// reduction in the order of the restarts, ties are won by the first one
+		double best = Double.NaN;
+		for (double score : scores) {
+			if (Double.isNaN(best)
+					|| goal == GoalType.MINIMIZE && score < best
+					|| goal == GoalType.MAXIMIZE && score > best)
+				best = score;
+		}
+		return best;
+	}
+
+	private Manager createManager(GraphicalModel<F> model, GoalType goal, int query, int state) {
+		if (evidenceNode == -1) {
+			// without evidence we are looking for a marginal
+			return new Marginal(model, goal, query, state);
+		}
+		return new Posterior(model, goal, query, state, evidenceNode);
+	}
+
+	private Map<String, Object> options() {
+		HashMap<String, Object> opt = new HashMap<>();
+		opt.put(GreedyWithRandomRestart.MAX_RESTARTS, "10");
+		opt.put(GreedyWithRandomRestart.MAX_PLATEAU, "3");
+
+		if (init != null)
+			opt.putAll(init);
+		return opt;
+	}
+
+	private double runSearcher(GraphicalModel<F> model, Manager objective, Random random, Map<String, Object> opt) {
 		try {
 			Neighbourhood neighbourhood = new Neighbourhood(model);
 
 			GreedyWithRandomRestart<Move, Solution> searcher = new GreedyWithRandomRestart<>();
 			searcher.setNeighbourhoodFunction(neighbourhood);
 			searcher.setObjectiveFunction(objective);
+			neighbourhood.setRandom(random);
+			searcher.setRandom(random);
 
-			HashMap<String, Object> opt = new HashMap<>();
-			opt.put(GreedyWithRandomRestart.MAX_RESTARTS, "10");
-			opt.put(GreedyWithRandomRestart.MAX_PLATEAU, "3");
-
-			if (init != null)
-				opt.putAll(init);
 			searcher.initialize(neighbourhood.random(), opt);
 
 			return searcher.run();
@@ -0,0 +1,305 @@
+package ch.idsia.crema.inference.approxlp1;
+
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.model.graphical.GraphicalModel;
+import ch.idsia.crema.utility.ArraysUtil;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.util.Arrays;
+
+/**
+ * Bucket elimination tree used by a {@link Manager} to evaluate the moves of a {@link Solution}. The tree is built once
+ * from the elimination sequence of the model: each eliminated variable has a bucket with the factors it has to remove,
+ * and the result of its elimination is sent to the bucket of the next variable to eliminate. The kept variables (the
+ * query and the evidence) are never summed out, therefore they are part of every bucket.
+ * <p>
+ * Messages are sent in both directions, so that the joint of any family and the kept variables can be obtained from a
+ * single bucket. The messages of the last calibrated solution are cached: neighbour solutions differ only in the factor
+ * of the freed variable, and only the messages that depend on that factor are recomputed.
+ * <p>
+ * Like its {@link Manager}, a tree is used by a single thread.
+ */
+class BucketTree {
+
+	private final int[] kept;
+
+	/**
+	 * Variable eliminated by each bucket, the root (last bucket) eliminates nothing.
+	 */
+	private final int[] eliminated;
+	private final int root;
+
+	private final int[] parent;
+	private final int[][] children;
+
+	/**
+	 * Sorted variables of each bucket.
+	 */
+	private final int[][] cliques;
+
+	/**
+	 * Variables whose factor is assigned to each bucket.
+	 */
+	private final int[][] assigned;
+
+	/**
+	 * Bucket of each eliminated variable.
+	 */
+	private final TIntIntMap position = new TIntIntHashMap();
+
+	/**
+	 * Bucket to which the factor of each variable is assigned.
+	 */
+	private final TIntIntMap bucketOf = new TIntIntHashMap();
+
+	private final int[] variables;
+
+	private State state;
+
+	/**
+	 * @param model    the model with the structure to use
+	 * @param sequence elimination sequence, missing variables are eliminated last
+	 * @param kept     variables that will never be eliminated
+	 */
+	BucketTree(GraphicalModel<? extends GenericFactor> model, int[] sequence, int... kept) {
+		this.kept = Arrays.stream(kept).distinct().sorted().toArray();
+		this.variables = model.getVariables();
+
+		final TIntArrayList order = new TIntArrayList();
+		for (int v : sequence)
+			if (!isKept(v) && !order.contains(v))
+				order.add(v);
+		for (int v : variables)
+			if (!isKept(v) && !order.contains(v))
+				order.add(v);
+
+		final int n = order.size();
+		this.root = n;
+		this.eliminated = order.toArray();
+		this.parent = new int[n + 1];
+		this.cliques = new int[n + 1][];
+
+		for (int i = 0; i < n; i++)
+			position.put(eliminated[i], i);
+
+		// moral graph over the eliminated variables
+		final TIntObjectMap<TIntSet> neighbours = new TIntObjectHashMap<>();
+		for (int v : eliminated)
+			neighbours.put(v, new TIntHashSet());
+		for (int v : variables) {
+			final int[] family = free(family(model, v));
+			for (int a : family)
+				for (int b : family)
+					if (a != b)
+						neighbours.get(a).add(b);
+		}
+
+		// symbolic elimination
+		for (int i = 0; i < n; i++) {
+			final int v = eliminated[i];
+			final int[] ns = neighbours.get(v).toArray();
+
+			int p = root;
+			for (int u : ns) {
+				p = Math.min(p, position.get(u));
+				neighbours.get(u).remove(v);
+				for (int w : ns)
+					if (w != u)
+						neighbours.get(u).add(w);
+			}
+
+			parent[i] = p;
+			cliques[i] = ArraysUtil.union(ArraysUtil.addToSortedArray(sorted(ns), v), this.kept);
+		}
+		parent[root] = -1;
+		cliques[root] = this.kept;
+
+		final TIntArrayList[] cs = new TIntArrayList[n + 1];
+		final TIntArrayList[] as = new TIntArrayList[n + 1];
+		for (int i = 0; i <= n; i++) {
+			cs[i] = new TIntArrayList();
+			as[i] = new TIntArrayList();
+		}
+		for (int i = 0; i < n; i++)
+			cs[parent[i]].add(i);
+
+		// each factor goes to the bucket of the first eliminated variable of its family
+		for (int v : variables) {
+			int b = root;
+			for (int u : free(family(model, v)))
+				b = Math.min(b, position.get(u));
+			bucketOf.put(v, b);
+			as[b].add(v);
+		}
+
+		this.children = new int[n + 1][];
+		this.assigned = new int[n + 1][];
+		for (int i = 0; i <= n; i++) {
+			children[i] = cs[i].toArray();
+			assigned[i] = as[i].toArray();
+		}
+	}
+
+	/**
+	 * Computes the joint probability of the given variables in the given solution.
+	 *
+	 * @param solution the solution to evaluate
+	 * @param query    sorted variables of the joint
+	 * @return the joint over the query, or null if the query is not contained in a single bucket
+	 */
+	BayesianFactor query(Solution solution, int[] query) {
+		final int[] free = free(query);
+		int bucket = root;
+		for (int v : free) {
+			if (!position.containsKey(v))
+				return null;
+			bucket = Math.min(bucket, position.get(v));
+		}
+
+		for (int v : query)
+			if (Arrays.binarySearch(cliques[bucket], v) < 0)
+				return null;
+
+		final State s = calibrate(solution);
+
+		BayesianFactor belief = s.down[bucket];
+		belief = combine(belief, s.phi[bucket]);
+		for (int c : children[bucket])
+			belief = combine(belief, s.up[c]);
+
+		if (belief == null)
+			return null;
+
+		final int[] vars = belief.getDomain().getVariables();
+		for (int v : query)
+			if (Arrays.binarySearch(vars, v) < 0)
+				return null;
+
+		return belief.marginalize(ArraysUtil.difference(vars, query));
+	}
+
+	/**
+	 * Computes, or reuses, all the messages for the given solution.
+	 *
+	 * @param solution the solution to calibrate
+	 * @return the messages of the given solution
+	 */
+	State calibrate(Solution solution) {
+		final State previous = state;
+		final TIntObjectMap<BayesianFactor> data = solution.getData();
+
+		if (previous != null && previous.data == data)
+			return previous;
+
+		final int n = root;
+
+		// buckets with at least one changed factor
+		final boolean[] dirty = new boolean[n + 1];
+		for (int v : variables)
+			if (previous == null || previous.data.get(v) != data.get(v))
+				dirty[bucketOf.get(v)] = true;
+
+		// number of changed buckets in each subtree, children always come before their parent
+		final int[] changed = new int[n + 1];
+		for (int i = 0; i <= n; i++) {
+			if (dirty[i])
+				changed[i]++;
+			if (i < n)
+				changed[parent[i]] += changed[i];
+		}
+		final int total = changed[root];
+
+		final State s = previous == null ? new State(data, n + 1) : new State(data, previous);
+
+		for (int i = 0; i <= n; i++) {
+			if (!dirty[i])
+				continue;
+			BayesianFactor phi = null;
+			for (int v : assigned[i])
+				phi = combine(phi, data.get(v));
+			s.phi[i] = phi;
+		}
+
+		// collect: a message depends on the factors in the subtree of its source
+		for (int i = 0; i < n; i++) {
+			if (previous != null && changed[i] == 0)
+				continue;
+			BayesianFactor f = s.phi[i];
+			for (int c : children[i])
+				f = combine(f, s.up[c]);
+			s.up[i] = f == null ? null : f.marginalize(eliminated[i]);
+		}
+
+		// distribute: a message depends on the factors outside the subtree of its destination
+		for (int i = n - 1; i >= 0; i--) {
+			if (previous != null && total - changed[i] == 0)
+				continue;
+			final int p = parent[i];
+			BayesianFactor f = combine(s.phi[p], s.down[p]);
+			for (int c : children[p])
+				if (c != i)
+					f = combine(f, s.up[c]);
+			s.down[i] = f == null ? null : f.marginalize(ArraysUtil.difference(f.getDomain().getVariables(), cliques[i]));
+		}
+
+		state = s;
+		return s;
+	}
+
+	private boolean isKept(int v) {
+		return Arrays.binarySearch(kept, v) >= 0;
+	}
+
+	private int[] free(int[] vars) {
+		return Arrays.stream(vars).filter(v -> !isKept(v)).toArray();
+	}
+
+	private static int[] family(GraphicalModel<? extends GenericFactor> model, int v) {
+		return ArraysUtil.addToSortedArray(sorted(model.getParents(v)), v);
+	}
+
+	private static int[] sorted(int[] array) {
+		final int[] copy = array.clone();
+		Arrays.sort(copy);
+		return copy;
+	}
+
+	private static BayesianFactor combine(BayesianFactor a, BayesianFactor b) {
+		if (a == null)
+			return b;
+		if (b == null)
+			return a;
+		return a.combine(b);
+	}
+
+	/**
+	 * Messages computed for a solution. The arrays are never modified once the solution has been calibrated.
+	 */
+	static final class State {
+		final TIntObjectMap<BayesianFactor> data;
+		final BayesianFactor[] phi;
+		final BayesianFactor[] up;
+		final BayesianFactor[] down;
+
+		State(TIntObjectMap<BayesianFactor> data, int size) {
+			this.data = data;
+			this.phi = new BayesianFactor[size];
+			this.up = new BayesianFactor[size];
+			this.down = new BayesianFactor[size];
+		}
+
+		State(TIntObjectMap<BayesianFactor> data, State previous) {
+			this.data = data;
+			this.phi = previous.phi.clone();
+			this.up = previous.up.clone();
+			this.down = previous.down.clone();
+		}
+	}
+}
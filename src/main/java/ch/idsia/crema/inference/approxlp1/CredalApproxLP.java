@@ -19,10 +19,10 @@ public class CredalApproxLP<F extends FilterableFactor<F>> implements Inference<
 	protected GraphicalModel<F> getInferenceModel(GraphicalModel<F> model, TIntIntMap evidence, int target) {
 		// preprocessing
 		final CutObserved<F> cut = new CutObserved<>();
-		final GraphicalModel<F> cutted = cut.execute(model, evidence);
+		final GraphicalModel<F> cutted = cut.executeOverlay(model, evidence);
 
 		RemoveBarren<F> removeBarren = new RemoveBarren<>();
-		return removeBarren.execute(cutted, evidence, target);
+		return removeBarren.executeOverlay(cutted, evidence, target);
 	}
 
 	@Override
@@ -4,14 +4,25 @@ import ch.idsia.crema.factor.GenericFactor;
 import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.factor.convert.SeparateLinearToExtensiveHalfspaceFactor;
+import ch.idsia.crema.factor.credal.linear.extensive.ExtensiveLinearFactor;
+import ch.idsia.crema.factor.credal.linear.separate.SeparateLinearFactor;
 import ch.idsia.crema.inference.ve.FactorVariableElimination;
 import ch.idsia.crema.inference.ve.VariableElimination;
 import ch.idsia.crema.inference.ve.order.MinFillOrdering;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.search.ObjectiveFunction;
+import ch.idsia.crema.utility.ArraysUtil;
 import gnu.trove.map.TIntIntMap;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Objective function of the ApproxLP searches. A manager keeps warm-started solvers and the messages of the last
+ * evaluated solution, therefore it must be used by a single search and a single thread.
+ */
 abstract class Manager implements ObjectiveFunction<Move, Solution> {
 
 	public static final double BAD = Double.NaN;
@@ -30,13 +41,35 @@ abstract class Manager implements ObjectiveFunction<Move, Solution> {
 
 	private BayesianFactor x0factor;
 
+	/**
+	 * Constraints of the free variables, converted only once.
+	 */
+	private final Map<Integer, ExtensiveLinearFactor<?>> constraints = new HashMap<>();
+
+	/**
+	 * Cached messages used to evaluate the moves, see {@link BucketTree}.
+	 */
+	protected final BucketTree tree;
+
 	public Manager(GraphicalModel<? extends GenericFactor> model, GoalType dir, int x0, int x0state) {
+		this(model, dir, x0, x0state, new int[0]);
+	}
+
+	/**
+	 * @param model    the model to use
+	 * @param dir      the direction of the optimization
+	 * @param x0       the query variable
+	 * @param x0state  the state of the query variable
+	 * @param observed the variables that will be observed in the queries
+	 */
+	protected Manager(GraphicalModel<? extends GenericFactor> model, GoalType dir, int x0, int x0state, int[] observed) {
 		this.model = model;
 		this.goal = dir;
 		this.x0 = x0;
 		this.x0state = x0state;
 
 		this.sequence = new MinFillOrdering().apply(model);
+		this.tree = new BucketTree(model, sequence, ArraysUtil.addToSortedArray(observed, x0));
 	}
 
 	public GoalType getGoal() {
@@ -60,6 +93,25 @@ abstract class Manager implements ObjectiveFunction<Move, Solution> {
 		return x0factor;
 	}
 
+	/**
+	 * The credal set of the given variable as an {@link ExtensiveLinearFactor}. The conversion of separately
+	 * specified factors is done only once for each variable.
+	 *
+	 * @param variable the variable to consider
+	 * @return the constraints of the variable, or null if its factor is not a linear credal factor
+	 */
+	protected ExtensiveLinearFactor<?> getConstraints(int variable) {
+		return constraints.computeIfAbsent(variable, v -> {
+			GenericFactor f = model.getFactor(v);
+			if (f instanceof SeparateLinearFactor) {
+				return sep2ext.apply((SeparateLinearFactor<?>) f);
+			} else if (f instanceof ExtensiveLinearFactor) {
+				return (ExtensiveLinearFactor<?>) f;
+			}
+			return null;
+		});
+	}
+
 	/**
 	 * Make non vertex changing moves illegal.
 	 *
@@ -76,7 +128,19 @@ abstract class Manager implements ObjectiveFunction<Move, Solution> {
 		}
 	}
 
+	/**
+	 * Joint probability of the given variables. When possible, the cached messages of the {@link BucketTree} are used,
+	 * otherwise a full variable elimination is performed.
+	 *
+	 * @param sol   the solution to evaluate
+	 * @param query sorted variables of the joint
+	 * @return the unnormalized joint over the query
+	 */
 	protected BayesianFactor calcMarginal(Solution sol, int[] query) {
+		BayesianFactor joint = tree.query(sol, query);
+		if (joint != null)
+			return joint;
+
 //		GraphicalModel<? extends GenericFactor> model = this.model.copy();
 //		RemoveBarren<? extends GenericFactor> barren = new RemoveBarren<>();
 //		barren.execute(model, query);
@@ -87,7 +151,25 @@ abstract class Manager implements ObjectiveFunction<Move, Solution> {
 		return ve.run(query);
 	}
 
+	/**
+	 * Joint probability of the given variables and the evidence, with the evidence filtered out.
+	 *
+	 * @param sol   the solution to evaluate
+	 * @param query sorted variables of the joint
+	 * @param ev    the observed variables as a map of variable-states
+	 * @return the unnormalized joint over the query
+	 */
 	protected BayesianFactor calcPosterior(Solution sol, int[] query, TIntIntMap ev) {
+		final int[] observed = ev.keys();
+		Arrays.sort(observed);
+
+		BayesianFactor joint = tree.query(sol, ArraysUtil.union(query, observed));
+		if (joint != null) {
+			for (int v : observed)
+				joint = joint.filter(v, ev.get(v));
+			return joint;
+		}
+
 //		GraphicalModel<? extends GenericFactor> model = this.model.copy();
 //		RemoveBarren<? extends GenericFactor> barren = new RemoveBarren<>();
 //		barren.execute(model, query, ev);
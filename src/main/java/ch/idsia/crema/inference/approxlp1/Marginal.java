@@ -4,15 +4,16 @@ import ch.idsia.crema.factor.GenericFactor;
 import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.factor.bayesian.BayesianLogFactor;
-import ch.idsia.crema.factor.convert.SeparateLinearToExtensiveHalfspaceFactor;
 import ch.idsia.crema.factor.credal.linear.extensive.ExtensiveLinearFactor;
-import ch.idsia.crema.factor.credal.linear.separate.SeparateLinearFactor;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.solver.LinearSolver;
 import ch.idsia.crema.solver.commons.Simplex;
 import ch.idsia.crema.utility.ArraysUtil;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Marginal problem Objective Function. This class implements the evaluation of the moves
  * for a Marginal Inference using the ApproxLP algorithm.
@@ -23,7 +24,10 @@ public class Marginal extends Manager {
 
 	private static final double BAD = Double.NaN;
 
-	private final SeparateLinearToExtensiveHalfspaceFactor sep2ext = new SeparateLinearToExtensiveHalfspaceFactor();
+	/**
+	 * One solver for each free variable, with the constraints already loaded.
+	 */
+	private final Map<Integer, LinearSolver> solvers = new HashMap<>();
 
 	public Marginal(GraphicalModel<? extends GenericFactor> model, GoalType dir, int x0, int x0state) {
 		super(model, dir, x0, x0state);
@@ -35,24 +39,27 @@ public class Marginal extends Manager {
 	 * Apache commons math3 based Linear solver.
 	 */
 	protected LinearSolver createSolver(int free) {
-		Simplex simplex = new Simplex();
-		GenericFactor f = model.getFactor(free);
-		ExtensiveLinearFactor<?> factor;
-		if (f instanceof SeparateLinearFactor) {
-			factor = sep2ext.apply((SeparateLinearFactor<?>) f);
-		} else if (f instanceof ExtensiveLinearFactor) {
-			factor = (ExtensiveLinearFactor<?>) f;
-		} else {
+		ExtensiveLinearFactor<?> factor = getConstraints(free);
+		if (factor == null)
 			return null;
-		}
+
+		Simplex simplex = new Simplex();
 		simplex.loadProblem(factor, goal);
 		return simplex;
 	}
 
+	/**
+	 * @param free the free variable
+	 * @return the cached solver of the given variable, created when needed
+	 */
+	protected LinearSolver getSolver(int free) {
+		return solvers.computeIfAbsent(free, this::createSolver);
+	}
+
 	@Override
 	public double eval(Solution from, Move doing) {
 		int free = doing.getFree();
-		LinearSolver solver = createSolver(free);//linearProblems[free]; 
+		LinearSolver solver = getSolver(free);
 		// not a good move
 		if (solver == null) return BAD;
 
@@ -102,18 +109,20 @@ public class Marginal extends Manager {
 			objective = f.filter(x0, x0state).getData();
 		}
 
-		solver.solve(objective, 0.0);
+		solver.resolve(objective, 0.0);
+		double[] vertex = solver.getVertex();
+		double value = solver.getValue();
 
 		BayesianFactor solution = from.getData().get(free);
 
 		if (solution.isLog()) {
-			solution = new BayesianLogFactor(solution.getDomain(), solver.getVertex());
+			solution = new BayesianLogFactor(solution.getDomain(), vertex);
 		} else {
-			solution = new BayesianDefaultFactor(solution.getDomain(), solver.getVertex());
+			solution = new BayesianDefaultFactor(solution.getDomain(), vertex);
 		}
 
 		doing.setValues(solution);
-		doing.setScore(solver.getValue());
+		doing.setScore(value);
 
 		fixNotMoving(from, doing);
 
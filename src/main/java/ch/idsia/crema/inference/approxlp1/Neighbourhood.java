@@ -11,6 +11,7 @@ import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceFactor;
 import ch.idsia.crema.factor.credal.linear.separate.SeparateLinearFactor;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.search.NeighbourhoodFunction;
+import ch.idsia.crema.utility.RandomUtil;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.TIntSet;
@@ -18,17 +19,27 @@ import gnu.trove.set.hash.TIntHashSet;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class Neighbourhood implements NeighbourhoodFunction<Move, Solution> {
 
 	private int[] freeable;
 	private final GraphicalModel<? extends GenericFactor> model;
 
+	private Random random = null;
+
 	public Neighbourhood(GraphicalModel<? extends GenericFactor> model, int... locked) {
 		this.model = model;
 		initialize(new TIntHashSet(locked));
 	}
 
+	/**
+	 * @param random the generator used to build random solutions, if null the one of {@link RandomUtil} is used
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
 	@Override
 	public List<Move> neighbours(Solution solution) {
 		ArrayList<Move> moves = new ArrayList<>();
@@ -61,18 +72,22 @@ public class Neighbourhood implements NeighbourhoodFunction<Move, Solution> {
 
 	private BayesianFactor random(GenericFactor factor) {
 		if (factor instanceof ExtensiveLinearFactor) {
-			return new ExtensiveLinearToRandomBayesian().apply((ExtensiveLinearFactor<?>) factor);
+			return new ExtensiveLinearToRandomBayesian(getRandom()).apply((ExtensiveLinearFactor<?>) factor);
 		// TODO: issue #98, make this work without non-negative constraints
 		//} else if (factor instanceof SeparateHalfspaceFactor) {
 		//	return new HalfspaceToRandomBayesianFactor().apply((SeparateHalfspaceFactor) factor);
 		} else if (factor instanceof SeparateLinearFactor) {
-			return new SeparateLinearToRandomBayesian().apply((SeparateLinearFactor<?>) factor);
+			return new SeparateLinearToRandomBayesian(getRandom()).apply((SeparateLinearFactor<?>) factor);
 		} else if (factor instanceof BayesianFactor) {
 			return (BayesianFactor) factor;
 		}
 		throw new IllegalArgumentException("Unsupported class for random generation: " + factor.getClass());
 	}
 
+	private Random getRandom() {
+		return random == null ? RandomUtil.getRandom() : random;
+	}
+
 	private void initialize(TIntSet locked) {
 		TIntArrayList freeableVariable = new TIntArrayList();
 		for (int var : model.getVariables()) {
@@ -5,9 +5,7 @@ import ch.idsia.crema.factor.GenericFactor;
 import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.factor.bayesian.BayesianLogFactor;
-import ch.idsia.crema.factor.convert.SeparateLinearToExtensiveHalfspaceFactor;
 import ch.idsia.crema.factor.credal.linear.extensive.ExtensiveLinearFactor;
-import ch.idsia.crema.factor.credal.linear.separate.SeparateLinearFactor;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.solver.LinearFractionalSolver;
 import ch.idsia.crema.solver.commons.FractionalSolver;
@@ -17,36 +15,45 @@ import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.DoubleStream;
 
 public class Posterior extends Manager {
 
 	//private static final double BAD = Double.NaN;
-	private final SeparateLinearToExtensiveHalfspaceFactor sep2ext = new SeparateLinearToExtensiveHalfspaceFactor();
+
+	/**
+	 * One solver for each free variable, with the constraints already loaded.
+	 */
+	private final Map<Integer, LinearFractionalSolver> solvers = new HashMap<>();
 
 	private final int evidence;
 
 	public Posterior(GraphicalModel<? extends GenericFactor> model, GoalType dir, int x0, int x0state, int evidence) {
-		super(model, dir, x0, x0state);
+		super(model, dir, x0, x0state, new int[]{evidence});
 		this.evidence = evidence;
 	}
 
 	protected LinearFractionalSolver createSolver(int free) {
-		FractionalSolver simplex = new FractionalSolver();
-		GenericFactor f = model.getFactor(free);
-		ExtensiveLinearFactor<?> factor;
-		if (f instanceof SeparateLinearFactor) {
-			factor = sep2ext.apply((SeparateLinearFactor<?>) f);
-		} else if (f instanceof ExtensiveLinearFactor) {
-			factor = (ExtensiveLinearFactor<?>) f;
-		} else {
+		ExtensiveLinearFactor<?> factor = getConstraints(free);
+		if (factor == null)
 			return null;
-		}
+
+		FractionalSolver simplex = new FractionalSolver();
 		simplex.loadProblem(factor, goal);
 
 		return simplex;
 	}
 
+	/**
+	 * @param free the free variable
+	 * @return the cached solver of the given variable, created when needed
+	 */
+	protected LinearFractionalSolver getSolver(int free) {
+		return solvers.computeIfAbsent(free, this::createSolver);
+	}
+
 	/**
 	 * Evaluate the value for a move and get the new vertex
 	 * <p>
@@ -161,27 +168,29 @@ public class Posterior extends Manager {
 		if (DoubleStream.of(numerator).anyMatch(Double::isNaN))
 			throw new IllegalStateException("Denominator in the LinearFractionalSolver contains NaN values.");
 
-		LinearFractionalSolver solver = createSolver(free);
+		LinearFractionalSolver solver = getSolver(free);
 		try {
-			solver.solve(numerator, 0.0, denominator, 0.0);
+			solver.resolve(numerator, 0.0, denominator, 0.0);
 		} catch (NoFeasibleSolutionException ex) {
 			System.err.println("NoFeasibleSolution: " + free + " " + (Arrays.stream(tmp.getData()).sum() == 1.0) + " " + Arrays.toString(tmp.getData()));
 			throw ex;
 		}
+		double[] vertex = solver.getVertex();
+		double value = solver.getValue();
 
 		BayesianFactor solution = from.getData().get(free);
 
 		// replaces 0.0 values in solution
 		if (solution.isLog()) {
-			solution = new BayesianLogFactor(solution.getDomain(), solver.getVertex())
+			solution = new BayesianLogFactor(solution.getDomain(), vertex)
 					.replace(0.0, ApproxLP1.EPS);
 		} else {
-			solution = new BayesianDefaultFactor(solution.getDomain(), solver.getVertex())
+			solution = new BayesianDefaultFactor(solution.getDomain(), vertex)
 					.replace(0.0, ApproxLP1.EPS);
 		}
 
 		doing.setValues(solution);
-		doing.setScore(solver.getValue());
+		doing.setScore(value);
 
 		fixNotMoving(from, doing);
 
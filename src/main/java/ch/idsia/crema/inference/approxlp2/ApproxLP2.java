@@ -91,7 +91,7 @@ public class ApproxLP2<F extends GenericFactor> implements Inference<GraphicalMo
 		GraphicalModel<F> model = originalModel;
 		if (preprocess) {
 			RemoveBarren<F> remove = new RemoveBarren<>();
-			model = remove.execute(originalModel, evidence, query);
+			model = remove.executeOverlay(originalModel, evidence, query);
 		}
 
 		int states = model.getSize(query);
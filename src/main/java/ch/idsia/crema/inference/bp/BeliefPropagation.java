@@ -5,8 +5,11 @@ import ch.idsia.crema.inference.Inference;
 import ch.idsia.crema.inference.bp.cliques.Clique;
 import ch.idsia.crema.inference.bp.junction.JunctionTree;
 import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.graphical.GraphicalModel;
+import ch.idsia.crema.model.graphical.OverlayModel;
 import ch.idsia.crema.preprocess.CutObserved;
 import ch.idsia.crema.preprocess.RemoveBarren;
+import ch.idsia.crema.utility.ArraysUtil;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -15,6 +18,8 @@ import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.DirectedAcyclicGraph;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,13 +32,19 @@ import static ch.idsia.crema.utility.ArraysUtil.difference;
  */
 public class BeliefPropagation<F extends OperableFactor<F>> implements Inference<DAGModel<F>, F> {
 
-	protected DAGModel<F> model;
+	protected GraphicalModel<F> model;
 	protected DirectedAcyclicGraph<Clique, DefaultEdge> collectingTree;
 	protected DirectedAcyclicGraph<Clique, DefaultEdge> distributingTree;
 
 	protected LinkedList<Clique> collectingOrder;
 	protected LinkedList<Clique> distributionOrder;
 
+	/**
+	 * Cliques grouped by their distance from the {@link #root}. Messages sent by cliques in the same layer are
+	 * independent of each other.
+	 */
+	protected final List<List<Clique>> layers = new ArrayList<>();
+
 	protected Clique root;
 
 	protected TIntIntMap evidence;
@@ -42,9 +53,16 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 	protected final Map<Pair<Clique, Clique>, F> messages = new HashMap<>();
 	protected final Map<Pair<Clique, Clique>, int[]> separators = new HashMap<>();
 
+	/**
+	 * Messages of the distribution step that need to be recomputed after an evidence update.
+	 */
+	protected final Set<Pair<Clique, Clique>> outdated = new HashSet<>();
+
 	protected Boolean preprocess = true;
 	protected Boolean fullyPropagated = false;
 
+	protected ForkJoinPool pool = null;
+
 	public BeliefPropagation() {
 	}
 
@@ -56,6 +74,16 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 		this.preprocess = preprocess;
 	}
 
+	/**
+	 * When a pool is set, the messages sent by the cliques in the same layer of the collecting and distributing trees
+	 * are computed in parallel using the given pool. Results are the same of the sequential execution.
+	 *
+	 * @param pool the pool to use for parallel execution, null for sequential execution
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	public Boolean isFullyPropagated() {
 		return fullyPropagated;
 	}
@@ -68,15 +96,17 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 	 * @param query    the variable that will be queried
 	 * @return the pre-processed model
 	 */
-	protected DAGModel<F> preprocess(DAGModel<F> original, TIntIntMap evidence, int... query) {
-		DAGModel<F> model = original;
+	protected GraphicalModel<F> preprocess(DAGModel<F> original, TIntIntMap evidence, int... query) {
+		GraphicalModel<F> model = original;
 		if (preprocess) {
-			model = original.copy();
+			// the changes are done on an overlay that shares the untouched variables and factors with the original
+			final OverlayModel<F> overlay = original.copyOnWrite();
 			final CutObserved<F> co = new CutObserved<>();
 			final RemoveBarren<F> rb = new RemoveBarren<>();
 
-			co.executeInPlace(model, evidence);
-			rb.executeInPlace(model, evidence, query);
+			co.executeInPlace(overlay, evidence);
+			rb.executeInPlace(overlay, evidence, query);
+			model = overlay;
 		}
 
 		return model;
@@ -90,7 +120,7 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 	 * @param model the model to use for inference
 	 * @param query the variable that will be queried
 	 */
-	protected void initModel(DAGModel<F> model, int query) {
+	protected void initModel(GraphicalModel<F> model, int query) {
 		this.fullyPropagated = false;
 		this.model = model;
 
@@ -100,21 +130,26 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 
 		potentialsPerClique.clear();
 		messages.clear();
+		outdated.clear();
 
 		junctionTree.vertexSet().forEach(clique -> potentialsPerClique.put(clique, new HashSet<>()));
 
-		junctionTree.vertexSet().forEach(clique -> {
-			for (int v : clique.getVArray()) {
-				final F f = model.getFactor(v);
-				potentialsPerClique.get(clique).add(f);
-			}
-		});
+		// each factor goes to the smallest clique that covers its whole domain
+		for (int v : model.getVariables()) {
+			final int[] domain = model.getFactor(v).getDomain().getVariables();
+			final Clique clique = junctionTree.vertexSet().stream()
+					.filter(c -> c.containsAll(domain))
+					.min(Comparator.comparingInt(c -> c.getVariables().length))
+					.orElseThrow(() -> new IllegalStateException("No clique contains the domain of variable " + v));
+			potentialsPerClique.get(clique).add(model.getFactor(v));
+		}
 
 		collectingTree = new DirectedAcyclicGraph<>(DefaultEdge.class);
 		distributingTree = new DirectedAcyclicGraph<>(DefaultEdge.class);
 
 		collectingOrder = new LinkedList<>();
 		distributionOrder = new LinkedList<>();
+		layers.clear();
 
 		junctionTree.vertexSet().forEach(clique -> {
 			collectingTree.addVertex(clique);
@@ -129,6 +164,7 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 
 		// add the edges to the two directed trees
 		do {
+			layers.add(new ArrayList<>(nodes));
 			Set<Clique> slack = new HashSet<>();
 			for (Clique clique : nodes) {
 				visited.add(clique);
@@ -197,7 +233,7 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 	public F query(DAGModel<F> original, TIntIntMap evidence, int query) {
 		model = preprocess(original, evidence, query);
 
-		this.evidence = evidence;
+		this.evidence = new TIntIntHashMap(evidence);
 		initModel(model, query);
 
 		return collectingEvidence(query);
@@ -256,19 +292,118 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 		final List<Clique> parents = parents(collectingTree, i);
 		final List<Clique> children = children(collectingTree, i);
 
-		final Optional<F> Ms = Stream.concat(parents.stream(), children.stream())
+		children.forEach(j -> update(j, i));
+
+		final Stream<F> Ms = Stream.concat(parents.stream(), children.stream())
 				.map(j -> new ImmutablePair<>(j, i))
-				.map(messages::get)
-				.reduce(F::combine);
+				.map(messages::get);
 
-		F f = phi(i);
-		if (Ms.isPresent())
-			f = f.combine(Ms.get());
+		final F f = combine(i, Ms);
 
 		int[] ints = difference(f.getDomain().getVariables(), new int[]{query});
 		return f.marginalize(ints).normalize();
 	}
 
+	/**
+	 * Adds or changes the observed state of a variable in a fully propagated model. Only the messages of the collecting
+	 * step on the path between the cliques that contain the variable and the root are recomputed; the messages of the
+	 * distribution step are recomputed only when needed by {@link #queryFullPropagated(int)}.
+	 *
+	 * @param variable the observed variable
+	 * @param state    the observed state
+	 */
+	public void updateEvidence(int variable, int state) {
+		if (!fullyPropagated)
+			throw new IllegalStateException("The stored model is not fully propagated.");
+
+		if (evidence.containsKey(variable) && evidence.get(variable) == state)
+			return;
+
+		evidence.put(variable, state);
+		evidenceChanged(variable);
+	}
+
+	/**
+	 * Retracts the evidence of a variable in a fully propagated model. Messages are updated in the same way of
+	 * {@link #updateEvidence(int, int)}.
+	 *
+	 * @param variable the variable that is no more observed
+	 */
+	public void removeEvidence(int variable) {
+		if (!fullyPropagated)
+			throw new IllegalStateException("The stored model is not fully propagated.");
+
+		if (!evidence.containsKey(variable))
+			return;
+
+		evidence.remove(variable);
+		evidenceChanged(variable);
+	}
+
+	/**
+	 * @return a copy of the evidence currently used by this algorithm
+	 */
+	public TIntIntMap getEvidence() {
+		return new TIntIntHashMap(evidence);
+	}
+
+	/**
+	 * Recomputes the messages of the collecting step that depend on the cliques with a factor over the given variable,
+	 * then marks as outdated all the messages of the distribution step that are not directed toward these cliques.
+	 *
+	 * @param variable the variable with changed evidence
+	 */
+	protected void evidenceChanged(int variable) {
+		final Set<Clique> changed = potentialsPerClique.entrySet().stream()
+				.filter(e -> e.getValue().stream().anyMatch(f -> ArraysUtil.contains(variable, f.getDomain().getVariables())))
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toSet());
+
+		if (changed.isEmpty())
+			throw new IllegalArgumentException("Variable " + variable + " not found in model");
+
+		// cliques from the changed ones to the root (excluded)
+		final Set<Clique> path = new HashSet<>();
+		for (Clique c : changed) {
+			Clique i = c;
+			while (!i.equals(root) && path.add(i))
+				i = children(collectingTree, i).get(0);
+		}
+
+		for (Clique i : collectingOrder) {
+			if (!path.contains(i))
+				continue;
+
+			final Clique j = children(collectingTree, i).get(0);
+			messages.put(new ImmutablePair<>(i, j), collect(i));
+		}
+
+		for (Clique i : distributionOrder) {
+			for (Clique j : children(distributingTree, i)) {
+				if (!path.contains(j))
+					outdated.add(new ImmutablePair<>(i, j));
+			}
+		}
+	}
+
+	/**
+	 * Recomputes, if outdated, the message of the distribution step from {@link Clique} i to {@link Clique} j and all
+	 * the messages it depends on.
+	 *
+	 * @param i source of the message
+	 * @param j destination of the message
+	 */
+	protected void update(Clique i, Clique j) {
+		final Pair<Clique, Clique> key = new ImmutablePair<>(i, j);
+		if (!outdated.contains(key))
+			return;
+
+		parents(distributingTree, i).forEach(k -> update(k, i));
+
+		messages.put(key, distribute(i, j));
+		outdated.remove(key);
+	}
+
 	/**
 	 * @param i the {@link Clique} to search the parents for
 	 * @return all the parents of the given {@link Clique} in the {@link #collectingTree}
@@ -297,22 +432,33 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 	 * @return the combination of the potentials of {@link Clique} i with all the incoming messages (if there are any)
 	 */
 	protected F message(DirectedAcyclicGraph<Clique, DefaultEdge> tree, Clique i) {
-		final Optional<F> psis = parents(tree, i)
-				.stream()
-				.map(j -> {
-					final ImmutablePair<Clique, Clique> key = new ImmutablePair<>(j, i);
-					final F M = messages.get(key);
-					final int[] S = separators.get(key);
-					return M.marginalize(S).normalize();
-				})
-				.reduce(F::combine);
-
-		F phis = phi(i);
+		return combine(i, incoming(parents(tree, i).stream(), i)).normalize();
+	}
 
-		if (psis.isPresent())
-			phis = phis.combine(psis.get());
+	/**
+	 * @param sources the {@link Clique}s that sent a message to i
+	 * @param i       the destination of the messages
+	 * @return the messages from the sources to i, marginalized over the separators
+	 */
+	private Stream<F> incoming(Stream<Clique> sources, Clique i) {
+		return sources.map(j -> {
+			final ImmutablePair<Clique, Clique> key = new ImmutablePair<>(j, i);
+			final F M = messages.get(key);
+			final int[] S = separators.get(key);
+			return M.marginalize(S).normalize();
+		});
+	}
 
-		return phis.normalize();
+	/**
+	 * @param i        a {@link Clique}
+	 * @param messages messages received by i
+	 * @return the combination of the potentials of i with the messages; a clique may have no potentials when no
+	 * factor has its whole domain in it
+	 */
+	private F combine(Clique i, Stream<F> messages) {
+		return Stream.concat(phi(i).stream(), messages)
+				.reduce(F::combine)
+				.orElseThrow(() -> new IllegalStateException("Empty F after combination"));
 	}
 
 	/**
@@ -338,17 +484,17 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 	 * @return the precise {@link ch.idsia.crema.factor.GenericFactor} associated with the variable
 	 */
 	public F collectingEvidence(int variable) {
-		// populate messages
-		for (Clique i : collectingOrder) {
-			// root computation is done outside of this loop
-			if (i.equals(root))
-				continue;
-
-			// in collectingTree, children is always 1 (except for root)
-			final Clique j = children(collectingTree, i).get(0);
-			final F Mij = collect(i);
-			final Pair<Clique, Clique> key = new ImmutablePair<>(i, j);
-			messages.put(key, Mij);
+		// populate messages, from the farthest layer to the root (excluded) which is computed outside of this loop
+		for (int l = layers.size() - 1; l > 0; l--) {
+			final List<Clique> layer = layers.get(l);
+			final List<F> Ms = map(layer, this::collect);
+
+			for (int k = 0; k < layer.size(); k++) {
+				final Clique i = layer.get(k);
+				// in collectingTree, children is always 1 (except for root)
+				final Clique j = children(collectingTree, i).get(0);
+				messages.put(new ImmutablePair<>(i, j), Ms.get(k));
+			}
 		}
 
 		// root computation and variable query
@@ -357,34 +503,66 @@ public class BeliefPropagation<F extends OperableFactor<F>> implements Inference
 		return f.marginalize(ints).normalize();
 	}
 
+	/**
+	 * @param i {@link Clique} to distribute messages from
+	 * @param j {@link Clique} to distribute messages to
+	 * @return the message from i to j: the combination of the potentials of {@link Clique} i with the message from its
+	 * parent and the messages collected from all its children except j, marginalized over the separator
+	 */
+	protected F distribute(Clique i, Clique j) {
+		final Stream<Clique> sources = Stream.concat(
+				parents(distributingTree, i).stream(),
+				children(distributingTree, i).stream().filter(k -> !k.equals(j))
+		);
+
+		return combine(i, incoming(sources, i))
+				.marginalize(separators.get(new ImmutablePair<>(i, j)))
+				.normalize();
+	}
+
 	/**
 	 * Executes the distribution step of the Belief Propagation algorithm.
 	 */
 	public void distributingEvidence() {
-		for (Clique i : distributionOrder) {
-			final F Mi = distribute(i);
-
-			for (Clique j : children(distributingTree, i)) {
-				final Pair<Clique, Clique> key = new ImmutablePair<>(i, j);
-				final int[] S = separators.get(key);
-				final F Mij = Mi.marginalize(S);
-				messages.put(key, Mij);
-			}
+		for (List<Clique> layer : layers) {
+			final List<Pair<Clique, Clique>> keys = layer.stream()
+					.flatMap(i -> children(distributingTree, i).stream().map(j -> new ImmutablePair<>(i, j)))
+					.collect(Collectors.toList());
+			final List<F> Ms = map(keys, key -> distribute(key.getLeft(), key.getRight()));
+
+			for (int k = 0; k < keys.size(); k++)
+				messages.put(keys.get(k), Ms.get(k));
 		}
+		outdated.clear();
+	}
+
+	/**
+	 * Applies the given function to all the items, in parallel if a {@link #pool} is available. Messages are only read
+	 * by the function, the caller is in charge of storing the results.
+	 *
+	 * @param items    the items to process
+	 * @param function the function to apply
+	 * @return the results of the function, in the same order of the items
+	 */
+	protected <T, R> List<R> map(List<T> items, Function<T, R> function) {
+		if (pool == null || items.size() < 2)
+			return items.stream().map(function).collect(Collectors.toList());
+
+		return pool.submit(() -> items.parallelStream().map(function).collect(Collectors.toList())).join();
 	}
 
 	/**
 	 * Compute the potential phi of a given {@link Clique}. Evidence is considered there.
 	 *
 	 * @param clique input clique
-	 * @return a {@link F} which is a combination of all the factors and the evidences included in the Clique
+	 * @return a {@link F} which is a combination of all the factors and the evidences included in the Clique, empty if
+	 * the clique has no factors
 	 */
-	private F phi(Clique clique) {
+	private Optional<F> phi(Clique clique) {
 		return potentialsPerClique.get(clique).stream()
 				.map(f -> f.filter(evidence))
 				.reduce(F::combine)
-				.orElseThrow(() -> new IllegalStateException("Empty F after combination"))
-				.normalize();
+				.map(F::normalize);
 	}
 
 }
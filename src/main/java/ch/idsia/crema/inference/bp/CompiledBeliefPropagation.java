@@ -0,0 +1,64 @@
+package ch.idsia.crema.inference.bp;
+
+import ch.idsia.crema.factor.OperableFactor;
+import ch.idsia.crema.inference.Inference;
+import ch.idsia.crema.model.graphical.DAGModel;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+
+/**
+ * An {@link Inference} algorithm that keeps a {@link CompiledJunctionTree} of the last queried model. The tree is
+ * built on the first query and reused as long as the same model is queried and it has not been modified; otherwise a
+ * new tree is compiled.
+ * <p>
+ * Differently from {@link BeliefPropagation}, no pre-processing is applied to the model since this would change the
+ * structure of the junction tree for each query.
+ *
+ * @param <F> the type of the factors
+ */
+public class CompiledBeliefPropagation<F extends OperableFactor<F>> implements Inference<DAGModel<F>, F> {
+
+	private volatile CompiledJunctionTree<F> compiled;
+
+	/**
+	 * @param model the model to compile
+	 * @return a valid {@link CompiledJunctionTree} for the given model, built only if needed
+	 */
+	public CompiledJunctionTree<F> compile(DAGModel<F> model) {
+		CompiledJunctionTree<F> tree = compiled;
+		if (tree != null && tree.getModel() == model && tree.isValid())
+			return tree;
+
+		synchronized (this) {
+			tree = compiled;
+			if (tree == null || tree.getModel() != model || !tree.isValid()) {
+				tree = new CompiledJunctionTree<>(model);
+				compiled = tree;
+			}
+			return tree;
+		}
+	}
+
+	/**
+	 * @param model    the model to use for inference
+	 * @param evidence the observed variable as a map of variable-states
+	 * @param query    the variable that will be queried
+	 * @return the marginal probability of the query variable
+	 */
+	@Override
+	public F query(DAGModel<F> model, TIntIntMap evidence, int query) {
+		return compile(model).query(evidence, query);
+	}
+
+	/**
+	 * Performs a full propagation of the given evidence.
+	 *
+	 * @param model    the model to use for inference
+	 * @param evidence the observed variable as a map of variable-states
+	 * @return a map variable-marginal probability with an entry for each variable of the model
+	 */
+	public TIntObjectMap<F> marginals(DAGModel<F> model, TIntIntMap evidence) {
+		return compile(model).marginals(evidence);
+	}
+
+}
@@ -0,0 +1,333 @@
+package ch.idsia.crema.inference.bp;
+
+import ch.idsia.crema.factor.OperableFactor;
+import ch.idsia.crema.inference.bp.cliques.Clique;
+import ch.idsia.crema.inference.bp.junction.JunctionTree;
+import ch.idsia.crema.model.graphical.DAGModel;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jgrapht.Graphs;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static ch.idsia.crema.utility.ArraysUtil.difference;
+
+/**
+ * A {@link JunctionTree} built once for a given {@link DAGModel} and then reused for any number of queries. The
+ * moralization, triangulation, clique search and join-tree construction are done only in the constructor, together
+ * with the assignment of the factors to the cliques and the computation of the separators. Each query only performs
+ * the message passing.
+ * <p>
+ * Messages are computed with the Shafer-Shenoy scheme: the message from clique i to clique j is the combination of the
+ * potential of i with all the messages that i received from its neighbours except j, marginalized over the
+ * separator between i and j.
+ * <p>
+ * The compiled structure is never modified after construction, so a single instance can be shared between threads.
+ * When the model changes (see {@link DAGModel#getVersion()}) the compiled tree is no longer {@link #isValid() valid}
+ * and a new one should be built.
+ *
+ * @param <F> the type of the factors
+ */
+public class CompiledJunctionTree<F extends OperableFactor<F>> {
+
+	private final DAGModel<F> model;
+	private final long version;
+
+	private final JunctionTree junctionTree;
+
+	/**
+	 * Factors of the model assigned to each clique.
+	 */
+	private final Map<Clique, List<F>> potentialsPerClique = new HashMap<>();
+
+	/**
+	 * Neighbours of each clique in the junction tree.
+	 */
+	private final Map<Clique, List<Clique>> neighbours = new HashMap<>();
+
+	/**
+	 * Variables to sum out when a message is sent from the left clique to the right clique.
+	 */
+	private final Map<Pair<Clique, Clique>, int[]> separators = new HashMap<>();
+
+	/**
+	 * The clique that contains the factor of each variable, hence its whole family.
+	 */
+	private final TIntObjectMap<Clique> familyOf = new TIntObjectHashMap<>();
+
+	/**
+	 * The smallest clique that contains each variable of the model.
+	 */
+	private final TIntObjectMap<Clique> cliqueOf = new TIntObjectHashMap<>();
+
+	/**
+	 * Messages to send, in order, to collect all the evidence toward a given root.
+	 */
+	private final Map<Clique, List<Pair<Clique, Clique>>> collectSchedules = new ConcurrentHashMap<>();
+
+	/**
+	 * Messages to send, in order, to perform a full propagation over all the connected components of the tree.
+	 */
+	private final List<Pair<Clique, Clique>> fullSchedule = new ArrayList<>();
+
+	/**
+	 * Builds the {@link JunctionTree} of the given model using the {@link GraphToJunctionTreePipe}.
+	 *
+	 * @param model the model to compile
+	 */
+	public CompiledJunctionTree(DAGModel<F> model) {
+		this.model = model;
+		this.version = model.getVersion();
+
+		final GraphToJunctionTreePipe<F> pipeline = new GraphToJunctionTreePipe<>();
+		pipeline.setInput(model);
+		junctionTree = pipeline.exec();
+
+		for (Clique clique : junctionTree.vertexSet()) {
+			potentialsPerClique.put(clique, new ArrayList<>());
+
+			final List<Clique> ns = Graphs.neighborListOf(junctionTree, clique);
+			neighbours.put(clique, ns);
+
+			for (Clique n : ns)
+				separators.put(new ImmutablePair<>(clique, n), difference(clique.getVariables(), n.getVariables()));
+
+			for (int v : clique.getVariables()) {
+				final Clique c = cliqueOf.get(v);
+				if (c == null || c.getVariables().length > clique.getVariables().length)
+					cliqueOf.put(v, clique);
+			}
+		}
+
+		// each factor goes to the smallest clique that covers its whole domain
+		for (int v : model.getVariables()) {
+			final F f = model.getFactor(v);
+			final int[] domain = f.getDomain().getVariables();
+			final Clique clique = junctionTree.vertexSet().stream()
+					.filter(c -> c.containsAll(domain))
+					.min(Comparator.comparingInt(c -> c.getVariables().length))
+					.orElseThrow(() -> new IllegalStateException("No clique contains the domain of variable " + v));
+			potentialsPerClique.get(clique).add(f);
+			familyOf.put(v, clique);
+		}
+
+		// one collect and one distribute pass for each connected component
+		final Set<Clique> visited = new HashSet<>();
+		for (Clique clique : junctionTree.vertexSet()) {
+			if (visited.contains(clique))
+				continue;
+
+			final List<Pair<Clique, Clique>> collect = schedule(clique, visited);
+			fullSchedule.addAll(collect);
+
+			for (int i = collect.size() - 1; i >= 0; i--) {
+				final Pair<Clique, Clique> edge = collect.get(i);
+				fullSchedule.add(new ImmutablePair<>(edge.getRight(), edge.getLeft()));
+			}
+		}
+	}
+
+	/**
+	 * @return the model used to build this tree
+	 */
+	public DAGModel<F> getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the compiled junction tree
+	 */
+	public JunctionTree getJunctionTree() {
+		return junctionTree;
+	}
+
+	/**
+	 * @return true if the model has not been modified since this tree has been compiled, otherwise false
+	 */
+	public boolean isValid() {
+		return model.getVersion() == version;
+	}
+
+	/**
+	 * Collects the evidence toward the smallest clique that contains the query variable.
+	 *
+	 * @param evidence the observed variable as a map of variable-states
+	 * @param query    the variable that will be queried
+	 * @return the marginal probability of the query variable
+	 */
+	public F query(TIntIntMap evidence, int query) {
+		checkValid();
+
+		final Clique root = cliqueOf(query);
+		final Map<Clique, Optional<F>> phis = new HashMap<>();
+		final Map<Pair<Clique, Clique>, F> messages = new HashMap<>();
+
+		final List<Pair<Clique, Clique>> schedule = collectSchedules.computeIfAbsent(root, r -> schedule(r, new HashSet<>()));
+		for (Pair<Clique, Clique> edge : schedule)
+			send(edge, evidence, phis, messages);
+
+		return marginal(root, query, evidence, phis, messages);
+	}
+
+	/**
+	 * @param query the variable that will be queried
+	 * @return the marginal probability of the query variable
+	 */
+	public F query(int query) {
+		return query(new TIntIntHashMap(), query);
+	}
+
+	/**
+	 * Performs a full propagation, collecting and distributing the given evidence over the whole tree, and then returns
+	 * the marginal of each variable of the model.
+	 *
+	 * @param evidence the observed variable as a map of variable-states
+	 * @return a map variable-marginal probability with an entry for each variable of the model
+	 */
+	public TIntObjectMap<F> marginals(TIntIntMap evidence) {
+		checkValid();
+
+		final Map<Clique, Optional<F>> phis = new HashMap<>();
+		final Map<Pair<Clique, Clique>, F> messages = new HashMap<>();
+
+		for (Pair<Clique, Clique> edge : fullSchedule)
+			send(edge, evidence, phis, messages);
+
+		final TIntObjectMap<F> marginals = new TIntObjectHashMap<>();
+		for (int v : model.getVariables())
+			marginals.put(v, marginal(cliqueOf(v), v, evidence, phis, messages));
+
+		return marginals;
+	}
+
+	/**
+	 * @return a map variable-marginal probability with an entry for each variable of the model
+	 */
+	public TIntObjectMap<F> marginals() {
+		return marginals(new TIntIntHashMap());
+	}
+
+	/**
+	 * Performs a full propagation of the given evidence and then returns, for each variable of the model, the joint
+	 * posterior probability of the variable and its parents. Observed variables are not part of the returned factors.
+	 *
+	 * @param evidence the observed variable as a map of variable-states
+	 * @return a map variable-family posterior with an entry for each variable of the model
+	 */
+	public TIntObjectMap<F> families(TIntIntMap evidence) {
+		checkValid();
+
+		final Map<Clique, Optional<F>> phis = new HashMap<>();
+		final Map<Pair<Clique, Clique>, F> messages = new HashMap<>();
+
+		for (Pair<Clique, Clique> edge : fullSchedule)
+			send(edge, evidence, phis, messages);
+
+		final Map<Clique, F> beliefs = new HashMap<>();
+		final TIntObjectMap<F> families = new TIntObjectHashMap<>();
+		for (int v : model.getVariables()) {
+			final F f = beliefs.computeIfAbsent(familyOf.get(v), c -> belief(c, null, evidence, phis, messages)
+					.orElseThrow(() -> new IllegalStateException("Empty F after combination")));
+
+			final int[] family = model.getFactor(v).getDomain().getVariables();
+			final int[] ints = difference(f.getDomain().getVariables(), family);
+			families.put(v, f.marginalize(ints).normalize());
+		}
+
+		return families;
+	}
+
+	private void checkValid() {
+		if (!isValid())
+			throw new IllegalStateException("The model has been modified after the junction tree has been compiled.");
+	}
+
+	private Clique cliqueOf(int variable) {
+		final Clique clique = cliqueOf.get(variable);
+		if (clique == null)
+			throw new IllegalArgumentException("Variable " + variable + " not found in model");
+		return clique;
+	}
+
+	/**
+	 * Visits the connected component of the given root and returns the messages that need to be sent, from the leaves
+	 * to the root, to collect all the evidence in the root.
+	 *
+	 * @param root    the root of the collecting tree
+	 * @param visited set of already visited cliques, it will be updated
+	 * @return an ordered list of (source, destination) pairs
+	 */
+	private List<Pair<Clique, Clique>> schedule(Clique root, Set<Clique> visited) {
+		final LinkedList<Pair<Clique, Clique>> schedule = new LinkedList<>();
+		final Deque<Clique> frontier = new ArrayDeque<>();
+
+		visited.add(root);
+		frontier.add(root);
+
+		while (!frontier.isEmpty()) {
+			final Clique i = frontier.poll();
+			for (Clique j : neighbours.get(i)) {
+				if (visited.add(j)) {
+					schedule.addFirst(new ImmutablePair<>(j, i));
+					frontier.add(j);
+				}
+			}
+		}
+
+		return schedule;
+	}
+
+	/**
+	 * Computes the message from the left to the right clique of the given edge. All the other messages that the source
+	 * clique receives need to be already available. Cliques without factors and messages send nothing.
+	 */
+	private void send(Pair<Clique, Clique> edge, TIntIntMap evidence, Map<Clique, Optional<F>> phis, Map<Pair<Clique, Clique>, F> messages) {
+		belief(edge.getLeft(), edge.getRight(), evidence, phis, messages)
+				.ifPresent(f -> messages.put(edge, f.marginalize(separators.get(edge)).normalize()));
+	}
+
+	/**
+	 * Combines the potential of the given clique with all the incoming messages and then marginalize out all the
+	 * variables except the query.
+	 */
+	private F marginal(Clique clique, int query, TIntIntMap evidence, Map<Clique, Optional<F>> phis, Map<Pair<Clique, Clique>, F> messages) {
+		final F f = belief(clique, null, evidence, phis, messages)
+				.orElseThrow(() -> new IllegalStateException("Empty F after combination"));
+
+		final int[] ints = difference(f.getDomain().getVariables(), new int[]{query});
+		return f.marginalize(ints).normalize();
+	}
+
+	/**
+	 * @param i       the clique to consider
+	 * @param exclude neighbour whose message is not considered, can be null
+	 * @return the combination of the potential of clique i with all its incoming messages, if there are any
+	 */
+	private Optional<F> belief(Clique i, Clique exclude, TIntIntMap evidence, Map<Clique, Optional<F>> phis, Map<Pair<Clique, Clique>, F> messages) {
+		final Stream<F> incoming = neighbours.get(i).stream()
+				.filter(k -> !k.equals(exclude))
+				.map(k -> messages.get(new ImmutablePair<>(k, i)))
+				.filter(Objects::nonNull);
+
+		return Stream.concat(phi(i, evidence, phis).stream(), incoming)
+				.reduce(F::combine);
+	}
+
+	/**
+	 * Compute the potential phi of a given {@link Clique}, considering the evidence. Potentials are cached in the given
+	 * map since a clique is used once for each of its neighbours.
+	 */
+	private Optional<F> phi(Clique clique, TIntIntMap evidence, Map<Clique, Optional<F>> phis) {
+		return phis.computeIfAbsent(clique, c -> potentialsPerClique.get(c).stream()
+				.map(f -> f.filter(evidence))
+				.reduce(F::combine)
+		);
+	}
+
+}
@@ -8,7 +8,7 @@ import ch.idsia.crema.inference.bp.junction.JunctionTree;
 import ch.idsia.crema.inference.bp.junction.JunctionTreeBuilder;
 import ch.idsia.crema.inference.bp.moralization.Moralize;
 import ch.idsia.crema.inference.bp.triangulation.MinDegreeOrdering;
-import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.graphical.GraphicalModel;
 
 import java.util.Arrays;
 
@@ -17,7 +17,7 @@ import java.util.Arrays;
  * Project: crema
  * Date:    16.11.2020 18:22
  */
-public class GraphToJunctionTreePipe<F extends OperableFactor<F>> extends Pipe<DAGModel<F>, JunctionTree> {
+public class GraphToJunctionTreePipe<F extends OperableFactor<F>> extends Pipe<GraphicalModel<F>, JunctionTree> {
 
 	public GraphToJunctionTreePipe() {
 		this.stages = Arrays.asList(
@@ -3,6 +3,8 @@ package ch.idsia.crema.inference.bp;
 import ch.idsia.crema.factor.OperableFactor;
 import ch.idsia.crema.inference.Inference;
 import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.graphical.GraphicalModel;
+import ch.idsia.crema.model.graphical.OverlayModel;
 import ch.idsia.crema.preprocess.CutObserved;
 import ch.idsia.crema.preprocess.RemoveBarren;
 import ch.idsia.crema.utility.ArraysUtil;
@@ -11,10 +13,10 @@ import gnu.trove.map.hash.TIntIntHashMap;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.DirectedAcyclicGraph;
 import org.jgrapht.graph.SimpleGraph;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -40,15 +42,16 @@ public class LoopyBeliefPropagation<F extends OperableFactor<F>> implements Infe
 		}
 	}
 
-	protected DAGModel<F> model;
+	protected GraphicalModel<F> model;
 
-	protected DirectedAcyclicGraph<Integer, DefaultEdge> network;
 	protected SimpleGraph<Integer, DefaultEdge> graph;
 
 	protected Boolean preprocess = true;
 
 	protected int iterations = 5;
 
+	protected ForkJoinPool pool = null;
+
 	protected Map<Pair<Integer, Integer>, F> messages;
 	protected Map<Pair<Integer, Integer>, Neighbour> neighbours;
 
@@ -79,44 +82,53 @@ public class LoopyBeliefPropagation<F extends OperableFactor<F>> implements Infe
 		this.preprocess = preprocess;
 	}
 
-	protected DAGModel<F> preprocess(DAGModel<F> original, TIntIntMap evidence, int... query) {
-		DAGModel<F> model = original;
+	/**
+	 * When a pool is set, all the messages of an iteration are computed in parallel using the given pool. Results are
+	 * the same of the sequential execution.
+	 *
+	 * @param pool the pool to use for parallel execution, null for sequential execution
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	protected GraphicalModel<F> preprocess(DAGModel<F> original, TIntIntMap evidence, int... query) {
+		GraphicalModel<F> model = original;
 		if (preprocess) {
-			model = original.copy();
+			// the changes are done on an overlay that shares the untouched variables and factors with the original
+			final OverlayModel<F> overlay = original.copyOnWrite();
 			final CutObserved<F> co = new CutObserved<>();
 			final RemoveBarren<F> rb = new RemoveBarren<>();
 
-			co.executeInPlace(model, evidence);
-			rb.executeInPlace(model, evidence, query);
+			co.executeInPlace(overlay, evidence);
+			rb.executeInPlace(overlay, evidence, query);
+			model = overlay;
 		}
 
 		return model;
 	}
 
-	protected void initModel(DAGModel<F> model) {
+	protected void initModel(GraphicalModel<F> model) {
 		// TODO check if this work has already been done!
 		this.model = model;
-		network = model.getNetwork();
 		graph = new SimpleGraph<>(DefaultEdge.class);
 		messages = new HashMap<>();
 		neighbours = new HashMap<>();
 
 		// copy network into an undirected (simple) graph
 		// add all the vertices to the new graph
-		network.vertexSet().forEach(graph::addVertex);
+		for (int v : model.getVariables())
+			graph.addVertex(v);
 
 		// add all the edges to the new graph
-		network.vertexSet().forEach(v -> {
-			for (DefaultEdge e1 : network.incomingEdgesOf(v)) {
-				int parent = network.getEdgeSource(e1);
+		for (int v : model.getVariables())
+			for (int parent : model.getParents(v))
 				graph.addEdge(parent, v);
-			}
-		});
 
 		// build mailboxes
 		for (Integer i : graph.vertexSet()) {
 			for (Integer j : graph.vertexSet()) {
-				if (model.getNetwork().getEdge(i, j) == null)
+				if (!ArraysUtil.contains(i, model.getParents(j)))
 					// this edge does not exist
 					continue;
 
@@ -182,7 +194,7 @@ public class LoopyBeliefPropagation<F extends OperableFactor<F>> implements Infe
 	}
 
 	public List<F> query(DAGModel<F> original, TIntIntMap evidence, int... queries) {
-		final DAGModel<F> model = preprocess(original, evidence, queries);
+		final GraphicalModel<F> model = preprocess(original, evidence, queries);
 
 		initModel(model);
 		messagePassing(evidence);
@@ -192,8 +204,20 @@ public class LoopyBeliefPropagation<F extends OperableFactor<F>> implements Infe
 				.collect(Collectors.toList());
 	}
 
-	protected void sendMessage(int i, int j, DAGModel<F> model, TIntIntMap evidence, Map<Pair<Integer, Integer>, F> new_messages) {
+	protected void sendMessage(int i, int j, GraphicalModel<F> model, TIntIntMap evidence,
+			Map<Pair<Integer, Integer>, F> new_messages) {
 		// send message from i to j
+		new_messages.put(new ImmutablePair<>(i, j), message(i, j, model, evidence));
+	}
+
+	/**
+	 * @param i        source node
+	 * @param j        destination node
+	 * @param model    the model to use for inference
+	 * @param evidence the observed variable as a map of variable-states
+	 * @return the message from node i to node j computed using the messages of the previous iteration
+	 */
+	protected F message(int i, int j, GraphicalModel<F> model, TIntIntMap evidence) {
 		final Pair<Integer, Integer> key = new ImmutablePair<>(i, j); // (i, j)
 		final Neighbour neighbour = neighbours.get(key);
 		final F f = model.getFactor(i);
@@ -222,30 +246,45 @@ public class LoopyBeliefPropagation<F extends OperableFactor<F>> implements Infe
 		if (Mij.getDomain().getSize() == 0)
 			throw new IllegalStateException("Message defined over any variable");
 
-		new_messages.put(key, Mij);
+		return Mij;
 	}
 
 	protected void messagePassing(TIntIntMap evidence) {
-		// iterate and update messages
+		final List<Pair<Integer, Integer>> keys = messageKeys();
+
 		for (int it = 0; it < iterations; it++) {
 			final Map<Pair<Integer, Integer>, F> new_messages = new HashMap<>();
-
-			for (int node : model.getVariables()) {
-				final int[] parents = model.getParents(node);
-				final int[] children = model.getChildren(node);
-
-				for (int parent : parents)
-					sendMessage(node, parent, model, evidence, new_messages);
-				for (int child : children)
-					sendMessage(node, child, model, evidence, new_messages);
+			if (pool == null) {
+				for (Pair<Integer, Integer> key : keys)
+					sendMessage(key.getLeft(), key.getRight(), model, evidence, new_messages);
+			} else {
+				// messages of the same iteration only depend on the messages of the previous one
+				final List<F> Ms = pool.submit(() -> keys.parallelStream()
+						.map(key -> message(key.getLeft(), key.getRight(), model, evidence))
+						.collect(Collectors.toList())).join();
+				for (int k = 0; k < keys.size(); k++)
+					new_messages.put(keys.get(k), Ms.get(k));
 			}
-
-			// update all messages and go to the next iteration
+			// always the given number of iterations: ResidualLoopyBeliefPropagation stops when the messages converge
 			messages.putAll(new_messages);
-			// TODO: add check to stop when we converged (new_messages are equal to old_messages)
 		}
 	}
 
+	/**
+	 * @return the pairs (sender, receiver) of the messages sent in each iteration, from each node to its parents and
+	 * then to its children
+	 */
+	private List<Pair<Integer, Integer>> messageKeys() {
+		final List<Pair<Integer, Integer>> keys = new ArrayList<>();
+		for (int node : model.getVariables()) {
+			for (int parent : model.getParents(node))
+				keys.add(new ImmutablePair<>(node, parent));
+			for (int child : model.getChildren(node))
+				keys.add(new ImmutablePair<>(node, child));
+		}
+		return keys;
+	}
+
 	private F variableMarginal(int query) {
 		F v = model.getFactor(query);
 		if (!graph.edgeSet().isEmpty()) {
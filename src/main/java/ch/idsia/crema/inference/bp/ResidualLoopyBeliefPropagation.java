@@ -0,0 +1,179 @@
+package ch.idsia.crema.inference.bp;
+
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import gnu.trove.map.TIntIntMap;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+
+/**
+ * A {@link LoopyBeliefPropagation} that updates one message at a time, always choosing the message whose value would
+ * change the most (residual belief propagation). After each update, only the messages that depend on the updated one
+ * are recomputed.
+ * <p>
+ * The message passing stops when the largest residual drops under the {@link #setTolerance(double) tolerance}, when the
+ * {@link #setTimeLimit(long) time limit} is reached, or after the equivalent of {@link #setIterations(int) iterations}
+ * full sweeps over all the messages. The pool given with {@link #setPool(java.util.concurrent.ForkJoinPool)} is not
+ * used by this algorithm since updates are sequential by definition.
+ */
+public class ResidualLoopyBeliefPropagation extends LoopyBeliefPropagation<BayesianFactor> {
+
+	protected double tolerance = 1e-9;
+
+	protected long timeLimit = 0;
+
+	private final Map<Pair<Integer, Integer>, Integer> updateCounts = new HashMap<>();
+	private int updates = 0;
+	private double residual = Double.POSITIVE_INFINITY;
+	private boolean converged = false;
+
+	public ResidualLoopyBeliefPropagation() {
+		setIterations(100);
+	}
+
+	public ResidualLoopyBeliefPropagation(Boolean preprocess) {
+		super(preprocess, 100);
+	}
+
+	public ResidualLoopyBeliefPropagation(Boolean preprocess, double tolerance) {
+		this(preprocess);
+		setTolerance(tolerance);
+	}
+
+	/**
+	 * @param tolerance message passing stops when the largest change of a message is lower than this value
+	 */
+	public void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @param timeLimit max time, in milliseconds, spent in message passing for each query; 0 means no limit
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return number of single message updates done in the last query
+	 */
+	public int getUpdates() {
+		return updates;
+	}
+
+	/**
+	 * @return the largest residual of the pending messages at the end of the last query
+	 */
+	public double getResidual() {
+		return residual;
+	}
+
+	/**
+	 * @return true if the last query stopped because the largest residual dropped under the tolerance
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	/**
+	 * @return for each (source, destination) pair, the number of times its message has been updated in the last query
+	 */
+	public Map<Pair<Integer, Integer>, Integer> getUpdateCounts() {
+		return Collections.unmodifiableMap(updateCounts);
+	}
+
+	@Override
+	protected void messagePassing(TIntIntMap evidence) {
+		updateCounts.clear();
+		updates = 0;
+		residual = 0;
+		converged = false;
+
+		final long deadline = System.currentTimeMillis() + timeLimit;
+		final long maxUpdates = (long) iterations * neighbours.size();
+
+		final Map<Pair<Integer, Integer>, BayesianFactor> candidates = new HashMap<>();
+		final Map<Pair<Integer, Integer>, Double> residuals = new HashMap<>();
+		final PriorityQueue<Pair<Pair<Integer, Integer>, Double>> queue = new PriorityQueue<>(
+				Comparator.comparing(Pair<Pair<Integer, Integer>, Double>::getRight).reversed()
+		);
+
+		// messages sent by each node
+		final Map<Integer, List<Pair<Integer, Integer>>> outgoing = new HashMap<>();
+
+		for (Pair<Integer, Integer> key : neighbours.keySet()) {
+			outgoing.computeIfAbsent(key.getLeft(), x -> new ArrayList<>()).add(key);
+			updateCounts.put(key, 0);
+			candidate(key, evidence, candidates, residuals, queue);
+		}
+
+		while (!queue.isEmpty()) {
+			final Pair<Pair<Integer, Integer>, Double> top = queue.poll();
+			final Pair<Integer, Integer> key = top.getLeft();
+
+			// skip entries that have been replaced by a more recent residual
+			if (!top.getRight().equals(residuals.get(key)))
+				continue;
+
+			if (top.getRight() < tolerance) {
+				queue.add(top);
+				converged = true;
+				break;
+			}
+
+			if (updates >= maxUpdates || (timeLimit > 0 && System.currentTimeMillis() > deadline)) {
+				queue.add(top);
+				break;
+			}
+
+			messages.put(key, candidates.get(key));
+			residuals.put(key, 0.0);
+			updateCounts.merge(key, 1, Integer::sum);
+			updates++;
+
+			// messages sent by the destination node, except the one back to the source, depend on the updated message
+			final int i = key.getLeft();
+			final int j = key.getRight();
+			for (Pair<Integer, Integer> next : outgoing.get(j)) {
+				if (next.getRight() != i)
+					candidate(next, evidence, candidates, residuals, queue);
+			}
+		}
+
+		residual = residuals.values().stream().mapToDouble(x -> x).max().orElse(0.0);
+		if (residual < tolerance)
+			converged = true;
+	}
+
+	/**
+	 * Computes a new candidate message for the given pair and its residual with respect to the current message.
+	 */
+	private void candidate(Pair<Integer, Integer> key, TIntIntMap evidence,
+	                       Map<Pair<Integer, Integer>, BayesianFactor> candidates,
+	                       Map<Pair<Integer, Integer>, Double> residuals,
+	                       PriorityQueue<Pair<Pair<Integer, Integer>, Double>> queue) {
+		final BayesianFactor M = message(key.getLeft(), key.getRight(), model, evidence);
+		final double r = distance(messages.get(key), M);
+
+		candidates.put(key, M);
+		residuals.put(key, r);
+		queue.add(new ImmutablePair<>(key, r));
+	}
+
+	/**
+	 * @return the max absolute difference between the values of the two messages, or infinity if they are defined over
+	 * different domains
+	 */
+	protected double distance(BayesianFactor a, BayesianFactor b) {
+		if (!Arrays.equals(a.getDomain().getVariables(), b.getDomain().getVariables()))
+			return Double.POSITIVE_INFINITY;
+
+		double max = 0;
+		for (int k = 0; k < a.getDomain().getCombinations(); k++)
+			max = Math.max(max, Math.abs(a.getValueAt(k) - b.getValueAt(k)));
+
+		return max;
+	}
+
+}
@@ -2,7 +2,7 @@ package ch.idsia.crema.inference.bp.moralization;
 
 import ch.idsia.crema.factor.GenericFactor;
 import ch.idsia.crema.inference.Algorithm;
-import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.graphical.GraphicalModel;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import org.jgrapht.graph.DefaultEdge;
@@ -14,16 +14,17 @@ import org.jgrapht.graph.SimpleGraph;
  * Project: CreMA
  * Date:    12.02.2018 11:11
  */
-public class Moralize<F extends GenericFactor> implements Algorithm<DAGModel<F>, SimpleGraph<Integer, DefaultEdge>> {
+public class Moralize<F extends GenericFactor>
+		implements Algorithm<GraphicalModel<F>, SimpleGraph<Integer, DefaultEdge>> {
 
-	private DAGModel<F> model;
+	private GraphicalModel<F> model;
 	private SimpleGraph<Integer, DefaultEdge> moralized;
 
 	/**
 	 * @param model the model to moralize
 	 */
 	@Override
-	public void setInput(DAGModel<F> model) {
+	public void setInput(GraphicalModel<F> model) {
 		this.model = model;
 	}
 
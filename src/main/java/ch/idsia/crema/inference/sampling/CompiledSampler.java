@@ -0,0 +1,218 @@
+package ch.idsia.crema.inference.sampling;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.model.graphical.GraphicalModel;
+import ch.idsia.crema.utility.SplitRandom;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * A Bayesian network compiled for forward sampling. The topological order, the offsets of the parents in each CPT and
+ * the cumulative rows of the CPTs are computed once, then each sample is written in a reusable array of states without
+ * any other allocation.
+ * <p>
+ * The states of the observed variables are fixed to their evidence, the {@link #sample(SplitRandom, int[])}
+ * method returns the likelihood of the evidence given the sampled parents.
+ * <p>
+ * An instance is immutable and can be shared between threads, each one with its own random generator and states.
+ */
+public class CompiledSampler {
+
+	/**
+	 * Variables in topological order.
+	 */
+	private final int[] variables;
+	private final TIntIntMap position = new TIntIntHashMap();
+
+	private final int[] sizes;
+
+	/**
+	 * Position of the parents of each variable.
+	 */
+	private final int[][] parents;
+
+	/**
+	 * Strides of the parents of each variable in its CPT.
+	 */
+	private final int[][] parentStrides;
+
+	/**
+	 * Stride of each variable in its CPT.
+	 */
+	private final int[] strides;
+
+	/**
+	 * Cumulative sums of the CPT of each variable, in the same layout of the CPT.
+	 */
+	private final double[][] cumulative;
+
+	/**
+	 * CPT of each variable.
+	 */
+	private final double[][] data;
+
+	/**
+	 * State of the observed variables, -1 for the others.
+	 */
+	private final int[] observed;
+
+	/**
+	 * @param model    the model to sample
+	 * @param evidence the observed states
+	 */
+	public CompiledSampler(GraphicalModel<BayesianFactor> model, TIntIntMap evidence) {
+		this.variables = topologicalOrder(model);
+
+		final int n = variables.length;
+		for (int i = 0; i < n; i++)
+			position.put(variables[i], i);
+
+		sizes = new int[n];
+		parents = new int[n][];
+		parentStrides = new int[n][];
+		strides = new int[n];
+		cumulative = new double[n][];
+		data = new double[n][];
+		observed = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			final int v = variables[i];
+			final BayesianFactor factor = model.getFactor(v);
+			final Strides domain = factor.getDomain();
+
+			sizes[i] = domain.getCardinality(v);
+			strides[i] = domain.getStride(v);
+			observed[i] = evidence.containsKey(v) ? evidence.get(v) : -1;
+
+			final int[] vars = domain.getVariables();
+			parents[i] = new int[vars.length - 1];
+			parentStrides[i] = new int[vars.length - 1];
+			for (int j = 0, k = 0; j < vars.length; j++) {
+				if (vars[j] == v)
+					continue;
+				if (!position.containsKey(vars[j]))
+					throw new IllegalArgumentException("Factor of variable " + v + " depends on unknown variable " + vars[j]);
+				parents[i][k] = position.get(vars[j]);
+				parentStrides[i][k++] = domain.getStrideAt(j);
+			}
+
+			final int combinations = domain.getCombinations();
+			data[i] = new double[combinations];
+			for (int j = 0; j < combinations; j++)
+				data[i][j] = factor.getValueAt(j);
+
+			// rows start where the state of the variable is 0
+			cumulative[i] = new double[combinations];
+			for (int row = 0; row < combinations; row++) {
+				if ((row / strides[i]) % sizes[i] != 0)
+					continue;
+
+				double sum = 0;
+				for (int s = 0; s < sizes[i]; s++) {
+					final int idx = row + s * strides[i];
+					sum += data[i][idx];
+					cumulative[i][idx] = sum;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the variables in topological order
+	 */
+	private static int[] topologicalOrder(GraphicalModel<BayesianFactor> model) {
+		final int[] all = model.getVariables();
+		final TIntIntMap missing = new TIntIntHashMap();
+		final TIntArrayList order = new TIntArrayList(all.length);
+
+		for (int v : all) {
+			final int p = model.getParents(v).length;
+			missing.put(v, p);
+			if (p == 0)
+				order.add(v);
+		}
+
+		for (int i = 0; i < order.size(); i++) {
+			for (int c : model.getChildren(order.get(i))) {
+				if (missing.adjustOrPutValue(c, -1, -1) == 0)
+					order.add(c);
+			}
+		}
+
+		if (order.size() != all.length)
+			throw new IllegalArgumentException("The model is not a directed acyclic graph");
+
+		return order.toArray();
+	}
+
+	/**
+	 * @return the number of variables of the model
+	 */
+	public int size() {
+		return variables.length;
+	}
+
+	/**
+	 * @return the variables in the sampling order
+	 */
+	public int[] getVariables() {
+		return variables.clone();
+	}
+
+	/**
+	 * @param variable a variable of the model
+	 * @return the position of the variable in the sampling order and in the array of states, or -1 if the variable is
+	 * not in the model
+	 */
+	public int indexOf(int variable) {
+		return position.containsKey(variable) ? position.get(variable) : -1;
+	}
+
+	/**
+	 * @param index position of a variable
+	 * @return the number of states of the variable
+	 */
+	public int getSize(int index) {
+		return sizes[index];
+	}
+
+	/**
+	 * Samples all the variables in topological order.
+	 *
+	 * @param random the generator to use
+	 * @param states the array where the sampled states are written, in the order of {@link #getVariables()}
+	 * @return the likelihood of the evidence given the sampled states
+	 */
+	public double sample(SplitRandom random, int[] states) {
+		double weight = 1.0;
+
+		for (int i = 0; i < variables.length; i++) {
+			int row = 0;
+			final int[] ps = parents[i];
+			final int[] st = parentStrides[i];
+			for (int j = 0; j < ps.length; j++)
+				row += states[ps[j]] * st[j];
+
+			if (observed[i] >= 0) {
+				states[i] = observed[i];
+				weight *= data[i][row + observed[i] * strides[i]];
+				continue;
+			}
+
+			final double u = random.nextDouble();
+			final double[] cdf = cumulative[i];
+			final int stride = strides[i];
+			final int last = sizes[i] - 1;
+
+			int s = 0;
+			while (s < last && cdf[row + s * stride] <= u)
+				s++;
+			states[i] = s;
+		}
+
+		return weight;
+	}
+
+}
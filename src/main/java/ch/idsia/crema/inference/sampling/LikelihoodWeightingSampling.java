@@ -4,11 +4,7 @@ import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.preprocess.CutObserved;
-import gnu.trove.map.TIntDoubleMap;
 import gnu.trove.map.TIntIntMap;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntDoubleHashMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -37,10 +33,11 @@ public class LikelihoodWeightingSampling extends StochasticSampling {
 	}
 
 	/**
-	 * Algorithm 46 from "Modeling and Reasoning with BN", Dawiche, p.380
+	 * Pre-processes the model as {@link StochasticSampling}; without pre-processing the observed variables are cut
+	 * from the model, since their children are sampled given the evidence.
 	 */
 	@Override
-	public Collection<BayesianFactor> run(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
+	protected GraphicalModel<BayesianFactor> prepare(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
 		final GraphicalModel<BayesianFactor> model = preprocess(original, evidence, query);
 
 		if (!preprocess) {
@@ -49,52 +46,21 @@ public class LikelihoodWeightingSampling extends StochasticSampling {
 			co.executeInPlace(model, evidence);
 		}
 
-		// P[x] <- 0 for each value x of variable X in network N {estimate for Pr(x,e)}}
-		final TIntObjectMap<double[]> Px = new TIntObjectHashMap<>();
-
-		for (int variable : model.getVariables()) {
-			int states = model.getSize(variable);
-			Px.put(variable, new double[states]);
-		}
-
-		// for each round of simulations
-		for (int it = 0; it < iterations; it++) {
-			final TIntIntMap x = simulateBN(model, evidence);
-			final TIntDoubleMap likelihoods = new TIntDoubleHashMap();
-
-			// collect likelihood of evidence
-			for (int key : evidence.keys()) {
-				if (model.getSize(key) == 0)
-					continue;
-
-				final int state = evidence.get(key);
-				final int[] parents = model.getParents(key);
-				BayesianFactor factor = model.getFactor(key);
-
-				if (parents.length == 0) {
-					likelihoods.put(key, factor.getValue(state));
-				} else {
-					for (int p : parents)
-						factor = factor.filter(p, x.get(p));
-
-					likelihoods.put(key, factor.getValue(x.get(key)));
-				}
-			}
-
-			final double L = Arrays.stream(likelihoods.keys())
-					.mapToDouble(likelihoods::get)
-					.reduce((a, b) -> a * b)
-					.orElse(1.0);
+		return model;
+	}
 
-			// update the counts
-			for (int key : x.keys()) {
-				final int state = x.get(key);
-				Px.get(key)[state] += L;
-			}
-		}
+	/**
+	 * Algorithm 46 from "Modeling and Reasoning with BN", Dawiche, p.380
+	 */
+	@Override
+	public Collection<BayesianFactor> run(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
+		// P[x] <- 0 for each value x of variable X in network N {estimate for Pr(x,e)}}
+		// each round of simulation adds the likelihood of the evidence to the sampled states
+		final CompiledSampler sampler = sampler(original, evidence, query);
+		final SamplingEstimate Px = simulate(sampler, query, true);
 
 		return Arrays.stream(query)
-				.mapToObj(q -> new BayesianDefaultFactor(model.getDomain(q), Px.get(q)))
+				.mapToObj(q -> new BayesianDefaultFactor(original.getDomain(q), Px.getWeights(q).clone()))
 				.collect(Collectors.toList());
 	}
 
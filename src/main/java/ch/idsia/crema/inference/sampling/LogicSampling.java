@@ -4,8 +4,6 @@ import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import gnu.trove.map.TIntIntMap;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -44,25 +42,11 @@ public class LogicSampling extends StochasticSampling {
 	 */
 	@Override
 	public Collection<BayesianFactor> run(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
-		final GraphicalModel<BayesianFactor> model = preprocess(original, evidence, query);
-		final TIntObjectMap<double[]> Px = new TIntObjectHashMap<>();
-
-		for (int variable : model.getVariables()) {
-			final int states = model.getSize(variable);
-			Px.put(variable, new double[states]);
-		}
-
-		for (int it = 0; it < iterations; it++) {
-			final TIntIntMap x = simulateBN(model, evidence);
-
-			for (int variable : x.keys()) {
-				final int state = x.get(variable);
-				Px.get(variable)[state] += 1.;
-			}
-		}
+		final CompiledSampler sampler = sampler(original, evidence, query);
+		final SamplingEstimate Px = simulate(sampler, query, false);
 
 		return Arrays.stream(query)
-				.mapToObj(q -> new BayesianDefaultFactor(model.getDomain(q), Px.get(q)))
+				.mapToObj(q -> new BayesianDefaultFactor(original.getDomain(q), Px.getWeights(q).clone()))
 				.collect(Collectors.toList());
 	}
 
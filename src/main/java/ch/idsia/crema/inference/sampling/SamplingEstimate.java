@@ -0,0 +1,174 @@
+package ch.idsia.crema.inference.sampling;
+
+import java.util.Arrays;
+
+/**
+ * Running statistics of a {@link StochasticSampling}: for each query variable the sum of the weights of each sampled
+ * state, and the sum and the sum of squares of all the weights. The posterior estimates are self-normalized, their
+ * accuracy is measured with the Wilson score interval computed on the effective sample size (ESS) of the weights.
+ * Unlike the plain normal approximation, its width does not vanish when a state has not been sampled yet.
+ */
+public class SamplingEstimate {
+
+	private final int[] variables;
+	private final double[][] weights;
+	private final double z;
+
+	private long samples = 0;
+	private double sum = 0;
+	private double sumSquares = 0;
+	private long elapsed = 0;
+
+	/**
+	 * @param variables the query variables
+	 * @param sizes     the number of states of each query variable
+	 * @param z         the quantile of the standard normal used for the confidence intervals
+	 */
+	SamplingEstimate(int[] variables, int[] sizes, double z) {
+		this.variables = variables.clone();
+		this.weights = new double[variables.length][];
+		for (int i = 0; i < variables.length; i++)
+			weights[i] = new double[sizes[i]];
+		this.z = z;
+	}
+
+	void add(int[] states, int[] query, double w) {
+		for (int q = 0; q < query.length; q++)
+			weights[q][states[query[q]]] += w;
+		samples++;
+		sum += w;
+		sumSquares += w * w;
+	}
+
+	void add(SamplingEstimate other) {
+		for (int q = 0; q < weights.length; q++)
+			for (int s = 0; s < weights[q].length; s++)
+				weights[q][s] += other.weights[q][s];
+		samples += other.samples;
+		sum += other.sum;
+		sumSquares += other.sumSquares;
+	}
+
+	void setElapsed(long elapsed) {
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * @return the query variables
+	 */
+	public int[] getVariables() {
+		return variables.clone();
+	}
+
+	/**
+	 * @return the number of samples drawn so far
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return the milliseconds spent sampling so far
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * @return the effective sample size of the weights, equal to the number of samples when all the weights are the
+	 * same; 0 when all the weights are 0
+	 */
+	public double getEffectiveSampleSize() {
+		return sumSquares == 0 ? 0 : sum * sum / sumSquares;
+	}
+
+	/**
+	 * @param variable a query variable
+	 * @return the accumulated weights of the states of the variable
+	 */
+	double[] getWeights(int variable) {
+		return weights[index(variable)];
+	}
+
+	/**
+	 * @param variable a query variable
+	 * @return the current estimate of the posterior of the variable
+	 */
+	public double[] getPosterior(int variable) {
+		final double[] w = weights[index(variable)];
+		final double total = Arrays.stream(w).sum();
+		return Arrays.stream(w).map(x -> x / total).toArray();
+	}
+
+	/**
+	 * @param variable a query variable
+	 * @return the largest half-width of the confidence intervals of the states of the variable, infinity if there is
+	 * no effective sample yet
+	 */
+	public double getHalfWidth(int variable) {
+		final double ess = getEffectiveSampleSize();
+		if (!(ess > 0))
+			return Double.POSITIVE_INFINITY;
+
+		double max = 0;
+		for (double p : getPosterior(variable))
+			max = Math.max(max, halfWidth(p, ess));
+		return max;
+	}
+
+	/**
+	 * @return the largest half-width of the confidence intervals over all the query variables
+	 */
+	public double getHalfWidth() {
+		double max = 0;
+		for (int v : variables)
+			max = Math.max(max, getHalfWidth(v));
+		return max;
+	}
+
+	/**
+	 * @param variable a query variable
+	 * @return the lower (first row) and upper (second row) bounds of the confidence intervals of the states
+	 */
+	public double[][] getInterval(int variable) {
+		final double[] p = getPosterior(variable);
+		final double ess = getEffectiveSampleSize();
+		final double[][] interval = new double[2][p.length];
+		for (int s = 0; s < p.length; s++) {
+			if (ess > 0) {
+				final double c = center(p[s], ess);
+				final double h = halfWidth(p[s], ess);
+				interval[0][s] = Math.max(0, c - h);
+				interval[1][s] = Math.min(1, c + h);
+			} else {
+				interval[0][s] = 0;
+				interval[1][s] = 1;
+			}
+		}
+		return interval;
+	}
+
+	/**
+	 * @return the center of the Wilson score interval, shifted from p towards 1/2
+	 */
+	private double center(double p, double n) {
+		final double z2 = z * z;
+		return (p + z2 / (2 * n)) / (1 + z2 / n);
+	}
+
+	/**
+	 * @return the half-width of the Wilson score interval, greater than 0 also when p is 0 or 1
+	 */
+	private double halfWidth(double p, double n) {
+		final double z2 = z * z;
+		return z / (1 + z2 / n) * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n));
+	}
+
+	private int index(int variable) {
+		for (int i = 0; i < variables.length; i++)
+			if (variables[i] == variable)
+				return i;
+		throw new IllegalArgumentException("Variable " + variable + " is not a query variable");
+	}
+
+}
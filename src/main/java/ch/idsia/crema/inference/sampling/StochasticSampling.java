@@ -5,13 +5,25 @@ import ch.idsia.crema.inference.InferenceJoined;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.preprocess.CutObserved;
 import ch.idsia.crema.preprocess.RemoveBarren;
+import ch.idsia.crema.utility.ArraysUtil;
 import ch.idsia.crema.utility.RandomUtil;
+import ch.idsia.crema.utility.SplitRandom;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.set.TIntSet;
-import gnu.trove.set.hash.TIntHashSet;
 
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -24,6 +36,82 @@ public abstract class StochasticSampling implements InferenceJoined<GraphicalMod
 
 	protected Boolean preprocess = true;
 
+	protected ForkJoinPool pool = null;
+
+	protected Long seed = null;
+
+	protected double precision = 0;
+
+	protected double confidence = 0.95;
+
+	protected long timeLimit = 0;
+
+	protected long batchSize = 10000;
+
+	private final List<Consumer<SamplingEstimate>> listeners = new ArrayList<>();
+
+	private SamplingEstimate estimate = null;
+
+	/**
+	 * Maximum number of compiled samplers kept for each model.
+	 */
+	private int samplersLimit = 16;
+
+	/**
+	 * Samplers used by the queries, for each model given to {@link #run(GraphicalModel, TIntIntMap, int...)}.
+	 */
+	private final Map<GraphicalModel<BayesianFactor>, Samplers> samplers = new WeakHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * The samplers of a model, valid as long as the model has the same version.
+	 */
+	private final class Samplers extends LinkedHashMap<SamplerKey, CompiledSampler> {
+		private final long version;
+
+		Samplers(long version) {
+			super(16, 0.75f, true);
+			this.version = version;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<SamplerKey, CompiledSampler> eldest) {
+			return size() > samplersLimit;
+		}
+	}
+
+	/**
+	 * Sorted observed variables with their states, and sorted query variables.
+	 */
+	private static final class SamplerKey {
+		private final int[] observed;
+		private final int[] states;
+		private final int[] query;
+
+		SamplerKey(TIntIntMap evidence, int[] query) {
+			this.observed = ArraysUtil.sort(evidence.keys());
+			this.states = new int[observed.length];
+			for (int i = 0; i < observed.length; i++)
+				states[i] = evidence.get(observed[i]);
+			this.query = ArraysUtil.sort(query);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof SamplerKey)) return false;
+			final SamplerKey key = (SamplerKey) o;
+			return Arrays.equals(observed, key.observed) && Arrays.equals(states, key.states) && Arrays.equals(query, key.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(observed) + Arrays.hashCode(states)) + Arrays.hashCode(query);
+		}
+	}
+
 	public StochasticSampling() {
 	}
 
@@ -46,6 +134,7 @@ public abstract class StochasticSampling implements InferenceJoined<GraphicalMod
 	 */
 	public StochasticSampling setPreprocess(Boolean preprocess) {
 		this.preprocess = preprocess;
+		clearSamplers();
 		return this;
 	}
 
@@ -58,10 +147,168 @@ public abstract class StochasticSampling implements InferenceJoined<GraphicalMod
 		return this;
 	}
 
+	/**
+	 * @param pool if not null, the iterations are split in as many chunks as the parallelism of this pool and sampled
+	 *             in parallel
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setPool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
+	}
+
+	/**
+	 * @param seed seed of the random streams used by the sampling; with the same seed and the same parallelism the
+	 *             results are the same. If not set, a new seed is taken from {@link RandomUtil} for each query.
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * @param precision if greater than 0, the sampling stops as soon as the half-width of all the confidence intervals
+	 *                  of the query is lower than this value; {@link #setIterations(long)} is then the max number of
+	 *                  samples
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setPrecision(double precision) {
+		this.precision = precision;
+		return this;
+	}
+
+	/**
+	 * @param confidence the level of the confidence intervals, default is 0.95
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setConfidence(double confidence) {
+		this.confidence = confidence;
+		return this;
+	}
+
+	/**
+	 * @param timeLimit if greater than 0, the sampling stops after the first batch that exceeds this number of
+	 *                  milliseconds
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+		return this;
+	}
+
+	/**
+	 * @param batchSize number of samples drawn between two checks of the stopping conditions and two notifications to
+	 *                  the listeners, default is 10000
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setBatchSize(long batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * @param listener called with the current estimate after each batch of samples
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling addListener(Consumer<SamplingEstimate> listener) {
+		listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * @return the estimate at the end of the last query, or null if no query has been done
+	 */
+	public SamplingEstimate getEstimate() {
+		return estimate;
+	}
+
+	/**
+	 * @param samplersLimit the maximum number of compiled samplers kept in cache for each model, 0 to disable the cache
+	 * @return the same object for a chained config
+	 */
+	public StochasticSampling setSamplersLimit(int samplersLimit) {
+		this.samplersLimit = samplersLimit;
+		clearSamplers();
+		return this;
+	}
+
+	/**
+	 * @return the number of queries that used a cached sampler
+	 */
+	public long getSamplerHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of queries that had to compile a new sampler
+	 */
+	public long getSamplerMisses() {
+		return misses.sum();
+	}
+
+	private void clearSamplers() {
+		synchronized (samplers) {
+			samplers.clear();
+		}
+	}
+
+	/**
+	 * Finds the sampler for the given model, evidence and query in the cache, or compiles a new one from the model
+	 * returned by {@link #prepare(GraphicalModel, TIntIntMap, int...)}. A sampler is reused as long as the model has
+	 * the same {@link GraphicalModel#getVersion()}; the samplers of models without a version are not kept.
+	 *
+	 * @param original the model given to the query
+	 * @param evidence the observed variable as a map of variable-states
+	 * @param query    the query variables
+	 * @return the compiled sampler of the prepared model
+	 */
+	protected CompiledSampler sampler(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
+		final SamplerKey key = new SamplerKey(evidence, query);
+
+		synchronized (samplers) {
+			final Samplers cached = samplers.get(original);
+			if (cached != null && cached.version == original.getVersion()) {
+				final CompiledSampler sampler = cached.get(key);
+				if (sampler != null) {
+					hits.increment();
+					return sampler;
+				}
+			}
+			misses.increment();
+		}
+
+		final CompiledSampler sampler = new CompiledSampler(prepare(original, evidence, query), evidence);
+
+		if (samplersLimit > 0 && original.getVersion() != 0) {
+			synchronized (samplers) {
+				// preparing the model can change it, the sampler is valid for its current version
+				Samplers cached = samplers.get(original);
+				if (cached == null || cached.version != original.getVersion()) {
+					cached = new Samplers(original.getVersion());
+					samplers.put(original, cached);
+				}
+				cached.put(key, sampler);
+			}
+		}
+
+		return sampler;
+	}
+
+	/**
+	 * @param original the model given to the query
+	 * @param evidence the observed variable as a map of variable-states
+	 * @param query    the query variables
+	 * @return the model to compile for the given evidence and query, by default the {@link #preprocess} of the model
+	 */
+	protected GraphicalModel<BayesianFactor> prepare(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
+		return preprocess(original, evidence, query);
+	}
+
 	protected GraphicalModel<BayesianFactor> preprocess(GraphicalModel<BayesianFactor> original, TIntIntMap evidence, int... query) {
 		GraphicalModel<BayesianFactor> model = original;
 		if (preprocess) {
-			model = original.copy();
+			model = original.copyOnWrite();
 			final CutObserved<BayesianFactor> co = new CutObserved<>();
 			final RemoveBarren<BayesianFactor> rb = new RemoveBarren<>();
 
@@ -73,113 +320,87 @@ public abstract class StochasticSampling implements InferenceJoined<GraphicalMod
 	}
 
 	/**
-	 * Algorithm 44 from "Modeling and Reasoning with BN", Dawiche, p.380
+	 * Samples the model up to {@link #iterations} times and accumulates, for each query variable, the weight of each
+	 * sampled state. The samples are drawn in batches: after each batch the listeners are notified and the sampling
+	 * stops if the target precision or the time limit has been reached. Without precision and time limit, all the
+	 * iterations are a single batch.
+	 * <p>
+	 * Each batch is split in independent chunks, each one with its own random stream derived from the seed; the chunks
+	 * are summed in order, so that the result depends only on the seed and on the number of chunks.
 	 *
-	 * @return a map with the computed sampled states over all the variables.
-	 */
-	protected TIntIntMap simulateBN(GraphicalModel<BayesianFactor> model, TIntIntMap evidence) {
-		final TIntIntMap map = new TIntIntHashMap();
-		TIntSet nodes = new TIntHashSet();
-
-		// sample root nodes
-		for (int root : model.getRoots()) {
-			// check if the state has evidence, else sample it
-			int state;
-			if (!evidence.containsKey(root)) {
-				state = sample(model.getFactor(root));
-			} else {
-				state = evidence.get(root);
-			}
-
-			map.put(root, state);
-
-			int[] children = model.getChildren(root);
-			nodes.addAll(children);
-		}
+	 * @param sampler  the compiled model to sample
+	 * @param query    the query variables
+	 * @param weighted if true each sample is weighted with the likelihood of the evidence, otherwise it counts as 1
+	 * @return the accumulated statistics of the query variables
+	 */
+	protected SamplingEstimate simulate(CompiledSampler sampler, int[] query, boolean weighted) {
+		final long start = System.currentTimeMillis();
+		final int chunks = pool == null ? 1 : pool.getParallelism();
+		final SplitRandom master = new SplitRandom(seed != null ? seed : RandomUtil.getRandom().nextLong());
 
-		// sample child nodes
-		do {
-			final TIntSet slack = new TIntHashSet();
+		final int[] positions = Arrays.stream(query).map(sampler::indexOf).toArray();
+		final int[] sizes = Arrays.stream(positions).map(sampler::getSize).toArray();
+		final double z = new NormalDistribution().inverseCumulativeProbability(1 - (1 - confidence) / 2);
 
-			for (int node : nodes.toArray()) {
-				// check if all parents have already been sampled...
-				final int[] parents = model.getParents(node);
+		final SplitRandom[] randoms = new SplitRandom[chunks];
+		for (int c = 0; c < chunks; c++)
+			randoms[c] = master.split();
 
-				boolean all = true;
-				for (int p : parents) {
-					if (!map.containsKey(p)) {
-						all = false;
-						break;
-					}
-				}
+		final boolean anytime = precision > 0 || timeLimit > 0;
+		final SamplingEstimate total = new SamplingEstimate(query, sizes, z);
 
-				// ...if not, postpone the node to the next pass
-				if (!all) {
-					slack.add(node);
-					continue;
-				}
+		long done = 0;
+		while (done < iterations) {
+			final long batch = anytime ? Math.min(batchSize, iterations - done) : iterations - done;
 
-				// check for evidence in this child node
-				if (evidence.containsKey(node)) {
-					// with evidence the state is fixed
-					map.put(node, evidence.get(node));
-				} else {
-					// check for parent state in this child node
-					final TIntIntMap obs = new TIntIntHashMap();
-					for (int p : parents)
-						obs.put(p, map.get(p));
-
-					map.put(node, sample(model.getFactor(node), obs));
-				}
+			final long[] counts = new long[chunks];
+			for (int c = 0; c < chunks; c++)
+				counts[c] = batch / chunks + (c < batch % chunks ? 1 : 0);
 
-				final int[] children = model.getChildren(node);
-				slack.addAll(children);
+			final SamplingEstimate[] partials;
+			if (pool == null) {
+				partials = new SamplingEstimate[]{simulate(sampler, positions, weighted, randoms[0], counts[0], new SamplingEstimate(query, sizes, z))};
+			} else {
+				partials = pool.submit(() -> IntStream.range(0, chunks)
+						.parallel()
+						.mapToObj(c -> simulate(sampler, positions, weighted, randoms[c], counts[c], new SamplingEstimate(query, sizes, z)))
+						.toArray(SamplingEstimate[]::new)
+				).join();
 			}
 
-			nodes = slack;
-		} while (!nodes.isEmpty());
+			for (SamplingEstimate partial : partials)
+				total.add(partial);
 
-		return map;
-	}
+			done += batch;
+			final long elapsed = System.currentTimeMillis() - start;
+			total.setElapsed(elapsed);
 
-	protected abstract Collection<BayesianFactor> run(GraphicalModel<BayesianFactor> model, TIntIntMap evidence, int... query);
+			for (Consumer<SamplingEstimate> listener : listeners)
+				listener.accept(total);
 
-	/**
-	 * Sample the distribution of a {@link BayesianFactor} with not parent nodes.
-	 * Note that this factor distribution is over a single variable!
-	 *
-	 * @param factor factor to sample
-	 * @return the index of sampled state
-	 */
-	// TODO: this should not be in an inference package
-	protected int sample(BayesianFactor factor) {
-		double[] data = factor.getData();
-		double p = RandomUtil.getRandom().nextDouble();
-
-		double sum = 0.0;
-
-		int i = 0;
-		for (; i < data.length; i++) {
-			sum += data[i];
-			if (sum > p)
+			if (precision > 0 && total.getHalfWidth() <= precision)
+				break;
+			if (timeLimit > 0 && elapsed >= timeLimit)
 				break;
 		}
 
-		return i;
+		estimate = total;
+		return total;
 	}
 
-	/**
-	 * Sample the distribution of a {@link BayesianFactor} with a specific set of parent observations.
-	 *
-	 * @param factor factor to sample
-	 * @param obs    map of the states of the parent nodes
-	 * @return the index of sampled state
-	 */
-	protected int sample(BayesianFactor factor, TIntIntMap obs) {
-		final BayesianFactor f = factor.filter(obs);
-		return sample(f);
+	private static SamplingEstimate simulate(CompiledSampler sampler, int[] positions, boolean weighted, SplitRandom random, long iterations, SamplingEstimate estimate) {
+		final int[] states = new int[sampler.size()];
+
+		for (long it = 0; it < iterations; it++) {
+			final double w = sampler.sample(random, states);
+			estimate.add(states, positions, weighted ? w : 1.0);
+		}
+
+		return estimate;
 	}
 
+	protected abstract Collection<BayesianFactor> run(GraphicalModel<BayesianFactor> model, TIntIntMap evidence, int... query);
+
 	@Override
 	public BayesianFactor query(GraphicalModel<BayesianFactor> model, int query) {
 		return query(model, new TIntIntHashMap(), new int[]{query});
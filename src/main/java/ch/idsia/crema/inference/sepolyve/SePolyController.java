@@ -9,13 +9,17 @@ import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.search.SearchOperation;
 import ch.idsia.crema.utility.ArraysUtil;
-import ch.idsia.crema.utility.CombinationsIterator;
-import ch.idsia.crema.utility.hull.LPConvexHull;
+import ch.idsia.crema.utility.hull.IncrementalConvexHull;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SePolyController extends SearchOperation {
 
@@ -29,6 +33,8 @@ public class SePolyController extends SearchOperation {
 	private long maxSize = Long.MAX_VALUE;
 	private long maxTime = Long.MAX_VALUE;
 
+	private ForkJoinPool pool = null;
+
 	/**
 	 * Search controller with possibility to specify the rounding algebra.
 	 * As we are running in online mode, we do not use the other operations of the
@@ -58,6 +64,17 @@ public class SePolyController extends SearchOperation {
 		this.order = new ArrayList<>();
 	}
 
+	/**
+	 * When a pool is set, the combinations of the vertices of each node are split in ranges that are processed in
+	 * parallel, each one with its own convex hull; the hulls are merged at the end. The time limit is checked by all
+	 * the threads.
+	 *
+	 * @param pool the pool to use for parallel execution, null for sequential execution
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	public ArrayList<Integer> getOrder() {
 		return order;
 	}
@@ -102,8 +119,8 @@ public class SePolyController extends SearchOperation {
 			vf = vf.filter(node, evidence.get(node));
 		}
 
-		ArrayList<Collection<double[]>> vertices = new ArrayList<>();
-		vertices.add(Arrays.asList(vf.getVertices()));
+		ArrayList<double[][]> vertices = new ArrayList<>();
+		vertices.add(vf.getVertices());
 
 		Strides domain = vf.getDomain();
 		Strides first = domain;
@@ -121,7 +138,7 @@ public class SePolyController extends SearchOperation {
 			if (algebra != null) {
 				factor = algebra.round(factor);
 			}
-			vertices.add(Arrays.asList(factor.getVertices()));
+			vertices.add(factor.getVertices());
 		}
 
 		// we're done with the node's queue (free)
@@ -146,57 +163,97 @@ public class SePolyController extends SearchOperation {
 			tomarginalize = ArraysUtil.removeFromSortedArray(domain.getVariables(), node);
 		}
 
-		// inline convex hull
-		CombinationsIterator<double[]> iterator = new CombinationsIterator<>(vertices);
-		double[][] chull = new double[0][];
-
 		// marginalize domain
 		domain = domain.remove(tomarginalize);
-		long time = System.currentTimeMillis();
-		long count = 0;
-
-		while (iterator.hasNext()) {
-			Collection<double[]> config = iterator.next();
-			Iterator<double[]> data = config.iterator();
-
-			BayesianFactor current = new BayesianDefaultFactor(first, data.next());
-			for (Strides otherDomain : factorDomains) {
-				BayesianFactor other = new BayesianDefaultFactor(otherDomain, data.next());
-				current = current.combine(other);
-			}
+		final long time = System.currentTimeMillis();
+
+		// inline convex hull over all the combinations of vertices, split in ranges when running in parallel
+		final double[][][] points = vertices.toArray(new double[0][][]);
+		long total = 1;
+		for (double[][] p : points)
+			total *= p.length;
+
+		final int chunks = pool == null ? 1 : (int) Math.max(1, Math.min(total, pool.getParallelism() * 4L));
+		final long combinations = total;
+		final int[] marginalized = tomarginalize;
+		final AtomicLong count = new AtomicLong();
+		final AtomicBoolean timeout = new AtomicBoolean(false);
+
+		final List<double[][]> hulls;
+		if (chunks == 1) {
+			hulls = Collections.singletonList(hull(points, first, factorDomains, tomarginalize, 0, total, time, count, timeout));
+		} else {
+			hulls = pool.submit(() -> IntStream.range(0, chunks)
+					.parallel()
+					.mapToObj(c -> hull(points, first, factorDomains, marginalized,
+							combinations * c / chunks, combinations * (c + 1) / chunks, time, count, timeout))
+					.collect(Collectors.toList())
+			).join();
+		}
 
-			// marginalize
-			if (tomarginalize.length > 0) {
-				for (int marg : tomarginalize) {
-					current = current.marginalize(marg);
-				}
-			}
-			++count;
+		if (timeout.get()) {
+			info.setVerticesIn(count.get());
+			info.setTime(-1);
+			throw new MaxTimeException(node, System.currentTimeMillis() - time);
+		}
 
-			chull = LPConvexHull.add(chull, current.getData());
+		final double[][] hull = hulls.size() == 1 ? hulls.get(0) : IncrementalConvexHull.merge(hulls);
 
-			// check whether the maximum time has been reached
-			long elapsed = System.currentTimeMillis() - time;
-			if (elapsed > maxTime) {
-				info.setVerticesIn(count);
-				info.setTime(-1);
-				throw new MaxTimeException(node, elapsed);
-			}
-		}
-		info.setVerticesIn(count);
-		info.setVerticesOut(chull.length);
+		info.setVerticesIn(count.get());
+		info.setVerticesOut(hull.length);
 		info.setTime(System.currentTimeMillis() - time);
 
 		// if we can marginalize, we are in the situation that we will end up
 		// with a single factor in the domain and we will be allowed to
 		// convexify as well
 
-		vf = new VertexDefaultFactor(domain, Strides.empty(), new double[][][]{chull});
+		vf = new VertexDefaultFactor(domain, Strides.empty(), new double[][][]{hull});
 
 		// push the factor in from's queue
 		queue.get(from).add(vf);
 	}
 
+	/**
+	 * Convex hull of the combinations of vertices with index in the given range. The combinations are enumerated in
+	 * the same order of a {@link ch.idsia.crema.utility.CombinationsIterator}: the vertices of the last factor change
+	 * first. The enumeration stops when the time limit is reached, here or in another thread.
+	 *
+	 * @return the vertices of the hull of the range
+	 */
+	private double[][] hull(double[][][] points, Strides first, List<Strides> factorDomains, int[] tomarginalize,
+	                        long from, long to, long time, AtomicLong count, AtomicBoolean timeout) {
+		final IncrementalConvexHull chull = new IncrementalConvexHull();
+		final double[][] config = new double[points.length][];
+
+		for (long i = from; i < to && !timeout.get(); i++) {
+			long index = i;
+			for (int k = points.length - 1; k >= 0; k--) {
+				config[k] = points[k][(int) (index % points[k].length)];
+				index /= points[k].length;
+			}
+
+			BayesianFactor current = new BayesianDefaultFactor(first, config[0]);
+			for (int k = 0; k < factorDomains.size(); k++) {
+				BayesianFactor other = new BayesianDefaultFactor(factorDomains.get(k), config[k + 1]);
+				current = current.combine(other);
+			}
+
+			// marginalize
+			for (int marg : tomarginalize) {
+				current = current.marginalize(marg);
+			}
+			count.incrementAndGet();
+
+			chull.add(current.getData());
+
+			// check whether the maximum time has been reached
+			if (System.currentTimeMillis() - time > maxTime)
+				timeout.set(true);
+		}
+
+		return chull.getVertices();
+	}
+
 	public VertexFactor getPosterior() {
 		return queue.get(-1).get(0);
 	}
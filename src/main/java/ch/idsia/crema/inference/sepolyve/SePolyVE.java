@@ -11,6 +11,7 @@ import gnu.trove.map.TIntIntMap;
 
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Precise Separately specified polytree inference algorithm.
@@ -37,6 +38,8 @@ public class SePolyVE implements Inference<GraphicalModel<VertexFactor>, VertexF
 	private long maxTime = Long.MAX_VALUE;
 	private long maxMem = Long.MAX_VALUE;
 
+	private ForkJoinPool pool = null;
+
 	/**
 	 * Run the algorithm round the factors to the specified tolerance.
 	 *
@@ -52,6 +55,16 @@ public class SePolyVE implements Inference<GraphicalModel<VertexFactor>, VertexF
 	public SePolyVE() {
 	}
 
+	/**
+	 * When a pool is set, the combinations of vertices of each node are enumerated in parallel using the given pool.
+	 * The limits given with {@link #init(Map)} are checked by all the threads.
+	 *
+	 * @param pool the pool to use for parallel execution, null for sequential execution
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	public ArrayList<Integer> getOrder() {
 		return collector.getOrder();
 	}
@@ -95,6 +108,7 @@ public class SePolyVE implements Inference<GraphicalModel<VertexFactor>, VertexF
 	@Override
 	public VertexFactor query(GraphicalModel<VertexFactor> model, TIntIntMap evidence, int query) {
 		collector = new SePolyController(model, evidence, algebra, maxTime, maxMem);
+		collector.setPool(pool);
 
 		DepthFirst ndf = new DepthFirst(model);
 		ndf.setController(collector);
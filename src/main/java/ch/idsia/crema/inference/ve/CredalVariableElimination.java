@@ -1,6 +1,6 @@
 package ch.idsia.crema.inference.ve;
 
-import ch.idsia.crema.factor.credal.vertex.separate.VertexAbstractFactor;
+import ch.idsia.crema.factor.algebra.VertexConvexHullAlgebra;
 import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
 import ch.idsia.crema.inference.Inference;
 import ch.idsia.crema.inference.ve.order.MinFillOrdering;
@@ -18,7 +18,8 @@ public class CredalVariableElimination implements Inference<GraphicalModel<Verte
 	private ConvexHull convexHullMarg = null;
 
 	/**
-	 * @param convexHullMarg the {@link ConvexHull} method to use
+	 * @param convexHullMarg the {@link ConvexHull} method applied after each marginalization, only to the queries of
+	 *                       this instance
 	 * @return
 	 */
 	public CredalVariableElimination setConvexHullMarg(ConvexHull convexHullMarg) {
@@ -29,7 +30,7 @@ public class CredalVariableElimination implements Inference<GraphicalModel<Verte
 	protected GraphicalModel<VertexFactor> getInferenceModel(GraphicalModel<VertexFactor> model, TIntIntMap evidence, int target) {
 		CutObserved<VertexFactor> cutObserved = new CutObserved<>();
 		// run making a copy of the model
-		GraphicalModel<VertexFactor> infModel = cutObserved.execute(model, evidence);
+		GraphicalModel<VertexFactor> infModel = cutObserved.executeOverlay(model, evidence);
 
 		RemoveBarren<VertexFactor> removeBarren = new RemoveBarren<>();
 		// no more need to make a copy of the model
@@ -61,15 +62,12 @@ public class CredalVariableElimination implements Inference<GraphicalModel<Verte
 		MinFillOrdering minfill = new MinFillOrdering();
 		int[] order = minfill.apply(infModel);
 
-		FactorVariableElimination<VertexFactor> ve = new FactorVariableElimination<>(order);
+		// the convex hull method travels with the algebra of this query
+		VariableElimination<VertexFactor> ve = new VariableElimination<>(new VertexConvexHullAlgebra(convexHullMarg), order);
 		ve.setEvidence(filteredEvidence);
 		ve.setFactors(infModel.getFactors());
 		ve.setNormalize(false);
 
-		// Set the convex hull method
-		ConvexHull old_method = VertexAbstractFactor.getConvexHullMarg();
-		VertexAbstractFactor.setConvexHullMarg(convexHullMarg);
-
 		// run the query
 		VertexFactor output = ve.run(query);
 
@@ -77,9 +75,6 @@ public class CredalVariableElimination implements Inference<GraphicalModel<Verte
 			if(d.length==0)
 				throw new IllegalStateException("Zero-vertices in result");
 
-		// restore the previous convex hull method
-		VertexAbstractFactor.setConvexHullMarg(old_method);
-
 		return output.normalize();
 	}
 
@@ -0,0 +1,331 @@
+package ch.idsia.crema.inference.ve;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.FactorUtil;
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.OperableFactor;
+import ch.idsia.crema.factor.algebra.Operation;
+import ch.idsia.crema.utility.ArraysUtil;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The steps of a {@link VariableElimination} for a given list of factor domains, elimination sequence, set of
+ * observed variables and query. The plan records which factors are combined at each step, in which order, and if the
+ * variable of the step is kept, filtered or summed out. Executing a plan does only the operations on the factors: the
+ * factors are not assigned to the buckets again.
+ * <p>
+ * A plan gives the same result of {@link VariableElimination#run(int...)} as long as the factors have the domains used
+ * to build it. Plans are immutable and can be shared between threads.
+ */
+public class EliminationPlan {
+
+	/**
+	 * Action done on the variable of a step after the combination.
+	 */
+	public enum Action {
+		/**
+		 * The variable is in the query and is kept.
+		 */
+		KEEP,
+		/**
+		 * The variable is observed and the factor is filtered on the observed state.
+		 */
+		FILTER,
+		/**
+		 * The variable is summed out.
+		 */
+		MARGINALIZE
+	}
+
+	private final int[] sequence;
+	private final int[] query;
+	private final int[] evidence;
+	private final int factorsCount;
+
+	/**
+	 * Variables of the steps that have at least one factor.
+	 */
+	private final int[] variables;
+	private final Action[] actions;
+
+	/**
+	 * The operands of each step: non-negative values are indices in the list of input factors, negative values are
+	 * the results of previous steps, -1 is the first step, -2 the second and so on.
+	 */
+	private final int[][] operands;
+
+	/**
+	 * Domains of the combined factor at each step, before the variable of the step is eliminated.
+	 */
+	private final Strides[] domains;
+
+	private final long maxSize;
+	private final long totalSize;
+	private final boolean filtered;
+
+	private EliminationPlan(int[] sequence, int[] query, int[] evidence, int factorsCount, int[] variables,
+	                        Action[] actions, int[][] operands, Strides[] domains) {
+		this.sequence = sequence;
+		this.query = query;
+		this.evidence = evidence;
+		this.factorsCount = factorsCount;
+		this.variables = variables;
+		this.actions = actions;
+		this.operands = operands;
+		this.domains = domains;
+
+		long max = 0;
+		long total = 0;
+		boolean filter = false;
+		for (int i = 0; i < domains.length; i++) {
+			long size = 1;
+			for (int s : domains[i].getSizes())
+				size *= s;
+			max = Math.max(max, size);
+			total += size;
+			filter |= actions[i] == Action.FILTER;
+		}
+		this.maxSize = max;
+		this.totalSize = total;
+		this.filtered = filter;
+	}
+
+	/**
+	 * Builds the plan for factors with the given domains. The assignment of factors to buckets is the same of a
+	 * {@link FactorQueue}: each factor goes in the bucket of its first variable in the sequence and each intermediate
+	 * result in the bucket of its first remaining variable. Factors without variables in the sequence are ignored.
+	 *
+	 * @param domains  the domains of the factors, in the same order they will have when the plan is executed
+	 * @param sequence the elimination sequence, it may include the query
+	 * @param evidence the observed variables
+	 * @param query    the query variables
+	 * @return the plan
+	 */
+	public static EliminationPlan compile(List<Strides> domains, int[] sequence, int[] evidence, int... query) {
+		query = ArraysUtil.sort(query);
+		evidence = ArraysUtil.sort(evidence);
+
+		final int n = sequence.length;
+		final TIntArrayList[] buckets = new TIntArrayList[n];
+		for (int i = 0; i < n; i++)
+			buckets[i] = new TIntArrayList();
+
+		// same order of FactorQueue.addAll: factors in input order inside each bucket
+		for (int f = 0; f < domains.size(); f++) {
+			final int step = firstStep(domains.get(f), sequence, 0);
+			if (step >= 0)
+				buckets[step].add(f);
+		}
+
+		final Strides[] results = new Strides[n];
+
+		final TIntArrayList variables = new TIntArrayList();
+		final List<Action> actions = new ArrayList<>();
+		final List<int[]> operands = new ArrayList<>();
+		final List<Strides> combined = new ArrayList<>();
+
+		for (int i = 0; i < n; i++) {
+			final TIntArrayList bucket = buckets[i];
+			if (bucket.isEmpty())
+				continue;
+
+			final int variable = sequence[i];
+			final int[] ops = bucket.toArray();
+
+			Strides domain = null;
+			for (int op : ops) {
+				final Strides d = op >= 0 ? domains.get(op) : results[-op - 1];
+				domain = domain == null ? d : domain.union(d);
+			}
+
+			final Action action;
+			if (Arrays.binarySearch(query, variable) >= 0) {
+				action = Action.KEEP;
+				results[i] = domain;
+			} else if (Arrays.binarySearch(evidence, variable) >= 0) {
+				action = Action.FILTER;
+				results[i] = domain.remove(variable);
+			} else {
+				action = Action.MARGINALIZE;
+				results[i] = domain.remove(variable);
+			}
+
+			// the result of step i is referred as -(i + 1) and it is appended to the next bucket that can take it
+			final int next = firstStep(results[i], sequence, i + 1);
+			if (next >= 0)
+				buckets[next].add(-i - 1);
+
+			variables.add(variable);
+			actions.add(action);
+			operands.add(ops);
+			combined.add(domain);
+		}
+
+		// operands refer to sequence positions, renumber them as positions in the list of steps
+		final int[] stepOf = new int[n];
+		Arrays.fill(stepOf, -1);
+		int s = 0;
+		for (int i = 0; i < n; i++)
+			if (results[i] != null)
+				stepOf[i] = s++;
+		for (int[] ops : operands)
+			for (int j = 0; j < ops.length; j++)
+				if (ops[j] < 0)
+					ops[j] = -stepOf[-ops[j] - 1] - 1;
+
+		return new EliminationPlan(sequence.clone(), query, evidence, domains.size(), variables.toArray(),
+				actions.toArray(new Action[0]), operands.toArray(new int[0][]), combined.toArray(new Strides[0]));
+	}
+
+	/**
+	 * Builds the plan for the given factors.
+	 *
+	 * @see #compile(List, int[], int[], int...)
+	 */
+	public static EliminationPlan compile(Iterable<? extends GenericFactor> factors, int[] sequence, int[] evidence, int... query) {
+		final List<Strides> domains = new ArrayList<>();
+		for (GenericFactor factor : factors)
+			domains.add(factor.getDomain());
+		return compile(domains, sequence, evidence, query);
+	}
+
+	private static int firstStep(Strides domain, int[] sequence, int from) {
+		for (int i = from; i < sequence.length; i++)
+			if (domain.contains(sequence[i]))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Executes the plan on the given factors.
+	 *
+	 * @param operator  the algebra to use
+	 * @param factors   the factors, with the domains and in the order used to build the plan
+	 * @param evidence  the observed states, it must contain all the observed variables of the plan
+	 * @param normalize true to normalize the result if some evidence has been used
+	 * @param <F>       type of the factors
+	 * @return the result of the last step, or null if the plan has no steps
+	 */
+	public <F extends OperableFactor<F>> F execute(Operation<F> operator, List<? extends F> factors, TIntIntMap evidence, boolean normalize) {
+		if (factors.size() != factorsCount)
+			throw new IllegalArgumentException("This plan requires " + factorsCount + " factors, found " + factors.size());
+
+		final List<F> results = new ArrayList<>(variables.length);
+		final List<F> operandFactors = new ArrayList<>();
+		F last = null;
+
+		for (int i = 0; i < variables.length; i++) {
+			operandFactors.clear();
+			for (int op : operands[i])
+				operandFactors.add(op >= 0 ? factors.get(op) : results.get(-op - 1));
+
+			last = FactorUtil.combine(operator, operandFactors);
+
+			final int variable = variables[i];
+			switch (actions[i]) {
+				case FILTER:
+					last = operator.filter(last, variable, evidence.get(variable));
+					break;
+				case MARGINALIZE:
+					last = operator.marginalize(last, variable);
+					break;
+				default:
+					// query variable: nothing to do
+			}
+			results.add(last);
+		}
+
+		if (filtered && normalize)
+			last = FactorUtil.normalize(operator, last);
+
+		return last;
+	}
+
+	/**
+	 * @return the elimination sequence of this plan
+	 */
+	public int[] getSequence() {
+		return sequence.clone();
+	}
+
+	/**
+	 * @return the sorted query variables of this plan
+	 */
+	public int[] getQuery() {
+		return query.clone();
+	}
+
+	/**
+	 * @return the sorted observed variables of this plan
+	 */
+	public int[] getEvidence() {
+		return evidence.clone();
+	}
+
+	/**
+	 * @return the number of factors required to execute this plan
+	 */
+	public int getFactorsCount() {
+		return factorsCount;
+	}
+
+	/**
+	 * @return the number of combination steps of this plan
+	 */
+	public int getStepsCount() {
+		return variables.length;
+	}
+
+	/**
+	 * @param step a step of the plan
+	 * @return the domain of the factor obtained by the combination at the given step
+	 */
+	public Strides getDomain(int step) {
+		return domains[step];
+	}
+
+	/**
+	 * @param step a step of the plan
+	 * @return the action done on the variable of the given step
+	 */
+	public Action getAction(int step) {
+		return actions[step];
+	}
+
+	/**
+	 * The estimated cost of the plan: the number of states of the largest factor built during the elimination.
+	 *
+	 * @return the size of the largest intermediate factor
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the sum of the sizes of all the intermediate factors
+	 */
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * @return the largest number of variables of an intermediate factor
+	 */
+	public int getWidth() {
+		int width = 0;
+		for (Strides domain : domains)
+			width = Math.max(width, domain.getSize());
+		return width;
+	}
+
+	@Override
+	public String toString() {
+		return "EliminationPlan{steps=" + variables.length + ", maxSize=" + maxSize + ", totalSize=" + totalSize + "}";
+	}
+
+}
@@ -4,15 +4,13 @@ import ch.idsia.crema.factor.FactorUtil;
 import ch.idsia.crema.factor.OperableFactor;
 import ch.idsia.crema.factor.algebra.Operation;
 import ch.idsia.crema.inference.InferenceJoined;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
 import ch.idsia.crema.inference.ve.order.OrderingStrategy;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.utility.ArraysUtil;
 import gnu.trove.map.TIntIntMap;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 public class VariableElimination<F extends OperableFactor<F>> implements InferenceJoined<GraphicalModel<F>, F> {
 
@@ -26,6 +24,67 @@ public class VariableElimination<F extends OperableFactor<F>> implements Inferen
 
 	private boolean normalize = true;
 
+	/**
+	 * Maximum number of plans kept for each model.
+	 */
+	private int plansLimit = 64;
+
+	/**
+	 * Plans used by {@link #query(GraphicalModel, TIntIntMap, int...)}, for each model.
+	 */
+	private final Map<GraphicalModel<?>, Plans> plans = new WeakHashMap<>();
+
+	/**
+	 * The plan used by the last query.
+	 */
+	private EliminationPlan plan = null;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * The plans of a model, valid as long as the model has the same version.
+	 */
+	private final class Plans extends LinkedHashMap<PlanKey, EliminationPlan> {
+		private final long version;
+
+		Plans(long version) {
+			super(16, 0.75f, true);
+			this.version = version;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PlanKey, EliminationPlan> eldest) {
+			return size() > plansLimit;
+		}
+	}
+
+	/**
+	 * Sorted observed and query variables.
+	 */
+	private static final class PlanKey {
+		private final int[] observed;
+		private final int[] query;
+
+		PlanKey(int[] observed, int[] query) {
+			this.observed = observed;
+			this.query = query;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof PlanKey)) return false;
+			final PlanKey key = (PlanKey) o;
+			return Arrays.equals(observed, key.observed) && Arrays.equals(query, key.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(observed) + Arrays.hashCode(query);
+		}
+	}
+
 	/**
 	 * Constructs a variable elimination specifying the algebra.
 	 * Factors, evidence and elimnation sequence must be specified with setters.
@@ -53,11 +112,14 @@ public class VariableElimination<F extends OperableFactor<F>> implements Inferen
 	 * The sequence may include the query!
 	 * <p>Elimination sequences can be generated with an {@link OrderingStrategy}.
 	 * </p>
+	 * If the sequence is null, {@link #query(GraphicalModel, TIntIntMap, int...)} uses a {@link MinFillOrdering} of
+	 * the model, that is part of the cached plan.
 	 *
 	 * @param sequence the elimination sequence to use
 	 */
 	public void setSequence(int[] sequence) {
 		this.sequence = sequence;
+		this.plans.clear();
 	}
 
 	/**
@@ -100,6 +162,37 @@ public class VariableElimination<F extends OperableFactor<F>> implements Inferen
 		normalize = norm;
 	}
 
+	/**
+	 * @param plansLimit the maximum number of plans kept in cache for each model, 0 to disable the cache
+	 */
+	public void setPlansLimit(int plansLimit) {
+		this.plansLimit = plansLimit;
+		this.plans.clear();
+	}
+
+	/**
+	 * The plan of the last execution, use {@link EliminationPlan#getMaxSize()} to know its cost.
+	 *
+	 * @return the last plan used, or null if nothing has been executed yet
+	 */
+	public EliminationPlan getPlan() {
+		return plan;
+	}
+
+	/**
+	 * @return the number of queries that used a cached plan
+	 */
+	public long getPlanHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of queries that had to build a new plan
+	 */
+	public long getPlanMisses() {
+		return misses;
+	}
+
 	/**
 	 * Execute the variable elimination asking for the marginal or posterior of the specified
 	 * variables. If multiple variables are specified the joint over the query is computed.
@@ -111,39 +204,52 @@ public class VariableElimination<F extends OperableFactor<F>> implements Inferen
 	 * @return the joint marginal or posterior probability of the queried variables
 	 */
 	public F run(int... query) {
-		// variables should be sorted
+		plan = EliminationPlan.compile(factors, sequence, evidenceKeys(), query);
+		return plan.execute(operator, factors, evidence, normalize);
+	}
+
+	private int[] evidenceKeys() {
+		return evidence == null ? new int[0] : evidence.keys();
+	}
+
+	/**
+	 * Finds the plan for the given model, current evidence and query in the cache, or builds a new one.
+	 */
+	private EliminationPlan plan(GraphicalModel<F> model, int[] query) {
+		final int[] observed = ArraysUtil.sort(evidenceKeys());
 		query = ArraysUtil.sort(query);
 
-		FactorQueue<F> queue = new FactorQueue<>(sequence);
-		queue.addAll(factors);
-		boolean normalize = false;
-		F last = null;
-		while (queue.hasNext()) {
-			int variable = queue.getVariable();
-			Collection<F> var_factors = queue.next();
-
-			if (var_factors.size() > 0) {
-				last = FactorUtil.combine(operator, var_factors);
-
-				if (Arrays.binarySearch(query, variable) >= 0) {
-					// query var
-					// nothing to do
-				} else if (evidence != null && evidence.containsKey(variable)) {
-					int state = evidence.get(variable);
-					last = operator.filter(last, variable, state);
-					normalize = true;
-				} else {
-					last = operator.marginalize(last, variable);
-				}
-				queue.add(last);
-			}
+		// the plans of models without a version are not kept
+		if (plansLimit <= 0 || model.getVersion() == 0) {
+			misses++;
+			return compile(model, observed, query);
 		}
 
-		if (normalize && this.normalize) {
-			last = FactorUtil.normalize(operator, last);
+		final PlanKey key = new PlanKey(observed, query);
+
+		Plans cached = plans.get(model);
+		if (cached == null || cached.version != model.getVersion()) {
+			cached = new Plans(model.getVersion());
+			plans.put(model, cached);
 		}
 
-		return last;
+		EliminationPlan p = cached.get(key);
+		if (p == null) {
+			misses++;
+			p = compile(model, observed, query);
+			cached.put(key, p);
+		} else {
+			hits++;
+		}
+		return p;
+	}
+
+	/**
+	 * Builds a new plan for the given model, without looking in the cache.
+	 */
+	private EliminationPlan compile(GraphicalModel<F> model, int[] observed, int[] query) {
+		final int[] seq = sequence != null ? sequence : new MinFillOrdering().apply(model);
+		return EliminationPlan.compile(factors, seq, observed, query);
 	}
 
 	@Override
@@ -151,11 +257,21 @@ public class VariableElimination<F extends OperableFactor<F>> implements Inferen
 		return query(model, evidence, new int[]{query});
 	}
 
+	/**
+	 * Query the given model. The {@link EliminationPlan} is kept in cache for the model: following queries with the
+	 * same observed and query variables on the same version of the model do only the operations on the factors.
+	 *
+	 * @param model        the model to query
+	 * @param observations the observed variable as a map of variable-states
+	 * @param queries      variables to use as query
+	 * @return the joint marginal or posterior probability of the queried variables
+	 */
 	@Override
 	public F query(GraphicalModel<F> model, TIntIntMap observations, int... queries) {
 		setEvidence(observations);
 		setFactors(model.getFactors());
-		return run(queries);
+		plan = plan(model, queries);
+		return plan.execute(operator, factors, evidence, normalize);
 	}
 
 }
@@ -15,10 +15,10 @@ public abstract class DiscreteEM extends ExpectationMaximization<BayesianFactor>
 			@Override
 			public BayesianFactor query(GraphicalModel<BayesianFactor> model, TIntIntMap evidence, int... queries) {
 				final CutObserved<BayesianFactor> co = new CutObserved<>();
-				GraphicalModel<BayesianFactor> coModel = co.execute(model, evidence);
+				GraphicalModel<BayesianFactor> coModel = co.executeOverlay(model, evidence);
 
 				final RemoveBarren<BayesianFactor> rb = new RemoveBarren<>();
-				GraphicalModel<BayesianFactor> infModel = rb.execute(coModel, evidence, queries);
+				GraphicalModel<BayesianFactor> infModel = rb.executeOverlay(coModel, evidence, queries);
 				rb.filter(elimSeq);
 
 				FactorVariableElimination<BayesianFactor> fve = new FactorVariableElimination<>(elimSeq);
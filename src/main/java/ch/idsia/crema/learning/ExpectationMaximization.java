@@ -1,5 +1,6 @@
 package ch.idsia.crema.learning;
 
+import ch.idsia.crema.data.Dataset;
 import ch.idsia.crema.factor.OperableFactor;
 import ch.idsia.crema.inference.Inference;
 import ch.idsia.crema.inference.InferenceJoined;
@@ -49,7 +50,37 @@ public abstract class ExpectationMaximization<F extends OperableFactor<F>> {
 			addIntermediateModels(posteriorModel);
 	}
 
+	/**
+	 * Step with the rows of a {@link Dataset}. By default the rows are converted to observations and passed to
+	 * {@link #stepPrivate(Collection)}; subclasses can override this method to consume the dataset directly.
+	 *
+	 * @param data the observations
+	 * @throws InterruptedException if the step is interrupted
+	 */
+	protected void stepPrivate(Dataset data) throws InterruptedException {
+		stepPrivate(data.toObservations());
+	}
+
+	public void step(Dataset data) throws InterruptedException {
+		stepPrivate(data);
+		performedIterations++;
+		if (recordIntermediate)
+			addIntermediateModels(posteriorModel);
+	}
+
 	public void run(Collection<TIntIntMap> stepArgs, int iterations) throws InterruptedException {
+		run(() -> step(stepArgs), iterations);
+	}
+
+	public void run(Dataset data, int iterations) throws InterruptedException {
+		run(() -> step(data), iterations);
+	}
+
+	private interface Step {
+		void step() throws InterruptedException;
+	}
+
+	private void run(Step step, int iterations) throws InterruptedException {
 		init();
 		for (int i = 1; i <= iterations; i++) {
 			if (verbose) {
@@ -58,7 +89,7 @@ public abstract class ExpectationMaximization<F extends OperableFactor<F>> {
 				else
 					System.out.print(".");
 			}
-			step(stepArgs);
+			step.step();
 			if (stopAtConvergence && !updated)
 				break;
 		}
@@ -1,18 +1,30 @@
 package ch.idsia.crema.learning;
 
 import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.data.Dataset;
 import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianDeterministicFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.inference.InferenceJoined;
+import ch.idsia.crema.inference.bp.CompiledJunctionTree;
 import ch.idsia.crema.inference.ve.order.MinFillOrdering;
+import ch.idsia.crema.model.graphical.DAGModel;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.utility.ArraysUtil;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static ch.idsia.crema.factor.bayesian.BayesianFactorUtilities.KLDivergence;
@@ -21,13 +33,26 @@ public class FrequentistEM extends DiscreteEM {
 
 	private double regularization = 0.00001;
 
+	private ForkJoinPool pool = null;
+
+	/**
+	 * The distinct rows of the last {@link Dataset} used, with their occurrences.
+	 */
+	private Dataset patternsData = null;
+	private List<Map.Entry<TIntIntMap, Integer>> patterns = null;
+
+	/**
+	 * The inference built by {@link #getDefaultInference(int[])}, if used.
+	 */
+	private InferenceJoined<GraphicalModel<BayesianFactor>, BayesianFactor> defaultInference = null;
+
 	public FrequentistEM(GraphicalModel<BayesianFactor> model, InferenceJoined<GraphicalModel<BayesianFactor>, BayesianFactor> inferenceEngine) {
 		this.inferenceEngine = inferenceEngine;
 		this.priorModel = model;
 	}
 
 	public FrequentistEM(GraphicalModel<BayesianFactor> model, int[] elimSeq) {
-		this.inferenceEngine = getDefaultInference(elimSeq);
+		this.inferenceEngine = this.defaultInference = getDefaultInference(elimSeq);
 		this.priorModel = model;
 	}
 
@@ -38,53 +63,126 @@ public class FrequentistEM extends DiscreteEM {
 	@Override
 	protected void stepPrivate(Collection<TIntIntMap> stepArgs) {
 		// E-stage
-		TIntObjectMap<BayesianDefaultFactor> counts = expectation(stepArgs.toArray(TIntIntMap[]::new));
+		TIntObjectMap<BayesianDefaultFactor> counts = expectation(group(stepArgs));
 		// M-stage
 		maximization(counts);
 	}
 
-	private TIntObjectMap<BayesianDefaultFactor> expectation(TIntIntMap[] observations) {
+	/**
+	 * The rows of the dataset are grouped without building a map for each row. Since a dataset cannot change, the
+	 * groups are computed once and reused in the following steps with the same dataset.
+	 */
+	@Override
+	protected void stepPrivate(Dataset data) {
+		if (data != patternsData) {
+			patterns = data.patterns();
+			patternsData = data;
+		}
+
+		// E-stage
+		TIntObjectMap<BayesianDefaultFactor> counts = expectation(patterns);
+		// M-stage
+		maximization(counts);
+	}
+
+	/**
+	 * Groups identical observations. The observations are compared by their sorted variables and states and not with
+	 * {@link TIntIntMap#equals(Object)}, that does not distinguish a missing variable from a variable in state 0.
+	 *
+	 * @return the distinct observations, in order of first appearance, with their number of occurrences
+	 */
+	private static List<Map.Entry<TIntIntMap, Integer>> group(Collection<TIntIntMap> observations) {
+		final Map<Evidence, Map.Entry<TIntIntMap, Integer>> entries = new HashMap<>();
+		final List<Map.Entry<TIntIntMap, Integer>> patterns = new ArrayList<>();
+
+		for (TIntIntMap observation : observations) {
+			final Evidence key = new Evidence(observation);
+			final Map.Entry<TIntIntMap, Integer> entry = entries.get(key);
+			if (entry == null) {
+				final Map.Entry<TIntIntMap, Integer> first = new AbstractMap.SimpleEntry<>(observation, 1);
+				entries.put(key, first);
+				patterns.add(first);
+			} else {
+				entry.setValue(entry.getValue() + 1);
+			}
+		}
+
+		return patterns;
+	}
+
+	/**
+	 * The variables and states of an observation, sorted by variable.
+	 */
+	private static final class Evidence {
+		private final int[] pairs;
+		private final int hash;
+
+		Evidence(TIntIntMap observation) {
+			final int[] keys = observation.keys();
+			Arrays.sort(keys);
+			pairs = new int[keys.length * 2];
+			for (int i = 0; i < keys.length; i++) {
+				pairs[2 * i] = keys[i];
+				pairs[2 * i + 1] = observation.get(keys[i]);
+			}
+			hash = Arrays.hashCode(pairs);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o || o instanceof Evidence && Arrays.equals(pairs, ((Evidence) o).pairs);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The expectation step on the distinct evidences, each one processed only once and weighted by the number of its
+	 * occurrences. With the default inference, the posterior of all the families is obtained with
+	 * a single propagation over a {@link CompiledJunctionTree} for each distinct evidence; otherwise the inference engine
+	 * is queried for each family with missing values.
+	 * <p>
+	 * If a pool has been set with {@link #setPool(ForkJoinPool)}, the distinct evidences are split between threads,
+	 * each one with its own count tables, which are summed up at the end. A custom inference engine is then queried by
+	 * many threads at the same time.
+	 */
+	private TIntObjectMap<BayesianDefaultFactor> expectation(List<Map.Entry<TIntIntMap, Integer>> patterns) {
 		TIntObjectMap<BayesianDefaultFactor> factors = new TIntObjectHashMap<>();
-		TIntObjectMap<double[]> counts = new TIntObjectHashMap<>();
 		TIntObjectMap<Strides> domains = new TIntObjectHashMap<>();
 		for (int variable : posteriorModel.getVariables()) {
 			final Strides domain = posteriorModel.getFactor(variable).getDomain();
 			domains.put(variable, domain);
-			counts.put(variable, new double[domain.getCombinations()]);
 		}
 
-		for (TIntIntMap observation : observations) {
-			for (int var : trainableVars) {
-				int[] relevantVars = ArraysUtil.addToSortedArray(posteriorModel.getParents(var), var);
-				int[] hidden = IntStream.of(relevantVars).filter(x -> !observation.containsKey(x)).toArray();
-				int[] obsVars = IntStream.of(relevantVars).filter(x -> observation.containsKey(x)).toArray();
-
-				if (hidden.length > 0) {
-					// Case with missing data
-					BayesianFactor phidden_obs = inferenceEngine.query(posteriorModel, observation, hidden);
-					if (obsVars.length > 0)
-						phidden_obs = phidden_obs.combine(
-								BayesianDeterministicFactor.getJoinDeterministic(posteriorModel.getDomain(obsVars), observation)
-						);
-
-					double[] data = counts.get(var);
-					for (int i = 0; i < data.length; i++) {
-						data[i] = data[i] + phidden_obs.getValueAt(i);
-					}
-
-//					TODO: what to do if NaN?
-//					if (Double.isNaN(counts.get(var).getData()[0]))
-//						System.out.println();
+		final CompiledJunctionTree<BayesianFactor> jt = inferenceEngine == defaultInference && posteriorModel instanceof DAGModel
+				? new CompiledJunctionTree<>((DAGModel<BayesianFactor>) posteriorModel)
+				: null;
 
-				} else {
-					// fully-observable case
-					for (int index : domains.get(var).getCompatibleIndexes(observation)) {
-						final double[] data = counts.get(var);
-						data[index] = data[index] + 1;
-					}
-				}
+		final Supplier<TIntObjectMap<double[]>> supplier = () -> {
+			TIntObjectMap<double[]> counts = new TIntObjectHashMap<>();
+			for (int v : domains.keys())
+				counts.put(v, new double[domains.get(v).getCombinations()]);
+			return counts;
+		};
+		final BiConsumer<TIntObjectMap<double[]>, Map.Entry<TIntIntMap, Integer>> accumulator =
+				(counts, pattern) -> count(counts, domains, jt, pattern.getKey(), pattern.getValue());
+		final BiConsumer<TIntObjectMap<double[]>, TIntObjectMap<double[]>> combiner = (counts, other) -> {
+			for (int v : other.keys()) {
+				final double[] data = counts.get(v);
+				final double[] add = other.get(v);
+				for (int i = 0; i < data.length; i++)
+					data[i] += add[i];
 			}
-		}
+		};
+
+		final TIntObjectMap<double[]> counts;
+		if (pool == null)
+			counts = patterns.stream().collect(supplier, accumulator, combiner);
+		else
+			counts = pool.submit(() -> patterns.parallelStream().collect(supplier, accumulator, combiner)).join();
 
 		// build output factors
 		for (int v : domains.keys()) {
@@ -94,6 +192,58 @@ public class FrequentistEM extends DiscreteEM {
 		return factors;
 	}
 
+	/**
+	 * Adds the expected counts of the given observation to the counts.
+	 *
+	 * @param counts      the counts to update
+	 * @param domains     the domain of the factor of each variable
+	 * @param jt          the compiled tree to use, if null the inference engine is used
+	 * @param observation the observed values
+	 * @param weight      number of occurrences of the observation
+	 */
+	private void count(TIntObjectMap<double[]> counts, TIntObjectMap<Strides> domains, CompiledJunctionTree<BayesianFactor> jt, TIntIntMap observation, int weight) {
+		TIntObjectMap<BayesianFactor> families = null;
+
+		for (int var : trainableVars) {
+			int[] relevantVars = ArraysUtil.addToSortedArray(posteriorModel.getParents(var), var);
+			int[] hidden = IntStream.of(relevantVars).filter(x -> !observation.containsKey(x)).toArray();
+			int[] obsVars = IntStream.of(relevantVars).filter(x -> observation.containsKey(x)).toArray();
+
+			if (hidden.length > 0) {
+				// Case with missing data
+				BayesianFactor phidden_obs;
+				if (jt != null) {
+					if (families == null)
+						families = jt.families(observation);
+					phidden_obs = families.get(var);
+				} else {
+					phidden_obs = inferenceEngine.query(posteriorModel, observation, hidden);
+				}
+
+				if (obsVars.length > 0)
+					phidden_obs = phidden_obs.combine(
+							BayesianDeterministicFactor.getJoinDeterministic(posteriorModel.getDomain(obsVars), observation)
+					);
+
+				double[] data = counts.get(var);
+				for (int i = 0; i < data.length; i++) {
+					data[i] = data[i] + weight * phidden_obs.getValueAt(i);
+				}
+
+//				TODO: what to do if NaN?
+//				if (Double.isNaN(counts.get(var).getData()[0]))
+//					System.out.println();
+
+			} else {
+				// fully-observable case
+				for (int index : domains.get(var).getCompatibleIndexes(observation)) {
+					final double[] data = counts.get(var);
+					data[index] = data[index] + weight;
+				}
+			}
+		}
+	}
+
 	private void maximization(TIntObjectMap<BayesianDefaultFactor> counts) {
 		updated = false;
 
@@ -123,4 +273,14 @@ public class FrequentistEM extends DiscreteEM {
 		return regularization;
 	}
 
+	/**
+	 * @param pool if not null, the expectation step is done in parallel using this pool: an inference engine given to
+	 *             the constructor is then queried by many threads at the same time and must be thread-safe
+	 * @return this object
+	 */
+	public FrequentistEM setPool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
+	}
+
 }
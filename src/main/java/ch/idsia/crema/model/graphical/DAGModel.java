@@ -56,6 +56,11 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 	 */
 	protected TIntObjectMap<F> factors;
 
+	/**
+	 * Counter incremented on every structural or factor change of this model, see {@link #getVersion()}.
+	 */
+	protected long version = 1;
+
 	/**
 	 * Create the directed model using the specified network implementation.
 	 */
@@ -97,11 +102,24 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 		return network;
 	}
 
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
 	@Override
 	public DAGModel<F> copy() {
 		return new DAGModel<>(this);
 	}
 
+	/**
+	 * @return an {@link OverlayModel} that shares the variables, arcs and factors of this model
+	 */
+	@Override
+	public OverlayModel<F> copyOnWrite() {
+		return new OverlayModel<>(this);
+	}
+
 	/**
 	 * Make a copy of the network while transforming the factors. All variable
 	 * labels/ID will remain the same.
@@ -135,6 +153,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void addState(int variable) {
+		version++;
 		F factor = factors.get(variable);
 		F new_factor = cardinalityChanger.addState(factor, variable);
 		if (factor != new_factor)
@@ -153,6 +172,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void removeState(int variable, int state) {
+		version++;
 		F factor = factors.get(variable);
 		F new_factor = cardinalityChanger.removeState(factor, variable, state);
 		if (factor != new_factor)
@@ -184,6 +204,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void removeVariable(int variable) {
+		version++;
 		int[] children = getChildren(variable);
 
 		// update the factors
@@ -191,7 +212,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 			F factor = factors.get(child);
 			F new_factor = domainChanger.remove(factor, variable);
 			if (factor != new_factor)
-				factors.put(variable, new_factor);
+				factors.put(child, new_factor);
 		}
 
 		cardinalities.remove(variable);
@@ -201,6 +222,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public int addVariable(int size) {
+		version++;
 		int vid = max++;
 		this.cardinalities.put(vid, size);
 		network.addVertex(vid);
@@ -209,6 +231,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public int addVariable(int vid, int size) {
+		version++;
 		if (vid > max) max = vid;
 		max++;
 		this.cardinalities.put(vid, size);
@@ -218,6 +241,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void removeParent(int variable, int parent) {
+		version++;
 		F factor = factors.get(variable);
 		F new_factor = domainChanger.remove(factor, parent);
 		if (factor != new_factor)
@@ -227,6 +251,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void removeParent(int variable, int parent, DomainChange<F> change) {
+		version++;
 		F factor = factors.get(variable);
 		F new_factor = change.remove(factor, parent);
 		if (factor != new_factor)
@@ -236,6 +261,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void addParent(int variable, int parent) {
+		version++;
 		F factor = factors.get(variable);
 		F new_factor = domainChanger.add(factor, parent);
 		if (factor != new_factor)
@@ -317,6 +343,7 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 
 	@Override
 	public void setFactor(int variable, F factor) {
+		version++;
 		int[] vars = factor.getDomain().getVariables();
 		int index = ArrayUtils.indexOf(vars, variable);
 		int[] parents = ArraysUtil.remove(vars, index);
@@ -347,6 +374,8 @@ public class DAGModel<F extends GenericFactor> implements GraphicalModel<F> {
 			throw new IllegalArgumentException("This model requires one factor per variable");
 		}
 
+		version++;
+
 		int index = 0;
 		for (int var : getVariables()) {
 			F factor = factors[index++];
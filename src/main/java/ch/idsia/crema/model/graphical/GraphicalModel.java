@@ -41,9 +41,33 @@ public interface GraphicalModel<F extends GenericFactor> extends Model<F> {
 
 	void setFactor(int variable, F factor);
 
+	/**
+	 * The version is incremented each time a variable, a state, an arc or a factor of this model is added, removed or
+	 * replaced. Structures compiled from this model can compare it to know if they are still valid.
+	 * <p>
+	 * Models that track their changes start from 1. By default this method returns 0: the changes of the model are
+	 * not tracked and nothing compiled from it is ever cached.
+	 *
+	 * @return the current version of this model, or 0 if the changes are not tracked
+	 */
+	default long getVersion() {
+		return 0;
+	}
+
 	@Override
 	GraphicalModel<F> copy();
 
+	/**
+	 * A copy of this model that can be modified without changing this model. Implementations can share the parts that
+	 * are not modified, see {@link OverlayModel}; this model must then not be modified while the copy is in use. By
+	 * default this is the same as {@link #copy()}.
+	 *
+	 * @return a copy of this model
+	 */
+	default GraphicalModel<F> copyOnWrite() {
+		return copy();
+	}
+
 	default void addParents(int k, int[] parent) {
 		for (int p : parent) {
 			addParent(k, p);
@@ -0,0 +1,486 @@
+package ch.idsia.crema.model.graphical;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.model.NoSuchVariableException;
+import ch.idsia.crema.model.change.CardinalityChange;
+import ch.idsia.crema.model.change.DomainChange;
+import ch.idsia.crema.utility.ArraysUtil;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A copy-on-write view of a {@link DAGModel}. The overlay shares variables, arcs and factors with its base model and
+ * stores only the changes done to it: removed variables, new or resized variables, the parents and children of the
+ * variables whose arcs changed, and the factors that have been replaced. Creating an overlay costs nothing and each
+ * change costs in proportion to the number of arcs of the modified variables, not to the size of the model.
+ * <p>
+ * The factors that are not replaced are the same objects of the base model, they are not copied. The base model is
+ * never modified by the overlay, but it must not change as long as the overlay exists: the overlay checks the
+ * {@link DAGModel#getVersion()} of the base when it is used and throws an {@link IllegalStateException} if it has
+ * changed since the overlay was created. Use {@link #toDAGModel()} to get a model that does not depend on the base.
+ * <p>
+ * Copies of an overlay, or overlays of an overlay, share the same base model and copy only the changes.
+ */
+public class OverlayModel<F extends GenericFactor> implements GraphicalModel<F> {
+
+	private final DAGModel<F> base;
+	private final long baseVersion;
+
+	private final DomainChange<F> domainChanger;
+	private final CardinalityChange<F> cardinalityChanger;
+
+	/**
+	 * Variables of the base model that have been removed.
+	 */
+	private final TIntSet removed;
+
+	/**
+	 * Variables that are not in the base model, or whose cardinality changed, with their size.
+	 */
+	private final TIntIntMap sizes;
+
+	/**
+	 * Variables that are not in the base model.
+	 */
+	private final TIntSet added;
+
+	/**
+	 * Parents and children of the variables whose arcs changed.
+	 */
+	private final TIntObjectMap<int[]> parents;
+	private final TIntObjectMap<int[]> children;
+
+	/**
+	 * Factors that have been replaced. A key with a null value is a factor that has been set to null.
+	 */
+	private final TIntObjectMap<F> factors;
+
+	private int max;
+
+	/**
+	 * Counter incremented on every change of this overlay, see {@link #getVersion()}.
+	 */
+	private long version = 1;
+
+	/**
+	 * @param base the model to share
+	 */
+	public OverlayModel(DAGModel<F> base) {
+		this.base = base;
+		this.baseVersion = base.getVersion();
+		this.domainChanger = base.domainChanger;
+		this.cardinalityChanger = base.cardinalityChanger;
+		this.removed = new TIntHashSet();
+		this.sizes = new TIntIntHashMap();
+		this.added = new TIntHashSet();
+		this.parents = new TIntObjectHashMap<>();
+		this.children = new TIntObjectHashMap<>();
+		this.factors = new TIntObjectHashMap<>();
+		this.max = base.max;
+	}
+
+	/**
+	 * Creates a new overlay on the same base model and with a copy of the changes of the given one.
+	 *
+	 * @param original the overlay to copy
+	 */
+	public OverlayModel(OverlayModel<F> original) {
+		original.checkBase();
+		this.base = original.base;
+		this.baseVersion = original.baseVersion;
+		this.domainChanger = original.domainChanger;
+		this.cardinalityChanger = original.cardinalityChanger;
+		this.removed = new TIntHashSet(original.removed);
+		this.sizes = new TIntIntHashMap(original.sizes);
+		this.added = new TIntHashSet(original.added);
+		this.parents = new TIntObjectHashMap<>(original.parents);
+		this.children = new TIntObjectHashMap<>(original.children);
+		this.factors = new TIntObjectHashMap<>(original.factors);
+		this.max = original.max;
+		this.version = original.version;
+	}
+
+	/**
+	 * @return the model shared by this overlay
+	 */
+	public DAGModel<F> getBase() {
+		return base;
+	}
+
+	/**
+	 * @return the current version of this overlay, see {@link DAGModel#getVersion()}
+	 */
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the number of variables with changed arcs, sizes or factors, plus the removed ones
+	 */
+	public int getChangesCount() {
+		final TIntSet changed = new TIntHashSet(removed);
+		changed.addAll(sizes.keySet());
+		changed.addAll(parents.keySet());
+		changed.addAll(children.keySet());
+		changed.addAll(factors.keySet());
+		return changed.size();
+	}
+
+	private void checkBase() {
+		if (base.getVersion() != baseVersion)
+			throw new IllegalStateException("The base model of this overlay has been modified");
+	}
+
+	private boolean inBase(int variable) {
+		return !added.contains(variable) && !removed.contains(variable) && base.cardinalities.containsKey(variable);
+	}
+
+	private boolean contains(int variable) {
+		return added.contains(variable) || inBase(variable);
+	}
+
+	private void checkVariable(int variable) {
+		checkBase();
+		if (!contains(variable))
+			throw new IllegalArgumentException("No such variable in the model: " + variable);
+	}
+
+	@Override
+	public OverlayModel<F> copy() {
+		return new OverlayModel<>(this);
+	}
+
+	@Override
+	public OverlayModel<F> copyOnWrite() {
+		return new OverlayModel<>(this);
+	}
+
+	/**
+	 * Builds a new independent {@link DAGModel} with the content of this overlay.
+	 *
+	 * @return a new model
+	 */
+	public DAGModel<F> toDAGModel() {
+		checkBase();
+		final DAGModel<F> model = new DAGModel<>();
+		model.domainChanger = domainChanger;
+		model.cardinalityChanger = cardinalityChanger;
+
+		final int[] variables = getVariables();
+		for (int v : variables)
+			model.addVariable(v, getSize(v));
+		for (int v : variables)
+			for (int p : getParents(v))
+				model.network.addEdge(p, v);
+		for (int v : variables) {
+			final F factor = getFactor(v);
+			if (factor != null)
+				model.factors.put(v, factor);
+		}
+		model.max = max;
+		return model;
+	}
+
+	@Override
+	public Strides getDomain(int... variables) {
+		return new Strides(variables, getSizes(variables));
+	}
+
+	@Override
+	public void addState(int variable) {
+		checkVariable(variable);
+		version++;
+		F factor = getFactor(variable);
+		F new_factor = cardinalityChanger.addState(factor, variable);
+		if (factor != new_factor)
+			factors.put(variable, new_factor);
+
+		for (int child : getChildren(variable)) {
+			factor = getFactor(child);
+			new_factor = cardinalityChanger.addParentState(factor, child, variable);
+			if (factor != new_factor)
+				factors.put(child, new_factor);
+		}
+
+		sizes.put(variable, getSize(variable) + 1);
+	}
+
+	@Override
+	public void removeState(int variable, int state) {
+		checkVariable(variable);
+		version++;
+		F factor = getFactor(variable);
+		F new_factor = cardinalityChanger.removeState(factor, variable, state);
+		if (factor != new_factor)
+			factors.put(variable, new_factor);
+
+		sizes.put(variable, getSize(variable) - 1);
+	}
+
+	@Override
+	public int getVariablesCount() {
+		checkBase();
+		return base.getVariablesCount() - removed.size() + added.size();
+	}
+
+	@Override
+	public int[] getVariables() {
+		checkBase();
+		final int[] vars;
+		if (removed.isEmpty()) {
+			vars = ArrayUtils.addAll(base.cardinalities.keys(), added.toArray());
+		} else {
+			final TIntArrayList list = new TIntArrayList(getVariablesCount());
+			for (int v : base.cardinalities.keys())
+				if (!removed.contains(v))
+					list.add(v);
+			list.addAll(added);
+			vars = list.toArray();
+		}
+		Arrays.sort(vars);
+		return vars;
+	}
+
+	@Override
+	public int getSize(int variable) {
+		checkBase();
+		if (sizes.containsKey(variable))
+			return sizes.get(variable);
+		if (removed.contains(variable))
+			return 0;
+		return base.getSize(variable);
+	}
+
+	@Override
+	public int[] getSizes(int... variables) {
+		int[] result = new int[variables.length];
+		for (int i = 0; i < variables.length; i++)
+			result[i] = getSize(variables[i]);
+		return result;
+	}
+
+	@Override
+	public void removeVariable(int variable) {
+		checkVariable(variable);
+		version++;
+
+		for (int child : getChildren(variable)) {
+			F factor = getFactor(child);
+			F new_factor = domainChanger.remove(factor, variable);
+			if (factor != new_factor)
+				factors.put(child, new_factor);
+			parents.put(child, ArrayUtils.removeElement(getParents(child), variable));
+		}
+
+		for (int parent : getParents(variable))
+			children.put(parent, ArrayUtils.removeElement(getChildren(parent), variable));
+
+		if (!added.remove(variable))
+			removed.add(variable);
+
+		sizes.remove(variable);
+		factors.remove(variable);
+		parents.remove(variable);
+		children.remove(variable);
+	}
+
+	@Override
+	public int addVariable(int size) {
+		checkBase();
+		version++;
+		int vid = max++;
+		while (contains(vid))
+			vid = max++;
+		add(vid, size);
+		return vid;
+	}
+
+	@Override
+	public int addVariable(int vid, int size) {
+		checkBase();
+		if (contains(vid))
+			throw new IllegalArgumentException("Variable already in the model: " + vid);
+		version++;
+		if (vid > max) max = vid;
+		max++;
+		add(vid, size);
+		return vid;
+	}
+
+	private void add(int vid, int size) {
+		if (!removed.remove(vid) || !base.cardinalities.containsKey(vid))
+			added.add(vid);
+		else
+			// a variable of the base model that was removed and now is back: nothing is shared anymore
+			factors.put(vid, null);
+
+		sizes.put(vid, size);
+		parents.put(vid, new int[0]);
+		children.put(vid, new int[0]);
+	}
+
+	@Override
+	public void removeParent(int variable, int parent) {
+		removeParent(variable, parent, domainChanger);
+	}
+
+	@Override
+	public void removeParent(int variable, int parent, DomainChange<F> change) {
+		checkVariable(variable);
+		version++;
+		F factor = getFactor(variable);
+		F new_factor = change.remove(factor, parent);
+		if (factor != new_factor)
+			factors.put(variable, new_factor);
+
+		final int[] pa = getParents(variable);
+		if (ArrayUtils.contains(pa, parent)) {
+			parents.put(variable, ArrayUtils.removeElement(pa, parent));
+			children.put(parent, ArrayUtils.removeElement(getChildren(parent), variable));
+		}
+	}
+
+	@Override
+	public void addParent(int variable, int parent) {
+		checkVariable(variable);
+		checkVariable(parent);
+
+		final int[] pa = getParents(variable);
+		if (ArrayUtils.contains(pa, parent))
+			return;
+
+		if (parent == variable || isAncestor(variable, parent))
+			throw new IllegalArgumentException("Edge " + parent + " -> " + variable + " would induce a cycle");
+
+		version++;
+		F factor = getFactor(variable);
+		F new_factor = domainChanger.add(factor, parent);
+		if (factor != new_factor)
+			factors.put(variable, new_factor);
+
+		parents.put(variable, ArrayUtils.add(pa, parent));
+		children.put(parent, ArrayUtils.add(getChildren(parent), variable));
+	}
+
+	/**
+	 * @return true if there is a directed path from the variable to the target
+	 */
+	private boolean isAncestor(int variable, int target) {
+		final TIntSet visited = new TIntHashSet();
+		final TIntArrayList stack = new TIntArrayList();
+		stack.add(variable);
+		while (!stack.isEmpty()) {
+			final int v = stack.removeAt(stack.size() - 1);
+			for (int child : getChildren(v)) {
+				if (child == target)
+					return true;
+				if (visited.add(child))
+					stack.add(child);
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int[] getParents(int variable) {
+		checkVariable(variable);
+		final int[] pa = parents.get(variable);
+		return pa != null ? pa.clone() : base.getParents(variable);
+	}
+
+	@Override
+	public int[] getChildren(int variable) {
+		checkVariable(variable);
+		final int[] ch = children.get(variable);
+		return ch != null ? ch.clone() : base.getChildren(variable);
+	}
+
+	@Override
+	public int[] getRoots() {
+		TIntArrayList list = new TIntArrayList();
+		for (int variable : getVariables()) {
+			if (getParents(variable).length == 0)
+				list.add(variable);
+		}
+		return list.toArray();
+	}
+
+	@Override
+	public int[] getLeaves() {
+		TIntArrayList list = new TIntArrayList();
+		for (int variable : getVariables()) {
+			if (getChildren(variable).length == 0)
+				list.add(variable);
+		}
+		return list.toArray();
+	}
+
+	@Override
+	public F getFactor(int variable) {
+		checkBase();
+		if (factors.containsKey(variable))
+			return factors.get(variable);
+		if (!inBase(variable))
+			return null;
+		return base.getFactor(variable);
+	}
+
+	@Override
+	public void setFactor(int variable, F factor) {
+		checkVariable(variable);
+		version++;
+		int[] vars = factor.getDomain().getVariables();
+		int index = ArrayUtils.indexOf(vars, variable);
+		int[] pa = ArraysUtil.remove(vars, index);
+		addParents(variable, pa);
+
+		factors.put(variable, factor);
+	}
+
+	@Override
+	public void setFactors(F[] factors) {
+		if (factors.length != getVariablesCount()) {
+			throw new IllegalArgumentException("This model requires one factor per variable");
+		}
+
+		version++;
+
+		int index = 0;
+		for (int var : getVariables()) {
+			F factor = factors[index++];
+			if (factor != null && !factor.getDomain().contains(var)) {
+				throw new NoSuchVariableException(var, factor.getDomain());
+			}
+
+			this.factors.put(var, factor);
+		}
+	}
+
+	@Override
+	public Collection<F> getFactors() {
+		final int[] variables = getVariables();
+		final List<F> list = new ArrayList<>(variables.length);
+		for (int v : variables)
+			list.add(getFactor(v));
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " of " + base.getClass().getSimpleName() + " with " + getChangesCount() + " changed variables";
+	}
+
+}
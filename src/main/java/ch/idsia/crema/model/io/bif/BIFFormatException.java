@@ -0,0 +1,36 @@
+package ch.idsia.crema.model.io.bif;
+
+/**
+ * Error in the content of a file in BIF format, with the position of the token that caused it.
+ */
+public class BIFFormatException extends IllegalArgumentException {
+
+	private final int line;
+	private final int column;
+
+	public BIFFormatException(int line, int column, String message) {
+		super("Line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+	public BIFFormatException(int line, int column, String message, Throwable cause) {
+		this(line, column, message);
+		initCause(cause);
+	}
+
+	/**
+	 * @return the line of the error, starting from 1
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column of the error, starting from 1
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+}
@@ -1,14 +1,15 @@
 package ch.idsia.crema.model.io.bif;
 
+import ch.idsia.crema.core.Strides;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactorFactory;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
 import org.apache.commons.lang3.NotImplementedException;
 
 import java.io.IOException;
-import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.Scanner;
-import java.util.stream.IntStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -16,11 +17,12 @@ import java.util.stream.IntStream;
  * Date:    25.01.2021 09:22
  * <p>
  * Source of the BIF structure: http://www.cs.washington.edu/dm/vfml/appendixes/bif.htm
+ * <p>
+ * The file is read in a single pass with a {@link BIFTokenizer} and the probabilities are parsed directly in the data
+ * of the factors. Syntax errors are reported with a {@link BIFFormatException} that contains their position.
  */
 public class BIFParser {
 
-	private static final String DEFAULT_DELIMITER = "[\\r\\n]+|//.*$";
-
 	public static BIFObject read(String filename) throws IOException {
 		if (!(filename.endsWith(".bif"))) {
 			throw new IllegalArgumentException("Unknown file extension");
@@ -34,6 +36,8 @@ public class BIFParser {
 	String filename;
 	BIFObject result;
 
+	private BIFTokenizer tokenizer;
+
 	public BIFParser(String filename) {
 		this.filename = filename;
 	}
@@ -43,15 +47,20 @@ public class BIFParser {
 	}
 
 	public BIFParser scan() throws IOException {
-		result = new BIFObject();
+		try (BIFTokenizer tokenizer = BIFTokenizer.open(filename)) {
+			return scan(tokenizer);
+		}
+	}
 
-		try (Scanner scanner = new Scanner(Paths.get(filename))) {
-			scanner.useDelimiter(DEFAULT_DELIMITER);
+	BIFParser scan(BIFTokenizer tokenizer) {
+		result = new BIFObject();
+		this.tokenizer = tokenizer;
 
-			while (scanner.hasNext()) {
-				final BIFBlock block = block(scanner);
-				process(block);
-			}
+		try {
+			while (tokenizer.hasNext())
+				block();
+		} finally {
+			this.tokenizer = null;
 		}
 
 		// complete network with factors
@@ -65,170 +74,240 @@ public class BIFParser {
 		return this;
 	}
 
-	private BIFBlock block(Scanner scanner) {
-		BIFBlock block = new BIFBlock();
-		String line = scanner.nextLine();
-
-		block.type = line.substring(0, line.indexOf(" ")).trim();
-		block.name = line.substring(line.indexOf(" "), line.lastIndexOf(" ")).trim();
-
-		if (line.startsWith("//"))
-			return null;
-
-		while (!line.equals("}")) {
-			line = scanner.nextLine().trim();
-
-			BIFAttribute attribute = new BIFAttribute();
-
-			if (line.startsWith("(")) {
-				attribute.name = "";
-				attribute.value = line;
-				block.attributes.add(attribute);
-			} else if (line.endsWith(";")) {
-				final String[] tokens = line.trim().split(" ", 2);
-				attribute.name = tokens[0].trim();
-				attribute.value = tokens[1];
-				block.attributes.add(attribute);
-			}
-		}
-
-		return block;
+	private NotImplementedException unsupported(String message) {
+		return new NotImplementedException("Line " + tokenizer.getLine() + ", column " + tokenizer.getColumn() + ": " + message);
 	}
 
-	private void process(BIFBlock block) {
-		if (block == null)
-			return;
+	private void block() {
+		final String type = tokenizer.nextWord();
 
-		switch (block.type) {
+		switch (type) {
 			case "network":
-				parseForNetwork(block);
+				parseForNetwork();
 				break;
 			case "variable":
-				parseForVariable(block);
+				parseForVariable();
 				break;
 			case "probability":
-				parseForProbability(block);
+				parseForProbability();
 				break;
 			default:
-				throw new IllegalArgumentException("This library does not support the BIF block type \"" + block.name + "\"");
+				throw tokenizer.error("This library does not support the BIF block type \"" + type + "\"");
 		}
 	}
 
-	private void parseForNetwork(BIFBlock block) {
-		result.name = String.join(" ", block.name);
-		// TODO: add support for properties
+	/**
+	 * Skips the tokens up to the end of the current statement.
+	 */
+	private void skipStatement() {
+		while (!tokenizer.accept(';'))
+			tokenizer.next();
 	}
 
-	private void parseForVariable(BIFBlock block) {
-		String varName = block.name;
-		int varId;
+	private void parseForNetwork() {
+		result.name = tokenizer.nextText("{");
+		tokenizer.expect('{');
 
-		for (BIFAttribute attribute : block.attributes) {
-			switch (attribute.name) {
-				case "type":
-					final String[] tokens = attribute.value.split(" ", 2);
-					final String type = tokens[0];
-					final String v = tokens[1];
-					if (!type.equals("discrete")) {
-						throw new NotImplementedException("This library supports only \"discrete\" variables for Bayesian Networks. Found unsupported type \"" + type + "\" in \"variable\" block \"" + block.name + "\".");
-					}
-					int states = Integer.parseInt(v.substring(v.indexOf('[') + 1, v.indexOf(']')).trim());
-					varId = result.network.addVariable(states);
-					result.variableName.put(varName, varId);
-
-					// map states
-					String[] s = v.substring(v.indexOf('{') + 1, v.indexOf('}')).split(",");
-					for (int i = 0; i < s.length; i++) {
-						result.variableStates.put(varName + "$" + s[i].trim(), i);
-					}
+		while (!tokenizer.accept('}')) {
+			final String attribute = tokenizer.nextWord();
+			if (!attribute.equals("property"))
+				throw unsupported("Attribute \"" + attribute + "\" in block \"" + result.name + "\" not supported yet.");
+			// TODO: add support for properties
+			skipStatement();
+		}
+	}
+
+	private void parseForVariable() {
+		final String varName = tokenizer.nextWord();
+		if (result.variableName.containsKey(varName))
+			throw tokenizer.error("Variable \"" + varName + "\" already defined");
+
+		tokenizer.expect('{');
 
+		while (!tokenizer.isNext('}')) {
+			final String attribute = tokenizer.nextWord();
+			switch (attribute) {
+				case "type":
+					parseForType(varName);
 					break;
 				case "property":
 					// TODO: add support for other properties
+					skipStatement();
 					break;
 				default:
-					throw new NotImplementedException("Attribute \"" + attribute.name + "\" in block \"" + block.name + "\" not supported yet.");
+					throw unsupported("Attribute \"" + attribute + "\" in block \"" + varName + "\" not supported yet.");
 			}
 		}
 
+		if (!result.variableName.containsKey(varName))
+			throw tokenizer.error("Missing type of variable \"" + varName + "\"");
+		tokenizer.expect('}');
 	}
 
-	private void parseForProbability(BIFBlock block) {
-		final String line = block.name;
-		final String[] varNames = Arrays.stream(line.split("[\\s|,()]+"))
-				.filter(x -> !x.isEmpty())
-				.toArray(String[]::new);
-		final int[] varIds = Arrays.stream(varNames)
-				.mapToInt(result.variableName::get)
-				.toArray();
+	private void parseForType(String varName) {
+		final String type = tokenizer.nextWord();
+		if (!type.equals("discrete")) {
+			throw unsupported("This library supports only \"discrete\" variables for Bayesian Networks. Found unsupported type \"" + type + "\" in \"variable\" block \"" + varName + "\".");
+		}
 
-		final String varName = varNames[0];
+		tokenizer.expect('[');
+		final int states = tokenizer.nextInt();
+		if (states <= 0)
+			throw tokenizer.error("Invalid number of states " + states + " for variable \"" + varName + "\"");
+		tokenizer.expect(']');
+
+		final int varId = result.network.addVariable(states);
+		result.variableName.put(varName, varId);
+
+		// map states, their names can contain white spaces and brackets
+		tokenizer.expect('{');
+		int i = 0;
+		do {
+			final String state = tokenizer.nextText(",}");
+			if (i == states)
+				throw tokenizer.error("Variable \"" + varName + "\" has more than " + states + " states");
+			result.variableStates.put(varName + "$" + state, i++);
+		} while (tokenizer.accept(','));
+
+		if (i < states)
+			throw tokenizer.error("Variable \"" + varName + "\" has " + i + " states instead of " + states);
+		tokenizer.expect('}');
+		tokenizer.expect(';');
+	}
 
-		final BayesianFactorFactory bff = BayesianFactorFactory.factory().domain(result.network.getDomain(varIds));
+	private int variable(String varName) {
+		final Integer varId = result.variableName.get(varName);
+		if (varId == null)
+			throw tokenizer.error("Unknown variable \"" + varName + "\"");
+		return varId;
+	}
+
+	/**
+	 * The domain of the data read has the variable first, followed by its parents in the order of the block, so that
+	 * the probabilities of the same parent states are contiguous. The data are sorted by the factory at the end.
+	 * <p>
+	 * The rows are given for each combination of the states of the parents, or as a single table where the variable
+	 * changes slowest and the last parent fastest. Combinations not given take the values of the default row, if any.
+	 */
+	private void parseForProbability() {
+		tokenizer.expect('(');
+
+		final List<String> varNames = new ArrayList<>();
+		final TIntList vars = new TIntArrayList();
+		do {
+			final String name = tokenizer.nextWord();
+			varNames.add(name);
+			vars.add(variable(name));
+			// the variable is separated from the parents by '|', but some files use ','
+		} while (tokenizer.accept(',') || (vars.size() == 1 && tokenizer.accept('|')));
+		final int[] varIds = vars.toArray();
+
+		tokenizer.expect(')');
+
+		final String varName = varNames.get(0);
+		if (result.variableFactors.containsKey(varName))
+			throw tokenizer.error("Probability of variable \"" + varName + "\" already defined");
+
+		final Strides domain = result.network.getDomain(varIds);
+		final int size = domain.getSizeAt(0);
+		final double[] data = new double[domain.getCombinations()];
+		final boolean[] given = new boolean[data.length / size];
+		double[] defaults = null;
 
 		// create parents
 		for (int i = 1; i < varIds.length; i++) {
 			result.network.addParent(varIds[0], varIds[i]);
 		}
 
-		if (varNames.length == 1) {
-			// table
-			for (BIFAttribute attribute : block.attributes) {
-				switch (attribute.name) {
-					case "table":
-						final double[] values = Arrays.stream(attribute.value.split("[ ,;]"))
-								.filter(x -> !x.isEmpty())
-								.mapToDouble(Double::parseDouble)
-								.toArray();
-						bff.data(values);
-						break;
-					case "property":
-						// TODO: add support for other properties
-						break;
-					case "default":
-						// TODO: add support for default value in data
-					default:
-						throw new NotImplementedException("Found unsupported attribute \"" + attribute.name + "\" in \"probability\" block \"" + line + "\".");
+		tokenizer.expect('{');
+
+		while (!tokenizer.accept('}')) {
+			if (tokenizer.accept('(')) {
+				// parent states
+				int offset = 0;
+				for (int i = 1; i < varIds.length; i++) {
+					if (i > 1)
+						tokenizer.expect(',');
+					final String state = tokenizer.nextText(",)");
+					final Integer s = result.variableStates.get(varNames.get(i) + "$" + state);
+					if (s == null)
+						throw tokenizer.error("Unknown state \"" + state + "\" of variable \"" + varNames.get(i) + "\"");
+					offset += domain.getStrideAt(i) * s;
 				}
+				tokenizer.expect(')');
+
+				readValues(data, offset, size);
+				given[offset / size] = true;
+				continue;
 			}
 
-		} else {
-			// conditioned
-			for (BIFAttribute attribute : block.attributes) {
-				if (!attribute.value.startsWith("(")) {
+			final String attribute = tokenizer.nextWord();
+			switch (attribute) {
+				case "table":
+					readTable(domain, data);
+					for (int i = 0; i < given.length; i++)
+						given[i] = true;
+					break;
+				case "default":
+					defaults = new double[size];
+					readValues(defaults, 0, size);
+					break;
+				case "property":
 					// TODO: add support for other properties
-					continue;
-				}
+					skipStatement();
+					break;
+				default:
+					throw unsupported("Found unsupported attribute \"" + attribute + "\" in \"probability\" block \"" + varName + "\".");
+			}
+		}
 
-				// parent variables
-				final String[] vars = Arrays.stream(attribute.value.substring(attribute.value.indexOf('(') + 1, attribute.value.indexOf(')')).split("[,]"))
-						.filter(x -> !x.isEmpty())
-						.map(String::trim)
-						.toArray(String[]::new);
+		if (defaults != null) {
+			for (int i = 0; i < given.length; i++) {
+				if (!given[i])
+					System.arraycopy(defaults, 0, data, i * size, size);
+			}
+		}
 
-				// parent states
-				int[] states = IntStream.range(1, varNames.length)
-						.mapToObj(i -> varNames[i] + "$" + vars[i - 1])
-						.mapToInt(result.variableStates::get)
-						.toArray();
-
-				// data values
-				final double[] vals = Arrays.stream(attribute.value.substring(attribute.value.indexOf(')') + 1).split("[,;]"))
-						.filter(x -> !x.isEmpty())
-						.map(String::trim)
-						.mapToDouble(Double::parseDouble)
-						.toArray();
-
-				int[] ints = new int[varNames.length];
-				System.arraycopy(states, 0, ints, 1, states.length);
-
-				for (int i = 0; i < vals.length; i++) {
-					ints[0] = i;
-					bff.value(vals[i], ints);
-				}
+		result.variableFactors.put(varName, BayesianFactorFactory.factory().domain(domain).data(data).get());
+	}
+
+	/**
+	 * Reads a statement of values, separated by commas or white spaces.
+	 */
+	private void readValues(double[] data, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			if (tokenizer.isNext(';'))
+				throw tokenizer.error("Expected " + count + " values but found " + i);
+			data[offset + i] = tokenizer.nextDouble();
+			tokenizer.accept(',');
+		}
+		tokenizer.expect(';');
+	}
+
+	/**
+	 * Reads a table with the states of the variable changing slowest and of the last parent fastest.
+	 */
+	private void readTable(Strides domain, double[] data) {
+		final int n = domain.getSize();
+		final int[] states = new int[n];
+		int offset = 0;
+
+		for (int i = 0; i < data.length; i++) {
+			if (tokenizer.isNext(';'))
+				throw tokenizer.error("Expected " + data.length + " values but found " + i);
+			data[offset] = tokenizer.nextDouble();
+			tokenizer.accept(',');
+
+			// next combination
+			for (int v = n - 1; v >= 0; v--) {
+				offset += domain.getStrideAt(v);
+				if (++states[v] < domain.getSizeAt(v))
+					break;
+				offset -= domain.getStrideAt(v) * states[v];
+				states[v] = 0;
 			}
 		}
-		result.variableFactors.put(varName, bff.get());
+		tokenizer.expect(';');
 	}
 
 }
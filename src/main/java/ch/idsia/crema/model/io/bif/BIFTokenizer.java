@@ -0,0 +1,396 @@
+package ch.idsia.crema.model.io.bif;
+
+import ch.idsia.crema.utility.ParseUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Splits the content of a file in BIF format in tokens in a single pass. A token is either one of the punctuation
+ * characters <code>{ } ( ) [ ] | , ;</code>, a quoted string, or a word: a sequence of other characters not separated
+ * by white spaces. The content is read in blocks from the stream and numbers are parsed directly from the characters
+ * of the token.
+ * <p>
+ * Comments start with <code>//</code> and end with the line, or are enclosed in <code>/* ... *&#47;</code>. They are
+ * recognized where a token can start. Errors are reported with a {@link BIFFormatException} that contains the line and
+ * the column of the token.
+ */
+public class BIFTokenizer implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+
+	private int line = 1;
+	private int column = 0;
+
+	/**
+	 * Characters of the current token.
+	 */
+	private char[] token = new char[64];
+	private int length = 0;
+	private boolean punctuation = false;
+	private int tokenLine = 1;
+	private int tokenColumn = 1;
+
+	/**
+	 * True if the current token has been read but not consumed.
+	 */
+	private boolean peeked = false;
+	private boolean end = false;
+
+	public BIFTokenizer(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * @param filename the file to read
+	 * @return a tokenizer that reads from the given file, it must be closed
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static BIFTokenizer open(String filename) throws IOException {
+		return new BIFTokenizer(Files.newInputStream(Path.of(filename)));
+	}
+
+	/**
+	 * @param content the content of a file
+	 * @return a tokenizer over the given content
+	 */
+	public static BIFTokenizer of(String content) {
+		return new BIFTokenizer(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private int read() {
+		final int c = peekByte();
+		if (c == -1)
+			return -1;
+
+		position++;
+		if (c == '\n') {
+			line++;
+			column = 0;
+		} else {
+			column++;
+		}
+		return c;
+	}
+
+	private int peekByte() {
+		if (position == limit) {
+			try {
+				limit = in.read(buffer, 0, buffer.length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position] & 0xFF;
+	}
+
+	private static boolean isSpace(int c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+	}
+
+	private static boolean isPunctuation(int c) {
+		switch (c) {
+			case '{':
+			case '}':
+			case '(':
+			case ')':
+			case '[':
+			case ']':
+			case '|':
+			case ',':
+			case ';':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void append(int c) {
+		if (length == token.length) {
+			final char[] larger = new char[token.length * 2];
+			System.arraycopy(token, 0, larger, 0, length);
+			token = larger;
+		}
+		token[length++] = (char) c;
+	}
+
+	/**
+	 * Skips white spaces and comments and sets the position of the next token.
+	 *
+	 * @return the first character of the next token, or -1 at the end of the file
+	 */
+	private int skip() {
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				tokenLine = line;
+				tokenColumn = column + 1;
+				return -1;
+			}
+			if (isSpace(c))
+				continue;
+
+			if (c == '/' && peekByte() == '/') {
+				while (c != -1 && c != '\n')
+					c = read();
+				continue;
+			}
+
+			if (c == '/' && peekByte() == '*') {
+				final int startLine = line;
+				final int startColumn = column;
+				read();
+				int previous = 0;
+				while (true) {
+					c = read();
+					if (c == -1)
+						throw new BIFFormatException(startLine, startColumn, "comment not closed");
+					if (previous == '*' && c == '/')
+						break;
+					previous = c;
+				}
+				continue;
+			}
+
+			tokenLine = line;
+			tokenColumn = column;
+			return c;
+		}
+	}
+
+	/**
+	 * Reads the next token in {@link #token}, if there is no current token.
+	 */
+	private void scan() {
+		if (peeked || end)
+			return;
+
+		final int c = skip();
+		if (c == -1) {
+			end = true;
+			return;
+		}
+
+		length = 0;
+		punctuation = isPunctuation(c);
+
+		if (punctuation) {
+			append(c);
+		} else if (c == '"') {
+			while (true) {
+				final int next = read();
+				if (next == -1)
+					throw error("string not closed");
+				if (next == '"')
+					break;
+				append(next);
+			}
+		} else {
+			append(c);
+			while (true) {
+				final int next = peekByte();
+				if (next == -1 || isSpace(next) || isPunctuation(next))
+					break;
+				append(read());
+			}
+		}
+		peeked = true;
+	}
+
+	/**
+	 * @return the current token, with the characters outside ASCII decoded as UTF-8
+	 */
+	private String text() {
+		for (int i = 0; i < length; i++) {
+			if (token[i] > 0x7F) {
+				final byte[] bytes = new byte[length];
+				for (int j = 0; j < length; j++)
+					bytes[j] = (byte) token[j];
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		}
+		return new String(token, 0, length);
+	}
+
+	private String describe() {
+		return end ? "the end of the file" : "'" + text() + "'";
+	}
+
+	/**
+	 * @return true if there is another token
+	 */
+	public boolean hasNext() {
+		scan();
+		return !end;
+	}
+
+	/**
+	 * @param c a punctuation character
+	 * @return true if the next token is the given character
+	 */
+	public boolean isNext(char c) {
+		scan();
+		return !end && punctuation && token[0] == c;
+	}
+
+	/**
+	 * Consumes the next token if it is the given punctuation character.
+	 *
+	 * @param c a punctuation character
+	 * @return true if the token has been consumed
+	 */
+	public boolean accept(char c) {
+		if (!isNext(c))
+			return false;
+		peeked = false;
+		return true;
+	}
+
+	/**
+	 * Consumes the next token, that must be the given punctuation character.
+	 *
+	 * @param c a punctuation character
+	 */
+	public void expect(char c) {
+		if (!accept(c))
+			throw error("expected '" + c + "' but found " + describe());
+	}
+
+	/**
+	 * @return the next token, of any kind
+	 */
+	public String next() {
+		scan();
+		if (end)
+			throw error("unexpected end of file");
+		peeked = false;
+		return text();
+	}
+
+	/**
+	 * @return the next token, that must be a word or a quoted string
+	 */
+	public String nextWord() {
+		scan();
+		if (end || punctuation)
+			throw error("expected a name but found " + describe());
+		peeked = false;
+		return text();
+	}
+
+	/**
+	 * Reads the text up to the first of the given characters, without consuming it. The text can contain white spaces
+	 * and punctuation characters other than the given ones, as in the names of some states.
+	 *
+	 * @param stops the characters that end the text
+	 * @return the text, without leading and trailing white spaces
+	 */
+	public String nextText(String stops) {
+		if (peeked)
+			throw new IllegalStateException("A token has already been read");
+
+		int c = skip();
+		if (c == -1 || stops.indexOf(c) >= 0) {
+			end = c == -1;
+			throw error("expected a name but found " + (end ? "the end of the file" : "'" + (char) c + "'"));
+		}
+
+		length = 0;
+		punctuation = false;
+		while (true) {
+			append(c);
+			final int next = peekByte();
+			if (next == -1)
+				throw new BIFFormatException(line, column + 1, "unexpected end of file");
+			if (stops.indexOf(next) >= 0)
+				break;
+			c = read();
+		}
+
+		while (isSpace(token[length - 1]))
+			length--;
+		return text();
+	}
+
+	/**
+	 * @return the next token as an integer
+	 */
+	public int nextInt() {
+		scan();
+		if (end || punctuation)
+			throw error("expected an integer but found " + describe());
+
+		final int value;
+		try {
+			value = ParseUtil.parseInt(token, length);
+		} catch (NumberFormatException e) {
+			throw new BIFFormatException(tokenLine, tokenColumn, e.getMessage(), e);
+		}
+
+		peeked = false;
+		return value;
+	}
+
+	/**
+	 * @return the next token as a double
+	 */
+	public double nextDouble() {
+		scan();
+		if (end || punctuation)
+			throw error("expected a number but found " + describe());
+
+		final double value;
+		try {
+			value = ParseUtil.parseDouble(token, length);
+		} catch (NumberFormatException e) {
+			throw new BIFFormatException(tokenLine, tokenColumn, "expected a number but found " + describe(), e);
+		}
+
+		peeked = false;
+		return value;
+	}
+
+	/**
+	 * @return the line of the last token, starting from 1
+	 */
+	public int getLine() {
+		return tokenLine;
+	}
+
+	/**
+	 * @return the column of the first character of the last token, starting from 1
+	 */
+	public int getColumn() {
+		return tokenColumn;
+	}
+
+	/**
+	 * @param message description of the error
+	 * @return an exception with the position of the current token
+	 */
+	public BIFFormatException error(String message) {
+		return new BIFFormatException(tokenLine, tokenColumn, message);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,41 @@
+package ch.idsia.crema.model.io.bin;
+
+/**
+ * Constants of the binary format of the models.
+ * <p>
+ * A file starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the version of the format, the kind of
+ * model, the length of the payload and the CRC32 checksum of the payload. The payload contains the variables with
+ * their sizes, the parents of each variable and then the factor of each variable. All values are big-endian; arrays
+ * are written as their length followed by the values, so that they can be read in bulk.
+ */
+final class BinaryFormat {
+
+	/**
+	 * The bytes "CRMB".
+	 */
+	static final int MAGIC = 0x43524D42;
+
+	static final short VERSION = 1;
+
+	static final int HEADER_SIZE = 4 + 2 + 2 + 8 + 8;
+
+	// kind of model
+	static final short DAG_MODEL = 0;
+	static final short BAYESIAN_NETWORK = 1;
+
+	// kind of factor
+	static final byte NO_FACTOR = 0;
+	static final byte BAYESIAN = 1;
+	static final byte VERTEX = 2;
+	static final byte INTERVAL = 3;
+	static final byte HALFSPACE = 4;
+
+	// relationship of a linear constraint
+	static final byte EQ = 0;
+	static final byte LEQ = 1;
+	static final byte GEQ = 2;
+
+	private BinaryFormat() {
+	}
+
+}
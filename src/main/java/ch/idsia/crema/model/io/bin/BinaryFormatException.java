@@ -0,0 +1,22 @@
+package ch.idsia.crema.model.io.bin;
+
+/**
+ * Error in the content of a file in binary format, with the position of the byte that caused it.
+ */
+public class BinaryFormatException extends IllegalArgumentException {
+
+	private final long offset;
+
+	public BinaryFormatException(long offset, String message) {
+		super("Offset " + offset + ": " + message);
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the position of the error, from the start of the file
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+}
@@ -0,0 +1,255 @@
+package ch.idsia.crema.model.io.bin;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
+import ch.idsia.crema.factor.credal.linear.interval.IntervalDefaultFactor;
+import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceDefaultFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexDefaultFactor;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.DAGModel;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+import org.apache.commons.math3.optim.linear.Relationship;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static ch.idsia.crema.model.io.bin.BinaryFormat.*;
+
+/**
+ * Reads the models written by {@link BinaryModelWriter}. Files are mapped in memory and the arrays of data are read in
+ * bulk. The header and the checksum of the payload are verified before building the model.
+ */
+public class BinaryModelReader {
+
+	private final ByteBuffer buffer;
+
+	private BinaryModelReader(ByteBuffer buffer) {
+		this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Reads a model from the given file.
+	 *
+	 * @param filename the file to read
+	 * @param <T>      the type of the model, {@link BayesianNetwork} or {@link DAGModel}
+	 * @return the model in the file
+	 * @throws IOException         if the file cannot be read
+	 * @throws BinaryFormatException if the content of the file is not valid
+	 */
+	public static <T> T read(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer);
+		}
+	}
+
+	/**
+	 * Reads a model from the remaining bytes of the given buffer. The position of the buffer is not changed.
+	 *
+	 * @param buffer the content of a file
+	 * @param <T>    the type of the model, {@link BayesianNetwork} or {@link DAGModel}
+	 * @return the model in the buffer
+	 * @throws BinaryFormatException if the content is not valid
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T read(ByteBuffer buffer) {
+		return (T) new BinaryModelReader(buffer).readModel();
+	}
+
+	private DAGModel<?> readModel() {
+		try {
+			final short kind = readHeader();
+			return kind == BAYESIAN_NETWORK ? readModel(new BayesianNetwork()) : readModel(new DAGModel<>());
+		} catch (BufferUnderflowException e) {
+			throw new BinaryFormatException(buffer.position(), "unexpected end of data");
+		}
+	}
+
+	private short readHeader() {
+		if (buffer.remaining() < HEADER_SIZE)
+			throw new BinaryFormatException(0, "missing header");
+
+		final int magic = buffer.getInt();
+		if (magic != MAGIC)
+			throw new BinaryFormatException(0, "not a model file");
+
+		final short version = buffer.getShort();
+		if (version != VERSION)
+			throw new BinaryFormatException(4, "unsupported version " + version);
+
+		final short kind = buffer.getShort();
+		if (kind != DAG_MODEL && kind != BAYESIAN_NETWORK)
+			throw new BinaryFormatException(6, "unknown kind of model " + kind);
+
+		final long length = buffer.getLong();
+		if (length != buffer.remaining() - Long.BYTES)
+			throw new BinaryFormatException(8,
+					"expected " + length + " bytes of data, found " + (buffer.remaining() - Long.BYTES));
+
+		final long checksum = buffer.getLong();
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		if (checksum != crc.getValue())
+			throw new BinaryFormatException(16, "checksum mismatch");
+
+		return kind;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <F extends GenericFactor, M extends DAGModel<F>> M readModel(M model) {
+		final int n = readCount();
+		final int[] variables = new int[n];
+		for (int i = 0; i < n; i++) {
+			variables[i] = buffer.getInt();
+			model.addVariable(variables[i], buffer.getInt());
+		}
+
+		for (int v : variables)
+			model.addParents(v, readInts());
+
+		for (int v : variables) {
+			final int offset = buffer.position();
+			final GenericFactor factor = readFactor();
+			if (factor == null)
+				continue;
+			if (model instanceof BayesianNetwork && !(factor instanceof BayesianDefaultFactor))
+				throw new BinaryFormatException(offset, "factor of variable " + v + " is not Bayesian");
+			model.setFactor(v, (F) factor);
+		}
+
+		if (buffer.hasRemaining())
+			throw new BinaryFormatException(buffer.position(), "unexpected data after the model");
+
+		return model;
+	}
+
+	private GenericFactor readFactor() {
+		final int offset = buffer.position();
+		final byte tag = buffer.get();
+
+		switch (tag) {
+			case NO_FACTOR:
+				return null;
+
+			case BAYESIAN: {
+				final Strides domain = readStrides();
+				return new BayesianDefaultFactor(domain, readDoubles());
+			}
+
+			case VERTEX: {
+				final Strides data = readStrides();
+				final Strides separation = readStrides();
+				final double[][][] vertices = new double[separation.getCombinations()][][];
+				for (int i = 0; i < vertices.length; i++) {
+					final int count = buffer.getInt();
+					if (count < 0)
+						continue;
+					vertices[i] = new double[checkCount(count)][];
+					for (int j = 0; j < count; j++)
+						vertices[i][j] = readDoubles();
+				}
+				return new VertexDefaultFactor(data, separation, vertices);
+			}
+
+			case INTERVAL: {
+				final Strides data = readStrides();
+				final Strides separation = readStrides();
+				final double[][] lower = new double[separation.getCombinations()][];
+				final double[][] upper = new double[separation.getCombinations()][];
+				for (int i = 0; i < lower.length; i++) {
+					lower[i] = readDoubles();
+					upper[i] = readDoubles();
+				}
+				return new IntervalDefaultFactor(data, separation, lower, upper);
+			}
+
+			case HALFSPACE: {
+				final Strides data = readStrides();
+				final Strides separation = readStrides();
+				final TIntObjectMap<List<LinearConstraint>> constraints = new TIntObjectHashMap<>();
+				for (int i = 0; i < separation.getCombinations(); i++) {
+					final int count = buffer.getInt();
+					if (count < 0)
+						continue;
+					final List<LinearConstraint> list = new ArrayList<>(checkCount(count));
+					for (int j = 0; j < count; j++) {
+						final Relationship relationship = readRelationship();
+						final double value = buffer.getDouble();
+						list.add(new LinearConstraint(readDoubles(), relationship, value));
+					}
+					constraints.put(i, list);
+				}
+				return new SeparateHalfspaceDefaultFactor(data, separation, constraints);
+			}
+
+			default:
+				throw new BinaryFormatException(offset, "unknown kind of factor " + tag);
+		}
+	}
+
+	private Relationship readRelationship() {
+		final int offset = buffer.position();
+		final byte rel = buffer.get();
+		switch (rel) {
+			case EQ:
+				return Relationship.EQ;
+			case LEQ:
+				return Relationship.LEQ;
+			case GEQ:
+				return Relationship.GEQ;
+			default:
+				throw new BinaryFormatException(offset, "unknown relationship " + rel);
+		}
+	}
+
+	private Strides readStrides() {
+		final int offset = buffer.position();
+		final int[] variables = readInts();
+		final int[] sizes = readInts();
+		if (variables.length != sizes.length)
+			throw new BinaryFormatException(offset,
+					"domain with " + variables.length + " variables and " + sizes.length + " sizes");
+		return new Strides(variables, sizes);
+	}
+
+	/**
+	 * Reads the length of an array and checks that it is not larger than the remaining data, to fail before allocating
+	 * memory for a corrupted length.
+	 */
+	private int readCount() {
+		return checkCount(buffer.getInt());
+	}
+
+	private int checkCount(int count) {
+		if (count < 0 || count > buffer.remaining())
+			throw new BinaryFormatException(buffer.position() - Integer.BYTES, "invalid length " + count);
+		return count;
+	}
+
+	private int[] readInts() {
+		final int[] values = new int[readCount()];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + values.length * Integer.BYTES);
+		return values;
+	}
+
+	private double[] readDoubles() {
+		final double[] values = new double[readCount()];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + values.length * Double.BYTES);
+		return values;
+	}
+
+}
@@ -0,0 +1,251 @@
+package ch.idsia.crema.model.io.bin;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.credal.linear.interval.IntervalDefaultFactor;
+import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceDefaultFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexDefaultFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexLogFactor;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.DAGModel;
+import gnu.trove.map.TIntObjectMap;
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static ch.idsia.crema.model.io.bin.BinaryFormat.*;
+
+/**
+ * Writes a {@link DAGModel} in binary format, to be read with {@link BinaryModelReader}. The supported factors are
+ * {@link BayesianFactor}s, stored as a table of probabilities and read as {@link BayesianDefaultFactor}s,
+ * {@link VertexDefaultFactor}s, {@link IntervalDefaultFactor}s, with the bounds written in normal space, and
+ * {@link SeparateHalfspaceDefaultFactor}s.
+ * <p>
+ * The data are written through a small buffer: only the factor being written is kept in memory.
+ */
+public class BinaryModelWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final DAGModel<?> model;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CRC32 crc = new CRC32();
+
+	private FileChannel channel;
+	private long length;
+
+	public BinaryModelWriter(DAGModel<?> model) {
+		this.model = model;
+	}
+
+	/**
+	 * Writes the model to the given file.
+	 *
+	 * @param model    the model to write
+	 * @param filename the output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(DAGModel<?> model, String filename) throws IOException {
+		new BinaryModelWriter(model).write(filename);
+	}
+
+	/**
+	 * @param filename the output file
+	 * @throws IOException              if the file cannot be written
+	 * @throws IllegalArgumentException if the model has a factor that is not supported
+	 */
+	public void write(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Path.of(filename),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			this.channel = channel;
+			this.length = 0;
+			this.crc.reset();
+
+			// the header is written at the end, when length and checksum are known
+			channel.position(HEADER_SIZE);
+			writeModel();
+			flush();
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putShort(VERSION);
+			header.putShort(model instanceof BayesianNetwork ? BAYESIAN_NETWORK : DAG_MODEL);
+			header.putLong(length);
+			header.putLong(crc.getValue());
+			header.flip();
+
+			channel.position(0);
+			while (header.hasRemaining())
+				channel.write(header);
+		} finally {
+			this.channel = null;
+		}
+	}
+
+	private void writeModel() throws IOException {
+		final int[] variables = model.getVariables();
+
+		putInt(variables.length);
+		for (int v : variables) {
+			putInt(v);
+			putInt(model.getSize(v));
+		}
+
+		for (int v : variables)
+			putInts(model.getParents(v));
+
+		for (int v : variables)
+			writeFactor(model.getFactor(v));
+	}
+
+	private void writeFactor(GenericFactor factor) throws IOException {
+		if (factor == null) {
+			putByte(NO_FACTOR);
+
+		} else if (factor instanceof BayesianFactor) {
+			final BayesianFactor f = (BayesianFactor) factor;
+			putByte(BAYESIAN);
+			putStrides(f.getDomain());
+
+			final double[] data;
+			if (f.getClass() == BayesianDefaultFactor.class) {
+				data = f.getData();
+			} else {
+				// log, logic and functional factors are written as tables of probabilities
+				data = new double[f.getDomain().getCombinations()];
+				for (int i = 0; i < data.length; i++)
+					data[i] = f.getValueAt(i);
+			}
+			putDoubles(data);
+
+		} else if (factor instanceof VertexDefaultFactor && !(factor instanceof VertexLogFactor)) {
+			final VertexDefaultFactor f = (VertexDefaultFactor) factor;
+			putByte(VERTEX);
+			putStrides(f.getDataDomain());
+			putStrides(f.getSeparatingDomain());
+
+			for (int i = 0; i < f.getSeparatingDomain().getCombinations(); i++) {
+				final double[][] vertices = f.getVerticesAt(i);
+				if (vertices == null) {
+					putInt(-1);
+					continue;
+				}
+				putInt(vertices.length);
+				for (double[] vertex : vertices)
+					putDoubles(vertex);
+			}
+
+		} else if (factor instanceof IntervalDefaultFactor) {
+			final IntervalDefaultFactor f = (IntervalDefaultFactor) factor;
+			putByte(INTERVAL);
+			putStrides(f.getDataDomain());
+			putStrides(f.getSeparatingDomain());
+
+			for (int i = 0; i < f.getSeparatingDomain().getCombinations(); i++) {
+				putDoubles(f.getLowerAt(i));
+				putDoubles(f.getUpperAt(i));
+			}
+
+		} else if (factor instanceof SeparateHalfspaceDefaultFactor) {
+			final SeparateHalfspaceDefaultFactor f = (SeparateHalfspaceDefaultFactor) factor;
+			putByte(HALFSPACE);
+			putStrides(f.getDataDomain());
+			putStrides(f.getSeparatingDomain());
+
+			final TIntObjectMap<List<LinearConstraint>> data = f.getData();
+			for (int i = 0; i < f.getSeparatingDomain().getCombinations(); i++) {
+				final List<LinearConstraint> constraints = data.get(i);
+				if (constraints == null) {
+					putInt(-1);
+					continue;
+				}
+				putInt(constraints.size());
+				for (LinearConstraint c : constraints) {
+					switch (c.getRelationship()) {
+						case EQ:
+							putByte(EQ);
+							break;
+						case LEQ:
+							putByte(LEQ);
+							break;
+						default:
+							putByte(GEQ);
+					}
+					putDouble(c.getValue());
+					putDoubles(c.getCoefficients().toArray());
+				}
+			}
+
+		} else {
+			throw new IllegalArgumentException("Cannot serialize factor of class " + factor.getClass());
+		}
+	}
+
+	private void putStrides(Strides domain) throws IOException {
+		putInts(domain.getVariables());
+		putInts(domain.getSizes());
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes)
+			flush();
+	}
+
+	private void putByte(byte value) throws IOException {
+		ensure(Byte.BYTES);
+		buffer.put(value);
+	}
+
+	private void putInt(int value) throws IOException {
+		ensure(Integer.BYTES);
+		buffer.putInt(value);
+	}
+
+	private void putDouble(double value) throws IOException {
+		ensure(Double.BYTES);
+		buffer.putDouble(value);
+	}
+
+	private void putInts(int[] values) throws IOException {
+		putInt(values.length);
+		int i = 0;
+		while (i < values.length) {
+			ensure(Integer.BYTES);
+			final int n = Math.min(values.length - i, buffer.remaining() / Integer.BYTES);
+			buffer.asIntBuffer().put(values, i, n);
+			buffer.position(buffer.position() + n * Integer.BYTES);
+			i += n;
+		}
+	}
+
+	private void putDoubles(double[] values) throws IOException {
+		putInt(values.length);
+		int i = 0;
+		while (i < values.length) {
+			ensure(Double.BYTES);
+			final int n = Math.min(values.length - i, buffer.remaining() / Double.BYTES);
+			buffer.asDoubleBuffer().put(values, i, n);
+			buffer.position(buffer.position() + n * Double.BYTES);
+			i += n;
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		crc.update(buffer.duplicate());
+		length += buffer.remaining();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
@@ -2,23 +2,68 @@ package ch.idsia.crema.model.io.dot;
 
 import ch.idsia.crema.model.graphical.GraphicalModel;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class DotSerialize {
 
 	public String run(GraphicalModel<?> gm) {
-		StringBuilder builder = new StringBuilder();
+		StringWriter writer = new StringWriter();
+		try {
+			write(gm, writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the graph of the model in dot format to the given file.
+	 *
+	 * @param gm       the model
+	 * @param filename the output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(GraphicalModel<?> gm, String filename) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(Path.of(filename))) {
+			write(gm, writer);
+		}
+	}
 
-		builder.append("digraph model {\n");
+	/**
+	 * Writes the graph of the model in dot format, one node or arc at a time. The output is not closed.
+	 *
+	 * @param gm  the model
+	 * @param out the output
+	 * @throws IOException if the output cannot be written
+	 */
+	public void write(GraphicalModel<?> gm, Writer out) throws IOException {
+		out.write("digraph model {\n");
 		for (int i : gm.getVariables()) {
-			builder.append("   node").append(i).append(" [label=\"").append(i).append(" (").append(gm.getSize(i)).append(")\"];\n");
+			out.write("   node");
+			out.write(Integer.toString(i));
+			out.write(" [label=\"");
+			out.write(Integer.toString(i));
+			out.write(" (");
+			out.write(Integer.toString(gm.getSize(i)));
+			out.write(")\"];\n");
 		}
 
 		for (int i : gm.getVariables()) {
 			for (int child : gm.getChildren(i)) {
-				builder.append("   node").append(i).append(" -> node").append(child).append(";\n");
+				out.write("   node");
+				out.write(Integer.toString(i));
+				out.write(" -> node");
+				out.write(Integer.toString(child));
+				out.write(";\n");
 			}
 		}
-		builder.append("}");
-		return builder.toString();
+		out.write("}");
+		out.flush();
 	}
 
 }
@@ -8,6 +8,7 @@ import ch.idsia.crema.utility.ArraysUtil;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Parser for Bayesian Networks in UAI format
@@ -29,6 +30,11 @@ public class BayesUAIParser extends NetUAIParser<BayesianNetwork> {
 		TYPE = UAITypes.BAYES;
 	}
 
+	public BayesUAIParser(UAITokenizer tokenizer) {
+		super(tokenizer);
+		TYPE = UAITypes.BAYES;
+	}
+
 	@Override
 	protected void processFile() {
 		parseType();
@@ -76,17 +82,19 @@ public class BayesUAIParser extends NetUAIParser<BayesianNetwork> {
 			// Build the domain with the head/left variable at the end
 			final Domain dom = model.getDomain(parents[i]).concat(model.getDomain(i));
 
-			try {
+			if (tokenizer.isNextNumber()) {
 				double[] data = popDoubles();
+				final int combinations = IntStream.of(dom.getSizes()).reduce(1, (a, b) -> a * b);
+				if (data.length != combinations)
+					throw tokenizer.error("expected " + combinations + " values for variable " + i + " but found " + data.length);
 
 				if (parents[i].length > 0)
 					data = ArraysUtil.changeEndian(data, dom.getSizes());
 				factors[i] = BayesianFactorFactory.factory().domain(dom).data(data).get();
 
-			} catch (Exception ignored) {
+			} else {
 				// logic factors
-				setOffset(getOffset() - 1);
-				String e = popElement();
+				final String e = popElement();
 
 				switch (e) {
 					case "AND": {
@@ -122,7 +130,7 @@ public class BayesUAIParser extends NetUAIParser<BayesianNetwork> {
 					}
 
 					default:
-						throw new IllegalArgumentException("Unknown factor type: " + e);
+						throw tokenizer.error("unknown factor type: " + e);
 				}
 			}
 		}
@@ -45,8 +45,13 @@ public class BayesUAIWriter extends NetUAIWriter<BayesianNetwork> {
 
 				append(probs.length);
 
-				for (double[] p : ArraysUtil.reshape2d(probs, probs.length / vsize, vsize))
-					append("", str(p));
+				// one line for each combination of the parents, starting with a space
+				for (int i = 0; i < probs.length; i++) {
+					print(" ");
+					print(Double.toString(probs[i]));
+					if ((i + 1) % vsize == 0)
+						newLine();
+				}
 
 			} else if (f instanceof BayesianLogicFactor) {
 				if (f instanceof BayesianAndFactor) {
@@ -56,13 +61,16 @@ public class BayesUAIWriter extends NetUAIWriter<BayesianNetwork> {
 				} else if (f instanceof BayesianNoisyOrFactor) {
 					append("NOISY-OR");
 					final double[] strengths = ((BayesianNoisyOrFactor) f).getStrengths();
-					append(str(strengths.length), str(strengths));
+					print(false, strengths.length);
+					append(true, strengths);
 				}
 				final int[] parents = ((BayesianLogicFactor) f).getParents();
 				final int[] trueStates = ((BayesianLogicFactor) f).getTrueStates();
 
-				append(str(parents.length), str(parents));
-				append(str(trueStates.length), str(trueStates));
+				print(false, parents.length);
+				append(true, parents);
+				print(false, trueStates.length);
+				append(true, trueStates);
 
 			} else if (f instanceof BayesianNotFactor) {
 				append("NOT");
@@ -92,14 +100,9 @@ public class BayesUAIWriter extends NetUAIWriter<BayesianNetwork> {
 		// add the factor domains with children at the end
 		for (int v : target.getVariables()) {
 			int[] parents = ArraysUtil.reverse(target.getParents(v));
-			if (parents.length == 0)
-				append("1", str(v));
-			else
-				append(
-						str(parents.length + 1),
-						str(parents),
-						str(v)
-				);
+			print(false, parents.length + 1);
+			print(true, parents);
+			append(true, v);
 		}
 	}
 
@@ -24,6 +24,11 @@ public class EvidUAIParser extends UAIParser<TIntIntMap[]> {
 		TYPE = UAITypes.EVID;
 	}
 
+	public EvidUAIParser(UAITokenizer tokenizer) {
+		super(tokenizer);
+		TYPE = UAITypes.EVID;
+	}
+
 	@Override
 	protected void processFile() {
 		parseType();
@@ -31,6 +31,11 @@ public class HCredalUAIParser extends NetUAIParser<GraphicalModel<SeparateHalfsp
 		TYPE = UAITypes.HCREDAL;
 	}
 
+	public HCredalUAIParser(UAITokenizer tokenizer) {
+		super(tokenizer);
+		TYPE = UAITypes.HCREDAL;
+	}
+
 	@Override
 	protected void processFile() {
 		parseType();
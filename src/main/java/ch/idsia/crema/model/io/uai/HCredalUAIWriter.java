@@ -11,7 +11,6 @@ import org.apache.commons.math3.optim.linear.LinearConstraint;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.stream.Collectors;
 
 public class HCredalUAIWriter extends NetUAIWriter<DAGModel<? extends OperableFactor<?>>> {
 
@@ -60,11 +59,12 @@ public class HCredalUAIWriter extends NetUAIWriter<DAGModel<? extends OperableFa
 
 			// write values
 			append(K.size());
-			append(K.stream()
-					.map(c -> ArraysUtil.replace(new double[]{c.getValue()}, -0.0, 0.0))
-					.map(this::str)
-					.collect(Collectors.joining(" "))
-			);
+			boolean separate = false;
+			for (LinearConstraint c : K) {
+				print(separate, c.getValue() == 0.0 ? 0.0 : c.getValue());
+				separate = true;
+			}
+			newLine();
 		}
 
 	}
@@ -27,6 +27,10 @@ public abstract class NetUAIParser<T extends GraphicalModel<? extends GenericFac
 		super(lines);
 	}
 
+	public NetUAIParser(UAITokenizer tokenizer) {
+		super(tokenizer);
+	}
+
 	// TODO: this assume that variables take consecutive ids from 0
 	protected void parseVariablesInfo() {
 		// Parsing the number of variables in the network
@@ -33,14 +33,9 @@ public abstract class NetUAIWriter<T extends DAGModel<? extends OperableFactor<?
 		// Add the factor domains with children at the end
 		for (int v : target.getVariables()) {
 			int[] parents = target.getParents(v);
-			if (parents.length == 0)
-				append("1", str(v));
-			else
-				append(
-						str(parents.length + 1),
-						str(parents),
-						str(v)
-				);
+			print(false, parents.length + 1);
+			print(true, parents);
+			append(true, v);
 		}
 	}
 
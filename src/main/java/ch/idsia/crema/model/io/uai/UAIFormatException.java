@@ -0,0 +1,36 @@
+package ch.idsia.crema.model.io.uai;
+
+/**
+ * Error in the content of a file in UAI format, with the position of the token that caused it.
+ */
+public class UAIFormatException extends IllegalArgumentException {
+
+	private final int line;
+	private final int column;
+
+	public UAIFormatException(int line, int column, String message) {
+		super("Line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+	public UAIFormatException(int line, int column, String message, Throwable cause) {
+		this(line, column, message);
+		initCause(cause);
+	}
+
+	/**
+	 * @return the line of the error, starting from 1
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column of the error, starting from 1
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+}
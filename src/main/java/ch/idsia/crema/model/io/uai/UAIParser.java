@@ -3,8 +3,10 @@ package ch.idsia.crema.model.io.uai;
 import ch.idsia.crema.model.io.TypesIO;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,39 +18,59 @@ import java.util.stream.Collectors;
 
 public abstract class UAIParser<T> {
 
-	protected String[] elements = null;
-	private int offset = 0;
+	/**
+	 * Source of the tokens of the file.
+	 */
+	protected UAITokenizer tokenizer;
 	private String parsedType = "";
 
+	/**
+	 * True if the tokenizer has been opened by this parser and has to be closed after parsing.
+	 */
+	private boolean owner = false;
+
 	protected TypesIO TYPE;
 
+	/**
+	 * @deprecated the lines are read through {@link #tokenizer}; this field is only set by the
+	 * {@link #UAIParser(List)} constructor and it is not read by the parsers.
+	 */
+	@Deprecated
 	protected List<String> lines;
 
+	/**
+	 * @deprecated use {@link #tokenizer}; this array is filled only by {@link #readContent()}.
+	 */
+	@Deprecated
+	protected String[] elements = null;
+	private int offset = 0;
+
 	@SuppressWarnings("unchecked")
 	public static <T> T read(String filename) throws IOException {
 		if (!(filename.endsWith(".uai") || filename.endsWith(".uai.evid") || filename.endsWith(".uai.do"))) {
 			throw new IllegalArgumentException("Unknown file extension");
 		}
 
-		List<String> lines = readLines(filename);
-		TypesIO type = UAITypes.valueOfLabel(getIOTypeStr(lines.get(0)));
-
-		Object parsedObject;
-
-		// Parse the file
-		if (type == UAITypes.HCREDAL) {
-			parsedObject = new HCredalUAIParser(lines).parse();
-		} else if (type == UAITypes.VCREDAL) {
-			parsedObject = new VCredalUAIParser(lines).parse();
-		} else if (type == UAITypes.BAYES) {
-			parsedObject = new BayesUAIParser(lines).parse();
-		} else if (type == UAITypes.EVID) {
-			parsedObject = new EvidUAIParser(lines).parse();
-		} else {
-			throw new IllegalArgumentException("Unknown type to be parsed");
+		try (UAITokenizer tokenizer = UAITokenizer.open(filename)) {
+			TypesIO type = UAITypes.valueOfLabel(tokenizer.peek());
+
+			Object parsedObject;
+
+			// Parse the file
+			if (type == UAITypes.HCREDAL) {
+				parsedObject = new HCredalUAIParser(tokenizer).parse();
+			} else if (type == UAITypes.VCREDAL) {
+				parsedObject = new VCredalUAIParser(tokenizer).parse();
+			} else if (type == UAITypes.BAYES) {
+				parsedObject = new BayesUAIParser(tokenizer).parse();
+			} else if (type == UAITypes.EVID) {
+				parsedObject = new EvidUAIParser(tokenizer).parse();
+			} else {
+				throw new IllegalArgumentException("Unknown type to be parsed");
+			}
+
+			return (T) parsedObject;
 		}
-
-		return (T) parsedObject;
 	}
 
 	public static List<String> readLines(String filename) throws IOException {
@@ -70,19 +92,66 @@ public abstract class UAIParser<T> {
 	}
 
 	public UAIParser(String filename) throws IOException {
-		lines = readLines(filename);
-		TYPE = UAITypes.valueOfLabel(getIOTypeStr(lines.get(0)));
+		tokenizer = UAITokenizer.open(filename);
+		owner = true;
+		try {
+			TYPE = UAITypes.valueOfLabel(tokenizer.peek());
+		} catch (RuntimeException e) {
+			tokenizer.close();
+			throw e;
+		}
 	}
 
 	public UAIParser(List<String> lines) {
 		this.lines = lines;
+		this.tokenizer = UAITokenizer.of(lines);
 	}
 
+	/**
+	 * @param tokenizer source of the tokens, it is not closed by the parser
+	 */
+	public UAIParser(UAITokenizer tokenizer) {
+		this.tokenizer = tokenizer;
+	}
+
+	/**
+	 * Reads all the remaining tokens into {@link #elements}. After this call the pop methods read from the array and
+	 * {@link #getOffset()} is the position of the next token in it.
+	 *
+	 * @deprecated the parsers read the tokens one at a time from {@link #tokenizer}, without keeping the file in
+	 * memory. Kept for the subclasses that read {@link #elements} directly: they must call this method first.
+	 */
+	@Deprecated
 	protected void readContent() {
-		String content = String.join(" ", lines);
+		final List<String> tokens = new ArrayList<>();
+		while (tokenizer.hasNext())
+			tokens.add(tokenizer.next());
+		elements = tokens.toArray(new String[0]);
+		offset = 0;
+	}
+
+	/**
+	 * @deprecated only meaningful after {@link #readContent()}
+	 */
+	@Deprecated
+	protected void incrementOffset(int n) {
+		this.offset += n;
+	}
+
+	/**
+	 * @deprecated only meaningful after {@link #readContent()}
+	 */
+	@Deprecated
+	protected int getOffset() {
+		return offset;
+	}
 
-		// Splitting file elements (spaces, tabs and newlines have the same effect)
-		elements = content.split("[ \\t\\n]+");
+	/**
+	 * @deprecated only meaningful after {@link #readContent()}
+	 */
+	@Deprecated
+	protected void setOffset(int offset) {
+		this.offset = offset;
 	}
 
 	protected abstract void processFile();
@@ -91,10 +160,19 @@ public abstract class UAIParser<T> {
 
 	public T parse() {
 		T parsedObj;
-		readContent();
-		processFile();
-		sanityChecks();
-		parsedObj = build();
+		try {
+			processFile();
+			sanityChecks();
+			parsedObj = build();
+		} finally {
+			if (owner) {
+				try {
+					tokenizer.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
 		return parsedObj;
 	}
 
@@ -103,21 +181,10 @@ public abstract class UAIParser<T> {
 			throw new IllegalArgumentException("Wrong type " + parsedType + " instead of " + TYPE);
 	}
 
-	protected void incrementOffset(int n) {
-		this.offset += n;
-	}
-
-	protected int getOffset() {
-		return offset;
-	}
-
-	protected void setOffset(int offset) {
-		this.offset = offset;
-	}
-
 	protected String popElement() {
-		incrementOffset(1);
-		return elements[getOffset() - 1];
+		if (elements != null)
+			return elements[offset++];
+		return tokenizer.next();
 	}
 
 	protected void parseType() {
@@ -125,15 +192,21 @@ public abstract class UAIParser<T> {
 	}
 
 	protected int popInteger() {
-		return Integer.parseInt(popElement());
+		if (elements != null)
+			return Integer.parseInt(popElement());
+		return tokenizer.nextInt();
 	}
 
 	protected double popDouble() {
-		return Double.parseDouble(popElement());
+		if (elements != null)
+			return Double.parseDouble(popElement());
+		return tokenizer.nextDouble();
 	}
 
 	protected int[] popIntegers() {
 		final int numValues = popInteger();
+		if (numValues < 0)
+			throw tokenizer.error("negative number of values " + numValues);
 		final int[] data = new int[numValues];
 
 		for (int j = 0; j < numValues; j++) {
@@ -145,6 +218,8 @@ public abstract class UAIParser<T> {
 
 	protected double[] popDoubles() {
 		final int numValues = popInteger();
+		if (numValues < 0)
+			throw tokenizer.error("negative number of values " + numValues);
 		final double[] data = new double[numValues];
 
 		for (int j = 0; j < numValues; j++) {
@@ -0,0 +1,275 @@
+package ch.idsia.crema.model.io.uai;
+
+import ch.idsia.crema.utility.ParseUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Splits the content of a file in UAI format in tokens separated by white spaces. The content is read in blocks from
+ * the stream and numbers are parsed directly from the bytes of the token, so the memory used does not depend on the
+ * size of the file and no object is created for each number.
+ * <p>
+ * Lines that start with <code>//</code> or <code>#</code> are comments. Errors are reported with a
+ * {@link UAIFormatException} that contains the line and the column of the token.
+ */
+public class UAITokenizer implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+
+	private int line = 1;
+	private int column = 0;
+	private boolean lineStart = true;
+
+	/**
+	 * Characters of the current token.
+	 */
+	private char[] token = new char[64];
+	private int length = 0;
+	private int tokenLine = 1;
+	private int tokenColumn = 1;
+
+	/**
+	 * True if the current token has been read but not consumed.
+	 */
+	private boolean peeked = false;
+	private boolean end = false;
+
+	public UAITokenizer(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * @param filename the file to read
+	 * @return a tokenizer that reads from the given file, it must be closed
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static UAITokenizer open(String filename) throws IOException {
+		return new UAITokenizer(Files.newInputStream(Path.of(filename)));
+	}
+
+	/**
+	 * @param lines the lines of a file
+	 * @return a tokenizer over the given lines
+	 */
+	public static UAITokenizer of(List<String> lines) {
+		return new UAITokenizer(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private int read() {
+		if (position == limit) {
+			try {
+				limit = in.read(buffer, 0, buffer.length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+
+		final int c = buffer[position++] & 0xFF;
+		if (c == '\n') {
+			line++;
+			column = 0;
+			lineStart = true;
+		} else {
+			column++;
+		}
+		return c;
+	}
+
+	private int peekByte() {
+		if (position == limit) {
+			try {
+				limit = in.read(buffer, 0, buffer.length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position] & 0xFF;
+	}
+
+	private static boolean isSpace(int c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+	}
+
+	/**
+	 * Reads the next token in {@link #token}, if there is no current token.
+	 */
+	private void scan() {
+		if (peeked || end)
+			return;
+
+		int c;
+		while (true) {
+			final boolean first = lineStart;
+			c = read();
+			if (c == -1) {
+				end = true;
+				tokenLine = line;
+				tokenColumn = column + 1;
+				return;
+			}
+			if (c != '\n')
+				lineStart = false;
+
+			if (first && (c == '#' || (c == '/' && peekByte() == '/'))) {
+				// comment line
+				while (c != -1 && c != '\n')
+					c = read();
+				if (c == -1) {
+					end = true;
+					tokenLine = line;
+					tokenColumn = column + 1;
+					return;
+				}
+				continue;
+			}
+
+			if (!isSpace(c))
+				break;
+		}
+
+		tokenLine = line;
+		tokenColumn = column;
+		length = 0;
+		while (true) {
+			if (length == token.length) {
+				final char[] larger = new char[token.length * 2];
+				System.arraycopy(token, 0, larger, 0, length);
+				token = larger;
+			}
+			token[length++] = (char) c;
+
+			final int next = peekByte();
+			if (next == -1 || isSpace(next))
+				break;
+			c = read();
+		}
+		peeked = true;
+	}
+
+	/**
+	 * @return true if there is another token
+	 */
+	public boolean hasNext() {
+		scan();
+		return !end;
+	}
+
+	/**
+	 * @return the next token, without consuming it
+	 */
+	public String peek() {
+		scan();
+		if (end)
+			throw error("unexpected end of file");
+		return new String(token, 0, length);
+	}
+
+	/**
+	 * @return true if the next token starts as a number
+	 */
+	public boolean isNextNumber() {
+		scan();
+		if (end)
+			return false;
+		final char c = token[0];
+		return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+	}
+
+	/**
+	 * @return the next token
+	 */
+	public String next() {
+		final String s = peek();
+		peeked = false;
+		return s;
+	}
+
+	/**
+	 * @return the next token as an integer
+	 */
+	public int nextInt() {
+		scan();
+		if (end)
+			throw error("expected an integer but the file ended");
+
+		final int value;
+		try {
+			value = ParseUtil.parseInt(token, length);
+		} catch (NumberFormatException e) {
+			throw new UAIFormatException(tokenLine, tokenColumn, e.getMessage(), e);
+		}
+
+		peeked = false;
+		return value;
+	}
+
+	/**
+	 * @return the next token as a double
+	 */
+	public double nextDouble() {
+		scan();
+		if (end)
+			throw error("expected a number but the file ended");
+
+		final double value;
+		try {
+			value = ParseUtil.parseDouble(token, length);
+		} catch (NumberFormatException e) {
+			throw new UAIFormatException(tokenLine, tokenColumn, "expected a number but found '" + new String(token, 0, length) + "'", e);
+		}
+
+		peeked = false;
+		return value;
+	}
+
+	/**
+	 * @return the line of the last token, starting from 1
+	 */
+	public int getLine() {
+		return tokenLine;
+	}
+
+	/**
+	 * @return the column of the first character of the last token, starting from 1
+	 */
+	public int getColumn() {
+		return tokenColumn;
+	}
+
+	/**
+	 * @param message description of the error
+	 * @return an exception with the position of the current token
+	 */
+	public UAIFormatException error(String message) {
+		return new UAIFormatException(tokenLine, tokenColumn, message);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -5,25 +5,46 @@ import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
 import ch.idsia.crema.model.graphical.BayesianNetwork;
 import ch.idsia.crema.model.graphical.DAGModel;
 import ch.idsia.crema.model.io.TypesIO;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Base class of the writers of models in UAI format. The lines are written to the output as soon as they are built:
+ * only the data of the factor being written are kept in memory.
+ *
+ * @param <T> the type of the model
+ */
 public abstract class UAIWriter<T> {
 
+	private static final String NEWLINE = System.lineSeparator();
+
 	protected TypesIO TYPE;
 
 	protected T target;
 
+	/**
+	 * @deprecated the lines are written as soon as they are built and {@link #append(String...)} no longer adds them
+	 * here. The lines that a subclass adds to this list are written after the output of {@link #writeTarget()}.
+	 */
+	@Deprecated
 	protected List<String> lines = new ArrayList<>();
 
 	protected String filename;
 
+	/**
+	 * The output of {@link #writeTarget()}, available only while the target is being written.
+	 */
+	private Writer out;
+
 	@SuppressWarnings("unchecked")
 	public static void write(Object target, String filename) throws IOException {
 		if (HCredalUAIWriter.isCompatible(target))
@@ -42,43 +63,162 @@ public abstract class UAIWriter<T> {
 	}
 
 	protected String str(String... values) {
-		return StringUtils.join(values, " ");
+		return String.join(" ", values);
 	}
 
 	protected String str(double... values) {
-		return StringUtils.join(ArrayUtils.toObject(values), " ");
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				sb.append(' ');
+			sb.append(values[i]);
+		}
+		return sb.toString();
 	}
 
 	protected String str(int... values) {
-		return StringUtils.join(ArrayUtils.toObject(values), " ");
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				sb.append(' ');
+			sb.append(values[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes a token without separators.
+	 */
+	protected void print(String token) {
+		try {
+			out.write(token);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the values separated by a space, starting with a space if the line is not empty.
+	 *
+	 * @param separate true if a space must be written before the first value
+	 */
+	protected void print(boolean separate, double... values) {
+		for (double value : values) {
+			if (separate)
+				print(" ");
+			print(Double.toString(value));
+			separate = true;
+		}
+	}
+
+	/**
+	 * Writes the values separated by a space, starting with a space if the line is not empty.
+	 *
+	 * @param separate true if a space must be written before the first value
+	 */
+	protected void print(boolean separate, int... values) {
+		for (int value : values) {
+			if (separate)
+				print(" ");
+			print(Integer.toString(value));
+			separate = true;
+		}
+	}
+
+	/**
+	 * Ends the current line.
+	 */
+	protected void newLine() {
+		print(NEWLINE);
+	}
+
+	/**
+	 * Writes the values separated by a space and ends the line.
+	 *
+	 * @param separate true if a space must be written before the first value
+	 */
+	protected void append(boolean separate, double... values) {
+		print(separate, values);
+		newLine();
+	}
+
+	/**
+	 * Writes the values separated by a space and ends the line.
+	 *
+	 * @param separate true if a space must be written before the first value
+	 */
+	protected void append(boolean separate, int... values) {
+		print(separate, values);
+		newLine();
 	}
 
 	protected void append(String... line) {
-		lines.add(String.join(" ", line));
+		for (int i = 0; i < line.length; i++) {
+			if (i > 0)
+				print(" ");
+			print(line[i]);
+		}
+		newLine();
 	}
 
 	protected void append(double... values) {
-		append(str(values));
+		append(false, values);
 	}
 
 	protected void append(int... values) {
-		append(str(values));
+		append(false, values);
 	}
 
 	public void write() throws IOException {
+		try (Writer writer = Files.newBufferedWriter(Path.of(filename))) {
+			write(writer);
+		}
+	}
+
+	/**
+	 * Writes the target to the given output. The output is flushed but not closed.
+	 *
+	 * @param writer the output
+	 * @throws IOException if the output cannot be written
+	 */
+	public void write(Writer writer) throws IOException {
 		sanityChecks();
-		writeTarget();
-		writeToFile();
+		out = writer instanceof BufferedWriter || writer instanceof StringWriter ? writer : new BufferedWriter(writer);
+		try {
+			writeTarget();
+			for (String line : lines)
+				append(line);
+			out.flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			out = null;
+		}
 	}
 
+	/**
+	 * @return the lines of the target in UAI format
+	 */
 	public List<String> serialize() {
-		sanityChecks();
-		writeTarget();
+		final StringWriter writer = new StringWriter();
+		try {
+			write(writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		// each line, including the last one, ends with a separator
+		final List<String> lines = new ArrayList<>(Arrays.asList(writer.toString().split(NEWLINE, -1)));
+		lines.remove(lines.size() - 1);
 		return lines;
 	}
 
+	/**
+	 * @deprecated use {@link #write()}, this method does the same
+	 */
+	@Deprecated
 	protected void writeToFile() throws IOException {
-		Files.write(Path.of(filename), lines);
+		write();
 	}
 
 	protected void writeType() {
@@ -90,5 +230,3 @@ public abstract class UAIWriter<T> {
 	protected abstract void writeTarget();
 
 }
-
-
@@ -31,6 +31,11 @@ public class VCredalUAIParser extends NetUAIParser<GraphicalModel<VertexFactor>>
 		TYPE = UAITypes.VCREDAL;
 	}
 
+	public VCredalUAIParser(UAITokenizer tokenizer) {
+		super(tokenizer);
+		TYPE = UAITypes.VCREDAL;
+	}
+
 	@Override
 	protected void processFile() {
 		parseType();
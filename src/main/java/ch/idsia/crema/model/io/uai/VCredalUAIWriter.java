@@ -4,10 +4,6 @@ import ch.idsia.crema.core.Strides;
 import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
 import ch.idsia.crema.model.graphical.DAGModel;
 import ch.idsia.crema.utility.IndexIterator;
-import org.apache.commons.math3.optim.linear.LinearConstraint;
-
-import java.util.ArrayList;
-import java.util.Collection;
 
 public class VCredalUAIWriter extends NetUAIWriter<DAGModel<VertexFactor>> {
 
@@ -33,12 +29,8 @@ public class VCredalUAIWriter extends NetUAIWriter<DAGModel<VertexFactor>> {
 			Strides paDomain = target.getDomain(target.getParents(v)).reverseDomain();
 			IndexIterator iter = paDomain.getReorderedIterator(target.getParents(v));
 
-			Collection<LinearConstraint> K = new ArrayList<>();
-
-			int paComb = paDomain.getCombinations();
 			int vSize = target.getSize(v);
 
-			// transform constraints
 			while (iter.hasNext()) {
 				int j = iter.next();
 				double[][] vertex = f.getVerticesAt(j);
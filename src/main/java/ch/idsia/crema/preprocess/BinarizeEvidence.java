@@ -5,6 +5,7 @@ import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.model.graphical.DAGModel;
 import ch.idsia.crema.model.graphical.GraphicalModel;
 import ch.idsia.crema.model.graphical.MixedModel;
+import ch.idsia.crema.model.graphical.OverlayModel;
 import ch.idsia.crema.preprocess.creators.CreateFactor;
 import ch.idsia.crema.preprocess.creators.CreateFactorBayesian;
 import ch.idsia.crema.preprocess.creators.Instance;
@@ -75,7 +76,10 @@ public class BinarizeEvidence<F extends GenericFactor> implements ConverterEvide
 	 */
 	@Override
 	public MixedModel execute(GraphicalModel<F> original, TIntIntMap evidence) {
-		MixedModel model = new MixedModel((DAGModel<GenericFactor>) original.copy());
+		final DAGModel<GenericFactor> dag = original instanceof OverlayModel
+				? ((OverlayModel<GenericFactor>) original).toDAGModel()
+				: (DAGModel<GenericFactor>) original.copy();
+		MixedModel model = new MixedModel(dag);
 		int[] keys = evidence.keys();
 
 		// TODO: do we need to sort the keys????
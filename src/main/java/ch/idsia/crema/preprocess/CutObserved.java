@@ -59,4 +59,20 @@ public class CutObserved<F extends FilterableFactor<F>> implements TransformerEv
 		executeInPlace(copy, evidence);
 		return copy;
 	}
+
+	/**
+	 * Same as {@link #execute(GraphicalModel, TIntIntMap)}, but the returned model shares the parts that are not
+	 * modified with the original one, see {@link GraphicalModel#copyOnWrite()}. The original model must not be changed
+	 * while the returned one is in use.
+	 *
+	 * @param model    the model to be preprocessed
+	 * @param evidence a collection of instantiations containing variable - state
+	 *                 pairs
+	 * @return a copy-on-write view of the preprocessed model
+	 */
+	public GraphicalModel<F> executeOverlay(GraphicalModel<F> model, TIntIntMap evidence) {
+		GraphicalModel<F> copy = model.copyOnWrite();
+		executeInPlace(copy, evidence);
+		return copy;
+	}
 }
@@ -49,6 +49,22 @@ public class RemoveBarren<F extends GenericFactor> implements PreprocessorQuery<
 		return copy;
 	}
 
+	/**
+	 * Same as {@link #execute(GraphicalModel, TIntIntMap, int...)}, but the returned model shares the parts that are
+	 * not modified with the original one, see {@link GraphicalModel#copyOnWrite()}. The original model must not be
+	 * changed while the returned one is in use.
+	 *
+	 * @param model    the model to be processed
+	 * @param evidence the observed variable as a map of variable-states
+	 * @param query    the variable that will be queried
+	 * @return a copy-on-write view of the model without the barren variables
+	 */
+	public GraphicalModel<F> executeOverlay(GraphicalModel<F> model, TIntIntMap evidence, int... query) {
+		final GraphicalModel<F> copy = model.copyOnWrite();
+		executeInPlace(copy, evidence, query);
+		return copy;
+	}
+
 	/**
 	 * Update the evidence removing variable that where eliminated by the barren variables removal.
 	 * This operation is done inplace
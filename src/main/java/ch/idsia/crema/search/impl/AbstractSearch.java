@@ -3,8 +3,11 @@ package ch.idsia.crema.search.impl;
 import ch.idsia.crema.search.*;
 
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 /**
  * A common implementation of a search algorith offering observers, progress and stats.
@@ -36,6 +39,8 @@ public abstract class AbstractSearch<M, S> implements ISearch<M, S>, IStatCapabl
 
 	protected AtomicBoolean stopFlag;
 
+	protected ForkJoinPool pool = null;
+
 	private double progress;
 	private int steps = 10;
 
@@ -68,6 +73,38 @@ public abstract class AbstractSearch<M, S> implements ISearch<M, S>, IStatCapabl
 		this.neighbourhood = obj;
 	}
 
+	/**
+	 * @param pool if not null, the moves of each step are evaluated in parallel using this pool. In this case the
+	 *             objective function must be safe to use from multiple threads.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Evaluates all the given moves starting from the given solution. The scores are returned in the same order of the
+	 * moves, also when they are evaluated in parallel, so that the choice of the best move does not depend on the order
+	 * of the evaluations.
+	 *
+	 * @param from  the starting solution
+	 * @param moves the moves to evaluate
+	 * @return the score of each move
+	 */
+	protected double[] evaluate(S from, List<M> moves) {
+		if (pool == null) {
+			final double[] scores = new double[moves.size()];
+			for (int i = 0; i < scores.length; i++)
+				scores[i] = objective.eval(from, moves.get(i));
+			return scores;
+		}
+
+		return pool.submit(() -> IntStream.range(0, moves.size())
+				.parallel()
+				.mapToDouble(i -> objective.eval(from, moves.get(i)))
+				.toArray()
+		).join();
+	}
+
 	@Override
 	public S best() {
 		return bestSolution;
@@ -12,8 +12,11 @@ public class Greedy<M, S> extends AbstractSearch<M, S> {
 		double winner_score = currentScore;
 		M winner_move = null;
 
-		for (M move : moves) {
-			double score = objective.eval(currentSolution, move);
+		double[] scores = evaluate(currentSolution, moves);
+
+		for (int i = 0; i < scores.length; i++) {
+			M move = moves.get(i);
+			double score = scores[i];
 			if (objective.isImprovement(winner_score, score)) {
 				winner_move = move;
 				winner_score = score;
@@ -19,7 +19,10 @@ public class GreedyWithRandomRestart<M, S> extends AbstractSearch<M, S> {
 	public static final int MAX_RESTARTS_DEFAULT = 5;
 	public static final int MAX_PLATEAU_DEFAULT = 3;
 
-	protected Random random = RandomUtil.getRandom();
+	/**
+	 * The generator used to shuffle the moves, if null the one given by {@link RandomUtil} to the running thread.
+	 */
+	protected Random random = null;
 
 	private int maxRestarts = MAX_RESTARTS_DEFAULT;
 	private int restarts = MAX_RESTARTS_DEFAULT; // counting down
@@ -27,6 +30,17 @@ public class GreedyWithRandomRestart<M, S> extends AbstractSearch<M, S> {
 	private int maxPlateau = MAX_PLATEAU_DEFAULT;
 	private int plateau = 0; // counting up 
 
+	/**
+	 * @param random the generator used to shuffle the moves
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	protected Random getRandom() {
+		return random == null ? RandomUtil.getRandom() : random;
+	}
+
 	@Override
 	public void initialize(S initial, Map<String, Object> config) {
 		maxRestarts = MAX_RESTARTS_DEFAULT;
@@ -50,14 +64,17 @@ public class GreedyWithRandomRestart<M, S> extends AbstractSearch<M, S> {
 	@Override
 	public boolean step() {
 		List<M> moves = neighbourhood.neighbours(currentSolution);
-		Collections.shuffle(moves, random);
+		Collections.shuffle(moves, getRandom());
 
 		double winner_score = currentScore;
 		M winner_move = null;
 		M last_valid = null;
 
-		for (M move : moves) {
-			double score = objective.eval(currentSolution, move);
+		double[] scores = evaluate(currentSolution, moves);
+
+		for (int i = 0; i < scores.length; i++) {
+			M move = moves.get(i);
+			double score = scores[i];
 			if (objective.isImprovement(winner_score, score)) {
 				winner_move = move;
 				winner_score = score;
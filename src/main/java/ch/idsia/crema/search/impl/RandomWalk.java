@@ -8,15 +8,18 @@ import java.util.Random;
 public class RandomWalk<M, S> extends AbstractSearch<M, S> {
 
 	private int maxIteration = 1000;
-	private Random generator;
+	private Random generator = null;
 
 
 	public RandomWalk() {
-		generator = RandomUtil.getRandom();
 	}
 
+	/**
+	 * @param seed seed of a generator used only by this search, without a seed the one given by {@link RandomUtil}
+	 *             to the running thread is used
+	 */
 	public void setSeed(long seed) {
-		generator.setSeed(seed);
+		generator = new Random(seed);
 	}
 
 	public int getMaxIteration() {
@@ -30,7 +33,7 @@ public class RandomWalk<M, S> extends AbstractSearch<M, S> {
 	@Override
 	public boolean step() {
 		List<M> candidates = neighbourhood.neighbours(currentSolution);
-		int winner = generator.nextInt(candidates.size());
+		int winner = getRandom().nextInt(candidates.size());
 		M move = candidates.get(winner);
 
 		currentSolution = neighbourhood.move(currentSolution, move);
@@ -39,4 +42,8 @@ public class RandomWalk<M, S> extends AbstractSearch<M, S> {
 		}
 		return false;
 	}
+
+	private Random getRandom() {
+		return generator == null ? RandomUtil.getRandom() : generator;
+	}
 }
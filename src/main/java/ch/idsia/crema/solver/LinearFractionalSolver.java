@@ -15,6 +15,20 @@ public interface LinearFractionalSolver {
 
 	void solve(double[] numerator, double alpha, double[] denominator, double beta, double mult);
 
+	/**
+	 * Solve again the loaded problem with a new objective function. The constraints are the same as the previous
+	 * solve, therefore implementations can warm-start from the previous optimal solution. By default this is the same
+	 * as {@link #solve(double[], double, double[], double)}.
+	 *
+	 * @param numerator   coefficients of the numerator
+	 * @param alpha       constant term of the numerator
+	 * @param denominator coefficients of the denominator
+	 * @param beta        constant term of the denominator
+	 */
+	default void resolve(double[] numerator, double alpha, double[] denominator, double beta) {
+		solve(numerator, alpha, denominator, beta);
+	}
+
 	double getValue();
 
 	double[] getVertex();
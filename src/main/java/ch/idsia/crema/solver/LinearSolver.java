@@ -37,6 +37,18 @@ public interface LinearSolver {
 	 */
 	void solve(double[] objective, double constant);
 
+	/**
+	 * Solve again the loaded problem with a new objective function. The constraints are the same as the previous
+	 * solve, therefore implementations can warm-start from the previous optimal solution. By default this is the same
+	 * as {@link #solve(double[], double)}.
+	 *
+	 * @param objective the new objective function
+	 * @param constant  the new constant term
+	 */
+	default void resolve(double[] objective, double constant) {
+		solve(objective, constant);
+	}
+
 	/**
 	 * Get the objective function's value
 	 *
@@ -27,6 +27,14 @@ public class FractionalSolver implements LinearFractionalSolver {
 	private GoalType goalType;
 	private Collection<LinearConstraint> base;
 
+	/**
+	 * Solver for the parametric problems of {@link #resolve(double[], double, double[], double)}.
+	 */
+	private Simplex parametric;
+	private double[] last;
+
+	private static final int MAX_ITERATIONS = 1000;
+
 	@Override
 	public void loadProblem(ExtensiveLinearFactor factor, GoalType type) {
 		loadProblem(factor.getLinearProblem(), type);
@@ -36,6 +44,8 @@ public class FractionalSolver implements LinearFractionalSolver {
 	public void loadProblem(LinearConstraintSet data, GoalType type) {
 		this.problem = data;
 		this.goalType = type;
+		this.parametric = null;
+		this.last = null;
 		size = 0;
 
 		for (LinearConstraint c : data.getConstraints()) {
@@ -86,6 +96,64 @@ public class FractionalSolver implements LinearFractionalSolver {
 		solve(ArraysUtil.append(numerator, num_const), ArraysUtil.append(denominator, denom_const),1);
 	}
 
+	/**
+	 * Solves the loaded problem with Dinkelbach's method: a sequence of linear problems over the original constraints,
+	 * each one maximizing (or minimizing) numerator - &lambda; denominator with &lambda; the ratio at the previous point.
+	 * Since only the objective changes between the linear problems and between consecutive calls to this method, each
+	 * of them is warm-started from the previous optimal basis.
+	 * <p>
+	 * If the denominator is not strictly positive at some point, the problem is solved with the Charnes-Cooper
+	 * transformation as {@link #solve(double[], double, double[], double)} does.
+	 */
+	@Override
+	public void resolve(double[] numerator, double alpha, double[] denominator, double beta) {
+		if (parametric == null) {
+			parametric = new Simplex();
+			parametric.loadProblem(problem, goalType);
+		}
+
+		double[] x = last;
+		if (x == null) {
+			// any feasible point
+			parametric.resolve(new double[size], 0);
+			x = parametric.getVertex();
+		}
+
+		for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+			final double d = dot(denominator, x) + beta;
+			if (d <= 0)
+				break;
+
+			final double lambda = (dot(numerator, x) + alpha) / d;
+
+			final double[] objective = new double[size];
+			for (int i = 0; i < size; i++)
+				objective[i] = (i < numerator.length ? numerator[i] : 0) - lambda * (i < denominator.length ? denominator[i] : 0);
+
+			parametric.resolve(objective, alpha - lambda * beta);
+			final double f = parametric.getValue();
+
+			// no point improves the current ratio
+			if (goalType == GoalType.MAXIMIZE ? f <= 1e-12 : f >= -1e-12) {
+				last = x;
+				solution = new PointValuePair(ArraysUtil.append(x, 1.0), lambda);
+				return;
+			}
+
+			x = parametric.getVertex();
+		}
+
+		last = null;
+		solve(numerator, alpha, denominator, beta);
+	}
+
+	private static double dot(double[] a, double[] x) {
+		double v = 0;
+		for (int i = 0; i < Math.min(a.length, x.length); i++)
+			v += a[i] * x[i];
+		return v;
+	}
+
 	@Override
 	public double getValue() {
 		return solution.getValue();
@@ -24,6 +24,13 @@ public class Simplex implements LinearSolver {
 	private PointValuePair solution;
 	
 	private GoalType goal;
+
+	private Tableau tableau;
+
+	/**
+	 * Termination status of the last call to {@link #solve(double[], double)} or {@link #resolve(double[], double)}.
+	 */
+	private boolean optimal = false;
 	
 	public Simplex() {
 		solver = new SimplexSolver();
@@ -47,21 +54,54 @@ public class Simplex implements LinearSolver {
 	
 	@Override
 	public void solve(double[] objective, double constant) {
+		optimal = false;
 		solution = solver.optimize(constraints, 
 			new NonNegativeConstraint(true), 
 			new LinearObjectiveFunction(objective, constant), 
 			goal, 
 			PivotSelectionRule.BLAND);
+		optimal = Arrays.equals(solver.getLowerBound(), solver.getUpperBound());
+	}
+
+	/**
+	 * Solves the loaded problem with a new objective function, starting from the optimal basis of the previous call to
+	 * this method. The feasibility phase is done only on the first call after the problem has been loaded.
+	 * <p>
+	 * If the problem is infeasible or unbounded the exception of the tableau is thrown and {@link #isOptimal()} returns
+	 * false until the next successful call.
+	 *
+	 * @param objective the new objective function
+	 * @param constant  the new constant term
+	 */
+	@Override
+	public void resolve(double[] objective, double constant) {
+		optimal = false;
+		if (tableau == null || tableau.getVariables() < objective.length) {
+			int size = objective.length;
+			for (LinearConstraint c : constraints.getConstraints())
+				size = Math.max(size, c.getCoefficients().getDimension());
+			tableau = new Tableau(constraints, size);
+		}
+
+		final double[] point = Arrays.copyOf(tableau.optimize(objective, goal), objective.length);
+
+		double value = constant;
+		for (int i = 0; i < point.length; i++)
+			value += objective[i] * point[i];
+
+		solution = new PointValuePair(point, value);
+		optimal = true;
 	}
 
 	@Override
 	public void loadProblem(LinearConstraintSet data, GoalType goal) {
 		this.goal = goal;
 		this.constraints = data;
+		this.tableau = null;
 	}
 	
 	@Override
 	public boolean isOptimal() {
-		return Arrays.equals(solver.getLowerBound(), solver.getUpperBound());
+		return optimal;
 	}
 }
@@ -0,0 +1,267 @@
+package ch.idsia.crema.solver.commons;
+
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+import org.apache.commons.math3.optim.linear.LinearConstraintSet;
+import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
+import org.apache.commons.math3.optim.linear.UnboundedSolutionException;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dense simplex tableau over a fixed set of constraints with non-negative variables. The feasibility phase is done
+ * only once, when the tableau is built; each call to {@link #optimize(double[], GoalType)} then starts from the
+ * optimal basis of the previous call. When only the objective changes, the previous basis is still feasible and often
+ * optimal or only a few pivots away from the new optimum.
+ * <p>
+ * Entering and leaving variables are chosen with Bland's rule to avoid cycling.
+ */
+class Tableau {
+
+	private static final double EPS = 1e-10;
+
+	/**
+	 * After this number of pivots the tableau is rebuilt from the original constraints to limit the numerical drift.
+	 */
+	private static final int REFRESH = 10000;
+
+	private final LinearConstraintSet constraints;
+	private final int variables;
+
+	/**
+	 * Rows in canonical form, the last column is the right-hand side.
+	 */
+	private double[][] rows;
+	private int[] basis;
+	private int columns;
+	private int pivots;
+
+	/**
+	 * @param constraints the constraints of the problem
+	 * @param variables   the number of variables of the problem
+	 */
+	Tableau(LinearConstraintSet constraints, int variables) {
+		this.constraints = constraints;
+		this.variables = variables;
+		build();
+	}
+
+	int getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Builds the tableau with slack and artificial variables and finds a first feasible basis.
+	 */
+	private void build() {
+		final List<LinearConstraint> list = new ArrayList<>(constraints.getConstraints());
+		final int m = list.size();
+
+		int slacks = 0;
+		int artificials = 0;
+		for (LinearConstraint c : list) {
+			switch (relationship(c)) {
+				case 1:
+					slacks++;
+					break;
+				case -1:
+					slacks++;
+					artificials++;
+					break;
+				default:
+					artificials++;
+			}
+		}
+
+		final int width = variables + slacks + artificials;
+		rows = new double[m][width + 1];
+		basis = new int[m];
+		pivots = 0;
+
+		int slack = variables;
+		int artificial = variables + slacks;
+		for (int i = 0; i < m; i++) {
+			final LinearConstraint c = list.get(i);
+			final double sign = c.getValue() < 0 ? -1 : 1;
+			final double[] coefficients = c.getCoefficients().toArray();
+			for (int j = 0; j < coefficients.length; j++)
+				rows[i][j] = sign * coefficients[j];
+			rows[i][width] = sign * c.getValue();
+
+			switch (relationship(c)) {
+				case 1:
+					rows[i][slack] = 1;
+					basis[i] = slack++;
+					break;
+				case -1:
+					rows[i][slack++] = -1;
+					rows[i][artificial] = 1;
+					basis[i] = artificial++;
+					break;
+				default:
+					rows[i][artificial] = 1;
+					basis[i] = artificial++;
+			}
+		}
+		columns = width;
+
+		if (artificials > 0) {
+			// phase 1: minimize the sum of the artificial variables
+			final double[] cost = new double[width];
+			for (int j = variables + slacks; j < width; j++)
+				cost[j] = 1;
+
+			minimize(cost);
+
+			if (value(cost) > 1e-7)
+				throw new NoFeasibleSolutionException();
+
+			removeArtificials(variables + slacks);
+		}
+	}
+
+	/**
+	 * @return the relationship of the constraint after the right-hand side has been made non-negative: 1 for less or
+	 * equal, -1 for greater or equal, 0 for equality
+	 */
+	private static int relationship(LinearConstraint c) {
+		final int sign = c.getValue() < 0 ? -1 : 1;
+		switch (c.getRelationship()) {
+			case LEQ:
+				return sign;
+			case GEQ:
+				return -sign;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Drives the artificial variables out of the basis, dropping redundant rows, and then removes their columns.
+	 */
+	private void removeArtificials(int first) {
+		final List<Integer> redundant = new ArrayList<>();
+		for (int i = 0; i < rows.length; i++) {
+			if (basis[i] < first)
+				continue;
+
+			int entering = -1;
+			for (int j = 0; j < first && entering < 0; j++)
+				if (Math.abs(rows[i][j]) > EPS)
+					entering = j;
+
+			if (entering < 0)
+				redundant.add(i);
+			else
+				pivot(i, entering);
+		}
+
+		final double[][] reduced = new double[rows.length - redundant.size()][first + 1];
+		final int[] b = new int[reduced.length];
+		for (int i = 0, k = 0; i < rows.length; i++) {
+			if (redundant.contains(i))
+				continue;
+			System.arraycopy(rows[i], 0, reduced[k], 0, first);
+			reduced[k][first] = rows[i][columns];
+			b[k++] = basis[i];
+		}
+
+		rows = reduced;
+		basis = b;
+		columns = first;
+	}
+
+	/**
+	 * Optimizes the given objective starting from the current basis.
+	 *
+	 * @param objective the coefficients of the objective function
+	 * @param goal      the direction of the optimization
+	 * @return the optimal point
+	 */
+	double[] optimize(double[] objective, GoalType goal) {
+		if (pivots > REFRESH)
+			build();
+
+		final double[] cost = new double[columns];
+		for (int j = 0; j < objective.length; j++)
+			cost[j] = goal == GoalType.MAXIMIZE ? -objective[j] : objective[j];
+
+		minimize(cost);
+
+		final double[] point = new double[variables];
+		for (int i = 0; i < rows.length; i++)
+			if (basis[i] < variables)
+				point[basis[i]] = Math.max(0, rows[i][columns]);
+		return point;
+	}
+
+	private double value(double[] cost) {
+		double v = 0;
+		for (int i = 0; i < rows.length; i++)
+			v += cost[basis[i]] * rows[i][columns];
+		return v;
+	}
+
+	/**
+	 * Phase 2 simplex with Bland's rule from the current (feasible) basis.
+	 */
+	private void minimize(double[] cost) {
+		while (true) {
+			// entering: lowest index with negative reduced cost
+			int entering = -1;
+			for (int j = 0; j < columns && entering < 0; j++) {
+				double reduced = cost[j];
+				for (int i = 0; i < rows.length; i++)
+					reduced -= cost[basis[i]] * rows[i][j];
+				if (reduced < -EPS)
+					entering = j;
+			}
+
+			if (entering < 0)
+				return;
+
+			// leaving: min ratio, ties broken by the lowest basis index
+			int leaving = -1;
+			double ratio = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < rows.length; i++) {
+				final double a = rows[i][entering];
+				if (a <= EPS)
+					continue;
+				final double r = rows[i][columns] / a;
+				if (r < ratio - EPS || (Math.abs(r - ratio) <= EPS && basis[i] < basis[leaving])) {
+					ratio = r;
+					leaving = i;
+				}
+			}
+
+			if (leaving < 0)
+				throw new UnboundedSolutionException();
+
+			pivot(leaving, entering);
+		}
+	}
+
+	private void pivot(int row, int column) {
+		final double[] p = rows[row];
+		final double a = p[column];
+		for (int j = 0; j <= columns; j++)
+			p[j] /= a;
+		p[column] = 1;
+
+		for (int i = 0; i < rows.length; i++) {
+			if (i == row)
+				continue;
+			final double[] r = rows[i];
+			final double f = r[column];
+			if (f == 0)
+				continue;
+			for (int j = 0; j <= columns; j++)
+				r[j] -= f * p[j];
+			r[column] = 0;
+		}
+
+		basis[row] = column;
+		pivots++;
+	}
+}
@@ -0,0 +1,151 @@
+package ch.idsia.crema.utility;
+
+/**
+ * Parsing of numbers from arrays of characters, used by the tokenizers of the file formats to avoid creating a string
+ * for each number.
+ */
+public final class ParseUtil {
+
+	/**
+	 * Powers of ten that are exact as double values.
+	 */
+	private static final double[] POWERS = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private ParseUtil() {
+	}
+
+	/**
+	 * Parses decimal numbers with up to 15 significant digits and a small exponent: both the digits and the power of
+	 * ten are exact double values, so a single multiplication or division gives the correctly rounded result.
+	 *
+	 * @param chars  the characters of the number
+	 * @param length the number of characters to parse, starting from the first
+	 * @return the value of the number, or NaN if the characters cannot be parsed in this way
+	 */
+	public static double parseDecimal(char[] chars, int length) {
+		if (length == 0)
+			return Double.NaN;
+
+		int i = 0;
+		boolean negative = false;
+		if (chars[0] == '-' || chars[0] == '+') {
+			negative = chars[0] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean any = false;
+		boolean dot = false;
+
+		for (; i < length; i++) {
+			final char c = chars[i];
+			if (c >= '0' && c <= '9') {
+				any = true;
+				if (mantissa == 0 && c == '0') {
+					// leading zeros are not significant
+					if (dot)
+						scale--;
+					continue;
+				}
+				if (++digits > 15)
+					return Double.NaN;
+				mantissa = mantissa * 10 + (c - '0');
+				if (dot)
+					scale--;
+			} else if (c == '.' && !dot) {
+				dot = true;
+			} else {
+				break;
+			}
+		}
+
+		if (!any)
+			return Double.NaN;
+
+		if (i < length) {
+			if (chars[i] != 'e' && chars[i] != 'E')
+				return Double.NaN;
+			i++;
+			boolean negativeExponent = false;
+			if (i < length && (chars[i] == '-' || chars[i] == '+')) {
+				negativeExponent = chars[i] == '-';
+				i++;
+			}
+			if (i == length)
+				return Double.NaN;
+			int exponent = 0;
+			for (; i < length; i++) {
+				final char c = chars[i];
+				if (c < '0' || c > '9' || exponent > 1000)
+					return Double.NaN;
+				exponent = exponent * 10 + (c - '0');
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+
+		double value;
+		if (mantissa == 0)
+			value = 0.0;
+		else if (scale >= 0 && scale < POWERS.length)
+			value = mantissa * POWERS[scale];
+		else if (scale < 0 && -scale < POWERS.length)
+			value = mantissa / POWERS[-scale];
+		else
+			return Double.NaN;
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @param chars  the characters of the number
+	 * @param length the number of characters to parse, starting from the first
+	 * @return the value of the number, parsed exactly also when {@link #parseDecimal(char[], int)} cannot
+	 * @throws NumberFormatException if the characters are not a number
+	 */
+	public static double parseDouble(char[] chars, int length) {
+		final double value = parseDecimal(chars, length);
+		if (!Double.isNaN(value))
+			return value;
+		// not a plain decimal number or too many digits to be parsed exactly here
+		return Double.parseDouble(new String(chars, 0, length));
+	}
+
+	/**
+	 * @param chars  the characters of the number
+	 * @param length the number of characters to parse, starting from the first
+	 * @return the value of the integer
+	 * @throws NumberFormatException if the characters are not an integer or the value is out of range
+	 */
+	public static int parseInt(char[] chars, int length) {
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (chars[0] == '-' || chars[0] == '+')) {
+			negative = chars[0] == '-';
+			i++;
+		}
+		if (i == length)
+			throw new NumberFormatException("expected an integer but found '" + new String(chars, 0, length) + "'");
+
+		long value = 0;
+		for (; i < length; i++) {
+			final char c = chars[i];
+			if (c < '0' || c > '9')
+				throw new NumberFormatException("expected an integer but found '" + new String(chars, 0, length) + "'");
+			value = value * 10 + (c - '0');
+			if (value > (long) Integer.MAX_VALUE + 1)
+				throw new NumberFormatException("integer out of range '" + new String(chars, 0, length) + "'");
+		}
+
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE)
+			throw new NumberFormatException("integer out of range '" + new String(chars, 0, length) + "'");
+
+		return (int) value;
+	}
+
+}
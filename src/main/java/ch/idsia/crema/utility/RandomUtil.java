@@ -1,14 +1,50 @@
 package ch.idsia.crema.utility;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
-
+/**
+ * Random generators used by the library. By default each thread has its own {@link SplitRandom}: the thread that set
+ * the seed uses the generator of the seed, each other thread gets a new stream of the same seed the first time it asks
+ * for a generator. The streams are numbered in the order in which the threads ask for them, therefore the numbers
+ * drawn by the other threads depend on the scheduling.
+ * <p>
+ * Parallel results are reproducible when each task receives an explicit generator derived from the master seed and
+ * the index of the task, with {@link #stream(long)}: the randomized algorithms accept one, either as a {@link Random}
+ * (the random converters, {@code CNGenerator}, {@code GreedyWithRandomRestart}) or as a seed ({@code ApproxLP0},
+ * {@code StochasticSampling}), and derive the streams of their own parallel tasks in the same way.
+ * <p>
+ * The generators are not thread-safe: get them with {@link #getRandom()} in the thread that uses them, do not store
+ * them in objects that can be shared between threads.
+ */
 public class RandomUtil {
 
-	private static Random random = new Random(1234);
+	private static volatile long seed = 1234;
+
+	private static volatile Random random = new SplitRandom(seed);
+
+	/**
+	 * Number of streams given to the threads that did not set the seed.
+	 */
+	private static final AtomicLong streams = new AtomicLong();
+
+	private static volatile ThreadLocal<Random> local = local(random);
+
+	private static final Supplier<Random> perThread = () -> local.get();
+
+	private static volatile Supplier<Random> supplier = perThread;
 
-	private static Supplier<Random> supplier = () -> random;
+	/**
+	 * @param owner the generator of the calling thread
+	 * @return generators for each thread, the ones of the other threads are derived from the current seed
+	 */
+	private static ThreadLocal<Random> local(Random owner) {
+		final long s = seed;
+		final ThreadLocal<Random> l = ThreadLocal.withInitial(() -> SplitRandom.stream(s, streams.incrementAndGet()));
+		l.set(owner);
+		return l;
+	}
 
 	/**
 	 * Sample of vector where the sum of all its elements is 1
@@ -52,7 +88,8 @@ public class RandomUtil {
 	}
 
 	/**
-	 * Set a new {@link #random} object to use and reset the supplier function to the original one.
+	 * Set a new {@link #random} object to use in all the threads, it must be thread-safe if the library is used in
+	 * parallel. Use {@link #reset()} to go back to the generators of each thread.
 	 *
 	 * @param random the {@link Random} object to use.
 	 */
@@ -73,26 +110,49 @@ public class RandomUtil {
 	}
 
 	/**
-	 * Change the current {@link #random} object with a new random initialized with the given seed.
+	 * Set a new master seed: the calling thread uses a new {@link SplitRandom} initialized with the seed, the other
+	 * threads use the streams derived from it.
 	 *
 	 * @param seed new random seed to use
 	 */
 	public static void setRandomSeed(long seed) {
-		setRandom(new Random(seed));
+		RandomUtil.seed = seed;
+		RandomUtil.random = new SplitRandom(seed);
+		streams.set(0);
+		local = local(random);
+		supplier = perThread;
+	}
+
+	/**
+	 * @return the current master seed
+	 */
+	public static long getSeed() {
+		return seed;
 	}
 
 	/**
-	 * @return a {@link Random} object based on the current {@link #supplier} function.
+	 * @param index index of the stream
+	 * @return a new generator for the given stream of the current master seed, always the same for the same seed and
+	 * index
+	 */
+	public static SplitRandom stream(long index) {
+		return SplitRandom.stream(seed, index);
+	}
+
+	/**
+	 * @return a {@link Random} object based on the current {@link #supplier} function, by default the generator of
+	 * the calling thread.
 	 */
 	public static Random getRandom() {
 		return supplier.get();
 	}
 
 	/**
-	 * Set the {@link #supplier} function back to the original one.
+	 * Set the {@link #supplier} function back to the original one, that gives the generator of the calling thread
+	 * derived from the last seed set with {@link #setRandomSeed(long)}.
 	 */
 	public static void reset() {
-		setRandom(() -> random);
+		setRandom(perThread);
 	}
 
 }
@@ -0,0 +1,134 @@
+package ch.idsia.crema.utility;
+
+import java.util.Random;
+
+/**
+ * A fast random generator based on xoroshiro128++, with the state initialized by SplitMix64. It extends {@link Random}
+ * so that it can be used everywhere a {@link Random} is expected, but it has no synchronization: an instance must be
+ * used by a single thread at a time.
+ * <p>
+ * Independent generators for parallel tasks are obtained with {@link #split()}, that gives to the new generator the
+ * current state and moves this one 2<sup>64</sup> values ahead, or with {@link #stream(long, long)}, that derives the
+ * generator of a stream from a master seed and the index of the stream. Both are deterministic.
+ */
+public class SplitRandom extends Random {
+	private static final long serialVersionUID = 5402954196316893742L;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static final long[] JUMP = {0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L};
+
+	private long s0;
+	private long s1;
+
+	/**
+	 * @param seed the initial seed
+	 */
+	public SplitRandom(long seed) {
+		// Random calls setSeed
+		super(seed);
+	}
+
+	private SplitRandom(long s0, long s1) {
+		super(0);
+		this.s0 = s0;
+		this.s1 = s1;
+	}
+
+	/**
+	 * @param seed  the master seed
+	 * @param index the index of the stream
+	 * @return the generator of the given stream, always the same for the same seed and index
+	 */
+	public static SplitRandom stream(long seed, long index) {
+		return new SplitRandom(mix64(seed) ^ mix64((index + 1) * GOLDEN_GAMMA));
+	}
+
+	/**
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		// also called by the constructor of Random
+		s0 = mix64(seed += GOLDEN_GAMMA);
+		s1 = mix64(seed + GOLDEN_GAMMA);
+		if ((s0 | s1) == 0)
+			s1 = GOLDEN_GAMMA;
+	}
+
+	@Override
+	public long nextLong() {
+		final long a = s0;
+		long b = s1;
+		final long result = Long.rotateLeft(a + b, 17) + a;
+
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+
+		return result;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	/**
+	 * Advances this generator by 2<sup>64</sup> values.
+	 */
+	public void jump() {
+		long t0 = 0;
+		long t1 = 0;
+		for (long jump : JUMP) {
+			for (int b = 0; b < 64; b++) {
+				if ((jump & (1L << b)) != 0) {
+					t0 ^= s0;
+					t1 ^= s1;
+				}
+				nextLong();
+			}
+		}
+		s0 = t0;
+		s1 = t1;
+	}
+
+	/**
+	 * @return a new generator with the current state of this one, while this one jumps ahead; the two sequences do not
+	 * overlap for 2<sup>64</sup> values
+	 */
+	public SplitRandom split() {
+		final SplitRandom other = new SplitRandom(s0, s1);
+		jump();
+		return other;
+	}
+
+	/**
+	 * @return a generator with the same state of this one
+	 */
+	public SplitRandom copy() {
+		return new SplitRandom(s0, s1);
+	}
+
+}
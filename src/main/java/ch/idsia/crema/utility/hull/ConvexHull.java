@@ -4,6 +4,7 @@ public interface ConvexHull {
 
 	ConvexHull DEFAULT = new LPConvexHull();
 	ConvexHull LP_CONVEX_HULL = new LPConvexHull();
+	ConvexHull INCREMENTAL_HULL = new IncrementalConvexHull();
 	ConvexHull QUICK_HULL = new QuickHull();
 	ConvexHull REDUCED_HULL = new ReducedHull();
 	ConvexHull REDUCED_HULL_2 = new ReducedHull(2);
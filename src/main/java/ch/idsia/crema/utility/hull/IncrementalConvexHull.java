@@ -0,0 +1,403 @@
+package ch.idsia.crema.utility.hull;
+
+import ch.idsia.crema.factor.algebra.vertex.VertexHashStrategy;
+import gnu.trove.set.hash.TCustomHashSet;
+
+import org.apache.commons.math3.linear.*;
+
+import java.util.*;
+
+/**
+ * A convex hull that is built incrementally, one point (or one batch of points) at a time, and keeps the vertices of
+ * the current hull. It gives the same result of {@link LPConvexHull#add(double[][], double[])}, but tries cheaper tests
+ * before solving a linear problem:
+ * <ul>
+ *     <li>points equal to a current vertex (using the {@link VertexHashStrategy}) are discarded;</li>
+ *     <li>points outside the bounding box of the current vertices are extreme points and are added without LP;</li>
+ *     <li>current vertices that are the only one with the lowest or highest value for some coordinate cannot become
+ *     internal and are not tested again;</li>
+ *     <li>points that are a convex combination of the same few points of a recent internal point are internal: the
+ *     supports of the last LP solutions are kept and checked solving a small linear system.</li>
+ * </ul>
+ * Only the undecided points are tested with the same LP used by {@link LPConvexHull}. The vertices that became internal
+ * are not removed at each insertion, but only when their number doubles or when the vertices are requested: they do
+ * not change the result of the following tests.
+ * <p>
+ * An instance is not thread-safe. The {@link #apply(double[][])} method does not use the state of the instance.
+ */
+public class IncrementalConvexHull implements ConvexHull {
+
+	private static final double EPS = 1e-12;
+
+	/**
+	 * Max number of supports of internal points to keep.
+	 */
+	private static final int SUPPORTS = 16;
+
+	private final List<double[]> vertices = new ArrayList<>();
+	private final TCustomHashSet<double[]> hashes = new TCustomHashSet<>(new VertexHashStrategy());
+
+	private double[] min;
+	private double[] max;
+
+	/**
+	 * Supports of the most recent internal points, most recently used first. Since all the points ever tested are in
+	 * the hull, a support remains valid also after some of its points have been removed from the vertices.
+	 */
+	private final LinkedList<Support> supports = new LinkedList<>();
+
+	/**
+	 * Number of vertices after the last removal of the internal ones.
+	 */
+	private int cleaned = 0;
+
+	/**
+	 * Index of the last inserted vertex, it was tested against all the other vertices.
+	 */
+	private int last = -1;
+
+	public IncrementalConvexHull() {
+	}
+
+	/**
+	 * @param vertices the vertices of an existing convex hull, they are not tested again
+	 */
+	IncrementalConvexHull(double[][] vertices) {
+		for (double[] v : vertices) {
+			this.vertices.add(v);
+			hashes.add(v);
+			expandBox(v);
+		}
+		cleaned = this.vertices.size();
+	}
+
+	/**
+	 * Adds a point to the hull.
+	 *
+	 * @param point the point to add
+	 * @return true if the point is a new vertex of the hull, otherwise false
+	 */
+	public boolean add(double[] point) {
+		if (!insert(point))
+			return false;
+
+		if (vertices.size() > 2 * Math.max(cleaned, 8))
+			removeInternals();
+		return true;
+	}
+
+	/**
+	 * Adds all the given points to the hull. The points that are extreme in some coordinate are added first, then the
+	 * others, and the vertices that became internal are removed only once at the end.
+	 *
+	 * @param points the points to add
+	 */
+	public void addAll(Collection<double[]> points) {
+		final List<double[]> first = new ArrayList<>();
+		final List<double[]> others = new ArrayList<>();
+
+		final boolean[] extreme = extremes(points);
+		int i = 0;
+		for (double[] point : points) {
+			if (extreme[i++])
+				first.add(point);
+			else
+				others.add(point);
+		}
+
+		for (double[] point : first)
+			insert(point);
+		for (double[] point : others)
+			insert(point);
+
+		removeInternals();
+	}
+
+	/**
+	 * @param points the points to add
+	 * @see #addAll(Collection)
+	 */
+	public void addAll(double[][] points) {
+		addAll(Arrays.asList(points));
+	}
+
+	/**
+	 * @return the vertices of the current hull
+	 */
+	public double[][] getVertices() {
+		removeInternals();
+		return vertices.toArray(new double[0][]);
+	}
+
+	/**
+	 * @return the number of vertices of the current hull
+	 */
+	public int size() {
+		removeInternals();
+		return vertices.size();
+	}
+
+	@Override
+	public double[][] apply(double[][] vertices) {
+		final IncrementalConvexHull hull = new IncrementalConvexHull();
+		hull.addAll(vertices);
+		return hull.getVertices();
+	}
+
+	public static double[][] compute(double[][] vertices) {
+		return (new IncrementalConvexHull()).apply(vertices);
+	}
+
+	/**
+	 * Merges convex hulls computed separately, for example on different threads. The vertices of the largest hull are
+	 * taken as they are, the vertices of the others are added to them and a final pass removes the vertices that are
+	 * internal to the union.
+	 *
+	 * @param hulls the vertices of each hull
+	 * @return the vertices of the convex hull of the union
+	 */
+	public static double[][] merge(List<double[][]> hulls) {
+		int largest = -1;
+		for (int i = 0; i < hulls.size(); i++)
+			if (largest < 0 || hulls.get(i).length > hulls.get(largest).length)
+				largest = i;
+
+		if (largest < 0)
+			return new double[0][];
+
+		final IncrementalConvexHull hull = new IncrementalConvexHull(hulls.get(largest));
+		final List<double[]> others = new ArrayList<>();
+		for (int i = 0; i < hulls.size(); i++)
+			if (i != largest)
+				others.addAll(Arrays.asList(hulls.get(i)));
+
+		// if some points are added, the final pass tests also the vertices of the largest hull
+		hull.addAll(others);
+		return hull.getVertices();
+	}
+
+	/**
+	 * Adds the given point to the vertices if it is not internal to the current hull. Internal vertices are not
+	 * removed.
+	 *
+	 * @return true if the point has been added
+	 */
+	private boolean insert(double[] point) {
+		if (hashes.contains(point))
+			return false;
+
+		if (!outsideBox(point)) {
+			if (inSupports(point))
+				return false;
+
+			final List<double[]> points = new ArrayList<>(vertices);
+			points.add(point);
+			final double[] weights = LPConvexHull.jasperWeights(points, vertices.size());
+			if (weights[vertices.size()] <= 0.000001) {
+				addSupport(weights);
+				return false;
+			}
+		}
+
+		last = vertices.size();
+		vertices.add(point);
+		hashes.add(point);
+		expandBox(point);
+		return true;
+	}
+
+	/**
+	 * Removes the vertices that are internal to the hull of the others.
+	 */
+	private void removeInternals() {
+		if (vertices.size() == cleaned)
+			return;
+
+		int added = last;
+		final boolean[] extreme = extremes(vertices);
+
+		boolean removed = false;
+		for (int i = vertices.size() - 1; i >= 0; i--) {
+			if (i == added || extreme[i])
+				continue;
+
+			if (LPConvexHull.isJasperInternal(vertices, i)) {
+				hashes.remove(vertices.get(i));
+				vertices.remove(i);
+				removed = true;
+				if (added > i)
+					added--;
+			}
+		}
+
+		if (removed)
+			resetBox();
+
+		cleaned = vertices.size();
+		last = -1;
+	}
+
+	/**
+	 * @return for each point, true if it is the only one with the lowest or the highest value of some coordinate
+	 */
+	private static boolean[] extremes(Collection<double[]> points) {
+		final boolean[] extreme = new boolean[points.size()];
+		if (points.isEmpty())
+			return extreme;
+
+		final double[][] array = points.toArray(new double[0][]);
+		final int dimension = array[0].length;
+
+		for (int j = 0; j < dimension; j++) {
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for (double[] point : array) {
+				min = Math.min(min, point[j]);
+				max = Math.max(max, point[j]);
+			}
+
+			int argmin = -1, argmax = -1;
+			int countMin = 0, countMax = 0;
+			for (int i = 0; i < array.length; i++) {
+				if (array[i][j] <= min + EPS) {
+					argmin = i;
+					countMin++;
+				}
+				if (array[i][j] >= max - EPS) {
+					argmax = i;
+					countMax++;
+				}
+			}
+			if (countMin == 1)
+				extreme[argmin] = true;
+			if (countMax == 1)
+				extreme[argmax] = true;
+		}
+
+		return extreme;
+	}
+
+	private boolean inSupports(double[] point) {
+		final Iterator<Support> iterator = supports.iterator();
+		while (iterator.hasNext()) {
+			final Support support = iterator.next();
+			if (support.contains(point)) {
+				if (support != supports.getFirst()) {
+					iterator.remove();
+					supports.addFirst(support);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addSupport(double[] weights) {
+		final List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < vertices.size(); i++)
+			if (weights[i] > EPS)
+				points.add(vertices.get(i));
+
+		if (points.isEmpty())
+			return;
+
+		supports.addFirst(new Support(points));
+		if (supports.size() > SUPPORTS)
+			supports.removeLast();
+	}
+
+	private boolean outsideBox(double[] point) {
+		if (min == null)
+			return true;
+
+		for (int j = 0; j < point.length; j++)
+			if (point[j] < min[j] - EPS || point[j] > max[j] + EPS)
+				return true;
+		return false;
+	}
+
+	private void expandBox(double[] point) {
+		if (min == null) {
+			min = point.clone();
+			max = point.clone();
+			return;
+		}
+
+		for (int j = 0; j < point.length; j++) {
+			min[j] = Math.min(min[j], point[j]);
+			max[j] = Math.max(max[j], point[j]);
+		}
+	}
+
+	private void resetBox() {
+		min = null;
+		max = null;
+		for (double[] v : vertices)
+			expandBox(v);
+	}
+
+	/**
+	 * A set of affinely independent points; a point is in their convex hull if it has non-negative barycentric
+	 * coordinates.
+	 */
+	private static final class Support {
+		private final double[][] points;
+
+		/**
+		 * Pseudo-inverse of the matrix with the points as columns and an additional row of ones.
+		 */
+		private final double[][] inverse;
+
+		Support(List<double[]> points) {
+			this.points = points.toArray(new double[0][]);
+
+			final int dimension = this.points[0].length;
+			final double[][] data = new double[dimension + 1][this.points.length];
+			for (int i = 0; i < this.points.length; i++) {
+				for (int j = 0; j < dimension; j++)
+					data[j][i] = this.points[i][j];
+				data[dimension][i] = 1;
+			}
+
+			double[][] inverse;
+			try {
+				inverse = new QRDecomposition(new Array2DRowRealMatrix(data, false)).getSolver().getInverse().getData();
+			} catch (SingularMatrixException e) {
+				inverse = null;
+			}
+			this.inverse = inverse;
+		}
+
+		boolean contains(double[] point) {
+			if (inverse == null)
+				return false;
+
+			final int dimension = point.length;
+			final double[] coordinates = new double[points.length];
+			for (int i = 0; i < coordinates.length; i++) {
+				final double[] row = inverse[i];
+				double c = row[dimension];
+				for (int j = 0; j < dimension; j++)
+					c += row[j] * point[j];
+				if (c < -1e-9)
+					return false;
+				coordinates[i] = c;
+			}
+
+			double sum = 0;
+			for (double c : coordinates)
+				sum += c;
+			if (Math.abs(sum - 1) > 1e-9)
+				return false;
+
+			for (int j = 0; j < dimension; j++) {
+				double v = 0;
+				for (int i = 0; i < coordinates.length; i++)
+					v += coordinates[i] * points[i][j];
+				if (Math.abs(v - point[j]) > 1e-9)
+					return false;
+			}
+
+			return true;
+		}
+	}
+}
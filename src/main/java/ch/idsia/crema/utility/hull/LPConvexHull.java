@@ -13,24 +13,22 @@ import java.util.List;
 public class LPConvexHull implements ConvexHull {
 
 	public static double[][] add(double[][] current, double[] newpoint) {
-		List<double[]> newPoints = new ArrayList<>(Arrays.asList(current));
-		newPoints.add(newpoint);
+		// same result of testing all the points with the LP, but with cheaper tests first
+		final IncrementalConvexHull hull = new IncrementalConvexHull(current);
+		if (!hull.add(newpoint)) return current;
 
-		// if new point is internal return
-		if (isJasperInternal(newPoints, current.length)) return current;
-
-		// else we keep testing
-		for (int i = current.length - 1; i >= 0; i--) {
-			if (isJasperInternal(newPoints, i)) {
-				newPoints.remove(i);
-			}
-		}
+		return hull.getVertices();
+	}
 
-		return newPoints.toArray(new double[newPoints.size()][]);
+	static boolean isJasperInternal(List<double[]> points, int checkNr) {
+		return jasperWeights(points, checkNr)[checkNr] <= 0.000001;
 	}
 
-	private static boolean isJasperInternal(List<double[]> points, int checkNr) {
-		// check whether point nr. CheckNr is internal
+	/**
+	 * @return the weights of the convex combination of the points that gives point nr. checkNr with the lowest
+	 * weight for point nr. checkNr itself
+	 */
+	static double[] jasperWeights(List<double[]> points, int checkNr) {
 		int nrPoints = points.size();
 		int dimension = points.get(0).length;
 
@@ -62,9 +60,7 @@ public class LPConvexHull implements ConvexHull {
 
 		solver.loadProblem(new LinearConstraintSet(constraints), GoalType.MINIMIZE);
 		solver.solve(optim, 0);
-		double solution = solver.getValue();
-
-		return solution <= 0.000001;
+		return solver.getVertex();
 	}
 
 	private static boolean[] listJasperInternal(List<double[]> points) {
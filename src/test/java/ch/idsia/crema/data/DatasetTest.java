@@ -0,0 +1,123 @@
+package ch.idsia.crema.data;
+
+import com.opencsv.exceptions.CsvException;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetTest {
+
+	@Test
+	public void testReadCSV() throws IOException, CsvException {
+		final ReaderCSV reader = new ReaderCSV("./datasets/simple.csv");
+		final Dataset data = reader.readDataset();
+
+		assertArrayEquals(new String[]{"0", "1", "2"}, reader.getVarNames());
+		assertArrayEquals(new int[]{0, 1, 2}, data.getVariables());
+		assertEquals(5, data.size());
+
+		// same content of the dense reader
+		final double[][] dense = new ReaderCSV("./datasets/simple.csv").read().getData();
+		for (int r = 0; r < dense.length; r++) {
+			for (int v = 0; v < 3; v++) {
+				if (Double.isNaN(dense[r][v]))
+					assertTrue(data.isMissing(r, v));
+				else
+					assertEquals((int) dense[r][v], data.get(r, v));
+			}
+		}
+
+		assertEquals(-1, data.get(3, 0));
+		assertEquals(4, data.getCardinality(0));
+		assertEquals(1, data.getBytesPerValue(0));
+
+		// without a header the first line is data
+		final Dataset headless = new ReaderCSV("./datasets/simple.csv").withHeader(false).readDataset();
+		assertArrayEquals(new int[]{0, 1, 2, 3}, headless.getVariables());
+		assertEquals(6, headless.size());
+		assertTrue(headless.isMissing(0, 0));
+		assertEquals(2, headless.get(0, 3));
+	}
+
+	@Test
+	public void testInvalidState() throws IOException {
+		final Path file = Files.createTempFile("dataset", ".csv");
+		try {
+			Files.write(file, List.of("a,b", "0,1", "1,0.5"));
+			final CsvException e = assertThrows(CsvException.class, () -> new ReaderCSV(file.toString()).readDataset());
+			assertTrue(e.getMessage().startsWith("Line 3, column 2"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testWidening() {
+		final Dataset.Builder builder = Dataset.builder(new String[]{"a", "b", "c"}, new int[]{3, 5, 7});
+		for (int r = 0; r < 1000; r++)
+			builder.add(r % 3, r == 500 ? 70000 : r, r % 10 == 0 ? -1 : r % 2);
+		final Dataset data = builder.build();
+
+		assertEquals(1, data.getBytesPerValue(3));
+		assertEquals(4, data.getBytesPerValue(5));
+		assertEquals(1, data.getBytesPerValue(7));
+		assertEquals(70001, data.getCardinality(5));
+
+		for (int r = 0; r < 1000; r++) {
+			assertEquals(r % 3, data.get(r, 3));
+			assertEquals(r == 500 ? 70000 : r, data.get(r, 5));
+			assertEquals(r % 10 == 0, data.isMissing(r, 7));
+			assertEquals(r % 10 == 0 ? -1 : r % 2, data.get(r, 7));
+		}
+	}
+
+	@Test
+	public void testObservations() {
+		final Dataset data = Dataset.builder(new String[]{"a", "b"}, new int[]{0, 1})
+				.add(0, 1)
+				.add(1, -1)
+				.add(0, 1)
+				.add(1, -1)
+				.add(0, 1)
+				.build();
+
+		final Iterator<Dataset.Observation> it = data.iterator();
+		final Dataset.Observation first = it.next();
+		assertEquals(0, first.getRow());
+		assertEquals(2, first.size());
+		final Dataset.Observation second = it.next();
+		// the view is reused
+		assertSame(first, second);
+		assertEquals(1, second.getRow());
+		assertFalse(second.isObserved(1));
+		assertEquals(-1, second.get(1));
+		assertEquals(new TIntIntHashMap(new int[]{0}, new int[]{1}), second.toMap());
+
+		final List<Map.Entry<TIntIntMap, Integer>> patterns = data.patterns();
+		assertEquals(2, patterns.size());
+		assertEquals(new TIntIntHashMap(new int[]{0, 1}, new int[]{0, 1}), patterns.get(0).getKey());
+		assertEquals(3, patterns.get(0).getValue());
+		assertEquals(new TIntIntHashMap(new int[]{0}, new int[]{1}), patterns.get(1).getKey());
+		assertEquals(2, patterns.get(1).getValue());
+
+		// rows with a missing variable and rows with the variable in state 0 are distinct
+		final Dataset zeros = Dataset.builder(new String[]{"a", "b"}, new int[]{0, 1})
+				.add(1, 0)
+				.add(1, -1)
+				.add(-1, 1)
+				.build();
+		assertEquals(3, zeros.patterns().size());
+
+		assertEquals(5, data.toObservations().size());
+	}
+
+}
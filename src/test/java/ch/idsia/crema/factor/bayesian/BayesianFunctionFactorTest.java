@@ -0,0 +1,105 @@
+package ch.idsia.crema.factor.bayesian;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.algebra.BayesianAlgebra;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BayesianFunctionFactorTest {
+
+	final int A = 0, B = 1, C = 2, O = 3, X = 4;
+
+	final Strides domain = new Strides(new int[]{A, B, C, O}, new int[]{2, 3, 2, 2});
+
+	final BayesianAlgebra algebra = new BayesianAlgebra();
+
+	final BayesianFactor other = new BayesianDefaultFactor(
+			new Strides(new int[]{B, O, X}, new int[]{3, 2, 2}),
+			new double[]{.1, .2, .3, .4, .5, .6, .7, .8, .9, .15, .25, .35}
+	);
+
+	List<BayesianFactor> factors() {
+		final int[] parents = {C, A, B};
+		final int[] trueStates = {1, 0, 2};
+		final double[] strengths = {.9, .7, .4};
+
+		final BayesianFactor or = new BayesianOrFactor(domain, parents, trueStates);
+		final BayesianFactor and = new BayesianAndFactor(domain, parents, trueStates);
+		final BayesianFactor noisyOr = new BayesianNoisyOrFactor(domain, parents, trueStates, strengths);
+
+		return List.of(
+				or, and, noisyOr,
+				new BayesianNoisyOrFactor(domain, parents, trueStates, strengths).filter(A, 1),
+				new BayesianNoisyOrFactor(domain, parents, trueStates, strengths).filter(O, 1),
+				new BayesianNotFactor(new Strides(new int[]{B, O}, new int[]{3, 2}), B)
+		);
+	}
+
+	static BayesianFactor dense(BayesianFactor f) {
+		return new BayesianDefaultFactor(f.getDomain(), f.getData());
+	}
+
+	@Test
+	void testValuesWithoutTable() {
+		final BayesianFactor noisyOr = factors().get(2);
+
+		// P(O=1 | A=0, B=2, C=0): parents A and B are TRUE
+		assertEquals(1 - (1 - .7) * (1 - .4), noisyOr.getValue(0, 2, 0, 1), 1e-12);
+		assertEquals((1 - .7) * (1 - .4), noisyOr.getValue(0, 2, 0, 0), 1e-12);
+
+		for (BayesianFactor f : factors()) {
+			final double[] data = f.getData();
+			for (int i = 0; i < data.length; i++) {
+				final int[] states = f.getDomain().getStatesFor(i);
+				assertEquals(data[i], f.getValue(states), 1e-12);
+				assertEquals(Math.log(data[i]), f.getLogValueAt(i), 1e-12);
+			}
+		}
+	}
+
+	@Test
+	void testAlgebraSameAsDense() {
+		for (BayesianFactor f : factors()) {
+			final BayesianFactor d = dense(f);
+
+			assertArrayEquals(algebra.combine(d, other).getData(), algebra.combine(f, other).getData(), 1e-12);
+			assertArrayEquals(algebra.combine(other, d).getData(), algebra.combine(other, f).getData(), 1e-12);
+
+			for (int v : f.getDomain().getVariables()) {
+				final BayesianFactor expected = algebra.marginalize(d, v);
+				final BayesianFactor actual = algebra.marginalize(f, v);
+				assertArrayEquals(expected.getDomain().getVariables(), actual.getDomain().getVariables());
+				assertArrayEquals(expected.getData(), actual.getData(), 1e-12);
+
+				for (int s = 0; s < f.getDomain().getCardinality(v); s++) {
+					final BayesianFactor fd = algebra.filter(d, v, s);
+					final BayesianFactor ff = algebra.filter(f, v, s);
+					// logic shortcuts can drop the parents that do not matter anymore
+					for (int i = 0; i < fd.getData().length; i++) {
+						final int[] states = fd.getDomain().getStatesFor(i);
+						final int[] kept = ff.getDomain().getVariables();
+						final int[] sub = new int[kept.length];
+						for (int k = 0; k < kept.length; k++)
+							sub[k] = states[fd.getDomain().indexOf(kept[k])];
+						assertEquals(fd.getData()[i], ff.getValue(sub), 1e-12);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void testCombineWithLogFactor() {
+		final BayesianFactor log = new BayesianLogFactor((BayesianDefaultFactor) other);
+
+		for (BayesianFactor f : factors()) {
+			final BayesianFactor expected = algebra.combine(dense(f), log);
+			final BayesianFactor actual = algebra.combine(f, log);
+			assertArrayEquals(expected.getData(), actual.getData(), 1e-9);
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package ch.idsia.crema.factor.convert;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceFactor;
+import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceFactorFactory;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
+import org.apache.commons.math3.optim.linear.Relationship;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HalfspaceToVertexTest {
+
+	/**
+	 * A converter that returns the same two vertices for any system, counting the enumerations.
+	 */
+	private static class CountingConverter extends HalfspaceToVertex {
+		final AtomicInteger calls = new AtomicInteger();
+
+		CountingConverter(HalfspaceVertexCache cache) {
+			super(cache);
+		}
+
+		@Override
+		protected double[][] enumerate(double[][] inequalities) {
+			calls.incrementAndGet();
+			return new double[][]{{.2, .8}, {.7, .3}};
+		}
+	}
+
+	private static SeparateHalfspaceFactor factor() {
+		return SeparateHalfspaceFactorFactory.factory()
+				.domain(new Strides(new int[]{0}, new int[]{2}), new Strides(new int[]{1}, new int[]{3}))
+				// the same system in three forms
+				.constraint(new double[]{1, 0}, Relationship.GEQ, .2, 0)
+				.constraint(new double[]{0, 1}, Relationship.GEQ, .3, 0)
+				.constraint(new double[]{1, 1}, Relationship.EQ, 1, 0)
+				.constraint(new double[]{2, 2}, Relationship.EQ, 2, 1)
+				.constraint(new double[]{0, 1}, Relationship.GEQ, .3, 1)
+				.constraint(new double[]{10, 0}, Relationship.GEQ, 2, 1)
+				.constraint(new double[]{1, 0}, Relationship.GEQ, .2, 2)
+				.constraint(new double[]{1, 0}, Relationship.GEQ, .2, 2)
+				.constraint(new double[]{0, 1}, Relationship.GEQ, .3, 2)
+				.constraint(new double[]{1, 1}, Relationship.EQ, 1, 2)
+				.get();
+	}
+
+	@Test
+	public void testNormalize() {
+		final double[][] a = HalfspaceVertexCache.normalize(new double[][]{
+				{-.2, 1, 0}, {-.3, 0, 1}, {0, 0, 0}, {-.4, 2, 0}
+		});
+		final double[][] b = HalfspaceVertexCache.normalize(new double[][]{
+				{-3, 0, 10}, {-.2, 1, -0.0}
+		});
+		assertArrayEquals(a, b);
+		assertEquals(2, a.length);
+
+		// 0 >= 1 has no solution
+		assertThrows(NoFeasibleSolutionException.class, () -> HalfspaceVertexCache.normalize(new double[][]{
+				{-.2, 1, 0}, {-1, 0, 0}
+		}));
+		assertThrows(NoFeasibleSolutionException.class, () -> new HalfspaceVertexCache(4).get(new double[][]{
+				{-1, 0, 0}
+		}, m -> fail("infeasible systems are not enumerated")));
+	}
+
+	@Test
+	public void testCache() {
+		final HalfspaceVertexCache cache = new HalfspaceVertexCache(8);
+		final CountingConverter converter = new CountingConverter(cache);
+
+		final VertexFactor v = converter.apply(factor(), 0);
+		assertEquals(1, converter.calls.get());
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+		for (int comb = 0; comb < 3; comb++)
+			assertEquals(2, v.getVerticesAt(comb).length);
+
+		// the vertices returned are copies
+		v.getVerticesAt(0)[0][0] = -1;
+		assertEquals(.2, converter.apply(factor(), 0).getVerticesAt(0)[0][0]);
+		assertEquals(1, converter.calls.get());
+
+		// without cache every combination is enumerated
+		final CountingConverter uncached = new CountingConverter(null);
+		uncached.apply(factor(), 0);
+		assertEquals(3, uncached.calls.get());
+
+		cache.setLimit(0);
+		converter.apply(factor(), 0);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testParallel() {
+		final CountingConverter converter = new CountingConverter(new HalfspaceVertexCache(8));
+		converter.setPool(new ForkJoinPool(3));
+
+		final VertexFactor v = converter.apply(factor(), 0);
+		for (int comb = 0; comb < 3; comb++)
+			assertArrayEquals(new double[][]{{.2, .8}, {.7, .3}}, v.getVerticesAt(comb));
+	}
+
+}
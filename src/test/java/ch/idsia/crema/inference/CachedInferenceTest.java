@@ -0,0 +1,152 @@
+package ch.idsia.crema.inference;
+
+import ch.idsia.crema.factor.algebra.BayesianAlgebra;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.inference.ve.VariableElimination;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.GraphicalModel;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachedInferenceTest {
+
+	private BayesianNetwork model;
+	private VariableElimination<BayesianFactor> ve;
+	private CachedInference<GraphicalModel<BayesianFactor>, BayesianFactor> cached;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		model = BIFParser.read("models/bif/asia.bif").network;
+		ve = new VariableElimination<>(new BayesianAlgebra());
+		cached = new CachedInference<>(ve, 16);
+	}
+
+	@Test
+	public void testHits() {
+		final TIntIntMap evidence = new TIntIntHashMap(new int[]{0, 2}, new int[]{1, 0});
+
+		final BayesianFactor first = cached.query(model, evidence, 7);
+		assertEquals(0, cached.getHits());
+		assertEquals(1, cached.getMisses());
+
+		// same evidence built in another order
+		final TIntIntMap same = new TIntIntHashMap();
+		same.put(2, 0);
+		same.put(0, 1);
+		final BayesianFactor second = cached.query(model, same, 7);
+		assertEquals(1, cached.getHits());
+		assertNotSame(first, second);
+		assertArrayEquals(first.getData(), second.getData(), 0);
+
+		// a missing variable is not the same of a variable in state 0
+		cached.query(model, new TIntIntHashMap(new int[]{0, 3}, new int[]{1, 0}), 7);
+		assertEquals(2, cached.getMisses());
+
+		// joined queries in any order
+		final BayesianFactor joint = cached.query(model, evidence, 6, 7);
+		assertArrayEquals(joint.getData(), cached.query(model, evidence, 7, 6).getData(), 0);
+		assertArrayEquals(ve.query(model, evidence, 6, 7).getData(), joint.getData(), 0);
+		assertEquals(2, cached.getHits());
+		assertEquals(3, cached.getMisses());
+
+		// changes of the model are detected
+		evidence.put(0, 1);
+		model.setFactor(7, model.getFactor(7));
+		cached.query(model, evidence, 7);
+		assertEquals(4, cached.getMisses());
+
+		cached.clear();
+		assertEquals(0, cached.size());
+		assertEquals(0, cached.getHits());
+	}
+
+	@Test
+	public void testModelWithoutVersion() {
+		final BayesianNetwork untracked = new BayesianNetwork() {
+			@Override
+			public long getVersion() {
+				return 0;
+			}
+		};
+		for (int v : model.getVariables())
+			untracked.addVariable(v, model.getSize(v));
+		for (int v : model.getVariables()) {
+			untracked.addParents(v, model.getParents(v));
+			untracked.setFactor(v, model.getFactor(v));
+		}
+
+		final BayesianFactor first = cached.query(untracked, new TIntIntHashMap(), 7);
+		final BayesianFactor second = cached.query(untracked, new TIntIntHashMap(), 7);
+
+		assertArrayEquals(first.getData(), second.getData(), 0);
+		assertEquals(0, cached.getHits());
+		assertEquals(2, cached.getMisses());
+		assertEquals(0, cached.size());
+
+		// the elimination plans are not kept either
+		assertEquals(0, ve.getPlanHits());
+		assertEquals(2, ve.getPlanMisses());
+	}
+
+	@Test
+	public void testEviction() {
+		cached.setMaxSize(3);
+		for (int v = 0; v < 8; v++)
+			cached.query(model, v);
+		assertEquals(3, cached.size());
+
+		// the most recent results are kept
+		cached.query(model, 7);
+		assertEquals(1, cached.getHits());
+		cached.query(model, 0);
+		assertEquals(9, cached.getMisses());
+
+		// each result over one binary variable weights 2
+		cached.setMaxWeight(4);
+		assertEquals(2, cached.size());
+		assertEquals(4, cached.getWeight());
+
+		cached.query(model, new TIntIntHashMap(), 6, 7);
+		assertEquals(1, cached.size());
+		assertEquals(4, cached.getWeight());
+
+		cached.setMaxSize(0);
+		cached.query(model, 1);
+		assertEquals(0, cached.size());
+	}
+
+	@Test
+	public void testConcurrent() {
+		// VariableElimination keeps the state of the query: use one for each query
+		final CachedInference<GraphicalModel<BayesianFactor>, BayesianFactor> cached = new CachedInference<>(
+				(m, e, q) -> new VariableElimination<>(new BayesianAlgebra()).query(m, e, q), 16
+		);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final List<double[]> results = pool.submit(() -> IntStream.range(0, 200).parallel()
+					.mapToObj(i -> cached.query(model, new TIntIntHashMap(new int[]{0}, new int[]{i % 2}), i % 8).getData())
+					.collect(Collectors.toList())
+			).join();
+
+			for (int i = 0; i < results.size(); i++)
+				assertArrayEquals(ve.query(model, new TIntIntHashMap(new int[]{0}, new int[]{i % 2}), i % 8).getData(), results.get(i), 1e-12);
+			assertEquals(200, cached.getHits() + cached.getMisses());
+			assertTrue(cached.size() <= 16);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
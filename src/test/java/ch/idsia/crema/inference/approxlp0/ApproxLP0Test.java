@@ -13,6 +13,11 @@ import gnu.trove.map.hash.TIntIntHashMap;
 import org.junit.jupiter.api.Test;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -91,11 +96,11 @@ class ApproxLP0Test {
 		// Assertions.assertArrayEquals(eUpper, qUpper, 1e-03);
 	}
 
-	@Test
-	void minimal() {
-		final int n = 10;
-
-		// naive-Bayes like model with root A and Bi children
+	/**
+	 * @param n number of children
+	 * @return a naive-Bayes like model with root A (variable 0) and n children Bi
+	 */
+	private static DAGModel<VertexFactor> naiveBayes(int n) {
 		final DAGModel<VertexFactor> m = new DAGModel<>();
 		final int A = m.addVariable(2);
 		final int[] B = new int[n];
@@ -137,6 +142,16 @@ class ApproxLP0Test {
 			m.setFactor(B[i], fB[i]);
 		}
 
+		return m;
+	}
+
+	@Test
+	void minimal() {
+		final int n = 10;
+		final DAGModel<VertexFactor> m = naiveBayes(n);
+		final int A = 0;
+		final int[] B = IntStream.rangeClosed(1, n).toArray();
+
 		System.out.println(m);
 
 		final ApproxLP0<VertexFactor> alp0 = new ApproxLP0<>(false);
@@ -151,4 +166,36 @@ class ApproxLP0Test {
 
 		System.out.println(qA);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void parallelQueriesAreReproducible() {
+		final DAGModel<VertexFactor> m = naiveBayes(5);
+		final TIntIntHashMap obs = new TIntIntHashMap();
+		obs.put(1, 0);
+		obs.put(2, 1);
+
+		RandomUtil.setRandomSeed(42);
+
+		// each task derives its seed from the master seed and its index
+		final IntFunction<IntervalFactor> task = i -> new ApproxLP0<VertexFactor>(20, false)
+				.setSeed(RandomUtil.stream(i).nextLong())
+				.query(m, obs, 0);
+
+		final IntervalFactor[] expected = IntStream.range(0, 8).mapToObj(task).toArray(IntervalFactor[]::new);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final IntervalFactor[] actual = pool.submit(() -> IntStream.range(0, 8).parallel()
+					.mapToObj(task)
+					.toArray(IntervalFactor[]::new)
+			).join();
+
+			for (int i = 0; i < expected.length; i++) {
+				assertArrayEquals(expected[i].getLower(), actual[i].getLower(), 0.0);
+				assertArrayEquals(expected[i].getUpper(), actual[i].getUpper(), 0.0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
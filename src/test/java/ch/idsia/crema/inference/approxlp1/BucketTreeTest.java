@@ -0,0 +1,81 @@
+package ch.idsia.crema.inference.approxlp1;
+
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactorFactory;
+import ch.idsia.crema.inference.ve.FactorVariableElimination;
+import ch.idsia.crema.inference.ve.VariableElimination;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import ch.idsia.crema.utility.ArraysUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BucketTreeTest {
+
+	private void assertSameAsVE(BayesianNetwork model, BucketTree tree, Solution solution, int[] kept) {
+		final int[] sequence = new MinFillOrdering().apply(model);
+
+		for (int v : model.getVariables()) {
+			final int[] family = ArraysUtil.addToSortedArray(model.getParents(v), v);
+			final int[] query = ArraysUtil.union(family, kept);
+
+			final VariableElimination<BayesianFactor> ve = new FactorVariableElimination<>(sequence);
+			ve.setFactors(solution.getData().valueCollection());
+			ve.setNormalize(false);
+			final BayesianFactor expected = ve.run(query);
+
+			final BayesianFactor actual = tree.query(solution, query);
+			assertNotNull(actual);
+			assertArrayEquals(expected.getDomain().getVariables(), actual.getDomain().getVariables());
+			assertArrayEquals(expected.getData(), actual.getData(), 1e-12);
+		}
+	}
+
+	@Test
+	public void testIncrementalMoves() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final int[] kept = {2, 7};
+		final BucketTree tree = new BucketTree(model, new MinFillOrdering().apply(model), kept);
+		final Neighbourhood neighbourhood = new Neighbourhood(model);
+
+		Solution solution = neighbourhood.random();
+		assertSameAsVE(model, tree, solution, kept);
+
+		// change one factor at a time, each time a different variable
+		for (int v : model.getVariables()) {
+			final BayesianFactor f = solution.getData().get(v);
+			final double[] data = f.getData().clone();
+			for (int i = 0; i < data.length; i++)
+				data[i] = (i + 1.0) / data.length;
+
+			final Move move = new Move(v);
+			move.setValues(BayesianFactorFactory.factory().domain(f.getDomain()).data(data).get());
+
+			final Solution next = neighbourhood.move(solution, move);
+			final BucketTree.State previous = tree.calibrate(solution);
+
+			assertSameAsVE(model, tree, next, kept);
+
+			// messages not depending on the changed factor are reused
+			final BucketTree.State current = tree.calibrate(next);
+			assertTrue(Arrays.stream(current.up).anyMatch(m -> m != null && Arrays.asList(previous.up).contains(m)));
+
+			solution = next;
+		}
+	}
+
+	@Test
+	public void testQueryOutsideBuckets() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final BucketTree tree = new BucketTree(model, new MinFillOrdering().apply(model), 2);
+
+		// variables 0 and 6 do not share a bucket
+		assertNull(tree.query(new Neighbourhood(model).random(), new int[]{0, 6}));
+	}
+
+}
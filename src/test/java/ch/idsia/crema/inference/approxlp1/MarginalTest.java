@@ -1,6 +1,8 @@
 package ch.idsia.crema.inference.approxlp1;
 
+import ch.idsia.crema.core.Strides;
 import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.credal.linear.interval.IntervalDefaultFactor;
 import ch.idsia.crema.factor.credal.linear.interval.IntervalFactor;
 import ch.idsia.crema.factor.credal.linear.interval.IntervalFactorFactory;
 import ch.idsia.crema.model.graphical.DAGModel;
@@ -13,6 +15,10 @@ import gnu.trove.map.hash.TIntIntHashMap;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.DoubleStream;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
 public class MarginalTest {
@@ -149,6 +155,66 @@ public class MarginalTest {
 		}
 	}
 
+	/**
+	 * A network with 10 variables and random interval factors, each variable with up to two parents.
+	 */
+	private static DAGModel<IntervalFactor> randomNetwork(long seed) {
+		final Random random = new Random(seed);
+		final DAGModel<IntervalFactor> model = new DAGModel<>();
+
+		for (int v = 0; v < 10; v++) {
+			model.addVariable(2 + random.nextInt(2));
+			for (int p = v - 1; p >= 0 && model.getParents(v).length < 2; p--)
+				if (random.nextBoolean())
+					model.addParent(v, p);
+
+			final Strides content = model.getDomain(v);
+			final Strides separation = model.getDomain(model.getParents(v));
+			final int size = content.getCombinations();
+			final double[][] lowers = new double[separation.getCombinations()][size];
+			final double[][] uppers = new double[separation.getCombinations()][size];
+
+			for (int i = 0; i < lowers.length; i++) {
+				final double[] p = random.doubles(size, 0.1, 1).toArray();
+				final double sum = DoubleStream.of(p).sum();
+				for (int s = 0; s < size; s++) {
+					lowers[i][s] = p[s] / sum * 0.8;
+					uppers[i][s] = Math.min(1, p[s] / sum * 1.2);
+				}
+			}
+
+			model.setFactor(v, new IntervalDefaultFactor(content, separation, lowers, uppers));
+		}
+
+		return model;
+	}
+
+	@Test
+	public void testParallelQueryIsReproducible() {
+		final DAGModel<IntervalFactor> model = randomNetwork(7);
+		final int query = 9;
+
+		RandomUtil.setRandomSeed(42);
+		final IntervalFactor expected = new ApproxLP1<IntervalFactor>().query(model, query);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final ApproxLP1<IntervalFactor> inference = new ApproxLP1<>();
+			inference.setPool(pool);
+
+			// same seed: the parallel searches return exactly the bounds of the sequential ones
+			for (int i = 0; i < 3; i++) {
+				RandomUtil.setRandomSeed(42);
+				final IntervalFactor actual = inference.query(model, query);
+
+				assertArrayEquals(expected.getLower(), actual.getLower(), 0.0);
+				assertArrayEquals(expected.getUpper(), actual.getUpper(), 0.0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	@Test
 	public void testSimplePosteriorQuery() {
 		GraphicalModel<GenericFactor> model = new DAGModel<>();
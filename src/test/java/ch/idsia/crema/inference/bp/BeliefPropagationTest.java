@@ -9,6 +9,7 @@ import ch.idsia.crema.factor.symbolic.serialize.SymbolicExecution;
 import ch.idsia.crema.inference.BayesianNetworkContainer;
 import ch.idsia.crema.inference.ve.FactorVariableElimination;
 import ch.idsia.crema.inference.ve.VariableElimination;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
 import ch.idsia.crema.model.graphical.BayesianNetwork;
 import ch.idsia.crema.model.graphical.DAGModel;
 import ch.idsia.crema.model.io.bif.BIFParser;
@@ -18,6 +19,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -307,7 +309,7 @@ public class BeliefPropagationTest {
 		bp.potentialsPerClique.forEach((c, f) -> {
 			assertNotNull(f);
 			assertNotNull(c);
-			assertTrue(f.size() > 0);
+			f.forEach(factor -> assertTrue(c.containsAll(factor.getDomain().getVariables())));
 		});
 	}
 
@@ -368,4 +370,70 @@ public class BeliefPropagationTest {
 
 		assertEquals(Qlbp.getValue(0), Qve.getValue(0), 0.01);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testIncrementalEvidence() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final int[] variables = model.getVariables();
+
+		final BeliefPropagation<BayesianFactor> incremental = new BeliefPropagation<>(false);
+		incremental.fullPropagation(model, new TIntIntHashMap(), variables[0]);
+
+		final TIntIntMap evidence = new TIntIntHashMap();
+		final int[][] changes = {{variables[1], 1}, {variables[6], 0}, {variables[1], 0}, {variables[7], 1}};
+
+		for (int[] change : changes) {
+			evidence.put(change[0], change[1]);
+			incremental.updateEvidence(change[0], change[1]);
+			assertSameMarginals(model, evidence, incremental);
+		}
+
+		evidence.remove(variables[6]);
+		incremental.removeEvidence(variables[6]);
+		assertSameMarginals(model, evidence, incremental);
+	}
+
+	private void assertSameMarginals(BayesianNetwork model, TIntIntMap evidence, BeliefPropagation<BayesianFactor> incremental) {
+		final BeliefPropagation<BayesianFactor> bp = new BeliefPropagation<>(false);
+		bp.fullPropagation(model, evidence, model.getVariables()[0]);
+
+		final int[] order = new MinFillOrdering().apply(model);
+		final VariableElimination<BayesianFactor> ve = new FactorVariableElimination<>(order);
+
+		for (int v : model.getVariables()) {
+			if (evidence.containsKey(v))
+				continue;
+
+			final double[] actual = incremental.queryFullPropagated(v).getData();
+			assertArrayEquals(bp.queryFullPropagated(v).getData(), actual, 1e-9);
+			assertArrayEquals(ve.query(model, evidence, v).getData(), actual, 1e-9);
+		}
+	}
+
+	@Test
+	void testParallelPropagation() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final TIntIntMap evidence = new TIntIntHashMap();
+		evidence.put(1, 0);
+		evidence.put(7, 1);
+
+		final BeliefPropagation<BayesianFactor> sequential = new BeliefPropagation<>(false);
+		final BeliefPropagation<BayesianFactor> parallel = new BeliefPropagation<>(false);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		parallel.setPool(pool);
+
+		try {
+			sequential.fullPropagation(model, evidence, 0);
+			parallel.fullPropagation(model, evidence, 0);
+
+			for (int v : model.getVariables()) {
+				if (evidence.containsKey(v))
+					continue;
+
+				assertArrayEquals(sequential.queryFullPropagated(v).getData(), parallel.queryFullPropagated(v).getData(), 0.0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package ch.idsia.crema.inference.bp;
+
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactorFactory;
+import ch.idsia.crema.inference.BayesianNetworkContainer;
+import ch.idsia.crema.inference.ve.FactorVariableElimination;
+import ch.idsia.crema.inference.ve.VariableElimination;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledJunctionTreeTest {
+
+	private void assertSameAsVE(BayesianNetwork model, TIntIntMap evidence) {
+		final int[] seq = new MinFillOrdering().apply(model);
+		final VariableElimination<BayesianFactor> ve = new FactorVariableElimination<>(seq);
+		final CompiledJunctionTree<BayesianFactor> jt = new CompiledJunctionTree<>(model);
+
+		final TIntObjectMap<BayesianFactor> marginals = jt.marginals(evidence);
+
+		for (int v : model.getVariables()) {
+			if (evidence.containsKey(v))
+				continue;
+
+			final BayesianFactor expected = ve.query(model, evidence, v);
+
+			assertArrayEquals(expected.getData(), jt.query(evidence, v).getData(), 1e-9);
+			assertArrayEquals(expected.getData(), marginals.get(v).getData(), 1e-9);
+		}
+	}
+
+	@Test
+	public void testMix5Variables() {
+		final BayesianNetwork model = BayesianNetworkContainer.mix5Variables().network;
+
+		assertSameAsVE(model, new TIntIntHashMap());
+
+		final TIntIntMap evidence = new TIntIntHashMap();
+		evidence.put(3, 0);
+		evidence.put(4, 1);
+		assertSameAsVE(model, evidence);
+	}
+
+	@Test
+	public void testAsia() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+
+		assertSameAsVE(model, new TIntIntHashMap());
+
+		final TIntIntMap evidence = new TIntIntHashMap();
+		evidence.put(0, 0);
+		evidence.put(7, 1);
+		assertSameAsVE(model, evidence);
+	}
+
+	@Test
+	public void testInvalidation() {
+		final BayesianNetwork model = new BayesianNetwork();
+		final int A = model.addVariable(2);
+		final int B = model.addVariable(2);
+
+		model.setFactor(A, BayesianFactorFactory.factory().domain(model.getDomain(A)).data(new double[]{.4, .6}).get());
+		model.setFactor(B, BayesianFactorFactory.factory().domain(model.getDomain(A, B)).data(new double[]{.3, .9, .7, .1}).get());
+
+		final CompiledBeliefPropagation<BayesianFactor> bp = new CompiledBeliefPropagation<>();
+		final CompiledJunctionTree<BayesianFactor> jt = bp.compile(model);
+
+		assertArrayEquals(new double[]{.4, .6}, bp.query(model, A).getData(), 1e-9);
+		assertSame(jt, bp.compile(model));
+
+		model.setFactor(A, BayesianFactorFactory.factory().domain(model.getDomain(A)).data(new double[]{.5, .5}).get());
+
+		assertFalse(jt.isValid());
+		assertThrows(IllegalStateException.class, () -> jt.query(A));
+
+		assertArrayEquals(new double[]{.5, .5}, bp.query(model, A).getData(), 1e-9);
+		assertNotSame(jt, bp.compile(model));
+	}
+
+}
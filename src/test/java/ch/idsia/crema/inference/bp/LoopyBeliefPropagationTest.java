@@ -11,6 +11,10 @@ import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -264,4 +268,28 @@ public class LoopyBeliefPropagationTest {
 
 		assertEquals(1.0, q.getValue(0));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testParallelMessagePassing() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final TIntIntMap evidence = new TIntIntHashMap();
+		evidence.put(1, 0);
+		evidence.put(7, 1);
+
+		final LoopyBeliefPropagation<BayesianFactor> sequential = new LoopyBeliefPropagation<>(10);
+		final LoopyBeliefPropagation<BayesianFactor> parallel = new LoopyBeliefPropagation<>(10);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		parallel.setPool(pool);
+
+		try {
+			final int[] queries = {0, 2, 3, 4, 5};
+			final List<BayesianFactor> expected = sequential.query(model, evidence, queries);
+			final List<BayesianFactor> actual = parallel.query(model, evidence, queries);
+
+			for (int i = 0; i < queries.length; i++)
+				assertArrayEquals(expected.get(i).getData(), actual.get(i).getData(), 0.0);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
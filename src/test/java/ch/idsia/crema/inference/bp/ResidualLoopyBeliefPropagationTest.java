@@ -0,0 +1,51 @@
+package ch.idsia.crema.inference.bp;
+
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResidualLoopyBeliefPropagationTest {
+
+	@Test
+	public void testSameFixedPointOfSynchronousUpdates() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final TIntIntMap evidence = new TIntIntHashMap();
+		evidence.put(7, 0);
+
+		final int[] queries = {0, 1, 2, 3, 4, 5};
+
+		final LoopyBeliefPropagation<BayesianFactor> lbp = new LoopyBeliefPropagation<>(200);
+		final ResidualLoopyBeliefPropagation rbp = new ResidualLoopyBeliefPropagation(true, 1e-12);
+
+		final List<BayesianFactor> expected = lbp.query(model, evidence, queries);
+		final List<BayesianFactor> actual = rbp.query(model, evidence, queries);
+
+		for (int i = 0; i < queries.length; i++)
+			assertArrayEquals(expected.get(i).getData(), actual.get(i).getData(), 1e-9);
+
+		assertTrue(rbp.isConverged());
+		assertTrue(rbp.getResidual() < 1e-12);
+		assertEquals(rbp.getUpdates(), rbp.getUpdateCounts().values().stream().mapToInt(x -> x).sum());
+	}
+
+	@Test
+	public void testStopsAfterMaxUpdates() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/alloy.bif").network;
+
+		final ResidualLoopyBeliefPropagation rbp = new ResidualLoopyBeliefPropagation(false, 0.0);
+		rbp.setIterations(1);
+		rbp.query(model, 0);
+
+		assertFalse(rbp.isConverged());
+		assertEquals(rbp.getUpdateCounts().size(), rbp.getUpdates());
+	}
+
+}
@@ -1,5 +1,6 @@
 package ch.idsia.crema.inference.sampling;
 
+import ch.idsia.crema.factor.bayesian.BayesianDefaultFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.inference.BayesianNetworkContainer;
 import ch.idsia.crema.inference.ve.FactorVariableElimination;
@@ -9,14 +10,16 @@ import ch.idsia.crema.model.graphical.BayesianNetwork;
 import ch.idsia.crema.utility.RandomUtil;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
+import org.apache.commons.lang3.ArrayUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 
 /**
@@ -57,6 +60,64 @@ public class LikelihoodWeightingSamplingTest {
 		}
 	}
 
+	@Test
+	public void testParallelReproducible() {
+		BayesianNetwork model = BayesianNetworkContainer.mix5Variables().network;
+		TIntIntMap evidence = new TIntIntHashMap(new int[]{3, 4}, new int[]{0, 1});
+
+		VariableElimination<BayesianFactor> ve = new FactorVariableElimination<>(new int[]{4, 3, 1, 0, 2});
+		BayesianFactor Qve = ve.query(model, evidence, 2);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			lws.setPool(pool).setSeed(42);
+
+			BayesianFactor first = lws.query(model, evidence, 2);
+			BayesianFactor second = lws.query(model, evidence, 2);
+
+			assertArrayEquals(first.getData(), second.getData(), 0.0);
+			assertEquals(Qve.getValue(0), first.getValue(0), 0.01);
+
+			// same seed, same number of chunks
+			ForkJoinPool other = new ForkJoinPool(4);
+			try {
+				lws.setPool(other);
+				assertArrayEquals(first.getData(), lws.query(model, evidence, 2).getData(), 0.0);
+			} finally {
+				other.shutdown();
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCachedSampler() {
+		BayesianNetwork model = BayesianNetworkContainer.mix5Variables().network;
+		TIntIntMap evidence = new TIntIntHashMap(new int[]{3}, new int[]{0});
+
+		LikelihoodWeightingSampling sampling = new LikelihoodWeightingSampling(1000);
+		sampling.setSeed(42);
+
+		BayesianFactor first = sampling.query(model, evidence, 0);
+		BayesianFactor second = sampling.query(model, new TIntIntHashMap(evidence), 0);
+
+		assertArrayEquals(first.getData(), second.getData(), 0.0);
+		assertEquals(1, sampling.getSamplerMisses());
+		assertEquals(1, sampling.getSamplerHits());
+
+		// a new factor changes the version of the model
+		BayesianFactor f0 = model.getFactor(0);
+		double[] data = f0.getData().clone();
+		ArrayUtils.reverse(data);
+		model.setFactor(0, new BayesianDefaultFactor(f0.getDomain(), data));
+
+		BayesianFactor third = sampling.query(model, evidence, 0);
+
+		assertEquals(2, sampling.getSamplerMisses());
+		assertNotEquals(first.getValue(0), third.getValue(0));
+	}
+
 	@Test
 	public void vsVariableElimination2() {
 		BayesianNetwork model = BayesianNetworkContainer.mix5Variables().network;
@@ -12,7 +12,11 @@ import gnu.trove.map.hash.TIntIntHashMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -140,4 +144,45 @@ public class LogicSamplingTest {
 		}
 
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testAnytimePrecision() {
+		final VariableElimination<BayesianFactor> ve = new FactorVariableElimination<>(new int[]{4, 3, 1, 0, 2});
+		final BayesianFactor Qve = ve.query(model, new TIntIntHashMap(), 2);
+
+		final List<Long> seen = new ArrayList<>();
+		ls.setIterations(10_000_000)
+				.setPrecision(.005)
+				.setBatchSize(1000)
+				.addListener(e -> seen.add(e.getSamples()));
+
+		final BayesianFactor Qls = ls.query(model, new TIntIntHashMap(), 2);
+		final SamplingEstimate estimate = ls.getEstimate();
+
+		// stopped as soon as the precision has been reached
+		assertTrue(estimate.getSamples() < 10_000_000);
+		assertTrue(estimate.getHalfWidth() <= .005);
+		assertTrue(estimate.getHalfWidth(2) > 0);
+		assertEquals(estimate.getSamples(), (long) seen.get(seen.size() - 1));
+		assertEquals(estimate.getSamples() / 1000, seen.size());
+
+		// without weights the effective sample size is the number of samples
+		assertEquals(estimate.getSamples(), estimate.getEffectiveSampleSize(), 1e-6);
+
+		final double[][] interval = estimate.getInterval(2);
+		assertTrue(interval[0][0] <= Qls.getValue(0) && Qls.getValue(0) <= interval[1][0]);
+		assertEquals(Qve.getValue(0), Qls.getValue(0), .01);
+	}
+
+	@Test
+	void testAnytimeTimeLimit() {
+		ls.setIterations(Long.MAX_VALUE)
+				.setTimeLimit(100)
+				.setBatchSize(10000);
+
+		ls.query(model, new TIntIntHashMap(), 2);
+
+		assertTrue(ls.getEstimate().getElapsed() >= 100);
+		assertTrue(ls.getEstimate().getSamples() > 0);
+	}
+}
@@ -0,0 +1,54 @@
+package ch.idsia.crema.inference.sampling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SamplingEstimateTest {
+
+	@Test
+	public void testRareStateKeepsTheIntervalOpen() {
+		final double z = 1.96;
+		final SamplingEstimate estimate = new SamplingEstimate(new int[]{0}, new int[]{2}, z);
+
+		// the second state has a small probability and has not been sampled yet
+		final int n = 100;
+		for (int i = 0; i < n; i++)
+			estimate.add(new int[]{0}, new int[]{0}, 1.0);
+
+		assertArrayEquals(new double[]{1, 0}, estimate.getPosterior(0), 0);
+
+		// Wilson half-width at p = 0: z^2 / (2 (n + z^2))
+		final double expected = z * z / (2 * (n + z * z));
+		assertEquals(expected, estimate.getHalfWidth(0), 1e-12);
+		assertTrue(estimate.getHalfWidth() > 0.01);
+
+		// the interval of the unseen state is [0, 2h] and still contains small probabilities
+		final double[][] interval = estimate.getInterval(0);
+		assertEquals(0, interval[0][1], 1e-12);
+		assertEquals(2 * expected, interval[1][1], 1e-12);
+		assertEquals(1, interval[1][0], 1e-12);
+		assertEquals(1 - 2 * expected, interval[0][0], 1e-12);
+	}
+
+	@Test
+	public void testRareStatePrecisionNeedsEnoughSamples() {
+		final SamplingEstimate estimate = new SamplingEstimate(new int[]{0}, new int[]{2}, 1.96);
+
+		// with p = 0 the Wilson half-width drops below 0.01 only after about 190 samples
+		for (int i = 0; i < 150; i++)
+			estimate.add(new int[]{0}, new int[]{0}, 1.0);
+		assertTrue(estimate.getHalfWidth(0) > 0.01);
+
+		for (int i = 0; i < 50; i++)
+			estimate.add(new int[]{0}, new int[]{0}, 1.0);
+		assertTrue(estimate.getHalfWidth(0) < 0.01);
+	}
+
+	@Test
+	public void testNoSamples() {
+		final SamplingEstimate estimate = new SamplingEstimate(new int[]{0}, new int[]{2}, 1.96);
+		assertEquals(Double.POSITIVE_INFINITY, estimate.getHalfWidth(0));
+	}
+
+}
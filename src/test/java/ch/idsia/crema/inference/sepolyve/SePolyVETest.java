@@ -11,6 +11,10 @@ import gnu.trove.map.hash.TIntIntHashMap;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
 public class SePolyVETest {
 
 	@Test
@@ -149,4 +153,80 @@ public class SePolyVETest {
 		// TODO: and then?
 	}
 
+	private static double[][] sorted(double[][] vertices) {
+		final double[][] copy = vertices.clone();
+		Arrays.sort(copy, (a, b) -> {
+			for (int i = 0; i < a.length; i++) {
+				final int c = Double.compare(Math.round(a[i] * 1e9), Math.round(b[i] * 1e9));
+				if (c != 0) return c;
+			}
+			return 0;
+		});
+		return copy;
+	}
+
+	@Test
+	public void testParallel() {
+		final DAGModel<VertexFactor> model = new DAGModel<>();
+
+		final int a = model.addVariable(3);
+		model.setFactor(a, VertexFactorFactory.factory().domain(model.getDomain(a), Strides.empty())
+				.addVertex(new double[]{0.1, 0.1, 0.8})
+				.addVertex(new double[]{0.1, 0.3, 0.6})
+				.addVertex(new double[]{0.3, 0.2, 0.5})
+				.get());
+
+		final int b = model.addVariable(3);
+		model.setFactor(b, VertexFactorFactory.factory().domain(model.getDomain(b), model.getDomain(a))
+				.addVertex(new double[]{0.2, 0.1, 0.7}, 0)
+				.addVertex(new double[]{0.2, 0.5, 0.3}, 0)
+				.addVertex(new double[]{0.7, 0.1, 0.2}, 1)
+				.addVertex(new double[]{0.3, 0.4, 0.3}, 1)
+				.addVertex(new double[]{0.3, 0.1, 0.6}, 2)
+				.addVertex(new double[]{0.1, 0.7, 0.2}, 2)
+				.get());
+
+		final int c = model.addVariable(2);
+		model.setFactor(c, VertexFactorFactory.factory().domain(model.getDomain(c), model.getDomain(b))
+				.addVertex(new double[]{0.4, 0.6}, 0)
+				.addVertex(new double[]{0.5, 0.5}, 0)
+				.addVertex(new double[]{0.2, 0.8}, 1)
+				.addVertex(new double[]{0.3, 0.7}, 1)
+				.addVertex(new double[]{0.9, 0.1}, 2)
+				.addVertex(new double[]{0.6, 0.4}, 2)
+				.get());
+
+		final int d = model.addVariable(3);
+		model.setFactor(d, VertexFactorFactory.factory().domain(model.getDomain(d), model.getDomain(c))
+				.addVertex(new double[]{0.4, 0.4, 0.2}, 0)
+				.addVertex(new double[]{0.5, 0.1, 0.4}, 0)
+				.addVertex(new double[]{0.2, 0.2, 0.6}, 1)
+				.addVertex(new double[]{0.1, 0.6, 0.3}, 1)
+				.get());
+
+		final TIntIntHashMap evidence = new TIntIntHashMap(new int[]{c}, new int[]{1});
+
+		final VertexFactor expected = new SePolyVE(0.0001).query(model, evidence, d);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final SePolyVE inference = new SePolyVE(0.0001);
+			inference.setPool(pool);
+			final VertexFactor actual = inference.query(model, evidence, d);
+
+			final double[][] e = sorted(expected.getVertices());
+			final double[][] r = sorted(actual.getVertices());
+			Assertions.assertEquals(e.length, r.length);
+			for (int i = 0; i < e.length; i++)
+				Assertions.assertArrayEquals(e[i], r[i], 1e-9);
+
+			// the limit on time is checked by all the threads
+			inference.init(Map.of(SePolyVE.MAX_TIME_MS, -1L));
+			Assertions.assertThrows(MaxTimeException.class, () -> inference.query(model, evidence, d));
+			Assertions.assertEquals(-1, inference.getNodeStats().get(0).getTime());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 }
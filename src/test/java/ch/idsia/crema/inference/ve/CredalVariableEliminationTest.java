@@ -0,0 +1,81 @@
+package ch.idsia.crema.inference.ve;
+
+import ch.idsia.crema.factor.algebra.VertexConvexHullAlgebra;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexAbstractFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexFactor;
+import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.io.uai.UAIParser;
+import ch.idsia.crema.utility.hull.ConvexHull;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CredalVariableEliminationTest {
+
+	@Test
+	public void testConcurrentConvexHullMethods() throws Exception {
+		final DAGModel<VertexFactor> model = UAIParser.read("models/pgm-vcredal.uai");
+		// the child, its parent is marginalized
+		final int query = 0;
+
+		final CredalVariableElimination withHull = new CredalVariableElimination().setConvexHullMarg(ConvexHull.LP_CONVEX_HULL);
+		final CredalVariableElimination withoutHull = new CredalVariableElimination();
+
+		final double[][][] expectedWith = withHull.query(model, new TIntIntHashMap(), query).getData();
+		final double[][][] expectedWithout = withoutHull.query(model, new TIntIntHashMap(), query).getData();
+		assertTrue(expectedWith[0].length < expectedWithout[0].length);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<double[][][]>> with = new ArrayList<>();
+			final List<Future<double[][][]>> without = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				with.add(executor.submit(() -> withHull.query(model, new TIntIntHashMap(), query).getData()));
+				without.add(executor.submit(() -> withoutHull.query(model, new TIntIntHashMap(), query).getData()));
+			}
+
+			for (Future<double[][][]> f : with)
+				assertArrayEquals(expectedWith, f.get());
+			for (Future<double[][][]> f : without)
+				assertArrayEquals(expectedWithout, f.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testAlgebraIgnoresStaticConvexHull() throws IOException {
+		final DAGModel<VertexFactor> model = UAIParser.read("models/pgm-vcredal.uai");
+		final int query = 0;
+
+		final CredalVariableElimination withoutHull = new CredalVariableElimination();
+		final double[][][] expected = withoutHull.query(model, new TIntIntHashMap(), query).getData();
+
+		final int parent = model.getParents(query)[0];
+		final VertexFactor factor = model.getFactor(query).combine(model.getFactor(parent));
+		final double[][][] marginal = new VertexConvexHullAlgebra(null).marginalize(factor, parent).getData();
+
+		VertexAbstractFactor.setConvexHullMarg(ConvexHull.LP_CONVEX_HULL);
+		try {
+			// the global method changes the plain marginalization...
+			assertTrue(factor.marginalize(parent).getData()[0].length < marginal[0].length);
+
+			// ...but not the algebra of the inference, that has no method
+			assertArrayEquals(marginal, new VertexConvexHullAlgebra(null).marginalize(factor, parent).getData());
+			assertArrayEquals(expected, withoutHull.query(model, new TIntIntHashMap(), query).getData());
+		} finally {
+			VertexAbstractFactor.setConvexHullMarg(null);
+		}
+	}
+
+}
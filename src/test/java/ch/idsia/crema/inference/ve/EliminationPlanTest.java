@@ -0,0 +1,174 @@
+package ch.idsia.crema.inference.ve;
+
+import ch.idsia.crema.core.DomainBuilder;
+import ch.idsia.crema.factor.FactorUtil;
+import ch.idsia.crema.factor.algebra.BayesianAlgebra;
+import ch.idsia.crema.factor.algebra.Operation;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactorFactory;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EliminationPlanTest {
+
+	/**
+	 * Variable elimination with a {@link FactorQueue}, as done before the plans.
+	 */
+	private static BayesianFactor reference(Operation<BayesianFactor> operator, List<BayesianFactor> factors,
+	                                        int[] sequence, TIntIntMap evidence, int... query) {
+		query = query.clone();
+		Arrays.sort(query);
+
+		FactorQueue<BayesianFactor> queue = new FactorQueue<>(sequence);
+		queue.addAll(factors);
+		boolean normalize = false;
+		BayesianFactor last = null;
+		while (queue.hasNext()) {
+			int variable = queue.getVariable();
+			Collection<BayesianFactor> var_factors = queue.next();
+
+			if (var_factors.size() > 0) {
+				last = FactorUtil.combine(operator, var_factors);
+
+				if (Arrays.binarySearch(query, variable) < 0) {
+					if (evidence.containsKey(variable)) {
+						last = operator.filter(last, variable, evidence.get(variable));
+						normalize = true;
+					} else {
+						last = operator.marginalize(last, variable);
+					}
+				}
+				queue.add(last);
+			}
+		}
+
+		if (normalize)
+			last = FactorUtil.normalize(operator, last);
+		return last;
+	}
+
+	@Test
+	public void testSameAsFactorQueue() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/alloy.bif").network;
+		final BayesianAlgebra algebra = new BayesianAlgebra();
+		final int[] variables = model.getVariables();
+		final int[] sequence = new MinFillOrdering().apply(model);
+		final List<BayesianFactor> factors = new ArrayList<>(model.getFactors());
+
+		final VariableElimination<BayesianFactor> ve = new VariableElimination<>(algebra, sequence);
+
+		for (int i = 0; i < 30; i++) {
+			final int query = variables[(i * 11) % variables.length];
+			final TIntIntMap evidence = new TIntIntHashMap();
+			if (i % 3 != 0)
+				evidence.put(variables[(i * 7 + 3) % variables.length], i % 2);
+			evidence.remove(query);
+
+			final BayesianFactor expected = reference(algebra, factors, sequence, evidence, query);
+			final BayesianFactor actual = ve.query(model, evidence, query);
+
+			assertArrayEquals(expected.getDomain().getVariables(), actual.getDomain().getVariables());
+			assertArrayEquals(expected.getData(), actual.getData(), 0);
+		}
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final VariableElimination<BayesianFactor> ve = new VariableElimination<>(new BayesianAlgebra());
+
+		final TIntIntMap evidence = new TIntIntHashMap(new int[]{0}, new int[]{1});
+		final BayesianFactor first = ve.query(model, evidence, 7);
+		final EliminationPlan plan = ve.getPlan();
+		assertEquals(0, ve.getPlanHits());
+		assertEquals(1, ve.getPlanMisses());
+
+		// same observed variables with another state: same plan
+		evidence.put(0, 0);
+		ve.query(model, evidence, 7);
+		assertSame(plan, ve.getPlan());
+		assertEquals(1, ve.getPlanHits());
+
+		evidence.put(0, 1);
+		assertArrayEquals(first.getData(), ve.query(model, evidence, 7).getData(), 0);
+
+		// another query
+		ve.query(model, evidence, 6);
+		assertNotSame(plan, ve.getPlan());
+		assertEquals(2, ve.getPlanMisses());
+
+		// a change in the model invalidates the plans
+		model.setFactor(7, model.getFactor(7));
+		ve.query(model, evidence, 7);
+		assertNotSame(plan, ve.getPlan());
+		assertEquals(3, ve.getPlanMisses());
+	}
+
+	@Test
+	public void testNoCacheWithoutVersion() {
+		// a model that does not track its changes
+		final BayesianNetwork model = new BayesianNetwork() {
+			@Override
+			public long getVersion() {
+				return 0;
+			}
+		};
+		final int a = model.addVariable(2);
+		final int b = model.addVariable(2);
+		model.addParent(b, a);
+		model.setFactor(a, BayesianFactorFactory.factory().domain(model.getDomain(a)).data(new double[]{.3, .7}).get());
+		model.setFactor(b, BayesianFactorFactory.factory().domain(model.getDomain(a, b))
+				.data(new double[]{.1, .9, .6, .4})
+				.get());
+
+		final VariableElimination<BayesianFactor> ve = new VariableElimination<>(new BayesianAlgebra());
+		ve.query(model, b);
+		final EliminationPlan plan = ve.getPlan();
+		ve.query(model, b);
+
+		assertNotSame(plan, ve.getPlan());
+		assertEquals(0, ve.getPlanHits());
+		assertEquals(2, ve.getPlanMisses());
+	}
+
+	@Test
+	public void testMaxSize() {
+		final BayesianFactor[] f = new BayesianFactor[3];
+		f[0] = BayesianFactorFactory.factory().domain(DomainBuilder.var(0).size(2))
+				.data(new double[]{0.3, 0.7})
+				.get();
+		f[1] = BayesianFactorFactory.factory().domain(DomainBuilder.var(0, 1).size(2, 3))
+				.data(new double[]{0.1, 0.9, 0.4, 0.6, 0.8, 0.2})
+				.get();
+		f[2] = BayesianFactorFactory.factory().domain(DomainBuilder.var(1, 2).size(3, 4))
+				.data()
+				.get();
+
+		final EliminationPlan plan = EliminationPlan.compile(Arrays.asList(f), new int[]{0, 1, 2}, new int[0], 2);
+
+		assertEquals(3, plan.getStepsCount());
+		assertEquals(EliminationPlan.Action.MARGINALIZE, plan.getAction(0));
+		assertEquals(EliminationPlan.Action.KEEP, plan.getAction(2));
+		// the second step combines the marginal over 1 with the factor over 1 and 2
+		assertArrayEquals(new int[]{1, 2}, plan.getDomain(1).getVariables());
+		assertEquals(12, plan.getMaxSize());
+		assertEquals(6 + 12 + 4, plan.getTotalSize());
+		assertEquals(2, plan.getWidth());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> plan.execute(new BayesianAlgebra(), Arrays.asList(f[0], f[1]), new TIntIntHashMap(), true));
+	}
+
+}
@@ -1,15 +1,27 @@
 package ch.idsia.crema.learning;
 
+import ch.idsia.crema.data.Dataset;
 import ch.idsia.crema.factor.bayesian.BayesianFactor;
 import ch.idsia.crema.factor.bayesian.BayesianFactorFactory;
+import ch.idsia.crema.inference.sampling.BayesianNetworkSampling;
+import ch.idsia.crema.inference.ve.order.MinFillOrdering;
 import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import ch.idsia.crema.utility.RandomUtil;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -84,4 +96,101 @@ public class FrequentistEMTest {
 		assertArrayEquals(new double[]{.0, 1.}, inf.getPosterior().getFactor(X[2]).filter(X[1], 1).getData(), 1e-6); // [0.1, 0.9]
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testMissingIsNotZero() throws InterruptedException {
+		BayesianNetwork model = new BayesianNetwork();
+		final int x0 = model.addVariable(2);
+		final int x1 = model.addVariable(2);
+		final int x2 = model.addVariable(2);
+		for (int x : model.getVariables())
+			model.setFactor(x, BayesianFactorFactory.factory().domain(model.getDomain(x)).data(new double[]{.5, .5}).get());
+
+		// TIntIntHashMap.equals reads the missing variables as state 0: these are equal maps of different evidences
+		final TIntIntMap first = new TIntIntHashMap(new int[]{x0, x1}, new int[]{0, 1});
+		final TIntIntMap second = new TIntIntHashMap(new int[]{x1, x2}, new int[]{1, 0});
+		assertEquals(first, second);
+
+		ExpectationMaximization<BayesianFactor> inf = new FrequentistEM(model)
+				.setRegularization(0.0)
+				.setInline(false);
+		inf.run(List.of(first, second), 1);
+
+		assertArrayEquals(new double[]{.75, .25}, inf.getPosterior().getFactor(x0).getData(), 1e-9);
+		assertArrayEquals(new double[]{.75, .25}, inf.getPosterior().getFactor(x2).getData(), 1e-9);
+	}
+
+	@Test
+	public void testGroupedExpectation() throws IOException, InterruptedException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final int[] X = model.getVariables();
+
+		// sampled records with some missing values, many of them repeated
+		RandomUtil.setRandomSeed(42);
+		final Random random = new Random(42);
+		final List<TIntIntMap> observations = new ArrayList<>();
+		for (TIntIntMap observation : new BayesianNetworkSampling().samples(model, 200)) {
+			for (int x : X)
+				if (random.nextDouble() < .5)
+					observation.remove(x);
+			observations.add(observation);
+		}
+
+		final int[] seq = new MinFillOrdering().apply(model);
+		final FrequentistEM reference = new FrequentistEM(model, seq);
+		// an external engine disables the grouped propagation
+		reference.setInferenceEngine(reference.getDefaultInference(seq));
+		reference.run(observations, 3);
+
+		final FrequentistEM grouped = new FrequentistEM(model, seq);
+		grouped.run(observations, 3);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final FrequentistEM parallel = new FrequentistEM(model, seq).setPool(pool);
+			parallel.run(observations, 3);
+
+			for (int x : X) {
+				final double[] expected = reference.getPosterior().getFactor(x).getData();
+				assertArrayEquals(expected, grouped.getPosterior().getFactor(x).getData(), 1e-9);
+				assertArrayEquals(expected, parallel.getPosterior().getFactor(x).getData(), 1e-9);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testDataset() throws IOException, InterruptedException {
+		final BayesianNetwork model = BIFParser.read("models/bif/asia.bif").network;
+		final int[] X = model.getVariables();
+
+		RandomUtil.setRandomSeed(7);
+		final Random random = new Random(7);
+		final List<TIntIntMap> observations = new ArrayList<>();
+		final Dataset.Builder builder = Dataset.builder(
+				IntStream.of(X).mapToObj(String::valueOf).toArray(String[]::new), X
+		);
+		for (TIntIntMap observation : new BayesianNetworkSampling().samples(model, 200)) {
+			for (int x : X)
+				if (random.nextDouble() < .3)
+					observation.remove(x);
+			observations.add(observation);
+			builder.add(IntStream.of(X).map(x -> observation.containsKey(x) ? observation.get(x) : -1).toArray());
+		}
+		final Dataset data = builder.build();
+
+		final int[] seq = new MinFillOrdering().apply(model);
+		final FrequentistEM expected = new FrequentistEM(model, seq);
+		// an external engine queries each observation without grouping them through the compiled tree
+		expected.setInferenceEngine(expected.getDefaultInference(seq));
+		expected.run(observations, 5);
+
+		final FrequentistEM actual = new FrequentistEM(model, seq);
+		actual.run(data, 5);
+
+		assertEquals(expected.getPerformedIterations(), actual.getPerformedIterations());
+		for (int x : X)
+			assertArrayEquals(expected.getPosterior().getFactor(x).getData(), actual.getPosterior().getFactor(x).getData(), 1e-9);
+	}
+
+}
@@ -0,0 +1,187 @@
+package ch.idsia.crema.model.graphical;
+
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactorFactory;
+import ch.idsia.crema.inference.sampling.LogicSampling;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import ch.idsia.crema.preprocess.CutObserved;
+import ch.idsia.crema.preprocess.RemoveBarren;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OverlayModelTest {
+
+	private BayesianNetwork model;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		model = BIFParser.read("models/bif/alloy.bif").network;
+	}
+
+	private static void assertSameModel(GraphicalModel<BayesianFactor> expected, GraphicalModel<BayesianFactor> actual) {
+		assertArrayEquals(expected.getVariables(), actual.getVariables());
+		assertEquals(expected.getVariablesCount(), actual.getVariablesCount());
+		for (int v : expected.getVariables()) {
+			assertEquals(expected.getSize(v), actual.getSize(v));
+			assertArrayEquals(expected.getParents(v), actual.getParents(v), "parents of " + v);
+			assertArrayEquals(expected.getChildren(v), actual.getChildren(v), "children of " + v);
+
+			final BayesianFactor fe = expected.getFactor(v);
+			final BayesianFactor fa = actual.getFactor(v);
+			assertArrayEquals(fe.getDomain().getVariables(), fa.getDomain().getVariables());
+			assertArrayEquals(fe.getData(), fa.getData(), 0);
+		}
+		assertArrayEquals(expected.getRoots(), actual.getRoots());
+		assertArrayEquals(expected.getLeaves(), actual.getLeaves());
+	}
+
+	@Test
+	public void testPreprocessSameAsCopy() throws IOException {
+		final int[] variables = model.getVariables();
+		final long version = model.getVersion();
+
+		for (int i = 0; i < 20; i++) {
+			final int query = variables[(i * 7) % variables.length];
+			final TIntIntMap evidence = new TIntIntHashMap();
+			evidence.put(variables[(i * 13 + 5) % variables.length], 0);
+			evidence.put(variables[(i * 3 + 11) % variables.length], 1);
+			evidence.remove(query);
+
+			final GraphicalModel<BayesianFactor> copy = model.copy();
+			new CutObserved<BayesianFactor>().executeInPlace(copy, evidence);
+			new RemoveBarren<BayesianFactor>().executeInPlace(copy, evidence, query);
+
+			final GraphicalModel<BayesianFactor> cut = new CutObserved<BayesianFactor>().executeOverlay(model, evidence);
+			final GraphicalModel<BayesianFactor> overlay = new RemoveBarren<BayesianFactor>().executeOverlay(cut, evidence, query);
+
+			assertTrue(overlay instanceof OverlayModel);
+			assertSame(model, ((OverlayModel<BayesianFactor>) overlay).getBase());
+			assertSameModel(copy, overlay);
+			assertSameModel(copy, ((OverlayModel<BayesianFactor>) overlay).toDAGModel());
+		}
+
+		// execute still returns an independent copy
+		final TIntIntMap evidence = new TIntIntHashMap(new int[]{variables[0]}, new int[]{0});
+		assertFalse(new CutObserved<BayesianFactor>().execute(model, evidence) instanceof OverlayModel);
+		assertFalse(new RemoveBarren<BayesianFactor>().execute(model, evidence, variables[1]) instanceof OverlayModel);
+
+		// the base model has not been modified
+		assertEquals(version, model.getVersion());
+		assertSameModel(BIFParser.read("models/bif/alloy.bif").network, model);
+	}
+
+	@Test
+	public void testSharedFactors() {
+		final int observed = model.getRoots()[0];
+		final int[] children = model.getChildren(observed);
+
+		final GraphicalModel<BayesianFactor> cut = new CutObserved<BayesianFactor>()
+				.executeOverlay(model, new TIntIntHashMap(new int[]{observed}, new int[]{0}));
+
+		// only the observed variable and its children have changed
+		assertEquals(children.length + 1, ((OverlayModel<BayesianFactor>) cut).getChangesCount());
+
+		for (int v : model.getVariables()) {
+			if (Arrays.stream(children).anyMatch(c -> c == v)) {
+				assertNotSame(model.getFactor(v), cut.getFactor(v));
+				assertFalse(cut.getFactor(v).getDomain().contains(observed));
+			} else {
+				assertSame(model.getFactor(v), cut.getFactor(v));
+			}
+		}
+	}
+
+	@Test
+	public void testQueriesSameAsCopy() {
+		final int[] variables = model.getVariables();
+		final int query = variables[variables.length - 1];
+		final TIntIntMap evidence = new TIntIntHashMap(new int[]{variables[0]}, new int[]{1});
+
+		final LogicSampling inference = new LogicSampling(2000);
+		inference.setSeed(1);
+		final BayesianFactor overlay = inference.query(model, evidence, query);
+
+		final LogicSampling inferenceCopy = new LogicSampling(2000, false);
+		inferenceCopy.setSeed(1);
+		final BayesianNetwork copy = model.copy();
+		new CutObserved<BayesianFactor>().executeInPlace(copy, evidence);
+		new RemoveBarren<BayesianFactor>().executeInPlace(copy, evidence, query);
+		final BayesianFactor expected = inferenceCopy.query(copy, evidence, query);
+
+		assertArrayEquals(expected.getData(), overlay.getData(), 0);
+	}
+
+	@Test
+	public void testRejectedEdgesDoNotChangeTheOverlay() {
+		final DAGModel<BayesianFactor> base = new DAGModel<>();
+		final int a = base.addVariable(2);
+		final int b = base.addVariable(2);
+		base.addParent(b, a);
+		base.setFactor(a, BayesianFactorFactory.factory().domain(base.getDomain(a)).data(new double[]{.3, .7}).get());
+		base.setFactor(b, BayesianFactorFactory.factory().domain(base.getDomain(a, b)).data().get());
+
+		final OverlayModel<BayesianFactor> overlay = base.copyOnWrite();
+		final long version = overlay.getVersion();
+		final BayesianFactor fa = overlay.getFactor(a);
+		final BayesianFactor fb = overlay.getFactor(b);
+
+		// a cycle is rejected before the factor is widened
+		assertThrows(IllegalArgumentException.class, () -> overlay.addParent(a, b));
+		assertSame(fa, overlay.getFactor(a));
+		assertEquals(version, overlay.getVersion());
+
+		// an existing edge is not added again
+		overlay.addParent(b, a);
+		assertSame(fb, overlay.getFactor(b));
+		assertEquals(version, overlay.getVersion());
+	}
+
+	@Test
+	public void testEdits() {
+		final DAGModel<BayesianFactor> base = new DAGModel<>();
+		final int a = base.addVariable(2);
+		final int b = base.addVariable(2);
+		final int c = base.addVariable(3);
+		base.addParent(b, a);
+		base.addParent(c, b);
+
+		final OverlayModel<BayesianFactor> overlay = base.copyOnWrite();
+
+		// adding an arc that closes a cycle is not allowed
+		assertThrows(IllegalArgumentException.class, () -> overlay.addParent(a, c));
+
+		final int d = overlay.addVariable(2);
+		assertEquals(3, d);
+		overlay.addParent(d, a);
+		overlay.setFactor(d, BayesianFactorFactory.factory().domain(overlay.getDomain(a, d)).data().get());
+		overlay.removeVariable(b);
+
+		assertArrayEquals(new int[]{0, 2, 3}, overlay.getVariables());
+		assertArrayEquals(new int[]{d}, overlay.getChildren(a));
+		assertArrayEquals(new int[0], overlay.getParents(c));
+		assertNull(overlay.getFactor(b));
+
+		// the copy is independent from the overlay
+		final OverlayModel<BayesianFactor> copy = overlay.copy();
+		copy.removeVariable(d);
+		assertArrayEquals(new int[]{d}, overlay.getChildren(a));
+		assertArrayEquals(new int[0], copy.getChildren(a));
+
+		// the base model is untouched
+		assertArrayEquals(new int[]{0, 1, 2}, base.getVariables());
+		assertArrayEquals(new int[]{b}, base.getChildren(a));
+		assertArrayEquals(new int[]{b}, base.getParents(c));
+
+		// changes of the base model invalidate the overlay
+		base.addVariable(2);
+		assertThrows(IllegalStateException.class, overlay::getVariables);
+	}
+
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -130,4 +131,92 @@ public class BIFParserTest {
 		assertEquals(2, bn.getParents(map.get("Raf")).length);
 	}
 
-}
\ No newline at end of file
+	private static BIFObject parse(String content) {
+		return new BIFParser("test.bif").scan(BIFTokenizer.of(content)).getResult();
+	}
+
+	@Test
+	public void testVariants() {
+		final BIFObject obj = parse("network \"test net\" {\n" +
+				"  property \"author = a; b\";\n" +
+				"}\n" +
+				"/* a comment\n over more lines */\n" +
+				"variable A {\n" +
+				"  type discrete[2] { low value, high] };\n" +
+				"  property position = (10, 20);\n" +
+				"}\n" +
+				"variable B { type discrete [ 3 ] { x, y, z }; } // trailing comment\n" +
+				"probability ( A ) { table 0.25 0.75; }\n" +
+				"probability ( B | A ) {\n" +
+				"  table 0.1, 0.2, 0.3, 0.4, 0.6, 0.4;\n" +
+				"}\n");
+
+		assertEquals("\"test net\"", obj.name);
+		assertEquals(1, obj.variableStates.get("A$high]"));
+		assertEquals(0, obj.variableStates.get("A$low value"));
+		assertArrayEquals(new double[]{.25, .75}, obj.variableFactors.get("A").getData());
+
+		// the state of B changes slowest in the table
+		final int a = obj.variableName.get("A");
+		final int b = obj.variableName.get("B");
+		final BayesianNetwork bn = obj.network;
+		assertEquals(.1, bn.getFactor(b).filter(a, 0).getValue(0), 1e-12);
+		assertEquals(.2, bn.getFactor(b).filter(a, 1).getValue(0), 1e-12);
+		assertEquals(.4, bn.getFactor(b).filter(a, 1).getValue(1), 1e-12);
+		assertEquals(.4, bn.getFactor(b).filter(a, 1).getValue(2), 1e-12);
+	}
+
+	@Test
+	public void testDefault() {
+		final BIFObject obj = parse("network unknown {}\n" +
+				"variable A { type discrete [ 3 ] { a0, a1, a2 }; }\n" +
+				"variable B { type discrete [ 2 ] { b0, b1 }; }\n" +
+				"probability ( A ) { table 0.2, 0.3, 0.5; }\n" +
+				"probability ( B | A ) {\n" +
+				"  (a1) 0.9, 0.1;\n" +
+				"  default 0.5, 0.5;\n" +
+				"}\n");
+
+		final int a = obj.variableName.get("A");
+		final int b = obj.variableName.get("B");
+		assertArrayEquals(new double[]{.5, .5}, obj.network.getFactor(b).filter(a, 0).getData());
+		assertArrayEquals(new double[]{.9, .1}, obj.network.getFactor(b).filter(a, 1).getData());
+		assertArrayEquals(new double[]{.5, .5}, obj.network.getFactor(b).filter(a, 2).getData());
+	}
+
+	@Test
+	public void testErrors() {
+		final String header = "network unknown {\n}\n" +
+				"variable A { type discrete [ 2 ] { yes, no }; }\n" +
+				"variable B { type discrete [ 2 ] { yes, no }; }\n";
+
+		BIFFormatException e = assertThrows(BIFFormatException.class, () -> parse(header +
+				"probability ( B | A ) {\n" +
+				"  (yes) 0.1, 0.9;\n" +
+				"  (maybe) 0.2, 0.8;\n" +
+				"}\n"));
+		assertEquals(7, e.getLine());
+		assertEquals(4, e.getColumn());
+
+		e = assertThrows(BIFFormatException.class, () -> parse(header +
+				"probability ( B | C ) {\n}\n"));
+		assertEquals(5, e.getLine());
+		assertEquals(19, e.getColumn());
+
+		e = assertThrows(BIFFormatException.class, () -> parse(header +
+				"probability ( A ) {\n  table 0.1, 0.x;\n}\n"));
+		assertEquals(6, e.getLine());
+		assertEquals(14, e.getColumn());
+
+		e = assertThrows(BIFFormatException.class, () -> parse(header +
+				"probability ( A ) {\n  table 0.1, 0.2, 0.7;\n}\n"));
+		assertEquals(6, e.getLine());
+		assertEquals(19, e.getColumn());
+
+		e = assertThrows(BIFFormatException.class, () -> parse(header +
+				"probability ( A ) {\n  table 0.1, 0.9;\n"));
+		assertEquals(7, e.getLine());
+		assertEquals(1, e.getColumn());
+	}
+
+}
@@ -0,0 +1,155 @@
+package ch.idsia.crema.model.io.bin;
+
+import ch.idsia.crema.core.Strides;
+import ch.idsia.crema.factor.GenericFactor;
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.factor.credal.linear.interval.IntervalDefaultFactor;
+import ch.idsia.crema.factor.credal.linear.separate.SeparateHalfspaceDefaultFactor;
+import ch.idsia.crema.factor.credal.vertex.separate.VertexDefaultFactor;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.model.graphical.DAGModel;
+import ch.idsia.crema.model.io.bif.BIFParser;
+import ch.idsia.crema.model.io.uai.UAIParser;
+import gnu.trove.map.TIntObjectMap;
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryModelTest {
+
+	@TempDir
+	Path folder;
+
+	@ParameterizedTest
+	@ValueSource(strings = {"alloy", "asia", "cancer", "earthquake", "sachs"})
+	public void testBIF(String name) throws IOException {
+		final BayesianNetwork model = BIFParser.read("models/bif/" + name + ".bif").network;
+		final DAGModel<?> read = roundTrip(model);
+
+		assertTrue(read instanceof BayesianNetwork);
+		assertModelEquals(model, read);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"bayes", "simple-bayes", "party", "pgm-hcredal", "simple-hcredal", "pgm-vcredal", "simple-vcredal"})
+	public void testUAI(String name) throws IOException {
+		final DAGModel<?> model = UAIParser.read("models/" + name + ".uai");
+		final DAGModel<?> read = roundTrip(model);
+
+		assertEquals(model instanceof BayesianNetwork, read instanceof BayesianNetwork);
+		assertModelEquals(model, read);
+	}
+
+	@Test
+	public void testInterval() throws IOException {
+		final DAGModel<IntervalDefaultFactor> model = new DAGModel<>();
+		final int a = model.addVariable(2);
+		final int b = model.addVariable(3);
+		model.addParent(b, a);
+
+		model.setFactor(a, new IntervalDefaultFactor(new Strides(new int[]{a}, new int[]{2}), Strides.empty(),
+				new double[][]{{.2, .3}}, new double[][]{{.7, .8}}));
+		model.setFactor(b, new IntervalDefaultFactor(new Strides(new int[]{b}, new int[]{3}), new Strides(new int[]{a}, new int[]{2}),
+				new double[][]{{.1, .2, .3}, {0, .5, .1}}, new double[][]{{.4, .5, .6}, {.2, .9, .3}}));
+
+		assertModelEquals(model, roundTrip(model));
+	}
+
+	@Test
+	public void testCorrupted() throws IOException {
+		final Path file = folder.resolve("asia.crmb");
+		BinaryModelWriter.write(BIFParser.read("models/bif/asia.bif").network, file.toString());
+		final byte[] bytes = Files.readAllBytes(file);
+
+		// a flipped bit in the payload
+		final byte[] flipped = bytes.clone();
+		flipped[bytes.length - 3] ^= 0x10;
+		BinaryFormatException e = assertThrows(BinaryFormatException.class, () -> BinaryModelReader.read(ByteBuffer.wrap(flipped)));
+		assertEquals(16, e.getOffset());
+
+		// a truncated file
+		e = assertThrows(BinaryFormatException.class, () -> BinaryModelReader.read(ByteBuffer.wrap(bytes, 0, bytes.length - 8)));
+		assertEquals(8, e.getOffset());
+
+		// not a model
+		final byte[] text = Files.readAllBytes(Path.of("models/bif/asia.bif"));
+		e = assertThrows(BinaryFormatException.class, () -> BinaryModelReader.read(ByteBuffer.wrap(text)));
+		assertEquals(0, e.getOffset());
+	}
+
+	private DAGModel<?> roundTrip(DAGModel<?> model) throws IOException {
+		final Path file = folder.resolve("model.crmb");
+		BinaryModelWriter.write(model, file.toString());
+		return BinaryModelReader.read(file.toString());
+	}
+
+	private static void assertModelEquals(DAGModel<?> expected, DAGModel<?> actual) {
+		assertArrayEquals(expected.getVariables(), actual.getVariables());
+		for (int v : expected.getVariables()) {
+			assertEquals(expected.getSize(v), actual.getSize(v));
+			assertArrayEquals(expected.getParents(v), actual.getParents(v));
+			assertFactorEquals(expected.getFactor(v), actual.getFactor(v));
+		}
+	}
+
+	private static void assertFactorEquals(GenericFactor expected, GenericFactor actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertDomainEquals(expected.getDomain(), actual.getDomain());
+
+		if (expected instanceof BayesianFactor) {
+			final BayesianFactor e = (BayesianFactor) expected;
+			final BayesianFactor a = (BayesianFactor) actual;
+			for (int i = 0; i < e.getDomain().getCombinations(); i++)
+				assertEquals(e.getValueAt(i), a.getValueAt(i));
+
+		} else if (expected instanceof VertexDefaultFactor) {
+			final VertexDefaultFactor e = (VertexDefaultFactor) expected;
+			final VertexDefaultFactor a = (VertexDefaultFactor) actual;
+			assertDomainEquals(e.getDataDomain(), a.getDataDomain());
+			for (int i = 0; i < e.getSeparatingDomain().getCombinations(); i++)
+				assertArrayEquals(e.getVerticesAt(i), a.getVerticesAt(i));
+
+		} else if (expected instanceof IntervalDefaultFactor) {
+			final IntervalDefaultFactor e = (IntervalDefaultFactor) expected;
+			final IntervalDefaultFactor a = (IntervalDefaultFactor) actual;
+			assertDomainEquals(e.getDataDomain(), a.getDataDomain());
+			for (int i = 0; i < e.getSeparatingDomain().getCombinations(); i++) {
+				assertArrayEquals(e.getLowerAt(i), a.getLowerAt(i));
+				assertArrayEquals(e.getUpperAt(i), a.getUpperAt(i));
+			}
+
+		} else if (expected instanceof SeparateHalfspaceDefaultFactor) {
+			final SeparateHalfspaceDefaultFactor e = (SeparateHalfspaceDefaultFactor) expected;
+			final SeparateHalfspaceDefaultFactor a = (SeparateHalfspaceDefaultFactor) actual;
+			assertDomainEquals(e.getDataDomain(), a.getDataDomain());
+
+			final TIntObjectMap<List<LinearConstraint>> ed = e.getData();
+			final TIntObjectMap<List<LinearConstraint>> ad = a.getData();
+			assertEquals(ed.keySet(), ad.keySet());
+			for (int key : ed.keys())
+				assertEquals(ed.get(key), ad.get(key));
+
+		} else {
+			fail("Unexpected factor " + expected.getClass());
+		}
+	}
+
+	private static void assertDomainEquals(Strides expected, Strides actual) {
+		assertArrayEquals(expected.getVariables(), actual.getVariables());
+		assertArrayEquals(expected.getSizes(), actual.getSizes());
+	}
+
+}
@@ -7,8 +7,15 @@ import ch.idsia.crema.factor.bayesian.BayesianNoisyOrFactor;
 import ch.idsia.crema.model.graphical.BayesianNetwork;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -74,4 +81,43 @@ public class BayesUAIWriterTest {
 		Assertions.assertArrayEquals(fa.getParents(), fb.getParents());
 	}
 
-}
\ No newline at end of file
+	@ParameterizedTest
+	@ValueSource(strings = {"bayes", "simple-bayes", "party"})
+	public void writeToStream(String name) throws IOException {
+		BayesianNetwork bn = new BayesUAIParser("./models/" + name + ".uai").parse();
+		BayesUAIWriter writer = new BayesUAIWriter(bn, name + ".uai");
+
+		StringWriter out = new StringWriter();
+		writer.write(out);
+
+		// output of the writer that built the whole file in memory before writing it
+		String expected = Files.readString(Path.of("src/test/resources/uai/" + name + ".uai"));
+		Assertions.assertEquals(expected.replace("\n", System.lineSeparator()), out.toString());
+
+		// one line for each line separator, the last one empty
+		List<String> lines = List.of(expected.split("\n", -1));
+		Assertions.assertEquals(lines.subList(0, lines.size() - 1), writer.serialize());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void writeToFileWithExtraLines(@TempDir Path folder) throws IOException {
+		BayesianNetwork bn = new BayesUAIParser("./models/simple-bayes.uai").parse();
+		Path file = folder.resolve("simple-bayes.uai");
+
+		// a writer written against the old API, that adds its own lines and writes them with writeToFile()
+		BayesUAIWriter writer = new BayesUAIWriter(bn, file.toString()) {
+			@Override
+			protected void writeTarget() {
+				super.writeTarget();
+				lines.add("0");
+			}
+		};
+		writer.writeToFile();
+
+		List<String> expected = new ArrayList<>(new BayesUAIWriter(bn, file.toString()).serialize());
+		expected.add("0");
+		Assertions.assertEquals(expected, Files.readAllLines(file));
+	}
+
+}
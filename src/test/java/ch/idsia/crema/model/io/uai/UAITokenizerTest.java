@@ -0,0 +1,141 @@
+package ch.idsia.crema.model.io.uai;
+
+import ch.idsia.crema.factor.bayesian.BayesianFactor;
+import ch.idsia.crema.model.graphical.BayesianNetwork;
+import ch.idsia.crema.utility.SplitRandom;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UAITokenizerTest {
+
+	private static UAITokenizer tokenizer(String content) {
+		return new UAITokenizer(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testNumbers() {
+		final String[] values = {
+				"0", "1", "-1", "0.5", ".25", "1.", "+3.75", "1e3", "1E-3", "2.5e+2", "0.000001", "123456789012345",
+				"0.1234567890123456789", "1e-320", "1e300", "4.9e-324", "-0.0", "NaN", "Infinity", "0.30000000000000004"
+		};
+
+		final UAITokenizer t = tokenizer(String.join(" \n\t", values));
+		for (String value : values)
+			assertEquals(Double.parseDouble(value), t.nextDouble(), value);
+		assertFalse(t.hasNext());
+	}
+
+	@Test
+	public void testRandomNumbers() {
+		final SplitRandom random = new SplitRandom(3);
+		final StringBuilder sb = new StringBuilder();
+		final double[] expected = new double[10000];
+		for (int i = 0; i < expected.length; i++) {
+			final String s = i % 2 == 0
+					? Double.toString(random.nextDouble())
+					: String.format("%.6f", random.nextDouble() * 100);
+			expected[i] = Double.parseDouble(s);
+			sb.append(s).append(i % 7 == 0 ? '\n' : ' ');
+		}
+
+		final UAITokenizer t = tokenizer(sb.toString());
+		for (double v : expected)
+			assertEquals(v, t.nextDouble());
+	}
+
+	@Test
+	public void testCommentsAndPositions() {
+		final UAITokenizer t = tokenizer("// comment 1 2\nBAYES\n# 3 4\n  12  -7\n\tx");
+
+		assertEquals("BAYES", t.peek());
+		assertEquals(2, t.getLine());
+		assertEquals("BAYES", t.next());
+		assertEquals(12, t.nextInt());
+		assertEquals(4, t.getLine());
+		assertEquals(3, t.getColumn());
+		assertEquals(-7, t.nextInt());
+		assertEquals(7, t.getColumn());
+
+		assertFalse(t.isNextNumber());
+		final UAIFormatException e = assertThrows(UAIFormatException.class, t::nextInt);
+		assertEquals(5, e.getLine());
+		assertEquals(2, e.getColumn());
+		assertTrue(e.getMessage().startsWith("Line 5, column 2"));
+
+		assertEquals("x", t.next());
+		assertFalse(t.hasNext());
+		assertThrows(UAIFormatException.class, t::nextDouble);
+	}
+
+	@Test
+	public void testErrorInModel() {
+		final List<String> lines = List.of(
+				"BAYES",
+				"2",
+				"3 2",
+				"2",
+				"1 0",
+				"2 0 1",
+				"3",
+				"0.7 0.2 0.1",
+				"6",
+				"0.2 0.8 0.7 0,3 0.9 0.1"
+		);
+
+		final UAIFormatException e = assertThrows(UAIFormatException.class, () -> new BayesUAIParser(lines).parse());
+		assertEquals(10, e.getLine());
+		assertEquals(13, e.getColumn());
+	}
+
+	@Test
+	public void testSameAsLines() throws IOException {
+		final String filename = "models/bayes.uai";
+		final BayesianNetwork fromFile = UAIParser.read(filename);
+		final BayesianNetwork fromLines = new BayesUAIParser(UAIParser.readLines(filename)).parse();
+
+		for (int v : fromFile.getVariables()) {
+			final BayesianFactor expected = fromLines.getFactor(v);
+			final BayesianFactor actual = fromFile.getFactor(v);
+			assertArrayEquals(expected.getDomain().getVariables(), actual.getDomain().getVariables());
+			assertArrayEquals(expected.getData(), actual.getData(), 0);
+		}
+	}
+
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedTokenArray() {
+		// a parser written against the old API, that reads the whole content and moves the offset by hand
+		final UAIParser<int[]> parser = new UAIParser<>(List.of("EVID", "2 0 1", "# comment", "3 1")) {
+			int[] values;
+
+			{
+				TYPE = UAITypes.EVID;
+			}
+
+			@Override
+			protected void processFile() {
+				readContent();
+				assertArrayEquals(new String[]{"EVID", "2", "0", "1", "3", "1"}, elements);
+				parseType();
+				values = popIntegers();
+				incrementOffset(1);
+				assertEquals(5, getOffset());
+				values = new int[]{values[0], values[1], popInteger()};
+			}
+
+			@Override
+			protected int[] build() {
+				return values;
+			}
+		};
+
+		assertArrayEquals(new int[]{0, 1, 1}, parser.parse());
+	}
+}
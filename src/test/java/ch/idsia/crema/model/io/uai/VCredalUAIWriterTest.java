@@ -2,9 +2,15 @@ package ch.idsia.crema.model.io.uai;
 
 import ch.idsia.crema.IO;
 import ch.idsia.crema.model.graphical.DAGModel;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Author:  Claudio "Dna" Bonesana
@@ -26,4 +32,15 @@ public class VCredalUAIWriterTest {
 		IO.write(model, fileName + "3.uai");
 	}
 
+	@ParameterizedTest
+	@ValueSource(strings = {"simple-vcredal", "pgm-vcredal"})
+	public void writeToFile(String name, @TempDir Path folder) throws IOException {
+		final Path file = folder.resolve(name + ".uai");
+		UAIWriter.write(UAIParser.read("./models/" + name + ".uai"), file.toString());
+
+		// output of the writer that built the whole file in memory before writing it
+		final String expected = Files.readString(Path.of("src/test/resources/uai/" + name + ".uai"));
+		Assertions.assertEquals(expected.replace("\n", System.lineSeparator()), Files.readString(file));
+	}
+
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -83,4 +84,44 @@ public class FractionalSolverTest {
 		assertEquals(-1.090909090909, solver.getValue(), 1e-7);
 	}
 
+
+	@Test
+	public void testResolve() {
+		DAGModel<GenericFactor> model = new DAGModel<>();
+
+		int n0 = model.addVariable(3);
+		int n1 = model.addVariable(2);
+
+		IntervalFactor f0 = IntervalFactorFactory.factory()
+				.domain(model.getDomain(n0), model.getDomain(n1))
+				.set(new double[]{0.1, 0.3, 0.5}, new double[]{0.3, 0.8, 0.6}, 0)
+				.set(new double[]{0.1, 0.5, 0.1}, new double[]{0.3, 0.8, 0.7}, 1)
+				.get();
+
+		LinearConstraintSet problem = new SeparateLinearToExtensiveHalfspaceFactor().apply(f0).getLinearProblem();
+
+		Random random = new Random(42);
+
+		for (GoalType goal : GoalType.values()) {
+			FractionalSolver warm = new FractionalSolver();
+			warm.loadProblem(problem, goal);
+
+			for (int i = 0; i < 100; i++) {
+				double[] num = new double[6];
+				double[] denom = new double[6];
+				for (int j = 0; j < 6; j++) {
+					num[j] = random.nextDouble();
+					denom[j] = num[j] + random.nextDouble();
+				}
+
+				FractionalSolver cold = new FractionalSolver();
+				cold.loadProblem(problem, goal);
+				cold.solve(num, 0, denom, 0);
+
+				warm.resolve(num, 0, denom, 0);
+
+				assertEquals(cold.getValue(), warm.getValue(), 1e-9);
+			}
+		}
+	}
 }
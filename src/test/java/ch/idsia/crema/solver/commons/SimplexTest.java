@@ -3,13 +3,14 @@ package ch.idsia.crema.solver.commons;
 import org.apache.commons.math3.optim.linear.LinearConstraint;
 import org.apache.commons.math3.optim.linear.LinearConstraintSet;
 import org.apache.commons.math3.optim.linear.Relationship;
+import org.apache.commons.math3.optim.linear.UnboundedSolutionException;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Random;
 
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class SimplexTest {
 
@@ -64,4 +65,57 @@ public class SimplexTest {
 			assertArrayEquals(new double[]{21.875, 53.125}, solver.getVertex(), 1e-7);
 		}
 	}
+
+	@Test
+	public void testResolve() {
+		ArrayList<LinearConstraint> constraints = new ArrayList<>();
+		constraints.add(new LinearConstraint(new double[]{120, 210}, Relationship.LEQ, 15000));
+		constraints.add(new LinearConstraint(new double[]{110, 30}, Relationship.LEQ, 4000));
+		constraints.add(new LinearConstraint(new double[]{1, 1}, Relationship.LEQ, 75));
+		constraints.add(new LinearConstraint(new double[]{1, 2}, Relationship.GEQ, 10));
+		LinearConstraintSet problem = new LinearConstraintSet(constraints);
+
+		Random random = new Random(42);
+
+		for (GoalType goal : GoalType.values()) {
+			Simplex warm = new Simplex();
+			warm.loadProblem(problem, goal);
+
+			for (int i = 0; i < 100; i++) {
+				double[] objective = {random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1};
+
+				Simplex cold = new Simplex();
+				cold.loadProblem(problem, goal);
+				cold.solve(objective, 1);
+
+				warm.resolve(objective, 1);
+
+				assertEquals(cold.getValue(), warm.getValue(), 1e-7);
+			}
+		}
+	}
+
+	@Test
+	public void testResolveIsOptimal() {
+		ArrayList<LinearConstraint> constraints = new ArrayList<>();
+		// -x0 + x1 <= 4
+		constraints.add(new LinearConstraint(new double[]{-1, 1}, Relationship.LEQ, 4));
+		// x1 <= 6
+		constraints.add(new LinearConstraint(new double[]{0, 1}, Relationship.LEQ, 6));
+
+		Simplex solver = new Simplex();
+		solver.loadProblem(new LinearConstraintSet(constraints), GoalType.MAXIMIZE);
+
+		solver.solve(new double[]{0, 1}, 0);
+		assertTrue(solver.isOptimal());
+		assertEquals(6, solver.getValue(), 1e-7);
+
+		// x0 has no upper bound
+		assertThrows(UnboundedSolutionException.class, () -> solver.resolve(new double[]{1, 0}, 0));
+		assertFalse(solver.isOptimal());
+
+		solver.resolve(new double[]{0, 1}, 0);
+		assertTrue(solver.isOptimal());
+		assertEquals(6, solver.getValue(), 1e-7);
+	}
 }
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -74,4 +75,70 @@ class RandomUtilTest {
 		Assertions.assertArrayEquals(seq0, seq2);
 		Assertions.assertArrayEquals(seq1, seq3);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testSeedIsReproducible() {
+		RandomUtil.setRandomSeed(42);
+		final int[] first = IntStream.generate(() -> RandomUtil.getRandom().nextInt(100)).limit(20).toArray();
+
+		RandomUtil.setRandomSeed(42);
+		final int[] second = IntStream.generate(() -> RandomUtil.getRandom().nextInt(100)).limit(20).toArray();
+
+		Assertions.assertArrayEquals(first, second);
+	}
+
+	@Test
+	void testStreams() {
+		RandomUtil.setRandomSeed(7);
+
+		final long[] s1 = RandomUtil.stream(1).longs(10).toArray();
+		final long[] s1b = RandomUtil.stream(1).longs(10).toArray();
+		final long[] s2 = RandomUtil.stream(2).longs(10).toArray();
+
+		Assertions.assertArrayEquals(s1, s1b);
+		Assertions.assertFalse(Arrays.equals(s1, s2));
+
+		// split gives the current sequence to the new generator and moves ahead the old one
+		final SplitRandom master = new SplitRandom(7);
+		final SplitRandom copy = master.copy();
+		final SplitRandom child = master.split();
+
+		Assertions.assertEquals(copy.nextLong(), child.nextLong());
+		Assertions.assertNotEquals(copy.nextLong(), master.nextLong());
+	}
+
+	@Test
+	void testSplitRandomRange() {
+		final SplitRandom random = new SplitRandom(0);
+
+		double sum = 0;
+		for (int i = 0; i < 100000; i++) {
+			final double d = random.nextDouble();
+			Assertions.assertTrue(d >= 0 && d < 1);
+			sum += d;
+
+			final int k = random.nextInt(7);
+			Assertions.assertTrue(k >= 0 && k < 7);
+		}
+
+		Assertions.assertEquals(.5, sum / 100000, .01);
+	}
+
+	@Test
+	void testThreadsHaveOwnGenerators() throws Exception {
+		RandomUtil.setRandomSeed(3);
+		final Random main = RandomUtil.getRandom();
+
+		final ExecutorService es = Executors.newFixedThreadPool(2);
+		final Future<Random> f1 = es.submit(RandomUtil::getRandom);
+		// the pool creates a new thread for each task until it is full
+		final Future<Random> f2 = es.submit(RandomUtil::getRandom);
+		final Random r1 = f1.get();
+		final Random r2 = f2.get();
+		es.shutdown();
+
+		Assertions.assertNotSame(main, r1);
+		Assertions.assertNotSame(main, r2);
+		Assertions.assertNotSame(r1, r2);
+	}
+}
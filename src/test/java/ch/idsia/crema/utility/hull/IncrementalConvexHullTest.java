@@ -0,0 +1,113 @@
+package ch.idsia.crema.utility.hull;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalConvexHullTest {
+
+	private static double[][] sorted(double[][] points) {
+		final double[][] copy = points.clone();
+		Arrays.sort(copy, (a, b) -> {
+			for (int i = 0; i < a.length; i++) {
+				final int c = Double.compare(a[i], b[i]);
+				if (c != 0) return c;
+			}
+			return 0;
+		});
+		return copy;
+	}
+
+	private static double[][] randomDistributions(Random random, int n, int size) {
+		final double[][] points = new double[n][size];
+		for (double[] point : points) {
+			double sum = 0;
+			for (int j = 0; j < size; j++) {
+				point[j] = random.nextDouble();
+				sum += point[j];
+			}
+			for (int j = 0; j < size; j++)
+				point[j] /= sum;
+		}
+		return points;
+	}
+
+	@Test
+	void testSameAsLP() {
+		final Random random = new Random(42);
+
+		for (int size = 2; size <= 4; size++) {
+			final double[][] points = randomDistributions(random, 30, size);
+
+			final double[][] expected = sorted(new LPConvexHull().apply(points));
+
+			double[][] lp = new double[0][];
+			final IncrementalConvexHull incremental = new IncrementalConvexHull();
+			for (double[] point : points) {
+				lp = LPConvexHull.add(lp, point);
+				incremental.add(point);
+			}
+
+			assertArrayEquals(expected, sorted(lp));
+			assertArrayEquals(expected, sorted(incremental.getVertices()));
+			assertArrayEquals(expected, sorted(new IncrementalConvexHull().apply(points)));
+		}
+	}
+
+	@Test
+	void testDuplicatesAndInternal() {
+		final IncrementalConvexHull hull = new IncrementalConvexHull();
+
+		assertTrue(hull.add(new double[]{0, 0}));
+		assertTrue(hull.add(new double[]{1, 0}));
+		assertTrue(hull.add(new double[]{0, 1}));
+
+		// already there
+		assertFalse(hull.add(new double[]{1, 0}));
+		// inside the triangle
+		assertFalse(hull.add(new double[]{.25, .25}));
+		// on an edge
+		assertFalse(hull.add(new double[]{.5, .5}));
+		assertEquals(3, hull.size());
+
+		// makes (1, 0) and (0, 1) internal
+		assertTrue(hull.add(new double[]{1, 1}));
+		assertTrue(hull.add(new double[]{2, 0}));
+		assertTrue(hull.add(new double[]{0, 2}));
+
+		final double[][] expected = {{0, 0}, {0, 2}, {2, 0}};
+		assertArrayEquals(expected, sorted(hull.getVertices()));
+	}
+
+	@Test
+	void testBatch() {
+		final double[][] points = randomDistributions(new Random(7), 50, 3);
+
+		final IncrementalConvexHull batch = new IncrementalConvexHull();
+		batch.addAll(Arrays.copyOfRange(points, 0, 25));
+		batch.addAll(Arrays.copyOfRange(points, 25, 50));
+
+		final IncrementalConvexHull single = new IncrementalConvexHull();
+		for (double[] point : points)
+			single.add(point);
+
+		assertArrayEquals(sorted(single.getVertices()), sorted(batch.getVertices()));
+	}
+
+	@Test
+	void testMerge() {
+		final double[][] points = randomDistributions(new Random(11), 60, 3);
+
+		final List<double[][]> parts = new ArrayList<>();
+		for (int i = 0; i < 60; i += 20)
+			parts.add(IncrementalConvexHull.compute(Arrays.copyOfRange(points, i, i + 20)));
+
+		assertArrayEquals(sorted(IncrementalConvexHull.compute(points)), sorted(IncrementalConvexHull.merge(parts)));
+		assertEquals(0, IncrementalConvexHull.merge(new ArrayList<>()).length);
+	}
+}